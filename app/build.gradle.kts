@@ -13,9 +13,19 @@ android {
         versionCode = 1
         versionName = "1.0"
 
+        // Node-RED base URL(s); override with -PnodeRedBaseUrl=http://host:1880 (e.g. a local stand-in server).
+        // Several comma-separated URLs form a failover pool, most preferred first.
+        val nodeRedBaseUrl = (project.findProperty("nodeRedBaseUrl") as String?)
+            ?: "https://b563cf61ebcd.ngrok-free.app"
+        buildConfigField("String", "NODE_RED_BASE_URL", "\"$nodeRedBaseUrl\"")
 
     }
 
+    buildFeatures {
+        // BuildConfig.DEBUG gates debug-level RingLog calls (a run-time check: release is not minified)
+        buildConfig = true
+    }
+
     buildTypes {
         release {
             isMinifyEnabled = false
@@ -35,7 +45,6 @@ dependencies {
     androidTestImplementation(libs.espresso.core)
 
     implementation(libs.retrofit)
-    implementation(libs.retrofit.gson)
 
     implementation(libs.play.services.location)
 
@@ -18,4 +18,10 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Strip debug/verbose logcat calls (and their string building) when minification is enabled.
+-assumenosideeffects class android.util.Log {
+    public static int d(...);
+    public static int v(...);
+}
@@ -0,0 +1,62 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+import java.util.Calendar;
+
+/**
+ * AndroidConstraintSource: Reads the conditions {@link BulkUploadScheduler} waits for from the
+ * system services. Every call is a cheap binder query, so nothing is cached.
+ */
+public class AndroidConstraintSource implements BulkUploadScheduler.ConstraintSource {
+    private final ConnectivityManager connectivity;
+    private final BatteryManager battery;
+    private final PowerManager power;
+
+    public AndroidConstraintSource(Context context) {
+        Context app = context.getApplicationContext();
+        this.connectivity = app.getSystemService(ConnectivityManager.class);
+        this.battery = app.getSystemService(BatteryManager.class);
+        this.power = app.getSystemService(PowerManager.class);
+    }
+
+    @Override
+    public boolean isConnected() {
+        Network network = connectivity.getActiveNetwork();
+        NetworkCapabilities capabilities = network != null ? connectivity.getNetworkCapabilities(network) : null;
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    @Override
+    public boolean isUnmetered() {
+        Network network = connectivity.getActiveNetwork();
+        NetworkCapabilities capabilities = network != null ? connectivity.getNetworkCapabilities(network) : null;
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+    }
+
+    @Override
+    public boolean isCharging() {
+        return battery.isCharging();
+    }
+
+    @Override
+    public boolean isIdle() {
+        return power.isDeviceIdleMode() || !power.isInteractive();
+    }
+
+    @Override
+    public int getBatteryPercent() {
+        return battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+    }
+
+    @Override
+    public int getMinuteOfDay() {
+        Calendar now = Calendar.getInstance();
+        return now.get(Calendar.HOUR_OF_DAY) * 60 + now.get(Calendar.MINUTE);
+    }
+}
@@ -10,21 +10,26 @@ import android.os.Looper;
 import android.provider.Settings;
 import android.util.Log;
 import androidx.core.content.ContextCompat;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * BluetoothConnectionManager: Handles Bluetooth  connection with Galaxy Watch 5 Pro.
  */
 public class BluetoothConnectionManager {
     private static final String TAG = "BluetoothManager";
+    private static final String SAMPLE_INTERVAL_GAUGE = "hr.sampleIntervalMs";
     private String identifier = "";
     private BluetoothSocket bluetoothSocket;
 
@@ -34,10 +39,76 @@ public class BluetoothConnectionManager {
 
     private final Context context;
     private OnHeartRateReceived listener;
+    private StartupOrchestrator startupOrchestrator; // Optional: records connect / first-byte milestones
+    private volatile SessionRecorder sessionRecorder;  // Optional: captures raw SPP bytes
+
+    private final MetricsRegistry.Counter sppMessages = MetricsRegistry.get().counter(MetricsRegistry.SPP_MESSAGES);
+    private final MetricsRegistry.Counter sppParseErrors = MetricsRegistry.get().counter(MetricsRegistry.SPP_PARSE_ERRORS);
+    private final MetricsRegistry.Counter vibrationsSent = MetricsRegistry.get().counter(MetricsRegistry.VIBRATIONS_SENT);
+    private final MetricsRegistry.Counter vibrationsDropped = MetricsRegistry.get().counter(MetricsRegistry.VIBRATIONS_DROPPED);
+    private final MetricsRegistry.Histogram sampleAge = MetricsRegistry.get().histogram("spp.sampleAgeMs");
+
+    // Clock synchronisation and keepalive with the watch (Ping/Pong over SPP)
+    private static final int SYNC_BURST_PINGS = 4;          // Quick burst right after connecting
+    private static final long SYNC_BURST_INTERVAL_MS = 500;
+    private static final long HEARTBEAT_INTERVAL_MS = 5000; // Then steady pings: keepalive + drift tracking
+    // Deadlines apply only after the watch's first pong: older firmware ignores "Ping:"
+    private static final long PONG_TIMEOUT_MS = 2000;
+    private static final int MAX_MISSED_PONGS = 2;
+    private static final long IDLE_TIMEOUT_MS = 12000;      // Pongs every 5 s, samples ~1/s
+    private static final long LIVENESS_CHECK_MS = 500;
+    // Frame reader: fixed buffers, longest frame accepted before resynchronising
+    private static final int READ_BUFFER_BYTES = 1024;
+    private static final int MAX_FRAME_BYTES = 2048;
+    // Batched sample frames (negotiated in the handshake); flushMs <= 0 keeps one line per sample
+    private static final long DEFAULT_BATCH_FLUSH_MS = 1000;
+    private static final int DEFAULT_BATCH_LOW = 50;       // Values outside [low, high] flush immediately
+    private static final int DEFAULT_BATCH_HIGH = 100;
+    private static final int DEFAULT_BATCH_MAX_SAMPLES = 16;
+    private volatile long batchFlushMs = DEFAULT_BATCH_FLUSH_MS;
+    private volatile int batchLow = DEFAULT_BATCH_LOW;
+    private volatile int batchHigh = DEFAULT_BATCH_HIGH;
+    private volatile int batchMaxSamples = DEFAULT_BATCH_MAX_SAMPLES;
+    private final MetricsRegistry.Histogram batchSize = MetricsRegistry.get().histogram("spp.batchSize");
+    // Adaptive sampling rate ("Rate:<ms>"), thresholds shared with the batch flush band
+    private static final long MIN_SAMPLE_INTERVAL_MS = 1000;
+    private static final long MAX_SAMPLE_INTERVAL_MS = 10000;
+    private volatile SamplingRateController rateController;
+    private final MetricsRegistry.Counter rateChanges = MetricsRegistry.get().counter("hr.rateChanges");
+    private final LinkHeartbeat heartbeat = new LinkHeartbeat(PONG_TIMEOUT_MS, MAX_MISSED_PONGS, IDLE_TIMEOUT_MS);
+    private final MetricsRegistry.Counter deadLinkTeardowns = MetricsRegistry.get().counter("bt.deadLinkTeardowns");
+    private final EnergyAccountant energy = EnergyAccountant.get();
+    private static final long VIBRATION_LEAD_MS = 150;      // Default scheduling lead for synced commands
+    private final ClockSync clockSync = new ClockSync();
+    private final Object writeLock = new Object();
+    private ScheduledExecutorService linkScheduler;
+    private int pingSeq = 0;
+    // Channels on the one SPP socket; framing is only switched on for combined modes
+    private final ChannelMux mux = new ChannelMux();
+    private volatile BluetoothSocket readerSocket;
+    private volatile OnBeatPlayed beatPlayedListener;
+    // Acknowledged commands with credit flow control, when the watch supports them ("Acks:1")
+    private final VibrationDeliveryTracker deliveryTracker = new VibrationDeliveryTracker(
+            this::sendTrackedFrame, () -> Math.round(heartbeat.getSmoothedRttMs()), clockSync);
+    private long deliveryTickAtMs = Long.MAX_VALUE;
+    private final LongSupplier sampleIntervalGauge = () -> {
+        SamplingRateController controller = rateController;
+        return controller != null ? controller.getIntervalMs() : 0;
+    };
 
     public BluetoothConnectionManager(Context context, String identifier) {
         this.context = context;
         this.identifier = identifier;
+        MetricsRegistry.get().gauge(SAMPLE_INTERVAL_GAUGE, sampleIntervalGauge);
+        // Control first so pings/pongs stay timely; alerts before guidance, which is refreshed anyway
+        // Control carries pongs and vibration acks
+        mux.register(ChannelMux.CH_CONTROL, "control", 0, 4, 40, this::handleControlFrame);
+        mux.register(ChannelMux.CH_HEART_RATE, "heartRate", 1, 4, 50, this::handleHeartRateFrame);
+        mux.register(ChannelMux.CH_SUN, "sun", 2, 2, 0, null);
+        mux.register(ChannelMux.CH_MOON, "moon", 2, 2, 0, null);
+        mux.register(ChannelMux.CH_POI, "poi", 2, 2, 0, null);
+        // Pacing beats are sent ahead of time and each one matters: deeper queue, alert priority
+        mux.register(ChannelMux.CH_PACING, "pacing", 1, 8, 20, this::handlePacingFrame);
     }
 
     /**
@@ -138,16 +209,47 @@ public class BluetoothConnectionManager {
                 // Step 6: Connect to the smartwatch
                 bluetoothSocket.connect();
                 Log.d(TAG, "✅ Connected to smartwatch via Classic Bluetooth!");
+                markStartup("watchConnected");
 
-                // Step 7: Send the monitoring type to the watch (e.g., "Monitoring:HeartRate")
-                OutputStream outputStream = bluetoothSocket.getOutputStream();
+                // Step 7: Send the monitoring type to the watch (e.g., "Monitoring:HeartRate",
+                // or "Monitoring:HeartRate+SunAzimuth" plus a channel map for combined modes)
+                List<String> modes = ChannelMux.parseModes(monitoringType);
+                mux.setMultiplexed(false);
                 String monitoringCommand = "Monitoring:" + monitoringType;
-                outputStream.write((monitoringCommand + "\n").getBytes());  // Send command
-                outputStream.flush();
+                writeLine(monitoringCommand);  // Send command
                 Log.d(TAG, "📤 Sent monitoring type: " + monitoringType);
+                // Pacing follows the live heart rate, so it streams samples like HeartRate does
+                boolean streamsHeartRate = modes.contains("HeartRate") || modes.contains("Pacing");
+                if (streamsHeartRate && batchFlushMs > 0) {
+                    // Ask for batched frames; watches without batching ignore the line
+                    writeLine(SampleBatchDecoder.handshake(batchFlushMs, batchLow, batchHigh, batchMaxSamples));
+                }
+                if (streamsHeartRate) {
+                    // Start fast; the controller slows the watch down once the signal is calm
+                    rateController = new SamplingRateController(MIN_SAMPLE_INTERVAL_MS, MAX_SAMPLE_INTERVAL_MS, batchLow, batchHigh);
+                    writeLine("Rate:" + MIN_SAMPLE_INTERVAL_MS);
+                } else {
+                    rateController = null;
+                }
+                // Offer acknowledged commands; watches without them ignore the line and stay fire-and-forget
+                deliveryTracker.reset();
+                writeLine("Acks:1");
+                if (modes.size() > 1) {
+                    writeLine(channelMap(modes));
+                    mux.setMultiplexed(true); // Everything after the handshake is framed
+                }
 
-                // Step 8: Start listening for incoming data from the watch
-                readData(bluetoothSocket.getInputStream(), bluetoothSocket);
+                // Step 7b: Start the keepalive, which also synchronises clocks for timestamps
+                startLinkTasks();
+
+                // Step 8: Start listening for incoming data from the watch (teeing to the recorder if active)
+                InputStream inputStream = bluetoothSocket.getInputStream();
+                SessionRecorder recorder = sessionRecorder;
+                if (recorder != null) {
+                    inputStream = recorder.tee(inputStream);
+                }
+                readData(inputStream, bluetoothSocket);
+                stopLinkTasks();
 
             } catch (SecurityException se) {
                 // Handle missing permissions error (could happen at runtime if revoked)
@@ -172,23 +274,36 @@ public class BluetoothConnectionManager {
      * Parses messages formatted as key-value pairs (e.g., MonitoringType:HeartRate, Value:80, ...),
      * validates the data, attempts to recover missing identifiers if needed,
      * and dispatches the result to a listener callback.
+     * Frames come from a bounded {@link SppFrameReader}: oversized, noisy or mis-checksummed
+     * frames are skipped without growing memory or stopping the reader.
      *
      * @param inputStream     The InputStream received from the connected smartwatch.
-     * @param bluetoothSocket The active Bluetooth socket (used to extract device alias if needed).
+     * @param bluetoothSocket The active Bluetooth socket (used to extract device alias if needed),
+     *                        or null when replaying a recorded session.
      */
     private void readData(InputStream inputStream, BluetoothSocket bluetoothSocket) {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+        SppFrameReader reader = new SppFrameReader(inputStream, READ_BUFFER_BYTES, MAX_FRAME_BYTES);
         String line;
+        readerSocket = bluetoothSocket;
 
         try {
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                Log.d(TAG, "📥 Received: " + line);
-
-                if (line.startsWith("MonitoringType:HeartRate")) {
-                    handleHeartRateMessage(line, bluetoothSocket); // 👈 Extracted method
-                } else {
-                    Log.w(TAG, "⚠️ Unrecognized data format: " + line);
+            while ((line = reader.readFrame()) != null) {
+                markStartup("firstWatchByte");
+                heartbeat.onReceive(ClockSync.nowMs());
+                energy.onSppIn(line.length() + 1, ClockSync.nowMs());
+                RingLog.d(RingLog.EV_SPP_LINE, line.length(), 0); // Hot path: no string formatting
+                sppMessages.inc();
+
+                // Framed lines go by channel id, legacy lines by content
+                try {
+                    if (!mux.dispatch(line)) {
+                        Log.w(TAG, "⚠️ Unrecognized data format: " + line);
+                        sppParseErrors.inc();
+                    }
+                } catch (RuntimeException e) {
+                    // A malformed frame must never kill the reader thread
+                    Log.e(TAG, "❌ Failed to handle frame: " + line, e);
+                    sppParseErrors.inc();
                 }
             }
         } catch (IOException e) {
@@ -198,6 +313,78 @@ public class BluetoothConnectionManager {
             }
         }
     }
+    /**
+     * Builds "Channels:1=HeartRate,2=SunAzimuth" for a combined monitoring type.
+     */
+    private static String channelMap(List<String> modes) {
+        StringBuilder sb = new StringBuilder("Channels:");
+        for (String mode : modes) {
+            int channel = ChannelMux.channelForMode(mode);
+            if (channel >= 0) {
+                if (sb.length() > "Channels:".length()) {
+                    sb.append(',');
+                }
+                sb.append(channel).append('=').append(mode);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void handleControlFrame(String payload) {
+        if (payload.startsWith("Pong:")) {
+            handlePong(payload);
+        } else if (payload.startsWith("Ack:")) {
+            if (!deliveryTracker.onAck(payload, ClockSync.nowMs())) {
+                sppParseErrors.inc();
+            }
+            scheduleDeliveryTick(deliveryTracker.tick(ClockSync.nowMs()));
+        } else if (payload.startsWith("AckWindow:")) {
+            try {
+                int credits = Integer.parseInt(payload.substring("AckWindow:".length()).trim());
+                deliveryTracker.enable(credits);
+                Log.d(TAG, "✅ Watch acknowledges vibration commands, window=" + credits);
+            } catch (NumberFormatException e) {
+                sppParseErrors.inc();
+            }
+        } else {
+            Log.w(TAG, "⚠️ Unrecognized control frame: " + payload);
+            sppParseErrors.inc();
+        }
+    }
+
+    /**
+     * Handles "Played:<planned>,<actual>" (watch clock, ms): the watch's report of a paced beat.
+     */
+    private void handlePacingFrame(String payload) {
+        OnBeatPlayed played = beatPlayedListener;
+        String[] fields = payload.substring(payload.indexOf(':') + 1).split(",");
+        if (!payload.startsWith("Played:") || fields.length < 2) {
+            Log.w(TAG, "⚠️ Unrecognized pacing frame: " + payload);
+            sppParseErrors.inc();
+            return;
+        }
+        try {
+            long planned = Long.parseLong(fields[0].trim());
+            long actual = Long.parseLong(fields[1].trim());
+            if (played != null) {
+                played.onPlayed(planned, actual);
+            }
+        } catch (NumberFormatException e) {
+            sppParseErrors.inc();
+        }
+    }
+
+    private void handleHeartRateFrame(String payload) {
+        if (payload.startsWith(SampleBatchDecoder.PREFIX)) {
+            handleHeartRateBatch(payload, readerSocket);
+        } else if (payload.startsWith("MonitoringType:HeartRate")) {
+            handleHeartRateMessage(payload, readerSocket);
+        } else {
+            Log.w(TAG, "⚠️ Unrecognized heart rate frame: " + payload);
+            sppParseErrors.inc();
+        }
+    }
+
     /**
      * Handles a Bluetooth message containing heart rate data.
      * Parses the message, attempts to recover unknown identifiers,
@@ -214,8 +401,67 @@ public class BluetoothConnectionManager {
                 dataMap.put(kv[0].trim(), kv[1].trim());
             }
         }
+
+        Map<String, String> sample = prepareHeartRateSample(dataMap, bluetoothSocket, line);
+        if (sample != null && listener != null) {
+            handler.post(() -> listener.onReceived(sample));
+        }
+    }
+
+    /**
+     * Handles a batched frame: every sample goes through the same recovery and validation as a
+     * single-sample line. The listener then gets one sample for the whole batch: the newest
+     * sample's fields, plus every sample as "&lt;sampleTime&gt;=&lt;value&gt;;..." in
+     * {@link UplinkQueue#SAMPLES_FIELD}, so the batch stays one uplink request.
+     */
+    private void handleHeartRateBatch(String line, BluetoothSocket bluetoothSocket) {
+        List<Map<String, String>> samples = new ArrayList<>();
+        int decoded = SampleBatchDecoder.decode(line, (userId, smartWatchId, androidId, watchTimeMs, value) -> {
+            Map<String, String> dataMap = new HashMap<>();
+            dataMap.put("MonitoringType", "HeartRate");
+            dataMap.put("Value", String.valueOf(value));
+            dataMap.put("UserID", userId);
+            dataMap.put("SmartWatchID", smartWatchId);
+            dataMap.put("AndroidID", androidId);
+            dataMap.put("Ts", String.valueOf(watchTimeMs));
+            Map<String, String> sample = prepareHeartRateSample(dataMap, bluetoothSocket, line);
+            if (sample != null) {
+                samples.add(sample);
+            }
+        });
+        if (decoded < 0) {
+            Log.w(TAG, "⚠️ Malformed batch frame: " + line);
+            sppParseErrors.inc();
+        }
+        batchSize.record(samples.size());
+        if (!samples.isEmpty() && listener != null) {
+            StringBuilder series = new StringBuilder(samples.size() * 18);
+            for (Map<String, String> sample : samples) {
+                if (series.length() > 0) {
+                    series.append(';');
+                }
+                series.append(sample.get("SampleTime")).append('=').append(sample.get("Value"));
+            }
+            Map<String, String> batch = samples.get(samples.size() - 1);
+            batch.put(UplinkQueue.SAMPLES_FIELD, series.toString());
+            handler.post(() -> listener.onReceived(batch));
+        }
+    }
+
+    /**
+     * Stamps, recovers and validates one parsed heart rate sample.
+     *
+     * @return The sample ready for the listener, or null if it was rejected (errors are reported).
+     */
+    private Map<String, String> prepareHeartRateSample(Map<String, String> dataMap, BluetoothSocket bluetoothSocket, String line) {
+        // Stamp the sample in phone time: use the watch timestamp if present and clocks are synced
+        stampSampleTime(dataMap);
+
         String fallback = identifier;
-        if(!dataMap.get("AndroidID").equals("UnknownAndroid")){
+        String androidId = dataMap.get("AndroidID");
+        if (androidId == null) {
+            dataMap.put("AndroidID", "UnknownAndroid"); // Missing key: recover it like an unknown one
+        } else if (!"UnknownAndroid".equals(androidId) && fallback != null && fallback.matches("^Android-\\d+$")) {
             dataMap.put("AndroidID", fallback.split("-")[1]);
         }
         boolean unknownDetected = false;
@@ -235,6 +481,9 @@ public class BluetoothConnectionManager {
         // Recover UserID and WatchID if unknown
         if ("UnknownWatch".equals(dataMap.get("SmartWatchID")) || "UnknownUser".equals(dataMap.get("UserID"))) {
             try {
+                if (bluetoothSocket == null) {
+                    throw new SecurityException("No live socket (replay), alias unavailable");
+                }
                 BluetoothDevice remoteDevice = bluetoothSocket.getRemoteDevice();
                 @SuppressLint("MissingPermission") String alias = remoteDevice.getAlias();
 
@@ -259,20 +508,20 @@ public class BluetoothConnectionManager {
             if (listener != null) {
                 handler.post(() -> listener.onError("❌ Unrecoverable Unknown fields."));
             }
-            return;
+            return null;
         }
 
         // Validate and deliver heart rate value
         if (dataMap.containsKey("Value")) {
             try {
-                Integer.parseInt(dataMap.get("Value")); // Validate numeric format
-
-                if (listener != null) {
-                    handler.post(() -> listener.onReceived(dataMap));
-                }
+                int value = Integer.parseInt(dataMap.get("Value")); // Validate numeric format
+                RingLog.d(RingLog.EV_HR_SAMPLE, value, 0);
+                adjustSamplingRate(value, Long.parseLong(dataMap.get("SampleTime")));
+                return dataMap;
 
             } catch (NumberFormatException e) {
                 Log.e(TAG, "❌ Invalid heart rate: " + dataMap.get("Value"), e);
+                sppParseErrors.inc();
                 if (listener != null) {
                     handler.post(() -> listener.onError("Invalid heart rate format"));
                 }
@@ -280,13 +529,208 @@ public class BluetoothConnectionManager {
         } else {
             Log.w(TAG, "⚠️ Missing heart rate value in data: " + line);
         }
+        return null;
+    }
+
+    /**
+     * Feeds a sample to the sampling rate controller and asks the watch for a new rate if it
+     * changed. Uses the sample time, so every sample of a batch counts at its own instant.
+     */
+    private void adjustSamplingRate(int value, long sampleTimeMs) {
+        SamplingRateController controller = rateController;
+        if (controller == null) {
+            return;
+        }
+        long intervalMs = controller.onSample(value, sampleTimeMs);
+        if (intervalMs > 0 && mux.send(ChannelMux.CH_HEART_RATE, "Rate:" + intervalMs)) {
+            rateChanges.inc();
+            Log.d(TAG, "🎚️ Sampling interval -> " + intervalMs + " ms (" + controller + ")");
+        }
+    }
+
+    /**
+     * Configures the batched sample mode requested on the next connect.
+     *
+     * @param flushMs    Maximum time the watch holds samples; 0 disables batching.
+     * @param low        Values below this are flushed immediately.
+     * @param high       Values above this are flushed immediately.
+     * @param maxSamples Samples per frame before a forced flush.
+     */
+    public void setBatchMode(long flushMs, int low, int high, int maxSamples) {
+        this.batchFlushMs = flushMs;
+        this.batchLow = low;
+        this.batchHigh = high;
+        this.batchMaxSamples = maxSamples;
+    }
+
+
+    /**
+     * Replaces the watch "Ts" field (watch clock, ms) with "SampleTime" (phone wall clock, ms).
+     * Without a watch timestamp or clock sync, the receive time is used.
+     */
+    private void stampSampleTime(Map<String, String> dataMap) {
+        long receivedAt = ClockSync.nowMs();
+        long sampledAt = receivedAt;
+        String watchTs = dataMap.remove("Ts");
+        if (watchTs != null && clockSync.isSynced()) {
+            try {
+                sampledAt = Math.min(receivedAt, clockSync.toPhoneTime(Long.parseLong(watchTs)));
+            } catch (NumberFormatException e) {
+                sppParseErrors.inc();
+            }
+        }
+        long ageMs = receivedAt - sampledAt;
+        sampleAge.record(ageMs);
+        dataMap.put("SampleTime", String.valueOf(System.currentTimeMillis() - ageMs));
     }
 
+    /**
+     * Handles "Pong:seq,t0,t1,t2" — the watch's reply to one of our pings.
+     */
+    private void handlePong(String line) {
+        long t3 = ClockSync.nowMs();
+        String[] fields = line.substring("Pong:".length()).split(",");
+        if (fields.length < 4) {
+            sppParseErrors.inc();
+            return;
+        }
+        try {
+            int seq = Integer.parseInt(fields[0].trim());
+            long t0 = Long.parseLong(fields[1].trim());
+            long t1 = Long.parseLong(fields[2].trim());
+            long t2 = Long.parseLong(fields[3].trim());
+            heartbeat.onPong(seq, t3);
+            clockSync.onExchange(t0, t1, t2, t3);
+        } catch (NumberFormatException e) {
+            sppParseErrors.inc();
+        }
+    }
+
+    /**
+     * Starts the periodic ping task (a short burst for fast clock convergence, then a steady
+     * heartbeat) and the liveness check that tears down a half-open link.
+     */
+    private synchronized void startLinkTasks() {
+        stopLinkTasks();
+        clockSync.reset();
+        heartbeat.start(ClockSync.nowMs());
+        pingSeq = 0;
+        linkScheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "spp-link"));
+        linkScheduler.schedule(this::sendPing, 0, TimeUnit.MILLISECONDS);
+        linkScheduler.scheduleWithFixedDelay(this::checkLiveness, LIVENESS_CHECK_MS, LIVENESS_CHECK_MS, TimeUnit.MILLISECONDS);
+        mux.start(this::writeLine);
+        energy.onBluetoothConnected(ClockSync.nowMs());
+    }
+
+    private synchronized void stopLinkTasks() {
+        mux.stop();
+        deliveryTracker.reset();
+        deliveryTickAtMs = Long.MAX_VALUE;
+        if (linkScheduler != null) {
+            linkScheduler.shutdownNow();
+            linkScheduler = null;
+            energy.onBluetoothDisconnected(ClockSync.nowMs());
+        }
+    }
+
+    private void sendPing() {
+        int seq;
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            seq = ++pingSeq;
+            scheduler = linkScheduler;
+        }
+        long t0 = ClockSync.nowMs();
+        energy.onWakeup(EnergyAccountant.Subsystem.BLUETOOTH, t0);
+        try {
+            heartbeat.onPingSent(seq, t0);
+            // Written directly rather than queued: t0 must be the time the ping hits the socket
+            writeLine(mux.frame(ChannelMux.CH_CONTROL, "Ping:" + seq + "," + t0));
+        } catch (IOException e) {
+            teardownDeadLink("ping write failed: " + e.getMessage());
+            return;
+        }
+        if (scheduler != null && !scheduler.isShutdown()) {
+            long delay = seq < SYNC_BURST_PINGS ? SYNC_BURST_INTERVAL_MS : HEARTBEAT_INTERVAL_MS;
+            scheduler.schedule(this::sendPing, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkLiveness() {
+        energy.onWakeup(EnergyAccountant.Subsystem.BLUETOOTH, ClockSync.nowMs());
+        String reason = heartbeat.check(ClockSync.nowMs());
+        if (reason != null) {
+            teardownDeadLink(reason);
+        } else if (heartbeat.isDegraded()) {
+            Log.w(TAG, "📶 SPP link degraded: " + heartbeat);
+        }
+    }
+
+    /**
+     * Closes a link that stopped answering. Closing the socket unblocks readFrame() with an
+     * IOException, so the normal "Connection lost" path reports it and the service reconnects.
+     */
+    private void teardownDeadLink(String reason) {
+        Log.w(TAG, "💔 SPP link dead (" + reason + "), tearing down. " + heartbeat);
+        deadLinkTeardowns.inc();
+        stopLinkTasks();
+        BluetoothSocket socket = bluetoothSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                Log.e(TAG, "❌ Failed to close dead socket", e);
+            }
+        }
+    }
+
+    /**
+     * Writes one newline-terminated command to the watch. Serialised so commands from the
+     * main thread and the link thread never interleave on the socket.
+     */
+    private void writeLine(String command) throws IOException {
+        BluetoothSocket socket = bluetoothSocket;
+        if (socket == null) {
+            throw new IOException("Not connected");
+        }
+        byte[] bytes = (command + "\n").getBytes();  // '\n' marks the end of the command
+        synchronized (writeLock) {
+            OutputStream output = socket.getOutputStream();
+            output.write(bytes);
+            output.flush();
+        }
+        energy.onSppOut(bytes.length, ClockSync.nowMs());
+    }
+
+    /**
+     * @return The clock offset/drift estimator for the current watch link.
+     */
+    public ClockSync getClockSync() {
+        return clockSync;
+    }
+
+    /**
+     * @return Keepalive state: RTT history, smoothed RTT, missed pongs and degradation flag.
+     */
+    public LinkHeartbeat getHeartbeat() {
+        return heartbeat;
+    }
+
+    /**
+     * Disconnects for good (service shutdown) and unregisters this manager's gauges, which
+     * would otherwise keep it and its Context reachable.
+     */
+    public void close() {
+        disconnect();
+        MetricsRegistry.get().removeGauge(SAMPLE_INTERVAL_GAUGE, sampleIntervalGauge);
+        deliveryTracker.close();
+    }
 
     /**
      * **Disconnect from the watch**
      */
     public void disconnect() {
+        stopLinkTasks();
         if (bluetoothSocket != null) {
             try {
                 bluetoothSocket.close();
@@ -301,7 +745,7 @@ public class BluetoothConnectionManager {
      * Sends a vibration command to the smartwatch over a Bluetooth Serial Port Profile (SPP) connection.
      * The command includes intensity, pulse count, duration per pulse, and interval between pulses.
      *
-     * Format: Vibrate:intensity,pulses,duration,interval
+     * Format: Vibrate:intensity,pulses,duration,interval[,playAt]
      *
      * Example: "Vibrate:3,5,250,500" means:
      *   → Intensity level 3
@@ -309,37 +753,178 @@ public class BluetoothConnectionManager {
      *   → Each pulse lasts 250 ms
      *   → 500 ms pause between pulses
      *
+     * When the watch clock is synced, playAt (watch clock, ms) asks the watch to start the
+     * pattern a short lead time from now, so link jitter does not shift the felt timing.
+     *
+     * Commands are queued on the heart rate channel and written by the mux writer thread.
+     *
      * @param intensity The vibration intensity level (e.g., 1 to 5).
      * @param pulses    The number of vibration pulses to send.
      * @param duration  The duration of each vibration pulse in milliseconds.
      * @param interval  The delay between pulses in milliseconds.
      */
     public void sendVibrationCommand(int intensity, int pulses, int duration, int interval) {
+        sendVibrationCommand(intensity, pulses, duration, interval, ClockSync.nowMs() + VIBRATION_LEAD_MS);
+    }
+
+    /**
+     * Same as {@link #sendVibrationCommand(int, int, int, int)} with an explicit start time.
+     *
+     * @param playAtPhoneMs When the pattern should start, on the {@link ClockSync#nowMs()} clock.
+     *                      Ignored (play on receipt) until clocks are synced.
+     */
+    public void sendVibrationCommand(int intensity, int pulses, int duration, int interval, long playAtPhoneMs) {
+        sendVibrationCommand("HeartRate", intensity, pulses, duration, interval, playAtPhoneMs);
+    }
+
+    /**
+     * Sends a vibration command for one monitoring mode (e.g., "SunAzimuth"). In a combined
+     * session it travels on that mode's channel, so the watch can tell the streams apart
+     * and a burst of guidance updates cannot delay a heart rate alert.
+     */
+    public void sendVibrationCommand(String monitoringType, int intensity, int pulses, int duration, int interval) {
+        sendVibrationCommand(monitoringType, intensity, pulses, duration, interval, ClockSync.nowMs() + VIBRATION_LEAD_MS);
+    }
+
+    /**
+     * Same as {@link #sendVibrationCommand(String, int, int, int, int)} with an explicit start
+     * time on the {@link ClockSync#nowMs()} clock (e.g. paced beats planned ahead of time).
+     *
+     * @return true if the command was queued for the watch.
+     */
+    public boolean sendVibrationCommand(String monitoringType, int intensity, int pulses, int duration, int interval,
+                                        long playAtPhoneMs) {
         // Step 1: Ensure that a Bluetooth connection is established
         if (bluetoothSocket == null || !bluetoothSocket.isConnected()) {
             Log.e(TAG, "❌ Not connected to watch via BluetoothSocket!");
+            vibrationsDropped.inc();
             Log.e(TAG, "bluetoothSocket == null? " + (bluetoothSocket == null));  // Debug: null-check
-            return;
+            return false;
         }
 
         // Step 2: Build the vibration command string using the expected format
-        String command = "Vibrate:" + intensity + "," + pulses + "," + duration + "," + interval;
+        String fields = intensity + "," + pulses + "," + duration + "," + interval;
+        boolean scheduled = clockSync.isSynced();
+        if (scheduled) {
+            fields += "," + clockSync.toWatchTime(playAtPhoneMs);
+        }
 
-        try {
-            // Step 3: Get the output stream from the Bluetooth socket and send the command
-            OutputStream output = bluetoothSocket.getOutputStream();
-            output.write((command + "\n").getBytes());  // '\n' marks the end of the command
-            output.flush();
+        // Step 2b: Acknowledged delivery: a late cue is dropped rather than played
+        if (deliveryTracker.isEnabled()) {
+            long now = ClockSync.nowMs();
+            long deadline = scheduled ? playAtPhoneMs + VibrationDeliveryTracker.LATE_TOLERANCE_MS
+                    : now + VibrationDeliveryTracker.DEFAULT_MAX_AGE_MS;
+            VibrationDeliveryTracker.Result result = deliveryTracker.submit(monitoringType, fields, deadline, now);
+            scheduleDeliveryTick(deliveryTracker.tick(now));
+            if (result == VibrationDeliveryTracker.Result.REJECTED) {
+                Log.w(TAG, "⏱️ Vibration command for " + monitoringType + " rejected (" + deliveryTracker.getReport() + ")");
+                vibrationsDropped.inc();
+                return false;
+            }
+            RingLog.d(RingLog.EV_VIBRATION_SENT, intensity, pulses);
+            vibrationsSent.inc();
+            return true;
+        }
+        String command = "Vibrate:" + fields;
+
+        // Step 3: Queue the command on the mode's channel (never blocks the caller)
+        int channel = ChannelMux.channelForMode(monitoringType);
+        if (channel < 0 || !mux.send(channel, command)) {
+            // Step 4: Unknown mode, or the link is being torn down
+            Log.e(TAG, "❌ Failed to queue vibration command for " + monitoringType);
+            vibrationsDropped.inc();
+            return false;
+        }
+        RingLog.d(RingLog.EV_VIBRATION_SENT, intensity, pulses);
+        vibrationsSent.inc();
+        return true;
+    }
 
-            Log.d(TAG, "📤 Sent vibration command: " + command);
 
-        } catch (IOException e) {
-            // Step 4: Handle I/O errors, such as a broken connection
-            Log.e(TAG, "❌ Failed to send vibration command via SPP", e);
+
+    /**
+     * Delivery tracker transport: queues a "VibrateA:" frame on the mode's channel.
+     */
+    private boolean sendTrackedFrame(String monitoringType, String frame) {
+        int channel = ChannelMux.channelForMode(monitoringType);
+        return channel >= 0 && mux.send(channel, frame);
+    }
+
+    /**
+     * Runs the delivery tracker (resends, deadlines) only while commands are pending; an idle
+     * link costs no timer wakeups.
+     */
+    private void scheduleDeliveryTick(long delayMs) {
+        if (delayMs < 0) {
+            return;
+        }
+        synchronized (this) {
+            long at = ClockSync.nowMs() + delayMs;
+            if (linkScheduler == null || at >= deliveryTickAtMs) {
+                return; // An earlier tick is already scheduled and will reschedule
+            }
+            deliveryTickAtMs = at;
+            linkScheduler.schedule(this::deliveryTick, delayMs, TimeUnit.MILLISECONDS);
         }
     }
 
+    private void deliveryTick() {
+        long now = ClockSync.nowMs();
+        synchronized (this) {
+            if (now >= deliveryTickAtMs) {
+                deliveryTickAtMs = Long.MAX_VALUE;
+            }
+        }
+        energy.onWakeup(EnergyAccountant.Subsystem.BLUETOOTH, now);
+        scheduleDeliveryTick(deliveryTracker.tick(now));
+    }
 
+    /**
+     * @return Acknowledged delivery: rate, losses, credits and command-to-play latency.
+     */
+    public String getDeliveryReport() {
+        return deliveryTracker.getReport();
+    }
+
+    /**
+     * Feeds a recorded SPP byte stream through the normal reader instead of a live socket.
+     * Parsed data is delivered to the listener exactly as in a live session.
+     *
+     * @param recordedStream Raw bytes as they came from the watch.
+     * @param heartRateListener Callback for parsed data or errors.
+     */
+    public void startReplay(InputStream recordedStream, OnHeartRateReceived heartRateListener) {
+        this.listener = heartRateListener;
+        new Thread(() -> readData(recordedStream, null), "spp-replay").start();
+    }
+
+    /**
+     * Starts (or stops, with null) capturing raw SPP bytes on the next connection.
+     */
+    public void setSessionRecorder(SessionRecorder sessionRecorder) {
+        this.sessionRecorder = sessionRecorder;
+    }
+
+    /**
+     * Lets the service's start-up orchestrator track connection milestones.
+     */
+    public void setStartupOrchestrator(StartupOrchestrator startupOrchestrator) {
+        this.startupOrchestrator = startupOrchestrator;
+    }
+
+    /**
+     * Receives the watch's play reports for paced beats (null to stop).
+     */
+    public void setOnBeatPlayed(OnBeatPlayed beatPlayedListener) {
+        this.beatPlayedListener = beatPlayedListener;
+    }
+
+    private void markStartup(String milestone) {
+        StartupOrchestrator orchestrator = startupOrchestrator;
+        if (orchestrator != null && orchestrator.mark(milestone) && "firstWatchByte".equals(milestone)) {
+            Log.d(TAG, "⏱️ Startup timeline:\n" + orchestrator.getTimeline());
+        }
+    }
 
     /**
      * **Interface for heart rate response.**
@@ -348,6 +933,13 @@ public class BluetoothConnectionManager {
         void onReceived(Map<String, String> data);  // Key-value data map
         void onError(String errorMessage);
     }
+
+    /**
+     * **Interface for paced beat play reports (both times on the watch clock).**
+     */
+    public interface OnBeatPlayed {
+        void onPlayed(long plannedWatchMs, long actualWatchMs);
+    }
     public BluetoothSocket getBluetoothSocket() {
         return bluetoothSocket;
     }
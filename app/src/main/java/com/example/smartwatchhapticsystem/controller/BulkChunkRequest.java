@@ -0,0 +1,60 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+
+import java.util.Map;
+
+/**
+ * BulkChunkRequest: Volley request that posts one pre-compressed chunk of a bulk upload with
+ * its own headers ({@code Content-Encoding}, {@code Content-Range}) and delivers the HTTP status.
+ */
+public class BulkChunkRequest extends Request<Integer> {
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    private final byte[] body;
+    private final Map<String, String> headers;
+    private final Response.Listener<Integer> listener;
+
+    public BulkChunkRequest(String url, Map<String, String> headers, byte[] body,
+                            Response.Listener<Integer> listener,
+                            Response.ErrorListener errorListener) {
+        super(Method.POST, url, errorListener);
+        this.body = body;
+        this.headers = headers;
+        this.listener = listener;
+        setShouldCache(false);
+    }
+
+    @Override
+    public Priority getPriority() {
+        return Priority.LOW;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getBodyContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    protected Response<Integer> parseNetworkResponse(NetworkResponse response) {
+        return Response.success(response.statusCode, HttpHeaderParser.parseCacheHeaders(response));
+    }
+
+    @Override
+    protected void deliverResponse(Integer statusCode) {
+        listener.onResponse(statusCode);
+    }
+}
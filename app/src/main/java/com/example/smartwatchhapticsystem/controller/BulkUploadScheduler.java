@@ -0,0 +1,581 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * BulkUploadScheduler: Holds non-urgent uploads (session recordings, history exports,
+ * diagnostics) until the device is in a good state to send them, then uploads them in large
+ * gzip-compressed chunks.
+ *
+ * Each job names the conditions it waits for ({@link Constraints}: unmetered network,
+ * charging, idle, a time-of-day window, a minimum battery level). Conditions come from a
+ * {@link ConstraintSource}, so tests drive them with a fake; on the device
+ * {@link AndroidConstraintSource} reads them from the system.
+ *
+ * Chunks go through a weighted-fair bulk lane of {@link UplinkScheduler}, so they never take
+ * the slots reserved for actuation requests. Progress is the byte offset acknowledged by the
+ * server, saved with the job in {@code stateDir} after every chunk: a job interrupted by a
+ * lost condition, a failure or a restart continues from the last acknowledged chunk. Each chunk
+ * carries {@code Content-Range}, so a chunk resent after a lost acknowledgement is idempotent
+ * on the server.
+ *
+ * The lane may dispatch on whichever thread completes a request (often the main thread), so
+ * reading, compressing and saving progress all run on the scheduler's own "bulk-upload" thread.
+ *
+ * The scheduler makes no Android calls: read and save failures are kept as
+ * {@link #getLastError()} and shown in {@link #toString()}, and the service logs job
+ * transitions through {@link OnJobFinished}.
+ */
+public class BulkUploadScheduler {
+    public static final int CHUNK_BYTES = 256 * 1024;          // Raw bytes per chunk (before gzip)
+    private static final long EVALUATE_INTERVAL_MS = 60000;    // Constraint re-check period
+    private static final long RETRY_BASE_MS = 30000;           // Backoff after a failed chunk
+    private static final long RETRY_MAX_MS = 30 * 60000;
+    private static final int LOW_BATTERY_PERCENT = 15;         // Never upload below this unless charging
+    private static final String JOB_SUFFIX = ".job";
+    private static final String JOBS_GAUGE = "bulk.jobs";
+
+    /**
+     * Current device conditions.
+     */
+    public interface ConstraintSource {
+        boolean isConnected();
+
+        boolean isUnmetered();
+
+        boolean isCharging();
+
+        /** @return true if the user is not using the device (screen off or doze). */
+        boolean isIdle();
+
+        int getBatteryPercent();
+
+        /** @return Local wall-clock time as minutes since midnight. */
+        int getMinuteOfDay();
+    }
+
+    /**
+     * The HTTP side: a bulk lane plus the request that carries one chunk.
+     * {@link NetworkController} implements it.
+     */
+    public interface Uplink {
+        UplinkScheduler.Lane addBulkLane(String name, int weight, int maxInFlight, UplinkQueue queue,
+                                         UplinkScheduler.Dispatcher dispatcher);
+
+        void submit(UplinkScheduler.Lane lane, String key, Map<String, String> payload);
+
+        /**
+         * Posts one chunk and calls {@code result} exactly once.
+         */
+        void postChunk(String path, Map<String, String> headers, byte[] body, OnChunkResult result);
+    }
+
+    public interface OnChunkResult {
+        /** @param acknowledged true if the server stored the chunk (2xx). */
+        void onResult(boolean acknowledged);
+    }
+
+    public interface OnJobFinished {
+        void onJobFinished(String jobId, File file);
+    }
+
+    /**
+     * Conditions a job waits for. All required conditions must hold at the same time.
+     */
+    public static final class Constraints {
+        private boolean unmetered;
+        private boolean charging;
+        private boolean idle;
+        private int minBatteryPercent;
+        private int windowStartMinute = -1;    // -1: any time
+        private int windowEndMinute = -1;
+
+        public Constraints requireUnmetered() {
+            unmetered = true;
+            return this;
+        }
+
+        public Constraints requireCharging() {
+            charging = true;
+            return this;
+        }
+
+        public Constraints requireIdle() {
+            idle = true;
+            return this;
+        }
+
+        public Constraints requireBatteryAtLeast(int percent) {
+            minBatteryPercent = percent;
+            return this;
+        }
+
+        /**
+         * Restricts uploads to a daily window; the window may span midnight (e.g. 22:00-06:00).
+         */
+        public Constraints requireWindow(int startMinuteOfDay, int endMinuteOfDay) {
+            windowStartMinute = startMinuteOfDay;
+            windowEndMinute = endMinuteOfDay;
+            return this;
+        }
+
+        /**
+         * @return null if the conditions hold, otherwise the first one that does not.
+         */
+        String unmetReason(ConstraintSource source) {
+            if (!source.isConnected()) {
+                return "offline";
+            }
+            if (unmetered && !source.isUnmetered()) {
+                return "metered";
+            }
+            boolean charging = source.isCharging();
+            if (this.charging && !charging) {
+                return "not charging";
+            }
+            if (!charging && source.getBatteryPercent() < Math.max(LOW_BATTERY_PERCENT, minBatteryPercent)) {
+                return "battery low";
+            }
+            if (idle && !source.isIdle()) {
+                return "in use";
+            }
+            if (windowStartMinute >= 0) {
+                int minute = source.getMinuteOfDay();
+                boolean inWindow = windowStartMinute <= windowEndMinute
+                        ? minute >= windowStartMinute && minute < windowEndMinute
+                        : minute >= windowStartMinute || minute < windowEndMinute;
+                if (!inWindow) {
+                    return "outside window";
+                }
+            }
+            return null;
+        }
+
+        void save(Properties p) {
+            p.setProperty("unmetered", String.valueOf(unmetered));
+            p.setProperty("charging", String.valueOf(charging));
+            p.setProperty("idle", String.valueOf(idle));
+            p.setProperty("minBattery", String.valueOf(minBatteryPercent));
+            p.setProperty("windowStart", String.valueOf(windowStartMinute));
+            p.setProperty("windowEnd", String.valueOf(windowEndMinute));
+        }
+
+        static Constraints load(Properties p) {
+            Constraints c = new Constraints();
+            c.unmetered = Boolean.parseBoolean(p.getProperty("unmetered"));
+            c.charging = Boolean.parseBoolean(p.getProperty("charging"));
+            c.idle = Boolean.parseBoolean(p.getProperty("idle"));
+            c.minBatteryPercent = Integer.parseInt(p.getProperty("minBattery", "0"));
+            c.windowStartMinute = Integer.parseInt(p.getProperty("windowStart", "-1"));
+            c.windowEndMinute = Integer.parseInt(p.getProperty("windowEnd", "-1"));
+            return c;
+        }
+    }
+
+    /**
+     * One file being uploaded and how far the server has acknowledged it.
+     */
+    private static final class Job {
+        final String id;
+        final File file;
+        final String path;
+        final Constraints constraints;
+        long offset;                 // Bytes acknowledged by the server
+        boolean inFlight;            // A chunk is queued or being posted
+        int failures;
+        long retryAtMs;
+        String waitingFor;           // Last unmet condition, for the report
+
+        Job(String id, File file, String path, Constraints constraints, long offset) {
+            this.id = id;
+            this.file = file;
+            this.path = path;
+            this.constraints = constraints;
+            this.offset = offset;
+        }
+    }
+
+    private final ConstraintSource source;
+    private final Uplink uplink;
+    private final File stateDir;
+    private final UplinkScheduler.Lane lane;
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private final MetricsRegistry.Counter rawBytes = MetricsRegistry.get().counter("bulk.rawBytes");
+    private final MetricsRegistry.Counter sentBytes = MetricsRegistry.get().counter("bulk.sentBytes");
+    private final MetricsRegistry.Counter chunkFailures = MetricsRegistry.get().counter("bulk.chunkFailures");
+    private OnJobFinished onJobFinished;
+    private String lastError;                 // Last read, save or restore failure, for the report
+    private final LongSupplier jobsGauge = this::getJobCount;
+    private final Executor chunkExecutor;     // Null: the bulk-upload worker
+    private ScheduledExecutorService worker;  // "bulk-upload": periodic re-checks and chunk I/O
+    private ScheduledFuture<?> evaluation;
+
+    /**
+     * Registers the bulk lane and restores unfinished jobs from {@code stateDir}.
+     *
+     * @param stateDir Where job descriptions and progress are kept.
+     */
+    public BulkUploadScheduler(ConstraintSource source, Uplink uplink, File stateDir) {
+        this(source, uplink, stateDir, null);
+    }
+
+    /**
+     * @param chunkExecutor Runs chunk reads, compression and progress saves; tests pass a
+     *                      direct executor.
+     */
+    BulkUploadScheduler(ConstraintSource source, Uplink uplink, File stateDir, Executor chunkExecutor) {
+        this.source = source;
+        this.uplink = uplink;
+        this.stateDir = stateDir;
+        this.chunkExecutor = chunkExecutor;
+        // One chunk at a time: bulk traffic gains nothing from parallel requests
+        this.lane = uplink.addBulkLane("bulkUpload", 1, 1,
+                new UplinkQueue(8, UplinkQueue.OverflowPolicy.KEEP_LATEST_PER_KEY, null), this::dispatch);
+        MetricsRegistry.get().gauge(JOBS_GAUGE, jobsGauge);
+        restore();
+    }
+
+    public synchronized void setOnJobFinished(OnJobFinished onJobFinished) {
+        this.onJobFinished = onJobFinished;
+    }
+
+    /**
+     * Adds a file to upload once {@code constraints} hold. Re-adding a known job id keeps its
+     * progress.
+     *
+     * @param path Node-RED path the chunks are posted to.
+     */
+    public void enqueue(String jobId, File file, String path, Constraints constraints) {
+        synchronized (this) {
+            if (jobs.containsKey(jobId) || file.length() == 0) {
+                return;
+            }
+            Job job = new Job(jobId, file, path, constraints, 0);
+            jobs.put(jobId, job);
+            save(job);
+        }
+        evaluate(ClockSync.nowMs());
+    }
+
+    /**
+     * Re-checks conditions every {@link #EVALUATE_INTERVAL_MS} on a background thread.
+     */
+    public synchronized void start() {
+        if (evaluation != null) {
+            return;
+        }
+        MetricsRegistry.get().gauge(JOBS_GAUGE, jobsGauge); // Again after a stop()
+        evaluation = worker().scheduleWithFixedDelay(() -> {
+            EnergyAccountant.get().onWakeup(EnergyAccountant.Subsystem.NETWORK, ClockSync.nowMs());
+            evaluate(ClockSync.nowMs());
+        }, 0, EVALUATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the re-checks and unregisters the job gauge. A chunk already being read is still
+     * posted (its progress is saved when the server answers, or the chunk is resent on the next
+     * start).
+     */
+    public synchronized void stop() {
+        MetricsRegistry.get().removeGauge(JOBS_GAUGE, jobsGauge);
+        if (worker != null) {
+            worker.shutdown();
+            worker = null;
+            evaluation = null;
+        }
+    }
+
+    private synchronized ScheduledExecutorService worker() {
+        if (worker == null) {
+            worker = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "bulk-upload"));
+        }
+        return worker;
+    }
+
+    /**
+     * Runs a task on the bulk-upload thread.
+     *
+     * @return false if the scheduler has been stopped.
+     */
+    private boolean runInBackground(Runnable task) {
+        try {
+            (chunkExecutor != null ? chunkExecutor : worker()).execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts the next chunk of every idle job whose conditions hold. Also call this when a
+     * condition is known to have changed (e.g. the charger was plugged in).
+     */
+    public void evaluate(long nowMs) {
+        List<String> ready = new ArrayList<>();
+        synchronized (this) {
+            for (Job job : jobs.values()) {
+                if (job.inFlight || nowMs < job.retryAtMs) {
+                    continue;
+                }
+                job.waitingFor = job.constraints.unmetReason(source);
+                if (job.waitingFor == null) {
+                    job.inFlight = true;
+                    ready.add(job.id);
+                }
+            }
+        }
+        // Outside the lock: the lane may dispatch on this thread
+        for (String id : ready) {
+            submitChunk(id);
+        }
+    }
+
+    private void submitChunk(String jobId) {
+        Map<String, String> payload = new HashMap<>();
+        payload.put("JobId", jobId);
+        uplink.submit(lane, jobId, payload);
+    }
+
+    /**
+     * Lane dispatcher: hands the job's next chunk to the bulk-upload thread, which reads,
+     * compresses and posts it. The dispatching thread does no disk I/O.
+     */
+    private void dispatch(UplinkQueue.Entry entry, UplinkScheduler.Completion completion) {
+        if (!runInBackground(() -> sendChunk(entry, completion))) {
+            String jobId = entry.getPayload().get("JobId");
+            synchronized (this) {
+                Job job = jobs.get(jobId);
+                if (job != null) {
+                    job.inFlight = false;
+                }
+            }
+            completion.done();
+        }
+    }
+
+    private void sendChunk(UplinkQueue.Entry entry, UplinkScheduler.Completion completion) {
+        String jobId = entry.getPayload().get("JobId");
+        Job job;
+        long offset;
+        synchronized (this) {
+            job = jobs.get(jobId);
+            if (job == null) {
+                completion.done();
+                return;
+            }
+            // Step 1: Conditions may have changed while the chunk waited in the lane
+            job.waitingFor = job.constraints.unmetReason(source);
+            if (job.waitingFor != null) {
+                job.inFlight = false;
+                completion.done();
+                return;
+            }
+            offset = job.offset;
+        }
+
+        // Step 2: Read and gzip the chunk (session data and logs compress several times over)
+        long total = job.file.length();
+        byte[] body;
+        int length;
+        try {
+            byte[] raw = readChunk(job.file, offset, (int) Math.min(CHUNK_BYTES, total - offset));
+            length = raw.length;
+            body = gzip(raw);
+        } catch (IOException e) {
+            synchronized (this) {
+                lastError = "cannot read " + job.file + ", dropped " + jobId + ": " + e;
+            }
+            completion.done();
+            finish(job, false);
+            return;
+        }
+
+        // Step 3: Post it; progress only moves once the server has acknowledged the chunk
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Encoding", "gzip");
+        headers.put("Content-Range", "bytes " + offset + "-" + (offset + length - 1) + "/" + total);
+        headers.put("Upload-Id", jobId);
+        final int chunkLength = length;
+        final int bodyLength = body.length;
+        uplink.postChunk(job.path, headers, body, acknowledged -> {
+            completion.done();
+            // Saving progress syncs a file: back to the bulk-upload thread
+            if (!runInBackground(() -> onChunkResult(job, offset, chunkLength, bodyLength, acknowledged))) {
+                synchronized (this) {
+                    job.inFlight = false;
+                }
+            }
+        });
+    }
+
+    private void onChunkResult(Job job, long offset, int length, int bodyLength, boolean acknowledged) {
+        boolean next;
+        boolean finished = false;
+        synchronized (this) {
+            if (!acknowledged) {
+                chunkFailures.inc();
+                job.failures++;
+                job.retryAtMs = ClockSync.nowMs()
+                        + Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(job.failures - 1, 10));
+                job.inFlight = false;
+                return;
+            }
+            rawBytes.add(length);
+            sentBytes.add(bodyLength);
+            job.failures = 0;
+            job.offset = offset + length;
+            if (job.offset >= job.file.length()) {
+                finished = true;
+                next = false;
+            } else {
+                save(job);
+                // Step 4: Keep going while the conditions still hold
+                job.waitingFor = job.constraints.unmetReason(source);
+                next = job.waitingFor == null;
+                job.inFlight = next;
+            }
+        }
+        if (finished) {
+            finish(job, true);
+        } else if (next) {
+            submitChunk(job.id);
+        }
+    }
+
+    private void finish(Job job, boolean uploaded) {
+        OnJobFinished listener;
+        synchronized (this) {
+            jobs.remove(job.id);
+            jobFile(job.id).delete();
+            listener = onJobFinished;
+        }
+        if (uploaded) {
+            if (listener != null) {
+                listener.onJobFinished(job.id, job.file);
+            }
+        }
+    }
+
+    static byte[] readChunk(File file, long offset, int length) throws IOException {
+        byte[] raw = new byte[Math.max(0, length)];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(offset);
+            in.readFully(raw);
+        }
+        return raw;
+    }
+
+    static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(raw);
+        }
+        return out.toByteArray();
+    }
+
+    // --- Persistence: one properties file per job, rewritten after every acknowledged chunk ---
+
+    private File jobFile(String jobId) {
+        return new File(stateDir, jobId + JOB_SUFFIX);
+    }
+
+    private void save(Job job) {
+        Properties p = new Properties();
+        p.setProperty("file", job.file.getAbsolutePath());
+        p.setProperty("path", job.path);
+        p.setProperty("offset", String.valueOf(job.offset));
+        job.constraints.save(p);
+        File target = jobFile(job.id);
+        File tmp = new File(stateDir, job.id + JOB_SUFFIX + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            p.store(out, null);
+            out.getFD().sync();
+        } catch (IOException e) {
+            lastError = "could not save progress of " + job.id + ": " + e;
+            return;
+        }
+        if (!tmp.renameTo(target)) {
+            lastError = "could not save progress of " + job.id;
+        }
+    }
+
+    private synchronized void restore() {
+        File[] files = stateDir.listFiles((dir, name) -> name.endsWith(JOB_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            String id = f.getName().substring(0, f.getName().length() - JOB_SUFFIX.length());
+            Properties p = new Properties();
+            try (FileInputStream in = new FileInputStream(f)) {
+                p.load(in);
+                File file = new File(p.getProperty("file"));
+                if (!file.exists()) {
+                    f.delete();
+                    continue;
+                }
+                jobs.put(id, new Job(id, file, p.getProperty("path"), Constraints.load(p),
+                        Long.parseLong(p.getProperty("offset", "0"))));
+            } catch (IOException | RuntimeException e) {
+                lastError = "dropped unreadable job " + f.getName() + ": " + e.getMessage();
+                f.delete();
+            }
+        }
+    }
+
+    public synchronized int getJobCount() {
+        return jobs.size();
+    }
+
+    /**
+     * @return The last read, save or restore failure, or null if there was none.
+     */
+    public synchronized String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return Bytes acknowledged by the server for a job, or -1 if the job is unknown or done.
+     */
+    public synchronized long getProgress(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? job.offset : -1;
+    }
+
+    /**
+     * @return One line per job: progress and what it is waiting for.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Job job : jobs.values()) {
+            sb.append(job.id).append(' ').append(job.offset).append('/').append(job.file.length())
+                    .append(job.inFlight ? " sending" : job.waitingFor != null ? " waiting: " + job.waitingFor : "")
+                    .append(job.failures > 0 ? ", failures=" + job.failures : "")
+                    .append('\n');
+        }
+        if (lastError != null) {
+            sb.append("last error: ").append(lastError).append('\n');
+        }
+        return sb.toString();
+    }
+}
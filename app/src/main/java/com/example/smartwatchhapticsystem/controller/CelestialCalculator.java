@@ -0,0 +1,153 @@
+package com.example.smartwatchhapticsystem.controller;
+
+/**
+ * CelestialCalculator: Low-precision Sun and Moon positions, on the device, for deciding
+ * whether a body is above the horizon and when it next rises or sets.
+ *
+ * The Sun uses the Astronomical Almanac's low-precision formulae (about 0.01°); the Moon the
+ * truncated series of the same source (about 0.3°, with topocentric parallax applied).
+ * Rise and set times are found by stepping the altitude every {@link #SEARCH_STEP_MS} and
+ * bisecting each horizon crossing, so they are good to well under a minute; far more than
+ * needed to switch GPS on a few minutes early. The Node-RED flows still compute the
+ * azimuths the watch plays; nothing here replaces them.
+ *
+ * Times are wall-clock UTC milliseconds ({@link System#currentTimeMillis()}), angles degrees.
+ */
+public final class CelestialCalculator {
+
+    public enum Body {
+        SUN(-0.833),    // Refraction plus the Sun's semi-diameter
+        MOON(-0.833);   // Refraction plus semi-diameter; parallax is in the altitude itself
+
+        /** Altitude of the body's centre at rise and set. */
+        public final double horizonDeg;
+
+        Body(double horizonDeg) {
+            this.horizonDeg = horizonDeg;
+        }
+    }
+
+    public static final long SEARCH_STEP_MS = 10 * 60 * 1000;
+    public static final long SEARCH_SPAN_MS = 48L * 60 * 60 * 1000;   // Covers the Moon's 24h50 day
+    private static final long PRECISION_MS = 30 * 1000;
+    private static final double DEG = Math.PI / 180;
+
+    private CelestialCalculator() {
+    }
+
+    /**
+     * @return Altitude of the body's centre above the horizon, in degrees.
+     */
+    public static double altitudeDeg(Body body, double latitude, double longitude, long utcMs) {
+        double d = daysSinceJ2000(utcMs);
+        double[] raDec = body == Body.SUN ? sunRaDec(d) : moonRaDec(d);
+        double hourAngle = siderealDeg(d) + longitude - raDec[0];
+        double lat = latitude * DEG;
+        double dec = raDec[1] * DEG;
+        double altitude = Math.asin(Math.sin(lat) * Math.sin(dec)
+                + Math.cos(lat) * Math.cos(dec) * Math.cos(hourAngle * DEG)) / DEG;
+        if (body == Body.MOON) {
+            altitude -= raDec[2] * Math.cos(altitude * DEG); // Seen from the surface, not the Earth's centre
+        }
+        return altitude;
+    }
+
+    public static boolean isAboveHorizon(Body body, double latitude, double longitude, long utcMs) {
+        return altitudeDeg(body, latitude, longitude, utcMs) > body.horizonDeg;
+    }
+
+    /**
+     * @return The next time after {@code fromMs} the body rises, or -1 if it stays down or up
+     *         for the whole {@link #SEARCH_SPAN_MS} (polar day or night).
+     */
+    public static long nextRiseMs(Body body, double latitude, double longitude, long fromMs) {
+        return nextCrossingMs(body, latitude, longitude, fromMs, true);
+    }
+
+    /**
+     * @return The next time after {@code fromMs} the body sets, or -1 if none within the span.
+     */
+    public static long nextSetMs(Body body, double latitude, double longitude, long fromMs) {
+        return nextCrossingMs(body, latitude, longitude, fromMs, false);
+    }
+
+    private static long nextCrossingMs(Body body, double latitude, double longitude, long fromMs, boolean rising) {
+        // Step 1: Walk forward until the body is on the other side of the horizon
+        boolean above = isAboveHorizon(body, latitude, longitude, fromMs);
+        long start = fromMs;
+        for (long t = fromMs + SEARCH_STEP_MS; t <= fromMs + SEARCH_SPAN_MS; t += SEARCH_STEP_MS) {
+            boolean nowAbove = isAboveHorizon(body, latitude, longitude, t);
+            if (nowAbove != above) {
+                if (nowAbove == rising) {
+                    // Step 2: Bisect the crossing
+                    long lo = start;
+                    long hi = t;
+                    while (hi - lo > PRECISION_MS) {
+                        long mid = (lo + hi) >>> 1;
+                        if (isAboveHorizon(body, latitude, longitude, mid) == nowAbove) {
+                            hi = mid;
+                        } else {
+                            lo = mid;
+                        }
+                    }
+                    return hi;
+                }
+                above = nowAbove;
+            }
+            start = t;
+        }
+        return -1;
+    }
+
+    private static double daysSinceJ2000(long utcMs) {
+        return utcMs / 86400000.0 + 2440587.5 - 2451545.0;
+    }
+
+    /** Greenwich mean sidereal time. */
+    private static double siderealDeg(double d) {
+        return 280.46061837 + 360.98564736629 * d;
+    }
+
+    private static double obliquityDeg(double d) {
+        return 23.439 - 0.0000004 * d;
+    }
+
+    /** @return {right ascension, declination}. */
+    private static double[] sunRaDec(double d) {
+        double g = (357.529 + 0.98560028 * d) * DEG;                   // Mean anomaly
+        double q = 280.459 + 0.98564736 * d;                           // Mean longitude
+        double lambda = (q + 1.915 * Math.sin(g) + 0.020 * Math.sin(2 * g)) * DEG;
+        return eclipticToEquatorial(lambda, 0, obliquityDeg(d) * DEG, 0);
+    }
+
+    /** @return {right ascension, declination, horizontal parallax}. */
+    private static double[] moonRaDec(double d) {
+        double t = d / 36525;
+        double lambda = 218.32 + 481267.881 * t
+                + 6.29 * sinDeg(135.0 + 477198.87 * t) - 1.27 * sinDeg(259.3 - 413335.36 * t)
+                + 0.66 * sinDeg(235.7 + 890534.22 * t) + 0.21 * sinDeg(269.9 + 954397.74 * t)
+                - 0.19 * sinDeg(357.5 + 35999.05 * t) - 0.11 * sinDeg(186.5 + 966404.03 * t);
+        double beta = 5.13 * sinDeg(93.3 + 483202.02 * t) + 0.28 * sinDeg(228.2 + 960400.89 * t)
+                - 0.28 * sinDeg(318.3 + 6003.15 * t) - 0.17 * sinDeg(217.6 - 407332.21 * t);
+        double parallax = 0.9508 + 0.0518 * cosDeg(134.9 + 477198.85 * t)
+                + 0.0095 * cosDeg(259.2 - 413335.38 * t) + 0.0078 * cosDeg(235.7 + 890534.23 * t)
+                + 0.0028 * cosDeg(269.9 + 954397.70 * t);
+        return eclipticToEquatorial(lambda * DEG, beta * DEG, obliquityDeg(d) * DEG, parallax);
+    }
+
+    private static double[] eclipticToEquatorial(double lambda, double beta, double epsilon, double parallax) {
+        double ra = Math.atan2(Math.sin(lambda) * Math.cos(epsilon) - Math.tan(beta) * Math.sin(epsilon),
+                Math.cos(lambda));
+        double dec = Math.asin(Math.sin(beta) * Math.cos(epsilon)
+                + Math.cos(beta) * Math.sin(epsilon) * Math.sin(lambda));
+        return new double[]{ra / DEG, dec / DEG, parallax};
+    }
+
+    private static double sinDeg(double x) {
+        return Math.sin(x * DEG);
+    }
+
+    private static double cosDeg(double x) {
+        return Math.cos(x * DEG);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * CelestialDutyCycler: Runs GPS and the /sun-data and /moon-data uploads of SunAzimuth and
+ * MoonAzimuth only while the target is above the horizon.
+ *
+ * Every location fix re-evaluates the window for the current position. While at least one
+ * targeted body is up (or rises within {@link #LEAD_MS}, so the first fix is ready when it
+ * does) the cycler stays active and {@link #isAbove(String)} tells which modes may upload.
+ * When every target is down it suspends: the listener stops location updates and a single
+ * wakeup is armed {@link #LEAD_MS} before the next rise. No fixes and no requests happen until
+ * then. If no rise is found within {@link CelestialCalculator#SEARCH_SPAN_MS} (polar night)
+ * the wakeup simply re-checks after {@link #RECHECK_MS}.
+ *
+ * Until a first fix arrives nothing is known about the horizon, so the cycler starts active.
+ * The last fix is reused while suspended; travel overnight shifts rise times by about four
+ * minutes per degree of longitude, which the lead absorbs for ordinary distances.
+ */
+public class CelestialDutyCycler {
+    public static final long LEAD_MS = 10 * 60 * 1000;            // Wake this long before the rise
+    private static final long RECHECK_MS = 12L * 60 * 60 * 1000;
+
+    /**
+     * Arms the single wakeup used while suspended (an AlarmManager alarm in the service).
+     */
+    public interface Wakeup {
+        void arm(long utcMs);
+
+        void cancel();
+    }
+
+    /**
+     * Starts and stops what the cycler gates (and logs the transitions; the cycler itself
+     * stays free of Android calls).
+     */
+    public interface Listener {
+        /** Every target is below the horizon until {@code wakeAtUtcMs}: stop location updates. */
+        void onSuspend(long wakeAtUtcMs);
+
+        /** A target is (about to be) up again: restart location updates. */
+        void onResume();
+    }
+
+    private final Wakeup wakeup;
+    private final Listener listener;
+    private final Set<CelestialCalculator.Body> targets = EnumSet.noneOf(CelestialCalculator.Body.class);
+    private final Set<CelestialCalculator.Body> up = EnumSet.noneOf(CelestialCalculator.Body.class);
+    private boolean hasLocation = false;
+    private double latitude, longitude;
+    private boolean suspended = false;
+    private long wakeAtMs = -1;
+    private long suspendedSinceMs;
+    private long suspendedTotalMs;
+    private int suspensions;
+
+    public CelestialDutyCycler(Wakeup wakeup, Listener listener) {
+        this.wakeup = wakeup;
+        this.listener = listener;
+    }
+
+    /**
+     * Selects the bodies to follow from a (possibly combined) monitoring type, e.g.
+     * "HeartRate+SunAzimuth".
+     */
+    public synchronized void setMonitoringType(String monitoringType) {
+        targets.clear();
+        for (String mode : ChannelMux.parseModes(monitoringType)) {
+            CelestialCalculator.Body body = bodyOf(mode);
+            if (body != null) {
+                targets.add(body);
+            }
+        }
+    }
+
+    /**
+     * @return true if the monitoring type has a Sun or Moon mode for this cycler to gate.
+     */
+    public synchronized boolean hasTargets() {
+        return !targets.isEmpty();
+    }
+
+    /**
+     * Called for every fix (or the newest fix of a batch).
+     */
+    public void onLocation(double latitude, double longitude, long utcMs) {
+        synchronized (this) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            hasLocation = true;
+        }
+        evaluate(utcMs);
+    }
+
+    /**
+     * Called when the armed wakeup fires.
+     */
+    public void onWakeup(long utcMs) {
+        synchronized (this) {
+            wakeAtMs = -1;
+        }
+        evaluate(utcMs);
+    }
+
+    /**
+     * @return false if uploads for this mode should be skipped: its body is below the horizon.
+     *         Modes that are not Sun or Moon are always allowed.
+     */
+    public synchronized boolean isAbove(String mode) {
+        CelestialCalculator.Body body = bodyOf(mode);
+        return body == null || !hasLocation || up.contains(body);
+    }
+
+    public synchronized boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Stops the cycler; the listener is not called.
+     */
+    public synchronized void stop() {
+        wakeup.cancel();
+        wakeAtMs = -1;
+    }
+
+    private void evaluate(long utcMs) {
+        boolean resume = false;
+        long suspendUntil = -1;
+        synchronized (this) {
+            if (!hasLocation || targets.isEmpty()) {
+                return;
+            }
+            // Step 1: Which targets are up now, or will be within the lead?
+            up.clear();
+            for (CelestialCalculator.Body body : targets) {
+                if (CelestialCalculator.isAboveHorizon(body, latitude, longitude, utcMs)
+                        || CelestialCalculator.isAboveHorizon(body, latitude, longitude, utcMs + LEAD_MS)) {
+                    up.add(body);
+                }
+            }
+
+            if (!up.isEmpty()) {
+                // Step 2: Active; leave a suspension if there was one
+                if (suspended) {
+                    suspended = false;
+                    suspendedTotalMs += utcMs - suspendedSinceMs;
+                    if (wakeAtMs >= 0) {
+                        wakeup.cancel();
+                        wakeAtMs = -1;
+                    }
+                    resume = true;
+                }
+            } else {
+                // Step 3: Everything is down: sleep until just before the earliest rise
+                long rise = Long.MAX_VALUE;
+                for (CelestialCalculator.Body body : targets) {
+                    long next = CelestialCalculator.nextRiseMs(body, latitude, longitude, utcMs);
+                    if (next >= 0) {
+                        rise = Math.min(rise, next);
+                    }
+                }
+                long wakeAt = rise == Long.MAX_VALUE ? utcMs + RECHECK_MS : Math.max(utcMs, rise - LEAD_MS);
+                if (wakeAt != wakeAtMs) {
+                    wakeAtMs = wakeAt;
+                    wakeup.arm(wakeAt);
+                }
+                if (!suspended) {
+                    suspended = true;
+                    suspendedSinceMs = utcMs;
+                    suspensions++;
+                    suspendUntil = wakeAt;
+                }
+            }
+        }
+        // Listener calls outside the lock: they start and stop location updates
+        if (resume) {
+            listener.onResume();
+        } else if (suspendUntil >= 0) {
+            listener.onSuspend(suspendUntil);
+        }
+    }
+
+    private static CelestialCalculator.Body bodyOf(String mode) {
+        if ("SunAzimuth".equals(mode)) {
+            return CelestialCalculator.Body.SUN;
+        } else if ("MoonAzimuth".equals(mode)) {
+            return CelestialCalculator.Body.MOON;
+        }
+        return null;
+    }
+
+    /**
+     * @param utcMs Now, to include a suspension in progress.
+     * @return State, time suspended so far and the armed wakeup, in one line.
+     */
+    public synchronized String getReport(long utcMs) {
+        long total = suspendedTotalMs + (suspended ? utcMs - suspendedSinceMs : 0);
+        return String.format(Locale.US, "targets=%s up=%s %s, %d suspensions, %d min suspended%s",
+                targets, up, suspended ? "suspended" : "active", suspensions, total / 60000,
+                wakeAtMs >= 0 ? ", wakeup in " + Math.max(0, wakeAtMs - utcMs) / 60000 + " min" : "");
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ChannelMux: Several monitoring streams over one SPP socket.
+ *
+ * When more than one mode runs at once (e.g. "HeartRate+SunAzimuth"), every line in both
+ * directions is framed as {@code @<channel>|<payload>}. With a single mode nothing is framed,
+ * so older watch firmware keeps working; unframed lines are mapped to a channel by content.
+ *
+ * Inbound, each channel has its own handler and an optional rate limit (excess frames are
+ * dropped and counted), so a chatty stream cannot flood the reader. Outbound, each channel
+ * has a bounded queue (oldest command dropped on overflow, since a newer one supersedes it)
+ * and a priority; a single writer thread always sends from the most urgent non-empty channel.
+ */
+public class ChannelMux {
+    private static final String TAG = "ChannelMux";
+
+    public static final int CH_CONTROL = 0;     // Ping/Pong, handshake
+    public static final int CH_HEART_RATE = 1;
+    public static final int CH_SUN = 2;
+    public static final int CH_MOON = 3;
+    public static final int CH_POI = 4;
+    public static final int CH_PACING = 5;
+    private static final int MAX_CHANNELS = 8;
+
+    /**
+     * Handles one inbound payload (runs on the reader thread).
+     */
+    public interface FrameHandler {
+        void onFrame(String payload);
+    }
+
+    /**
+     * Writes one complete line to the socket.
+     */
+    public interface LineWriter {
+        void writeLine(String line) throws IOException;
+    }
+
+    private static class Channel {
+        final int id;
+        final String name;
+        final int priority;              // Lower is more urgent
+        final int maxQueuedOut;
+        final int maxFramesPerSecond;    // 0 = unlimited
+        final FrameHandler handler;
+        final ArrayDeque<String> outbound = new ArrayDeque<>();
+        final MetricsRegistry.Counter in;
+        final MetricsRegistry.Counter out;
+        final MetricsRegistry.Counter dropped;
+        long windowStartMs = 0;
+        int framesInWindow = 0;
+
+        Channel(int id, String name, int priority, int maxQueuedOut, int maxFramesPerSecond, FrameHandler handler) {
+            this.id = id;
+            this.name = name;
+            this.priority = priority;
+            this.maxQueuedOut = maxQueuedOut;
+            this.maxFramesPerSecond = maxFramesPerSecond;
+            this.handler = handler;
+            String prefix = "spp.ch." + name;
+            in = MetricsRegistry.get().counter(prefix + ".in");
+            out = MetricsRegistry.get().counter(prefix + ".out");
+            dropped = MetricsRegistry.get().counter(prefix + ".dropped");
+        }
+
+        /**
+         * Fixed one-second window; cheap and good enough to stop a flood.
+         */
+        boolean admit(long nowMs) {
+            if (maxFramesPerSecond <= 0) {
+                return true;
+            }
+            if (nowMs - windowStartMs >= 1000) {
+                windowStartMs = nowMs;
+                framesInWindow = 0;
+            }
+            return ++framesInWindow <= maxFramesPerSecond;
+        }
+    }
+
+    private final Channel[] channels = new Channel[MAX_CHANNELS];
+    private final MetricsRegistry.Counter unknownFrames = MetricsRegistry.get().counter("spp.ch.unknown");
+    private volatile boolean multiplexed = false;
+    private Thread writerThread;
+    private LineWriter writer;
+
+    /**
+     * Registers a channel.
+     *
+     * @param priority           Outbound urgency; lower values are written first.
+     * @param maxQueuedOut       Outbound commands kept while the socket is busy.
+     * @param maxFramesPerSecond Inbound rate limit, 0 for none.
+     * @param handler            Inbound handler, or null if the channel only sends.
+     */
+    public synchronized void register(int id, String name, int priority, int maxQueuedOut,
+                                      int maxFramesPerSecond, FrameHandler handler) {
+        channels[id] = new Channel(id, name, priority, maxQueuedOut, maxFramesPerSecond, handler);
+    }
+
+    /**
+     * Enables or disables {@code @<channel>|} framing (set per connection from the handshake).
+     */
+    public void setMultiplexed(boolean multiplexed) {
+        this.multiplexed = multiplexed;
+    }
+
+    public boolean isMultiplexed() {
+        return multiplexed;
+    }
+
+    /**
+     * Routes one inbound line to its channel handler.
+     *
+     * @return false if the line belongs to no registered channel.
+     */
+    public boolean dispatch(String line) {
+        int id;
+        String payload;
+        if (line.length() > 2 && line.charAt(0) == '@') {
+            int bar = line.indexOf('|');
+            if (bar < 2) {
+                unknownFrames.inc();
+                return false;
+            }
+            try {
+                id = Integer.parseInt(line.substring(1, bar));
+            } catch (NumberFormatException e) {
+                unknownFrames.inc();
+                return false;
+            }
+            payload = line.substring(bar + 1);
+        } else {
+            id = legacyChannelOf(line);
+            payload = line;
+        }
+
+        Channel channel = id >= 0 && id < MAX_CHANNELS ? channels[id] : null;
+        if (channel == null || channel.handler == null) {
+            unknownFrames.inc();
+            return false;
+        }
+        if (!channel.admit(System.nanoTime() / 1_000_000L)) {
+            channel.dropped.inc();
+            return true; // Recognised, but over this channel's budget
+        }
+        channel.in.inc();
+        channel.handler.onFrame(payload);
+        return true;
+    }
+
+    /**
+     * Maps unframed lines from single-mode firmware to a channel.
+     */
+    static int legacyChannelOf(String line) {
+        if (line.startsWith("MonitoringType:HeartRate") || line.startsWith(SampleBatchDecoder.PREFIX)) {
+            return CH_HEART_RATE;
+        }
+        if (line.startsWith("Pong:") || line.startsWith("Ack:") || line.startsWith("AckWindow:")) {
+            return CH_CONTROL;
+        }
+        if (line.startsWith("Played:")) {
+            return CH_PACING;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The line as written on the wire for the given channel.
+     */
+    public String frame(int channel, String payload) {
+        return multiplexed ? "@" + channel + "|" + payload : payload;
+    }
+
+    /**
+     * Queues a command for the watch. Never blocks; the oldest queued command of the same
+     * channel is dropped if the channel's queue is full.
+     *
+     * @return false if the channel is unknown or the writer is not running.
+     */
+    public synchronized boolean send(int id, String payload) {
+        Channel channel = id >= 0 && id < MAX_CHANNELS ? channels[id] : null;
+        if (channel == null || writerThread == null) {
+            return false;
+        }
+        if (channel.outbound.size() >= channel.maxQueuedOut) {
+            channel.outbound.pollFirst();
+            channel.dropped.inc();
+        }
+        channel.outbound.addLast(payload);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Starts the writer thread for a new connection.
+     */
+    public synchronized void start(LineWriter lineWriter) {
+        stop();
+        writer = lineWriter;
+        writerThread = new Thread(this::writerLoop, "spp-writer");
+        writerThread.start();
+    }
+
+    /**
+     * Stops the writer and discards queued commands (they belong to the old connection).
+     */
+    public synchronized void stop() {
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread = null;
+        }
+        for (Channel channel : channels) {
+            if (channel != null) {
+                channel.outbound.clear();
+            }
+        }
+    }
+
+    private void writerLoop() {
+        Thread self = Thread.currentThread();
+        while (true) {
+            Channel channel;
+            String payload;
+            LineWriter out;
+            synchronized (this) {
+                channel = null;
+                while (writerThread == self && (channel = mostUrgent()) == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (writerThread != self) {
+                    return;
+                }
+                payload = channel.outbound.pollFirst();
+                out = writer;
+            }
+            try {
+                out.writeLine(frame(channel.id, payload));
+                channel.out.inc();
+            } catch (IOException e) {
+                // The heartbeat notices the dead link and tears it down; keep draining until stopped
+                Log.w(TAG, "⚠️ Write failed on " + channel.name + ": " + e.getMessage());
+                channel.dropped.inc();
+            }
+        }
+    }
+
+    private Channel mostUrgent() {
+        Channel best = null;
+        for (Channel channel : channels) {
+            if (channel != null && !channel.outbound.isEmpty()
+                    && (best == null || channel.priority < best.priority)) {
+                best = channel;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Splits a combined monitoring type such as "HeartRate+SunAzimuth" into its modes.
+     */
+    public static List<String> parseModes(String monitoringType) {
+        List<String> modes = new ArrayList<>();
+        for (String mode : monitoringType.split("\\+")) {
+            if (!mode.trim().isEmpty()) {
+                modes.add(mode.trim());
+            }
+        }
+        return modes;
+    }
+
+    /**
+     * @return The channel carrying the given monitoring mode, or -1.
+     */
+    public static int channelForMode(String mode) {
+        switch (mode) {
+            case "HeartRate":
+                return CH_HEART_RATE;
+            case "SunAzimuth":
+                return CH_SUN;
+            case "MoonAzimuth":
+                return CH_MOON;
+            case "PoiAzimuth":
+                return CH_POI;
+            case "Pacing":
+                return CH_PACING;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.smartwatchhapticsystem.controller;
+
+/**
+ * CircuitBreaker: Stops sending to an endpoint that keeps failing.
+ *
+ * CLOSED: requests flow; consecutive failures are counted.
+ * OPEN: after {@code failureThreshold} failures in a row every request fails fast for the
+ * cool-down period, so the radio is not kept busy against a dead server.
+ * HALF_OPEN: once the cool-down has passed, a single probe request is let through. Success
+ * closes the breaker; failure re-opens it with a doubled cool-down (up to a maximum).
+ *
+ * Times are milliseconds on the caller's monotonic clock.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long baseCooldownMs;
+    private final long maxCooldownMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long cooldownMs;
+    private long openUntilMs = 0;
+    private boolean probeInFlight = false;
+    private long rejected = 0;
+    private long opened = 0;
+
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker.
+     * @param baseCooldownMs   First cool-down; doubled after each failed probe.
+     * @param maxCooldownMs    Cap for the cool-down.
+     */
+    public CircuitBreaker(int failureThreshold, long baseCooldownMs, long maxCooldownMs) {
+        this.failureThreshold = failureThreshold;
+        this.baseCooldownMs = baseCooldownMs;
+        this.maxCooldownMs = maxCooldownMs;
+        this.cooldownMs = baseCooldownMs;
+    }
+
+    /**
+     * Asks to send a request. A true result must be followed by exactly one
+     * {@link #onSuccess()} or {@link #onFailure(long)}.
+     */
+    public synchronized boolean allowRequest(long nowMs) {
+        switch (state) {
+            case OPEN:
+                if (nowMs < openUntilMs) {
+                    rejected++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true; // This request is the probe
+                return true;
+            case HALF_OPEN:
+                if (probeInFlight) {
+                    rejected++;
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+            case CLOSED:
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        cooldownMs = baseCooldownMs;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure(long nowMs) {
+        if (state == State.HALF_OPEN) {
+            // Probe failed: stay away longer
+            cooldownMs = Math.min(maxCooldownMs, cooldownMs * 2);
+            open(nowMs);
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open(nowMs);
+        }
+    }
+
+    private void open(long nowMs) {
+        state = State.OPEN;
+        openUntilMs = nowMs + cooldownMs;
+        probeInFlight = false;
+        opened++;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return How long until a probe will be allowed (0 if requests may be sent now).
+     */
+    public synchronized long getRetryInMs(long nowMs) {
+        return state == State.OPEN ? Math.max(0, openUntilMs - nowMs) : 0;
+    }
+
+    /**
+     * @return Failures since the last success (0 right after a success).
+     */
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return state + " (failures=" + consecutiveFailures + ", opened=" + opened +
+                ", rejected=" + rejected + ", cooldown=" + cooldownMs + " ms)";
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.Locale;
+
+/**
+ * ClockSync: NTP-style estimate of the watch clock relative to the phone clock.
+ *
+ * The phone sends {@code Ping:<seq>,<t0>} and the watch answers
+ * {@code Pong:<seq>,<t0>,<t1>,<t2>} where t1/t2 are its receive/send times. For each exchange
+ * (t3 = phone receive time):
+ * <pre>
+ *   offset = ((t1 - t0) + (t2 - t3)) / 2     // watch clock minus phone clock
+ *   delay  = (t3 - t0) - (t2 - t1)           // round trip spent on the link
+ * </pre>
+ * Like NTP's clock filter, the sample with the smallest delay in a recent window is trusted
+ * most (its offset error is bounded by delay / 2). Drift is estimated by a least-squares
+ * fit over the accepted offsets (weighted by 1/delay², since the error scales with delay) so
+ * the mapping stays accurate between pings.
+ *
+ * All times are milliseconds; phone times come from the same monotonic clock as {@link #nowMs()}.
+ */
+public class ClockSync {
+    private static final int FILTER_WINDOW = 8;    // Raw samples considered per estimate
+    private static final int DRIFT_WINDOW = 16;    // Filtered estimates used for the drift fit
+    private static final double MAX_DRIFT = 500e-6; // Clamp: real crystals are well under 500 ppm
+
+    // Raw samples (ring)
+    private final double[] sampleOffset = new double[FILTER_WINDOW];
+    private final double[] sampleDelay = new double[FILTER_WINDOW];
+    private final double[] samplePhoneTime = new double[FILTER_WINDOW];
+    private int sampleCount = 0;
+
+    // Filtered estimates (ring) for the drift fit
+    private final double[] estimateTime = new double[DRIFT_WINDOW];
+    private final double[] estimateOffset = new double[DRIFT_WINDOW];
+    private final double[] estimateWeight = new double[DRIFT_WINDOW];
+    private int estimateCount = 0;
+
+    private boolean synced = false;
+    private double offsetMs = 0;     // Offset at referenceTimeMs
+    private double referenceTimeMs = 0;
+    private double drift = 0;        // d(offset)/d(phone time), dimensionless
+    private double bestDelayMs = 0;
+
+    /**
+     * Feeds one completed ping/pong exchange.
+     *
+     * @param t0 Phone send time.
+     * @param t1 Watch receive time.
+     * @param t2 Watch send time.
+     * @param t3 Phone receive time.
+     */
+    public synchronized void onExchange(long t0, long t1, long t2, long t3) {
+        double delay = (t3 - t0) - (t2 - t1);
+        if (delay < 0 || t3 < t0) {
+            return; // Impossible sample (clock jumped or garbage)
+        }
+        double offset = ((t1 - t0) + (t2 - t3)) / 2.0;
+        double midpoint = (t0 + t3) / 2.0;
+
+        int slot = sampleCount % FILTER_WINDOW;
+        sampleOffset[slot] = offset;
+        sampleDelay[slot] = delay;
+        samplePhoneTime[slot] = midpoint;
+        sampleCount++;
+
+        // Step 1: Clock filter — pick the minimum-delay sample from the window
+        int n = Math.min(sampleCount, FILTER_WINDOW);
+        int best = slot;
+        for (int i = 0; i < n; i++) {
+            if (sampleDelay[i] < sampleDelay[best]) {
+                best = i;
+            }
+        }
+        bestDelayMs = sampleDelay[best];
+
+        // Step 2: Record the filtered estimate once per exchange for the drift fit
+        int e = estimateCount % DRIFT_WINDOW;
+        estimateTime[e] = samplePhoneTime[best];
+        estimateOffset[e] = sampleOffset[best];
+        double spread = sampleDelay[best] + 1; // +1 ms: clocks tick in whole milliseconds
+        estimateWeight[e] = 1.0 / (spread * spread);
+        estimateCount++;
+
+        // Step 3: Least-squares line through the estimates gives offset + drift
+        fitDrift();
+        synced = true;
+    }
+
+    private void fitDrift() {
+        int n = Math.min(estimateCount, DRIFT_WINDOW);
+        double totalWeight = 0;
+        double meanT = 0;
+        double meanO = 0;
+        for (int i = 0; i < n; i++) {
+            totalWeight += estimateWeight[i];
+            meanT += estimateWeight[i] * estimateTime[i];
+            meanO += estimateWeight[i] * estimateOffset[i];
+        }
+        meanT /= totalWeight;
+        meanO /= totalWeight;
+
+        double cov = 0;
+        double var = 0;
+        for (int i = 0; i < n; i++) {
+            double dt = estimateTime[i] - meanT;
+            cov += estimateWeight[i] * dt * (estimateOffset[i] - meanO);
+            var += estimateWeight[i] * dt * dt;
+        }
+        // Need a few seconds of (weighted) spread before the slope means anything
+        drift = var / totalWeight > 1e6 ? Math.max(-MAX_DRIFT, Math.min(MAX_DRIFT, cov / var)) : 0;
+        referenceTimeMs = meanT;
+        offsetMs = meanO;
+    }
+
+    public synchronized boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * @return Estimated watch-minus-phone offset at the given phone time.
+     */
+    public synchronized double offsetAt(long phoneTimeMs) {
+        return offsetMs + drift * (phoneTimeMs - referenceTimeMs);
+    }
+
+    /**
+     * Converts a watch timestamp to phone time.
+     */
+    public synchronized long toPhoneTime(long watchTimeMs) {
+        // Offset varies slowly, so evaluating it at the watch time is accurate to drift²
+        return Math.round(watchTimeMs - offsetAt(watchTimeMs - Math.round(offsetMs)));
+    }
+
+    /**
+     * Converts a phone timestamp to watch time (e.g. to schedule a vibration).
+     */
+    public synchronized long toWatchTime(long phoneTimeMs) {
+        return Math.round(phoneTimeMs + offsetAt(phoneTimeMs));
+    }
+
+    /**
+     * @return Smallest round-trip delay in the filter window; the offset error is at most half of it.
+     */
+    public synchronized double getBestDelayMs() {
+        return bestDelayMs;
+    }
+
+    /**
+     * @return Estimated drift in parts per million (watch clock relative to phone clock).
+     */
+    public synchronized double getDriftPpm() {
+        return drift * 1e6;
+    }
+
+    public synchronized void reset() {
+        sampleCount = 0;
+        estimateCount = 0;
+        synced = false;
+        drift = 0;
+        offsetMs = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return synced
+                ? String.format(Locale.US, "offset=%.1f ms, drift=%.1f ppm, bestDelay=%.1f ms",
+                offsetAt(nowMs()), getDriftPpm(), bestDelayMs)
+                : "unsynced";
+    }
+
+    /**
+     * Phone clock used for all phone-side timestamps (monotonic).
+     */
+    public static long nowMs() {
+        return System.nanoTime() / 1_000_000L;
+    }
+}
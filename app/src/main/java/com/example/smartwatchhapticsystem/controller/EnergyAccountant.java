@@ -0,0 +1,333 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import android.os.Looper;
+import android.util.Printer;
+
+import com.example.smartwatchhapticsystem.BuildConfig;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * EnergyAccountant: Attributes battery cost to the app's subsystems.
+ *
+ * Subsystems report what they do (GPS on/off and fixes, HTTP requests, SPP bytes, timer
+ * wakeups). In debug builds main-looper messages are also counted and timed through the
+ * looper's message logging and attributed by the callback's class name; release builds leave
+ * the looper alone and report no messages. Counts are kept in one-minute slots over a
+ * rolling hour, and turned into a rough charge estimate with per-activity currents typical of
+ * a mid-range phone. The absolute numbers are estimates; the split between subsystems and
+ * how it moves when an interval or batch size changes is what the report is for.
+ *
+ * Radio model: a request keeps the cellular radio in its high-power state for
+ * {@link #RADIO_TAIL_MS} after the last activity, so requests close together share one
+ * active window while spread-out ones each pay the full tail.
+ *
+ * Recording allocates nothing; only {@link #getReport(long)} builds strings.
+ */
+public final class EnergyAccountant {
+
+    public enum Subsystem {
+        LOCATION,     // LocationController
+        NETWORK,      // NetworkController and Node-RED health probes
+        BLUETOOTH,    // BluetoothConnectionManager
+        MAIN_LOOPER   // Main-thread messages not attributed to the above
+    }
+
+    // Per-subsystem fields in each slot
+    private static final int REQUESTS = 0;      // GPS fixes requested / HTTP requests / SPP frames out
+    private static final int DELIVERED = 1;     // GPS fixes delivered / HTTP responses / SPP frames in
+    private static final int ACTIVE_MS = 2;     // GPS on / radio high-power / link connected
+    private static final int BYTES_IN = 3;
+    private static final int BYTES_OUT = 4;
+    private static final int WAKEUPS = 5;       // Timer-driven thread wakeups
+    private static final int MESSAGES = 6;      // Main-looper messages
+    private static final int BUSY_MS = 7;       // Main-looper time spent in those messages
+    private static final int FIELDS = 8;
+
+    private static final int SLOTS = 60;        // One-minute slots: rolling hour
+    private static final long SLOT_MS = 60000;
+
+    // Typical currents (mA) and per-event charges (mA·ms); rough, for attribution only
+    private static final double GPS_MA = 30;
+    private static final double RADIO_ACTIVE_MA = 180;
+    private static final double BT_CONNECTED_MA = 1.5;
+    private static final double BT_MA_MS_PER_BYTE = 0.02;
+    private static final double WAKEUP_MA_MS = 60 * 5.0;     // ~60 mA CPU for ~5 ms per wakeup
+    private static final double CPU_BUSY_MA = 60;
+    public static final long RADIO_TAIL_MS = 10000;
+
+    /** Looper message logging makes the framework format two strings per message: debug builds only. */
+    public static final boolean LOOPER_LOGGING_ENABLED = BuildConfig.DEBUG;
+
+    private static final Subsystem[] SUBSYSTEMS = Subsystem.values();
+    private static final EnergyAccountant INSTANCE = new EnergyAccountant();
+
+    private final long[][][] slots = new long[SLOTS][SUBSYSTEMS.length][FIELDS];
+    private final long[] slotMinute = new long[SLOTS];
+    private long radioActiveUntilMs = 0;
+    private long gpsOnSinceMs = -1;
+    private long gpsIntervalMs = 0;
+    private long gpsRequestRemainderMs = 0;
+    private long btConnectedSinceMs = -1;
+    private long looperDispatchStartMs = -1;
+    private int looperDispatchSubsystem;
+    private Looper loggedLooper;                // Non-null while our Printer is installed
+
+    EnergyAccountant() {
+        Arrays.fill(slotMinute, -1);
+    }
+
+    public static EnergyAccountant get() {
+        return INSTANCE;
+    }
+
+    private void add(Subsystem subsystem, int field, long delta, long nowMs) {
+        long minute = nowMs / SLOT_MS;
+        int slot = (int) (minute % SLOTS);
+        if (slotMinute[slot] != minute) {
+            slotMinute[slot] = minute;
+            for (long[] fields : slots[slot]) {
+                Arrays.fill(fields, 0);
+            }
+        }
+        slots[slot][subsystem.ordinal()][field] += delta;
+    }
+
+    // --- Location ---
+
+    public synchronized void onGpsStart(long intervalMs, long nowMs) {
+        flushGps(nowMs);
+        gpsOnSinceMs = nowMs;
+        gpsIntervalMs = intervalMs;
+    }
+
+    public synchronized void onGpsFix(long nowMs) {
+        flushGps(nowMs);
+        add(Subsystem.LOCATION, DELIVERED, 1, nowMs);
+    }
+
+    public synchronized void onGpsStop(long nowMs) {
+        flushGps(nowMs);
+        gpsOnSinceMs = -1;
+    }
+
+    /**
+     * Books GPS on-time (and the fixes it implies at the requested interval) up to now.
+     */
+    private void flushGps(long nowMs) {
+        if (gpsOnSinceMs < 0) {
+            return;
+        }
+        long elapsed = nowMs - gpsOnSinceMs;
+        add(Subsystem.LOCATION, ACTIVE_MS, elapsed, nowMs);
+        if (gpsIntervalMs > 0) {
+            gpsRequestRemainderMs += elapsed;
+            add(Subsystem.LOCATION, REQUESTS, gpsRequestRemainderMs / gpsIntervalMs, nowMs);
+            gpsRequestRemainderMs %= gpsIntervalMs;
+        }
+        gpsOnSinceMs = nowMs;
+    }
+
+    // --- Network ---
+
+    /**
+     * An HTTP request leaves the device (including health probes).
+     */
+    public synchronized void onNetworkRequest(int bytesOut, long nowMs) {
+        add(Subsystem.NETWORK, REQUESTS, 1, nowMs);
+        add(Subsystem.NETWORK, BYTES_OUT, bytesOut, nowMs);
+        radioActivity(nowMs);
+    }
+
+    /**
+     * A response (or error) arrives; bytesIn may be 0 when unknown.
+     */
+    public synchronized void onNetworkResponse(int bytesIn, long nowMs) {
+        add(Subsystem.NETWORK, DELIVERED, 1, nowMs);
+        add(Subsystem.NETWORK, BYTES_IN, bytesIn, nowMs);
+        radioActivity(nowMs);
+    }
+
+    private void radioActivity(long nowMs) {
+        long until = nowMs + RADIO_TAIL_MS;
+        if (until > radioActiveUntilMs) {
+            // Only the part of the window not already covered costs extra
+            add(Subsystem.NETWORK, ACTIVE_MS, until - Math.max(nowMs, radioActiveUntilMs), nowMs);
+            radioActiveUntilMs = until;
+        }
+    }
+
+    // --- Bluetooth ---
+
+    public synchronized void onBluetoothConnected(long nowMs) {
+        flushBluetooth(nowMs);
+        btConnectedSinceMs = nowMs;
+    }
+
+    public synchronized void onBluetoothDisconnected(long nowMs) {
+        flushBluetooth(nowMs);
+        btConnectedSinceMs = -1;
+    }
+
+    private void flushBluetooth(long nowMs) {
+        if (btConnectedSinceMs >= 0) {
+            add(Subsystem.BLUETOOTH, ACTIVE_MS, nowMs - btConnectedSinceMs, nowMs);
+            btConnectedSinceMs = nowMs;
+        }
+    }
+
+    public synchronized void onSppIn(int bytes, long nowMs) {
+        add(Subsystem.BLUETOOTH, DELIVERED, 1, nowMs);
+        add(Subsystem.BLUETOOTH, BYTES_IN, bytes, nowMs);
+    }
+
+    public synchronized void onSppOut(int bytes, long nowMs) {
+        add(Subsystem.BLUETOOTH, REQUESTS, 1, nowMs);
+        add(Subsystem.BLUETOOTH, BYTES_OUT, bytes, nowMs);
+    }
+
+    // --- Wakeups and the main looper ---
+
+    /**
+     * A timer-driven task woke a thread (ping, liveness check, health probe, planner...).
+     */
+    public synchronized void onWakeup(Subsystem subsystem, long nowMs) {
+        add(subsystem, WAKEUPS, 1, nowMs);
+    }
+
+    /**
+     * Counts and times every message the looper dispatches (debug builds only). Once a Printer
+     * is set the framework builds a ">>>>> Dispatching" and a "<<<<< Finished" string for every
+     * message, which is too costly to leave on in release builds.
+     *
+     * The looper holds a single Printer and has no getter for it, so this replaces any Printer
+     * set before; {@link #uninstallLooperLogging()} only clears the looper if this call set it.
+     *
+     * @return false if not installed (release build, or already installed).
+     */
+    public synchronized boolean installLooperLogging(Looper looper) {
+        if (!LOOPER_LOGGING_ENABLED || loggedLooper != null) {
+            return false;
+        }
+        looper.setMessageLogging(new Printer() {
+            @Override
+            public void println(String line) {
+                onLooperLog(line, ClockSync.nowMs());
+            }
+        });
+        loggedLooper = looper;
+        return true;
+    }
+
+    /**
+     * Removes the Printer set by {@link #installLooperLogging(Looper)}; does nothing otherwise,
+     * so a Printer installed by someone else is left in place.
+     */
+    public synchronized void uninstallLooperLogging() {
+        if (loggedLooper != null) {
+            loggedLooper.setMessageLogging(null);
+            loggedLooper = null;
+            looperDispatchStartMs = -1;
+        }
+    }
+
+    synchronized void onLooperLog(String line, long nowMs) {
+        if (line.startsWith(">>>>> Dispatching")) {
+            looperDispatchStartMs = nowMs;
+            looperDispatchSubsystem = attribute(line).ordinal();
+        } else if (line.startsWith("<<<<< Finished") && looperDispatchStartMs >= 0) {
+            Subsystem subsystem = SUBSYSTEMS[looperDispatchSubsystem];
+            add(subsystem, MESSAGES, 1, nowMs);
+            add(subsystem, BUSY_MS, nowMs - looperDispatchStartMs, nowMs);
+            looperDispatchStartMs = -1;
+        }
+    }
+
+    private static Subsystem attribute(String line) {
+        if (line.contains("LocationController") || line.contains("gms.location")) {
+            return Subsystem.LOCATION;
+        }
+        if (line.contains("NetworkController") || line.contains("volley")) {
+            return Subsystem.NETWORK;
+        }
+        if (line.contains("BluetoothConnectionManager")) {
+            return Subsystem.BLUETOOTH;
+        }
+        return Subsystem.MAIN_LOOPER;
+    }
+
+    // --- Report ---
+
+    /**
+     * @return Per-subsystem totals over the last hour (or since start, if shorter).
+     */
+    synchronized long[] totals(Subsystem subsystem, long nowMs) {
+        flushGps(nowMs);
+        flushBluetooth(nowMs);
+        long currentMinute = nowMs / SLOT_MS;
+        long[] sum = new long[FIELDS];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (slotMinute[slot] >= 0 && currentMinute - slotMinute[slot] < SLOTS) {
+                for (int field = 0; field < FIELDS; field++) {
+                    sum[field] += slots[slot][subsystem.ordinal()][field];
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return Estimated charge in mAh over the rolling hour.
+     */
+    public double estimateMah(Subsystem subsystem, long nowMs) {
+        long[] t = totals(subsystem, nowMs);
+        double maMs;
+        switch (subsystem) {
+            case LOCATION:
+                maMs = t[ACTIVE_MS] * GPS_MA;
+                break;
+            case NETWORK:
+                maMs = t[ACTIVE_MS] * RADIO_ACTIVE_MA;
+                break;
+            case BLUETOOTH:
+                maMs = t[ACTIVE_MS] * BT_CONNECTED_MA + (t[BYTES_IN] + t[BYTES_OUT]) * BT_MA_MS_PER_BYTE;
+                break;
+            default:
+                maMs = 0;
+        }
+        maMs += t[WAKEUPS] * WAKEUP_MA_MS + t[BUSY_MS] * CPU_BUSY_MA;
+        return maMs / 3_600_000.0;
+    }
+
+    public String getReport(long nowMs) {
+        StringBuilder sb = new StringBuilder("🔋 Energy estimate, rolling hour:\n");
+        double total = 0;
+        for (Subsystem subsystem : SUBSYSTEMS) {
+            long[] t = totals(subsystem, nowMs);
+            double mah = estimateMah(subsystem, nowMs);
+            total += mah;
+            sb.append(String.format(Locale.US,
+                    "  %-11s %6.2f mAh | req=%d done=%d active=%ds in=%dB out=%dB wakeups=%d msgs=%d busy=%dms%n",
+                    subsystem, mah, t[REQUESTS], t[DELIVERED], t[ACTIVE_MS] / 1000, t[BYTES_IN], t[BYTES_OUT],
+                    t[WAKEUPS], t[MESSAGES], t[BUSY_MS]));
+        }
+        sb.append(String.format(Locale.US, "  total       %6.2f mAh", total));
+        if (!LOOPER_LOGGING_ENABLED) {
+            sb.append(" (msgs and busy are not measured in release builds)");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Clears all counters (tests, or a fresh measurement run).
+     */
+    public synchronized void reset() {
+        Arrays.fill(slotMinute, -1);
+        radioActiveUntilMs = 0;
+        gpsOnSinceMs = -1;
+        gpsRequestRemainderMs = 0;
+        btConnectedSinceMs = -1;
+        looperDispatchStartMs = -1;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import android.hardware.GeomagneticField;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.function.LongSupplier;
+
+/**
+ * HeadingGuidanceLoop: Turns the phone's heading (rotation vector sensor, ~50 Hz) and a target
+ * azimuth into continuously updated vibration feedback, between location fixes.
+ *
+ * The sensor's azimuth is relative to magnetic north while target bearings are true north, so
+ * each heading is corrected by the magnetic declination at the latest fix (see
+ * {@link #setLocation}); without a fix no correction is applied.
+ *
+ * Per sensor event: the heading is smoothed on the circle (EWMA of the wrapped difference),
+ * the pointing error to the target is classified into zones with hysteresis, and the zone and
+ * turn side choose the pattern:
+ * - pulses: 1 = turn right, 2 = turn left, 3 = on target
+ * - intensity and pulse rate rise as the error shrinks (5 / 150 ms on target ... 1 / 1200 ms behind)
+ * A new pattern is sent when the zone or side changes, and refreshed periodically so the watch
+ * keeps vibrating; sends are spaced by at least {@link #MIN_SEND_GAP_MS} or twice the link RTT,
+ * whichever is larger, so the SPP link is never asked to carry more than it can.
+ *
+ * The per-event path allocates nothing (preallocated matrices, primitive state, histogram
+ * records); only the rate-limited sends build a command string. Callback jitter (deviation of
+ * the event spacing from the requested period) and processing time are recorded as
+ * {@code heading.jitterUs} and {@code heading.loopUs}.
+ */
+public class HeadingGuidanceLoop implements SensorEventListener {
+    private static final String TAG = "HeadingGuidanceLoop";
+
+    private static final int SENSOR_PERIOD_US = 20000;        // 50 Hz requested
+    private static final double SMOOTHING = 0.2;              // EWMA gain per event
+    private static final double HYSTERESIS_DEG = 5;
+    private static final double[] ZONE_BOUNDS_DEG = {15, 45, 90, 135}; // Zone 0 (on target) .. 4 (behind)
+    private static final int[] ZONE_INTERVAL_MS = {150, 300, 500, 800, 1200};
+    private static final int PULSE_DURATION_MS = 100;
+    private static final long MIN_SEND_GAP_MS = 250;
+    private static final long REFRESH_MS = 1500;              // Re-send an unchanged pattern this often
+
+    public static final int PULSES_RIGHT = 1;
+    public static final int PULSES_LEFT = 2;
+    public static final int PULSES_ON_TARGET = 3;
+
+    /**
+     * Receives each pattern the loop decides to send.
+     */
+    public interface OnGuidanceUpdate {
+        void onUpdate(int intensity, int pulses, int duration, int interval);
+    }
+
+    private final OnGuidanceUpdate sink;
+    private final LongSupplier linkRttMs;
+
+    private final float[] rotation = new float[9];
+    private final float[] orientation = new float[3];
+    private final MetricsRegistry.Histogram jitterUs = MetricsRegistry.get().histogram("heading.jitterUs");
+    private final MetricsRegistry.Histogram loopUs = MetricsRegistry.get().histogram("heading.loopUs");
+    private final MetricsRegistry.Counter updatesSent = MetricsRegistry.get().counter("heading.updates");
+
+    private volatile double targetAzimuthDeg = Double.NaN;
+    private volatile float declinationDeg = 0;             // True minus magnetic north at the last fix
+    private double smoothedHeadingDeg = Double.NaN;
+    private int zone = -1;
+    private int pulses = 0;
+    private boolean dirty = false;
+    private long lastSendMs = Long.MIN_VALUE / 2;
+    private long lastEventNs = 0;
+
+    private SensorManager sensorManager;
+    private HandlerThread thread;
+
+    /**
+     * @param sink      Where patterns go (normally the watch, on the PoiAzimuth channel).
+     * @param linkRttMs Current smoothed SPP round trip, used to space sends; 0 if unknown.
+     */
+    public HeadingGuidanceLoop(OnGuidanceUpdate sink, LongSupplier linkRttMs) {
+        this.sink = sink;
+        this.linkRttMs = linkRttMs;
+    }
+
+    /**
+     * Starts listening to the rotation vector sensor on a dedicated thread.
+     *
+     * @return false if the device has no rotation vector sensor.
+     */
+    public synchronized boolean start(SensorManager manager) {
+        stop();
+        Sensor sensor = manager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
+        if (sensor == null) {
+            Log.w(TAG, "⚠️ No rotation vector sensor, heading guidance unavailable");
+            return false;
+        }
+        thread = new HandlerThread("heading-loop", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        sensorManager = manager;
+        lastEventNs = 0;
+        manager.registerListener(this, sensor, SENSOR_PERIOD_US, new Handler(thread.getLooper()));
+        Log.d(TAG, "🧭 Heading loop started");
+        return true;
+    }
+
+    public synchronized void stop() {
+        if (sensorManager != null) {
+            sensorManager.unregisterListener(this);
+            sensorManager = null;
+        }
+        if (thread != null) {
+            thread.quitSafely();
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Sets the direction to guide toward (degrees clockwise from north), e.g. the bearing to the
+     * current point of interest after a location fix. NaN pauses guidance.
+     */
+    public void setTargetAzimuth(double azimuthDeg) {
+        targetAzimuthDeg = azimuthDeg;
+    }
+
+    /**
+     * Updates the magnetic declination for a new location fix (altitude in meters, time in UTC
+     * milliseconds). Called once per fix, not per sensor event.
+     */
+    public void setLocation(double latitude, double longitude, double altitudeM, long utcMs) {
+        declinationDeg = new GeomagneticField((float) latitude, (float) longitude, (float) altitudeM, utcMs)
+                .getDeclination();
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        long startNs = System.nanoTime();
+        if (lastEventNs != 0) {
+            jitterUs.record(Math.abs((startNs - lastEventNs) / 1000 - SENSOR_PERIOD_US));
+        }
+        lastEventNs = startNs;
+
+        SensorManager.getRotationMatrixFromVector(rotation, event.values);
+        SensorManager.getOrientation(rotation, orientation);
+        onHeading(Math.toDegrees(orientation[0]) + declinationDeg, startNs / 1_000_000L); // Magnetic to true north
+
+        loopUs.record((System.nanoTime() - startNs) / 1000);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Accuracy is reflected in the heading itself; nothing to adapt
+    }
+
+    /**
+     * One loop iteration for a raw heading sample (degrees clockwise from north).
+     */
+    void onHeading(double headingDeg, long nowMs) {
+        double target = targetAzimuthDeg;
+        if (Double.isNaN(target)) {
+            return;
+        }
+
+        // Step 1: Smooth the heading on the circle
+        if (Double.isNaN(smoothedHeadingDeg)) {
+            smoothedHeadingDeg = normalize(headingDeg);
+        } else {
+            smoothedHeadingDeg = normalize(smoothedHeadingDeg + SMOOTHING * wrap(headingDeg - smoothedHeadingDeg));
+        }
+
+        // Step 2: Classify the pointing error with hysteresis on zone and side
+        double error = wrap(target - smoothedHeadingDeg);   // > 0: target is to the right
+        double absError = Math.abs(error);
+        int newZone = zoneWithHysteresis(absError);
+        int newPulses;
+        if (newZone == 0) {
+            newPulses = PULSES_ON_TARGET;
+        } else if (pulses == PULSES_RIGHT || pulses == PULSES_LEFT) {
+            // Keep the side unless the error is clearly on the other side (not straight behind)
+            boolean flip = pulses == PULSES_RIGHT ? error < -HYSTERESIS_DEG : error > HYSTERESIS_DEG;
+            newPulses = flip && absError < 180 - HYSTERESIS_DEG ? (pulses == PULSES_RIGHT ? PULSES_LEFT : PULSES_RIGHT) : pulses;
+        } else {
+            newPulses = error >= 0 ? PULSES_RIGHT : PULSES_LEFT;
+        }
+        if (newZone != zone || newPulses != pulses) {
+            zone = newZone;
+            pulses = newPulses;
+            dirty = true;
+        }
+
+        // Step 3: Send if something changed (or the refresh is due), within the link's budget
+        long sinceLast = nowMs - lastSendMs;
+        long gap = Math.max(MIN_SEND_GAP_MS, 2 * linkRttMs.getAsLong());
+        if ((dirty && sinceLast >= gap) || sinceLast >= Math.max(REFRESH_MS, gap)) {
+            dirty = false;
+            lastSendMs = nowMs;
+            updatesSent.inc();
+            sink.onUpdate(5 - zone, pulses, PULSE_DURATION_MS, ZONE_INTERVAL_MS[zone]);
+        }
+    }
+
+    private int zoneWithHysteresis(double absError) {
+        int raw = 0;
+        while (raw < ZONE_BOUNDS_DEG.length && absError >= ZONE_BOUNDS_DEG[raw]) {
+            raw++;
+        }
+        if (zone < 0 || raw == zone) {
+            return raw;
+        }
+        // Leave the current zone only once past its boundary by the hysteresis margin
+        if (raw > zone) {
+            return absError >= ZONE_BOUNDS_DEG[zone] + HYSTERESIS_DEG ? raw : zone;
+        }
+        return absError < ZONE_BOUNDS_DEG[zone - 1] - HYSTERESIS_DEG ? raw : zone;
+    }
+
+    /**
+     * @return The angle mapped to (-180, 180].
+     */
+    static double wrap(double deg) {
+        double d = deg % 360;
+        if (d > 180) {
+            d -= 360;
+        } else if (d <= -180) {
+            d += 360;
+        }
+        return d;
+    }
+
+    private static double normalize(double deg) {
+        double d = deg % 360;
+        return d < 0 ? d + 360 : d;
+    }
+
+    public double getSmoothedHeadingDeg() {
+        return smoothedHeadingDeg;
+    }
+}
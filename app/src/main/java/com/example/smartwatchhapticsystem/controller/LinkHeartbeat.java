@@ -0,0 +1,194 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.Locale;
+
+/**
+ * LinkHeartbeat: Keepalive bookkeeping for the SPP link.
+ *
+ * Tracks outstanding pings, measures RTT from their pongs and decides when the link is dead:
+ * <ul>
+ *   <li>{@code maxMissedPongs} pings in a row went unanswered for longer than the pong timeout, or</li>
+ *   <li>nothing at all (samples or pongs) was received for the idle timeout.</li>
+ * </ul>
+ * Both deadlines only apply once the peer has answered a ping: watch firmware without the
+ * Ping/Pong protocol never pongs, and in Sun/Moon-only sessions it may send nothing upstream
+ * at all, so on such a link silence proves nothing and the socket itself is the only signal.
+ * The caller sends the pings and acts on {@link #check(long)}; this class only keeps state,
+ * so it can be unit tested with a fake clock. All times are milliseconds on the
+ * {@link ClockSync#nowMs()} clock.
+ */
+public class LinkHeartbeat {
+    private static final int MAX_OUTSTANDING = 8;     // Pings tracked while waiting for pongs
+    private static final int RTT_HISTORY = 64;
+    private static final double SRTT_GAIN = 1.0 / 8;  // Same smoothing as TCP's SRTT
+    private static final double DEGRADED_FACTOR = 3;  // Smoothed RTT this many times the best one → degraded
+
+    private final long pongTimeoutMs;
+    private final int maxMissedPongs;
+    private final long idleTimeoutMs;
+
+    // Outstanding pings (ring of seq → send time)
+    private final int[] pendingSeq = new int[MAX_OUTSTANDING];
+    private final long[] pendingSentAt = new long[MAX_OUTSTANDING];
+    private int pendingCount = 0;
+
+    // RTT history (ring) and summaries
+    private final long[] rttHistory = new long[RTT_HISTORY];
+    private int rttCount = 0;
+    private double srttMs = -1;
+    private long minRttMs = Long.MAX_VALUE;
+    private final MetricsRegistry.Histogram rttMetric = MetricsRegistry.get().histogram("spp.rttMs");
+
+    private long lastReceiveMs;
+    private boolean peerPongs = false;   // Set by the first pong: deadlines apply from then on
+    private int missedInARow = 0;
+    private long totalMissed = 0;
+
+    /**
+     * @param pongTimeoutMs  How long to wait for a pong before counting the ping as missed.
+     * @param maxMissedPongs Missed pongs in a row that declare the link dead.
+     * @param idleTimeoutMs  Silence (no bytes at all) that declares the link dead.
+     */
+    public LinkHeartbeat(long pongTimeoutMs, int maxMissedPongs, long idleTimeoutMs) {
+        this.pongTimeoutMs = pongTimeoutMs;
+        this.maxMissedPongs = maxMissedPongs;
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Starts a fresh link: clears pending pings and the idle timer (RTT history is kept). The
+     * peer may be a different watch, so it has to pong again before deadlines apply.
+     */
+    public synchronized void start(long nowMs) {
+        pendingCount = 0;
+        peerPongs = false;
+        missedInARow = 0;
+        lastReceiveMs = nowMs;
+    }
+
+    public synchronized void onPingSent(int seq, long sentAtMs) {
+        if (pendingCount == MAX_OUTSTANDING) {
+            // Oldest is long overdue anyway; check() has already counted it
+            System.arraycopy(pendingSeq, 1, pendingSeq, 0, MAX_OUTSTANDING - 1);
+            System.arraycopy(pendingSentAt, 1, pendingSentAt, 0, MAX_OUTSTANDING - 1);
+            pendingCount--;
+        }
+        pendingSeq[pendingCount] = seq;
+        pendingSentAt[pendingCount] = sentAtMs;
+        pendingCount++;
+    }
+
+    /**
+     * Any received line proves the link is alive.
+     */
+    public synchronized void onReceive(long nowMs) {
+        lastReceiveMs = nowMs;
+    }
+
+    /**
+     * Matches a pong to its ping and records the RTT.
+     *
+     * @return The RTT in ms, or -1 if the ping is unknown (late duplicate or already expired).
+     */
+    public synchronized long onPong(int seq, long nowMs) {
+        lastReceiveMs = nowMs;
+        peerPongs = true; // Even a late pong shows the peer speaks the protocol
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingSeq[i] != seq) {
+                continue;
+            }
+            long rtt = nowMs - pendingSentAt[i];
+            // Pings before this one are answered out of order or lost; drop them with it
+            int remaining = pendingCount - i - 1;
+            System.arraycopy(pendingSeq, i + 1, pendingSeq, 0, remaining);
+            System.arraycopy(pendingSentAt, i + 1, pendingSentAt, 0, remaining);
+            pendingCount = remaining;
+            missedInARow = 0;
+            recordRtt(rtt);
+            return rtt;
+        }
+        return -1;
+    }
+
+    private void recordRtt(long rtt) {
+        rttHistory[rttCount % RTT_HISTORY] = rtt;
+        rttCount++;
+        rttMetric.record(rtt);
+        minRttMs = Math.min(minRttMs, rtt);
+        srttMs = srttMs < 0 ? rtt : srttMs + SRTT_GAIN * (rtt - srttMs);
+    }
+
+    /**
+     * Expires overdue pings and evaluates the deadlines.
+     *
+     * @return A human-readable reason if the link should be torn down, otherwise null (always
+     *         null until the peer has answered a ping).
+     */
+    public synchronized String check(long nowMs) {
+        // Step 1: Expire pings whose pong is overdue (oldest first)
+        while (pendingCount > 0 && nowMs - pendingSentAt[0] > pongTimeoutMs) {
+            System.arraycopy(pendingSeq, 1, pendingSeq, 0, pendingCount - 1);
+            System.arraycopy(pendingSentAt, 1, pendingSentAt, 0, pendingCount - 1);
+            pendingCount--;
+            if (peerPongs) {
+                missedInARow++;
+                totalMissed++;
+            }
+        }
+
+        // Step 2: Deadlines, only for a peer known to answer
+        if (!peerPongs) {
+            return null;
+        }
+        if (missedInARow >= maxMissedPongs) {
+            return missedInARow + " pongs missed in a row";
+        }
+        long idle = nowMs - lastReceiveMs;
+        if (idle > idleTimeoutMs) {
+            return "no data for " + idle + " ms";
+        }
+        return null;
+    }
+
+    /**
+     * @return true when the smoothed RTT has grown well beyond the best RTT seen, an early sign
+     *         of range or interference problems before pongs start going missing.
+     */
+    public synchronized boolean isDegraded() {
+        return srttMs > 0 && minRttMs != Long.MAX_VALUE && srttMs > DEGRADED_FACTOR * Math.max(minRttMs, 1);
+    }
+
+    /**
+     * @return true once the peer has answered a ping on this link.
+     */
+    public synchronized boolean isPeerPonging() {
+        return peerPongs;
+    }
+
+    public synchronized double getSmoothedRttMs() {
+        return srttMs;
+    }
+
+    /**
+     * @return The most recent RTTs, oldest first (up to 64).
+     */
+    public synchronized long[] getRttHistory() {
+        int n = Math.min(rttCount, RTT_HISTORY);
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = rttHistory[(rttCount - n + i) % RTT_HISTORY];
+        }
+        return out;
+    }
+
+    public synchronized long getTotalMissed() {
+        return totalMissed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%ssrtt=%.1f ms, minRtt=%s ms, missed=%d (in a row %d)%s",
+                peerPongs ? "" : "no pongs yet (deadlines off), ", srttMs, minRttMs == Long.MAX_VALUE ? "-" : String.valueOf(minRttMs),
+                totalMissed, missedInARow, isDegraded() ? ", DEGRADED" : "");
+    }
+}
@@ -3,6 +3,7 @@ package com.example.smartwatchhapticsystem.controller;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.location.Location;
+import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
@@ -12,9 +13,14 @@ import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 
+import java.util.Collections;
+import java.util.List;
+
 public class LocationController {
     private final FusedLocationProviderClient locationProvider;
     private LocationCallback locationCallback;
+    private OnLocationReceived activeListener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     public LocationController(Context context) {
         locationProvider = LocationServices.getFusedLocationProviderClient(context);
@@ -39,12 +45,14 @@ public class LocationController {
      */
     @SuppressLint("MissingPermission")
     public void startLocationUpdates(LocationRequest locationRequest, OnLocationReceived listener) {
+        activeListener = listener;
         locationCallback = new LocationCallback() {
             @Override
             public void onLocationResult(LocationResult locationResult) {
 
 
                 if (locationResult != null && !locationResult.getLocations().isEmpty()) {
+                    EnergyAccountant.get().onGpsFix(ClockSync.nowMs());
                     // Find the most accurate location
                     Location mostAccurateLocation = null;
                     for (Location location : locationResult.getLocations()) {
@@ -63,15 +71,68 @@ public class LocationController {
         };
 
         locationProvider.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
+        EnergyAccountant.get().onGpsStart(locationRequest.getIntervalMillis(), ClockSync.nowMs());
     }
 
 
+    /**
+     * Start batched location updates: the location hardware buffers fixes for up to the
+     * request's max update delay while the CPU sleeps, and the whole batch arrives in one
+     * callback, oldest first. Use for long sessions where feedback latency of one batch is
+     * acceptable; the request must set {@code setMaxUpdateDelayMillis}.
+     */
+    @SuppressLint("MissingPermission")
+    public void startBatchedLocationUpdates(LocationRequest locationRequest, OnTrajectoryReceived listener) {
+        // Replayed fixes (deliverLocation) arrive one at a time, as a batch of one
+        activeListener = new OnLocationReceived() {
+            @Override
+            public void onLocationReceived(Location location) {
+                listener.onTrajectoryReceived(Collections.singletonList(location));
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                listener.onError(errorMessage);
+            }
+        };
+        locationCallback = new LocationCallback() {
+            @Override
+            public void onLocationResult(LocationResult locationResult) {
+                if (locationResult != null && !locationResult.getLocations().isEmpty()) {
+                    List<Location> fixes = locationResult.getLocations();
+                    long now = ClockSync.nowMs();
+                    for (int i = 0; i < fixes.size(); i++) {
+                        EnergyAccountant.get().onGpsFix(now);
+                    }
+                    Log.d("LocationController", "🛰️ Batch of " + fixes.size() + " fixes");
+                    listener.onTrajectoryReceived(fixes);
+                }
+            }
+        };
+
+        locationProvider.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
+        EnergyAccountant.get().onGpsStart(locationRequest.getIntervalMillis(), ClockSync.nowMs());
+    }
+
+    /**
+     * Delivers an externally supplied fix (e.g. from a replayed session) to the active
+     * listener on the main thread, exactly like a fix from the fused provider.
+     */
+    public void deliverLocation(Location location) {
+        mainHandler.post(() -> {
+            if (activeListener != null) {
+                activeListener.onLocationReceived(location);
+            }
+        });
+    }
+
     /**
      * Stop continuous location updates.
      */
     public void stopLocationUpdates() {
         if (locationCallback != null) {
             locationProvider.removeLocationUpdates(locationCallback);
+            EnergyAccountant.get().onGpsStop(ClockSync.nowMs());
         }
     }
 
@@ -83,4 +144,14 @@ public class LocationController {
 
         void onError(String errorMessage);
     }
+
+    /**
+     * Interface for batched location callbacks.
+     */
+    public interface OnTrajectoryReceived {
+        /** @param fixes Every buffered fix since the last batch, oldest first. */
+        void onTrajectoryReceived(List<Location> fixes);
+
+        void onError(String errorMessage);
+    }
 }
@@ -0,0 +1,214 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * MetricsRegistry: Process-wide counters, gauges and histograms for operational visibility.
+ *
+ * Counters are striped ({@link LongAdder}) so the reader thread, the main thread and Volley
+ * threads can update them without contention. Histograms use HDR-style log-linear buckets
+ * (a few percent relative error) with a fixed memory footprint and lock-free recording.
+ * A text snapshot is exposed through MonitoringService's bound-service API.
+ */
+public final class MetricsRegistry {
+
+    // Well-known metric names
+    public static final String SPP_MESSAGES = "spp.msgs";
+    public static final String SPP_PARSE_ERRORS = "spp.parseErrors";
+    public static final String BT_RECONNECTS = "bt.reconnects";
+    public static final String HTTP_RTT_MS = "http.rttMs";
+    public static final String HTTP_ERRORS = "http.errors";
+    public static final String UPLINK_QUEUE_DEPTH = "uplink.queueDepth";
+    public static final String UPLINK_DROPPED = "uplink.dropped";
+    public static final String VIBRATIONS_SENT = "vibrations.sent";
+    public static final String VIBRATIONS_DROPPED = "vibrations.dropped";
+    public static final String LOCATION_FIXES = "location.fixes";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final long createdAtNanos = System.nanoTime();
+
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    MetricsRegistry() {
+    }
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, n -> new Counter());
+        }
+        return counter;
+    }
+
+    /**
+     * Registers (or replaces) a gauge whose value is read when a snapshot is taken.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Unregisters a gauge when its owner shuts down, so the registry does not keep the owner
+     * reachable. Does nothing if the name has since been taken over by another supplier.
+     */
+    public void removeGauge(String name, LongSupplier supplier) {
+        gauges.remove(name, supplier);
+    }
+
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, n -> new Histogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Renders all metrics as text, one per line, sorted by name.
+     * Counters also show their average rate per second since the registry was created.
+     */
+    public String snapshot() {
+        double uptimeSec = Math.max(1e-3, (System.nanoTime() - createdAtNanos) / 1e9);
+        Map<String, String> lines = new TreeMap<>();
+
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            long value = e.getValue().get();
+            lines.put(e.getKey(), String.format(Locale.US, "%d (%.2f/s)", value, value / uptimeSec));
+        }
+        for (Map.Entry<String, LongSupplier> e : gauges.entrySet()) {
+            lines.put(e.getKey(), String.valueOf(e.getValue().getAsLong()));
+        }
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            lines.put(e.getKey(), e.getValue().toString());
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "uptime %.0f s\n", uptimeSec));
+        for (Map.Entry<String, String> line : lines.entrySet()) {
+            sb.append(line.getKey()).append(' ').append(line.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Monotonic counter backed by a striped adder.
+     */
+    public static final class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        public void inc() {
+            adder.increment();
+        }
+
+        public void add(long delta) {
+            adder.add(delta);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+    }
+
+    /**
+     * Log-linear histogram for non-negative values (e.g. latencies in ms).
+     * Values below 32 are counted exactly; above that each power-of-two range is split
+     * into 16 linear sub-buckets, giving a worst-case relative error of about 6 %.
+     */
+    public static final class Histogram {
+        private static final int LINEAR_LIMIT = 32;
+        private static final int SUB_BUCKETS = 16;
+        private static final int MAX_EXPONENT = 40; // Values beyond ~2^45 land in the last bucket
+
+        private final AtomicLongArray buckets = new AtomicLongArray(LINEAR_LIMIT + MAX_EXPONENT * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.incrementAndGet(indexOf(value));
+            count.increment();
+            sum.add(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // Retry until max is updated or another thread recorded a larger value
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * @param percentile In the range 0..100.
+         * @return Upper bound of the bucket holding the requested percentile.
+         */
+        public long getPercentile(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(upperBoundOf(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        static int indexOf(long value) {
+            if (value < LINEAR_LIMIT) {
+                return (int) value;
+            }
+            // Shift so that the top bits fall in [SUB_BUCKETS, 2 * SUB_BUCKETS)
+            int exponent = 63 - Long.numberOfLeadingZeros(value) - 4;
+            if (exponent > MAX_EXPONENT) {
+                return LINEAR_LIMIT + MAX_EXPONENT * SUB_BUCKETS - 1;
+            }
+            return LINEAR_LIMIT + (exponent - 1) * SUB_BUCKETS + (int) (value >>> exponent) - SUB_BUCKETS;
+        }
+
+        static long upperBoundOf(int index) {
+            if (index < LINEAR_LIMIT) {
+                return index;
+            }
+            int offset = index - LINEAR_LIMIT;
+            int exponent = offset / SUB_BUCKETS + 1;
+            long sub = offset % SUB_BUCKETS + SUB_BUCKETS;
+            return (sub << exponent) + (1L << exponent) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+                    getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.smartwatchhapticsystem.controller;
 
 import android.content.Context;
+import android.location.Location;
 import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -11,55 +13,185 @@ import com.android.volley.DefaultRetryPolicy;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.Response;
+import com.android.volley.TimeoutError;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.JsonObjectRequest;
+import com.android.volley.toolbox.StringRequest;
 import com.android.volley.toolbox.Volley;
+import com.example.smartwatchhapticsystem.BuildConfig;
 import com.example.smartwatchhapticsystem.model.LocationData;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
  * NetworkController: Handles communication with Node-RED
  */
-public class NetworkController {
-    private final NodeRedApiForSunData api;
-    private final RequestQueue requestQueue;
-    private final String myIp = "https://b563cf61ebcd.ngrok-free.app";
-    private final String NODE_RED_CONFIG_URL =  myIp + "/get-monitoring-config";
-    private final String NODE_RED_POST_URL = myIp + "/heartRate";
+public class NetworkController implements BulkUploadScheduler.Uplink {
+    private volatile NodeRedApiForSunData api;     // Built on first use (only Sun/Moon modes need it)
+    private volatile RequestQueue requestQueue;   // Built on first use or by warmUp()
+    private final NodeRedEndpointPool endpointPool;  // Node-RED servers (injectable for offline/stand-in testing)
     private final BluetoothConnectionManager bluetoothConnectionManager;
     private Context context;
 
+    // Bounded uplink queue between the watch reader and Node-RED
+    private static final int UPLINK_QUEUE_CAPACITY = 16;
+    private static final int MAX_UPLINK_IN_FLIGHT = 1; // Keep a single request in flight so replies stay fresh
+    private final UplinkQueue uplinkQueue =
+            new UplinkQueue(UPLINK_QUEUE_CAPACITY, UplinkQueue.OverflowPolicy.KEEP_LATEST_PER_KEY, "Value");
+    private final Handler retryHandler = new Handler(Looper.getMainLooper());
+
+    // Lanes: actuation-bearing requests have strict priority, bulk lanes share the rest by weight
+    private static final int UPLINK_TOTAL_IN_FLIGHT = 4;    // Volley's network thread pool size
+    private static final int UPLINK_RESERVED_FOR_ACTUATION = 1;
+    private final UplinkScheduler uplinkScheduler =
+            new UplinkScheduler(UPLINK_TOTAL_IN_FLIGHT, UPLINK_RESERVED_FOR_ACTUATION);
+    private final UplinkScheduler.Lane heartRateLane;
+    private final UplinkScheduler.Lane locationLane;
+    private final UplinkScheduler.Lane trajectoryLane;
+
+    // Drops responses that arrive out of order or too late to be meaningful on the wrist.
+    // One sequencer per stream (heart rate, each location mode): ordering only holds within a
+    // stream, so a /heartRate reply must not make a fresher /sun-data reply look stale.
+    private static final long RESPONSE_LATENCY_BUDGET_MS = 3000;
+    private static final String HEART_RATE_STREAM = "HeartRate";
+    private final Map<String, ResponseSequencer> responseSequencers = new ConcurrentHashMap<>();
+    private volatile long responseLatencyBudgetMs = RESPONSE_LATENCY_BUDGET_MS;
+
+    // Reflection-free request/response encoding
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private final NodeRedCodec codec = new NodeRedCodec();
+    private volatile SessionRecorder sessionRecorder; // Optional: captures raw responses
+
+    // Adaptive timeouts and circuit breakers live per server in the endpoint pool
+    private static final long MAX_RETRY_AGE_MS = 15000;       // Samples older than this are not worth retrying
+    private static final int TRAJECTORY_QUEUE_CAPACITY = 8;   // Batches kept while Node-RED is unreachable
+    private static final long MAX_TRAJECTORY_AGE_MS = 10 * 60000; // Trajectories are retried this long
+    private static final long HEALTH_CHECK_INTERVAL_MS = 30000;
+    private static final int BULK_CHUNK_TIMEOUT_MS = 60000;
+
+    private final MetricsRegistry.Histogram httpRtt = MetricsRegistry.get().histogram(MetricsRegistry.HTTP_RTT_MS);
+    private final MetricsRegistry.Counter httpErrors = MetricsRegistry.get().counter(MetricsRegistry.HTTP_ERRORS);
+    private final MetricsRegistry.Counter vibrationsDropped = MetricsRegistry.get().counter(MetricsRegistry.VIBRATIONS_DROPPED);
+    private final EnergyAccountant energy = EnergyAccountant.get();
+    private final LongSupplier queueDepthGauge = () -> uplinkQueue.getStats().depth;
+    private final LongSupplier queueDroppedGauge = () -> uplinkQueue.getStats().dropped;
+
     /**
-     * Constructor: Initialize Retrofit and Volley
+     * Constructor: Cheap by design. Retrofit and Volley are created lazily
+     * (or ahead of time via {@link #warmUp()} on a background thread).
      */
 
     public NetworkController(Context context, BluetoothConnectionManager bluetoothManager) {
+        this(context, bluetoothManager, BuildConfig.NODE_RED_BASE_URL);
+    }
+
+    /**
+     * @param baseUrls Node-RED base URL, or several separated by commas (most preferred first),
+     *                 e.g. "https://x.ngrok-free.app,http://192.168.1.20:1880".
+     */
+    public NetworkController(Context context, BluetoothConnectionManager bluetoothManager, String baseUrls) {
         this.context = context;
         this.bluetoothConnectionManager = bluetoothManager;
+        this.endpointPool = NodeRedEndpointPool.fromList(baseUrls);
+
+        MetricsRegistry.get().gauge(MetricsRegistry.UPLINK_QUEUE_DEPTH, queueDepthGauge);
+        MetricsRegistry.get().gauge(MetricsRegistry.UPLINK_DROPPED, queueDroppedGauge);
+
+        // Only the newest position matters, so the location lane keeps one per monitoring type
+        this.heartRateLane = uplinkScheduler.addStrictLane("heartRate", MAX_UPLINK_IN_FLIGHT, uplinkQueue, this::postHeartRate);
+        this.locationLane = uplinkScheduler.addStrictLane("location", 1,
+                new UplinkQueue(2, UplinkQueue.OverflowPolicy.KEEP_LATEST_PER_KEY, null), this::postLocation);
+        // Trajectories are history: their own lane, never replaced, retried for MAX_TRAJECTORY_AGE_MS
+        this.trajectoryLane = uplinkScheduler.addStrictLane("trajectory", 1,
+                new UplinkQueue(TRAJECTORY_QUEUE_CAPACITY, UplinkQueue.OverflowPolicy.DROP_OLDEST, null), this::postLocation);
+    }
 
-        // Initialize Retrofit
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(myIp + "/")
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-        api = retrofit.create(NodeRedApiForSunData.class);
+    /**
+     * Builds the Volley RequestQueue (and its disk cache) ahead of the first request.
+     * Safe to call from any thread; intended for the start-up background thread.
+     */
+    public void warmUp() {
+        getRequestQueue();
+    }
+
+    /**
+     * Starts background health probes of the Node-RED servers (only when there is more than one).
+     */
+    public void startHealthChecks() {
+        endpointPool.startHealthChecks(HEALTH_CHECK_INTERVAL_MS);
+    }
 
-        // Initialize Volley RequestQueue
-        requestQueue = Volley.newRequestQueue(context);
+    public void stopHealthChecks() {
+        endpointPool.stopHealthChecks();
+    }
 
-        // Initialize Bluetooth Manager for Watch Communication
+    /**
+     * Shuts the controller down with its service: cancels pending retries, empties and closes
+     * the uplink lanes, stops health probes and unregisters its gauges, which would otherwise
+     * keep it (and the service Context) reachable. Requests already in flight still finish.
+     */
+    public void stop() {
+        uplinkScheduler.shutdown();
+        retryHandler.removeCallbacksAndMessages(null);
+        stopHealthChecks();
+        MetricsRegistry.get().removeGauge(MetricsRegistry.UPLINK_QUEUE_DEPTH, queueDepthGauge);
+        MetricsRegistry.get().removeGauge(MetricsRegistry.UPLINK_DROPPED, queueDroppedGauge);
+    }
+
+    /**
+     * Returns the Volley RequestQueue, creating it on first use.
+     */
+    private RequestQueue getRequestQueue() {
+        RequestQueue queue = requestQueue;
+        if (queue == null) {
+            synchronized (this) {
+                queue = requestQueue;
+                if (queue == null) {
+                    queue = Volley.newRequestQueue(context.getApplicationContext());
+                    requestQueue = queue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Returns the Retrofit API, creating it on first use (HeartRate mode never needs it).
+     */
+    private NodeRedApiForSunData getApi() {
+        NodeRedApiForSunData service = api;
+        if (service == null) {
+            synchronized (this) {
+                service = api;
+                if (service == null) {
+                    // No converter factory: bodies are raw bytes handled by NodeRedCodec.
+                    // Calls carry full URLs from the pool; the base URL is only a default.
+                    Retrofit retrofit = new Retrofit.Builder()
+                            .baseUrl(endpointPool.get(0).getBaseUrl() + "/")
+                            .build();
+                    service = retrofit.create(NodeRedApiForSunData.class);
+                    api = service;
+                }
+            }
+        }
+        return service;
     }
 
 
@@ -77,16 +209,31 @@ public class NetworkController {
      * @param listener A callback interface to receive either the valid monitoring type or an error message.
      */
     public void getMonitoringType(OnMonitoringTypeReceived listener) {
+        getMonitoringType(listener, 1);
+    }
+
+    private void getMonitoringType(OnMonitoringTypeReceived listener, int attempt) {
+        // Step 0: Pick the fastest healthy server; fail fast while every server is down
+        final NodeRedEndpointPool.Endpoint endpoint = endpointPool.select(nowMs());
+        if (endpoint == null) {
+            listener.onError("❌ Node-RED unavailable (all circuits open, retry in "
+                    + endpointPool.getRetryInMs(nowMs()) + " ms)");
+            return;
+        }
+        final String path = NodeRedEndpointPool.PATH_CONFIG;
+        final long sentAtMs = nowMs();
 
         // Step 1: Create a GET request using Volley to the Node-RED configuration endpoint
         JsonObjectRequest jsonObjectRequest = new JsonObjectRequest(
                 Request.Method.GET,                 // HTTP GET method
-                NODE_RED_CONFIG_URL,               // The URL to fetch monitoring type from
+                endpoint.url(path),                // The URL to fetch monitoring type from
                 null,                              // No body required for GET request
                 new Response.Listener<JSONObject>() {
                     // Called when the server responds with a valid JSON
                     @Override
                     public void onResponse(JSONObject response) {
+                        energy.onNetworkResponse(0, nowMs());
+                        endpoint.onSuccess(path, nowMs() - sentAtMs);
                         try {
                             // Step 2: Log the full raw JSON response for debugging
                             Log.d("NetworkController", "✅ Full Response: " + response.toString());
@@ -113,6 +260,12 @@ public class NetworkController {
                     // Called when the request fails due to network error, timeout, etc.
                     @Override
                     public void onErrorResponse(VolleyError error) {
+                        onVolleyFailure(endpoint, path, error, sentAtMs);
+                        // Fail over right away if another server looks healthy
+                        if (attempt < endpointPool.size() && endpointPool.hasHealthyAlternative(endpoint)) {
+                            getMonitoringType(listener, attempt + 1);
+                            return;
+                        }
                         listener.onError("❌ Volley Error: " + error.toString());
                         Log.e("NetworkController", "❌ Volley Error: " + error.toString());
 
@@ -124,15 +277,16 @@ public class NetworkController {
                 }
         );
 
-        // Step 6: Configure retry policy in case of timeouts or slow connections
+        // Step 6: Timeout from the endpoint's RTT estimate; the service retries on error, so no Volley retries
         jsonObjectRequest.setRetryPolicy(new DefaultRetryPolicy(
-                5000, // Timeout in milliseconds
-                DefaultRetryPolicy.DEFAULT_MAX_RETRIES, // Default retry attempts
-                DefaultRetryPolicy.DEFAULT_BACKOFF_MULT // Backoff multiplier for exponential delay
+                endpoint.timeoutMs(path),      // Adaptive timeout in milliseconds
+                0,                             // Retried by the caller (keeps RTT samples unambiguous)
+                DefaultRetryPolicy.DEFAULT_BACKOFF_MULT
         ));
 
         // Step 7: Add the request to the Volley request queue for execution
-        requestQueue.add(jsonObjectRequest);
+        energy.onNetworkRequest(0, sentAtMs);
+        getRequestQueue().add(jsonObjectRequest);
     }
 
 
@@ -158,57 +312,159 @@ public class NetworkController {
             return;
         }
 
-        // Step 2: Send location data based on monitoring type
-        Call<JsonObject> call = null;
-        if ("SunAzimuth".equals(monitoringType)) {
-            call = api.sendSunLocation(locationData);
-        } else if ("MoonAzimuth".equals(monitoringType)) {
-            call = api.sendMoonLocation(locationData);
-        }
-
-        if (call == null) {
+        if (!"SunAzimuth".equals(monitoringType) && !"MoonAzimuth".equals(monitoringType)) {
             Log.e("NetworkController", "❌ Invalid monitoring type: " + monitoringType);
             Toast.makeText(context, "Invalid monitoring type.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // Step 3: Enqueue the Retrofit call
-        call.enqueue(new Callback<JsonObject>() {
-            @Override
-            public void onResponse(@NonNull Call<JsonObject> call, @NonNull retrofit2.Response<JsonObject> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    JsonObject jsonResponse = response.body();
-                    Log.d("NetworkController", "✅ Location Sent. Response: " + jsonResponse.toString());
+        // Step 2: Queue on the location lane (a fix still waiting is replaced by this newer one),
+        // or on the trajectory lane, which only drops a batch once TRAJECTORY_QUEUE_CAPACITY wait
+        Map<String, String> payload = new HashMap<>();
+        payload.put("MonitoringType", monitoringType);
+        payload.put("Latitude", Double.toString(locationData.getLat()));
+        payload.put("Longitude", Double.toString(locationData.getLon()));
+        payload.put("UserID", locationData.getUserId());
+        payload.put("SmartWatchID", locationData.getSmartWatchId());
+        payload.put("AndroidID", locationData.getAndroidId());
+        payload.put("Attempt", "1");
+        if (locationData.getTrajectory() != null) {
+            payload.put("Trajectory", locationData.getTrajectory());
+            payload.put("FixTimes", locationData.getFixTimes());
+            uplinkScheduler.submit(trajectoryLane, monitoringType + "@" + locationData.getFixTimes(), payload);
+            return;
+        }
+        uplinkScheduler.submit(locationLane, monitoringType, payload);
+    }
 
-                    String message = jsonResponse.has("message") && !jsonResponse.get("message").isJsonNull()
-                            ? jsonResponse.get("message").getAsString()
-                            : "No message in response.";
+    /**
+     * Sends a batch of fixes (batched location mode) as one request: the newest fix as the usual
+     * lat/lon, so feedback is computed as before, plus the whole batch as a delta-encoded
+     * polyline with fix times.
+     *
+     * @param fixes    The batch, oldest first.
+     * @param identity IDs to send with it; its coordinates are replaced by the newest fix.
+     */
+    public void sendTrajectory(List<Location> fixes, LocationData identity, Context context, String monitoringType) {
+        int count = fixes.size();
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            Location fix = fixes.get(i);
+            latitudes[i] = fix.getLatitude();
+            longitudes[i] = fix.getLongitude();
+            times[i] = fix.getTime() / 1000;
+        }
+        identity.setLat(latitudes[count - 1]);
+        identity.setLon(longitudes[count - 1]);
+        identity.setTrajectory(PolylineEncoder.encode(latitudes, longitudes, count),
+                PolylineEncoder.encodeValues(times, count));
+        sendLocation(identity, context, monitoringType);
+    }
 
-                    int pulses = jsonResponse.has("pulses") ? jsonResponse.get("pulses").getAsInt() : 0;
-                    int intensity = jsonResponse.has("intensity") ? jsonResponse.get("intensity").getAsInt() : 0;
-                    int duration = jsonResponse.has("duration") ? jsonResponse.get("duration").getAsInt() : 0;
-                    int interval = jsonResponse.has("interval") ? jsonResponse.get("interval").getAsInt() : 0;
+    /**
+     * Posts one queued location fix or trajectory to the Sun/Moon endpoint (location and
+     * trajectory lane dispatcher).
+     */
+    private void postLocation(UplinkQueue.Entry entry, UplinkScheduler.Completion completion) {
+        Map<String, String> payload = entry.getPayload();
+        LocationData locationData = new LocationData(
+                Double.parseDouble(payload.get("Latitude")),
+                Double.parseDouble(payload.get("Longitude")),
+                payload.get("UserID"), payload.get("SmartWatchID"), payload.get("AndroidID"));
+        if (payload.containsKey("Trajectory")) {
+            locationData.setTrajectory(payload.get("Trajectory"), payload.get("FixTimes"));
+        }
 
-                    Log.d("NetworkController", "📲 Vibration Parameters: " +
-                            "Pulses=" + pulses + ", Intensity=" + intensity +
-                            ", Duration=" + duration + ", Interval=" + interval);
+        // Step 3: Tag the uplink so its response can be matched and checked for staleness
+        ResponseSequencer responseSequencer = getResponseSequencer(payload.get("MonitoringType"));
+        ResponseSequencer.Ticket ticket = responseSequencer.issue();
+        locationData.setSeq(ticket.seq);
+        locationData.setSentAt(ticket.sentAtWallMs);
+
+        // Step 4: Encode the body without reflection and send it based on monitoring type
+        boolean sun = "SunAzimuth".equals(payload.get("MonitoringType"));
+        String path = sun ? NodeRedEndpointPool.PATH_SUN : NodeRedEndpointPool.PATH_MOON;
+        NodeRedEndpointPool.Endpoint endpoint = endpointPool.select(nowMs());
+        if (endpoint == null) {
+            // Fail fast: the next fix will try again once a breaker lets a probe through (a trajectory is put back)
+            Log.w("NetworkController", "⛔ Location not sent, all Node-RED circuits open");
+            completion.done();
+            retryTrajectory(entry, Math.max(endpointPool.get(0).timeoutMs(path), endpointPool.getRetryInMs(nowMs())));
+            return;
+        }
+        byte[] jsonBody = codec.encodeLocation(locationData);
+        RequestBody body = RequestBody.create(JSON, jsonBody);
+        Call<ResponseBody> call = sun
+                ? getApi().sendSunLocation(endpoint.url(path), body)
+                : getApi().sendMoonLocation(endpoint.url(path), body);
+        call.timeout().timeout(endpoint.timeoutMs(path), TimeUnit.MILLISECONDS);
+
+        // Step 5: Enqueue the Retrofit call
+        energy.onNetworkRequest(jsonBody.length, nowMs());
+        call.enqueue(new Callback<ResponseBody>() {
+            @Override
+            public void onResponse(@NonNull Call<ResponseBody> call, @NonNull retrofit2.Response<ResponseBody> response) {
+                long rttMs = nowMs() - ticket.sentAtMs;
+                httpRtt.record(rttMs);
+                energy.onNetworkResponse(response.body() != null ? (int) Math.max(0, response.body().contentLength()) : 0, nowMs());
+                completion.done();
+                if (response.code() >= 500) {
+                    endpoint.onFailure(path, false);
+                    if (failOver(entry, endpoint)) {
+                        return;
+                    }
+                    retryTrajectory(entry, Math.max(endpoint.timeoutMs(path), endpointPool.getRetryInMs(nowMs())));
+                } else if (response.code() >= 400) {
+                    endpoint.onClientError(path, rttMs);
+                } else {
+                    endpoint.onSuccess(path, rttMs);
+                }
+                VibrationCommand command = new VibrationCommand();
+                if (response.isSuccessful() && response.body() != null
+                        && decode(response.body(), call.request().url().encodedPath(), command)) {
+                    String message = command.getMessage() != null ? command.getMessage() : "No message in response.";
+                    int pulses = command.getPulses();
+                    int intensity = command.getIntensity();
+                    int duration = command.getDuration();
+                    int interval = command.getInterval();
+
+                    Log.d("NetworkController", "📲 Vibration Parameters: " + command);
 
                     Toast.makeText(context, "Location Sent: " + message, Toast.LENGTH_SHORT).show();
 
+                    // Step 6: Ignore the response if a newer one was already applied or it came too late
+                    if (!responseSequencer.accept(ticket)) {
+                        Log.w("NetworkController", "⏱️ Discarded stale response seq=" + ticket.seq + " (" + responseSequencer + ")");
+                        vibrationsDropped.inc();
+                        return;
+                    }
+
                     if (pulses > 0) {
-                        bluetoothConnectionManager.sendVibrationCommand(intensity, pulses, duration, interval);
+                        bluetoothConnectionManager.sendVibrationCommand(payload.get("MonitoringType"),
+                                intensity, pulses, duration, interval);
                     } else {
                         Log.d("NetworkController", "ℹ️ No vibration needed (pulses=0).");
                     }
 
                 } else {
                     Log.e("NetworkController", "❌ Failed to send location. Response Code: " + response.code());
+                    httpErrors.inc();
                     Toast.makeText(context, "Failed to send location.", Toast.LENGTH_SHORT).show();
                 }
             }
 
             @Override
-            public void onFailure(@NonNull Call<JsonObject> call, @NonNull Throwable t) {
+            public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable t) {
+                energy.onNetworkResponse(0, nowMs());
+                completion.done();
+                endpoint.onFailure(path, t instanceof java.io.InterruptedIOException); // OkHttp call timeout
+                httpErrors.inc();
+                if (failOver(entry, endpoint)) {
+                    return;
+                }
+                retryTrajectory(entry, Math.max(endpoint.timeoutMs(path), endpointPool.getRetryInMs(nowMs())));
                 Log.e("NetworkController", "❌ Network Error: " + t.getMessage());
                 Toast.makeText(context, "Error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
             }
@@ -218,89 +474,376 @@ public class NetworkController {
 
 
     /**
-     * Sends a map of heart rate data to a Node-RED server for processing.
-     * Receives feedback parameters (vibration settings) from the server and triggers a vibration
-     * command via Bluetooth if the response is valid.
+     * Queues heart rate data for upload to Node-RED.
+     * The sample goes through the heart-rate lane's bounded queue, so a slow server never causes
+     * unbounded memory growth; the queue's overflow policy decides what is kept.
      *
      * @param data A map containing heart rate data (e.g., value, user ID, watch ID, android ID).
      */
     public void sendHeartRateToNodeRed(Map<String, String> data) {
-        // Step 1: Ensure the request queue has been initialized
-        if (requestQueue == null) {
-            Log.e("NetworkController", "❌ RequestQueue is not initialized!");
+        // Step 1: Queue the sample, keyed by user + watch so newer samples can supersede older ones
+        String key = data.get("UserID") + "-" + data.get("SmartWatchID");
+        long droppedBefore = uplinkQueue.getStats().dropped;
+
+        // Step 2: The scheduler sends it as soon as the lane's in-flight limit allows
+        uplinkScheduler.submit(heartRateLane, key, data);
+        if (uplinkQueue.getStats().dropped > droppedBefore) {
+            Log.w("NetworkController", "⚠️ Uplink overloaded: " + uplinkQueue.getStats());
+        }
+    }
+
+    /**
+     * Posts one queued heart rate sample to Node-RED.
+     * Receives feedback parameters (vibration settings) from the server and triggers a vibration
+     * command via Bluetooth if the response is valid.
+     *
+     * @param entry      The queued sample to send.
+     * @param completion Releases the lane slot once the request has finished.
+     */
+    private void postHeartRate(UplinkQueue.Entry entry, UplinkScheduler.Completion completion) {
+        // Step 0: Pick the fastest healthy server; while all are failing, park the sample
+        final String path = NodeRedEndpointPool.PATH_HEART_RATE;
+        final NodeRedEndpointPool.Endpoint endpoint = endpointPool.select(nowMs());
+        if (endpoint == null) {
+            completion.done();
+            // At least one default timeout: while a half-open probe is in flight the pool reports 0
+            retryRequest(entry, Math.max(endpointPool.get(0).timeoutMs(path), endpointPool.getRetryInMs(nowMs())));
             return;
         }
 
-        // Step 2: Convert the heart rate data (Map) into a JSON object for POST body
-        JSONObject jsonBody = new JSONObject(data);
-        Log.d("NetworkController", "📤 Sending to Node-RED: " + jsonBody.toString());
+        // Step 1: Tag the uplink with a sequence number and send time, then encode it straight to bytes
+        final ResponseSequencer responseSequencer = getResponseSequencer(HEART_RATE_STREAM);
+        final ResponseSequencer.Ticket ticket = responseSequencer.issue();
+        Map<String, String> payload = new HashMap<>(entry.getPayload()); // The queued map is shared with the reader thread
+        payload.put("Seq", String.valueOf(ticket.seq));
+        payload.put("SentAt", String.valueOf(ticket.sentAtWallMs));
+        byte[] jsonBody = codec.encodeHeartRate(payload);
+        RingLog.d(RingLog.EV_UPLINK_SENT, ticket.seq, uplinkQueue.size());
+
+        // Step 2: Prepare a VibrationRequest to send the data to Node-RED via HTTP POST
+        VibrationRequest vibrationRequest = new VibrationRequest(
+                Request.Method.POST,           // HTTP method: POST
+                endpoint.url(path),            // URL to send heart rate data to (chosen server)
+                jsonBody,                      // Pre-encoded JSON body
+                sessionRecorder,               // Captures the raw reply when recording
+                response -> {  // Success callback (only the vibration fields were parsed)
+                    long rttMs = System.nanoTime() / 1_000_000L - ticket.sentAtMs;
+                    RingLog.d(RingLog.EV_UPLINK_RESPONSE, ticket.seq, rttMs);
+                    httpRtt.record(rttMs);
+                    energy.onNetworkResponse(0, nowMs());
+                    endpoint.onSuccess(path, rttMs);
+
+                    // Ignore the response if a newer one was already applied or it came too late
+                    if (!responseSequencer.accept(ticket)) {
+                        Log.w("NetworkController", "⏱️ Discarded stale response seq=" + ticket.seq + " (" + responseSequencer + ")");
+                        vibrationsDropped.inc();
+                        completion.done();
+                        return;
+                    }
 
-        // Step 3: Prepare a JsonObjectRequest to send the data to Node-RED via HTTP POST
-        final JsonObjectRequest[] jsonObjectRequest = new JsonObjectRequest[1]; // Use array to allow inner class reuse
+                    // Step 3: Extract vibration feedback parameters from the parsed response
+                    int intensity = response.getIntensity();
+                    int pulses = response.getPulses();
+                    int duration = response.getDuration();
+                    int interval = response.getInterval();
 
-        jsonObjectRequest[0] = new JsonObjectRequest(
-                Request.Method.POST,           // HTTP method: POST
-                NODE_RED_POST_URL,             // URL to send heart rate data to
-                jsonBody,                      // JSON body to send
-                response -> {  // Success callback
-                    Log.d("NetworkController", "✅ Response from Node-RED: " + response.toString());
-
-                    // Step 4: Extract vibration feedback parameters from the JSON response
-                    int intensity = response.optInt("intensity", 0);
-                    int pulses = response.optInt("pulses", 0);
-                    int duration = response.optInt("duration", 0);
-                    int interval = response.optInt("interval", 0);
-
-                    // Step 5: Trigger the smartwatch to vibrate if connection manager is available
+                    // Step 4: Trigger the smartwatch to vibrate if connection manager is available
                     if (bluetoothConnectionManager != null) {
                         bluetoothConnectionManager.sendVibrationCommand(intensity, pulses, duration, interval);
                     } else {
                         Log.e("NetworkController", "❌ BluetoothConnectionManager is null!");
                     }
+                    completion.done();
                 },
                 error -> {  // Error callback
                     Log.e("NetworkController", "❌ Error sending to Node-RED: " + error.toString());
+                    httpErrors.inc();
+                    onVolleyFailure(endpoint, path, error, ticket.sentAtMs);
+                    completion.done();
 
                     // Log additional HTTP status if available
                     if (error.networkResponse != null) {
                         Log.e("NetworkController", "❌ HTTP Status Code: " + error.networkResponse.statusCode);
                     }
 
-                    // Retry the request (custom retry method)
-                    retryRequest(jsonObjectRequest[0]);
+                    // Retry the sample through the bounded queue: at once on another healthy server,
+                    // otherwise after one timeout or when a breaker allows a probe
+                    retryRequest(entry, endpointPool.hasHealthyAlternative(endpoint) ? 0
+                            : Math.max(endpoint.timeoutMs(path), endpointPool.getRetryInMs(nowMs())));
                 }
-        ) {
-            // Step 6: Add custom HTTP headers (e.g., content type)
-            @Override
-            public Map<String, String> getHeaders() {
-                Map<String, String> headers = new HashMap<>();
-                headers.put("Content-Type", "application/json");
-                return headers;
-            }
-        };
+        );
 
-        // Step 7: Set retry policy for network reliability
-        jsonObjectRequest[0].setRetryPolicy(new DefaultRetryPolicy(
-                5000,                                       // Timeout in ms
-                DefaultRetryPolicy.DEFAULT_MAX_RETRIES,    // Max retries
+        // Step 5: Adaptive timeout, no Volley retries (retryRequest handles them); actuation jumps Volley's waiting line
+        vibrationRequest.setPriority(Request.Priority.HIGH);
+        vibrationRequest.setRetryPolicy(new DefaultRetryPolicy(
+                endpoint.timeoutMs(path),                  // Timeout in ms (SRTT + 4 * RTTVAR)
+                0,                                         // Max retries
                 DefaultRetryPolicy.DEFAULT_BACKOFF_MULT    // Backoff multiplier
         ));
 
-        // Step 8: Add the request to the Volley queue to send it
-        requestQueue.add(jsonObjectRequest[0]);
+        // Step 6: Add the request to the Volley queue to send it
+        energy.onNetworkRequest(jsonBody.length, nowMs());
+        getRequestQueue().add(vibrationRequest);
+    }
+
+
+    /**
+     * Helper method to retry a failed sample after a delay.
+     * The sample is put back into the bounded uplink queue rather than straight into Volley,
+     * and is dropped if a newer sample for the same key has arrived in the meantime or it has
+     * become too old to matter.
+     */
+    private void retryRequest(final UplinkQueue.Entry entry, long delayMs) {
+        if (uplinkScheduler.isShutDown()) {
+            return;
+        }
+        Log.d("NetworkController", "🔄 Retrying request in " + delayMs + " ms...");
+        retryHandler.postDelayed(() -> {
+            if (nowMs() - entry.getEnqueuedAtMs() > MAX_RETRY_AGE_MS) {
+                Log.d("NetworkController", "🗑️ Dropped expired retry");
+                return;
+            }
+            if (!uplinkScheduler.requeue(heartRateLane, entry)) {
+                Log.d("NetworkController", "🗑️ Dropped stale retry: " + uplinkQueue.getStats());
+            }
+        }, delayMs);
+    }
+
+    /**
+     * Puts a trajectory whose upload failed back on its lane after a delay. The batch is
+     * history the server has not seen yet, so it is kept far longer than a sample
+     * ({@link #MAX_TRAJECTORY_AGE_MS}), but not forever. Plain location fixes are not retried,
+     * the next fix replaces them.
+     */
+    private void retryTrajectory(final UplinkQueue.Entry entry, long delayMs) {
+        if (!entry.getPayload().containsKey("Trajectory") || uplinkScheduler.isShutDown()) {
+            return;
+        }
+        Log.d("NetworkController", "🔄 Retrying trajectory in " + delayMs + " ms...");
+        retryHandler.postDelayed(() -> {
+            if (nowMs() - entry.getEnqueuedAtMs() > MAX_TRAJECTORY_AGE_MS) {
+                Log.w("NetworkController", "🗑️ Dropped trajectory after " + MAX_TRAJECTORY_AGE_MS / 60000 + " min of retries");
+                return;
+            }
+            if (!uplinkScheduler.requeue(trajectoryLane, entry)) {
+                Log.w("NetworkController", "🗑️ Dropped trajectory, " + TRAJECTORY_QUEUE_CAPACITY + " newer batches waiting");
+            }
+        }, delayMs);
     }
 
+    /**
+     * Reads a Retrofit response body and decodes the vibration fields from it.
+     */
+    private boolean decode(ResponseBody body, String endpoint, VibrationCommand out) {
+        try {
+            byte[] bytes = body.bytes();
+            SessionRecorder recorder = sessionRecorder;
+            if (recorder != null) {
+                recorder.recordResponse(endpoint, bytes);
+            }
+            return NodeRedCodec.decodeVibration(bytes, out);
+        } catch (IOException e) {
+            Log.e("NetworkController", "❌ Failed to read response body: " + e.getMessage());
+            return false;
+        } finally {
+            body.close();
+        }
+    }
 
+    /**
+     * Applies a recorded Node-RED response as if it had just arrived (session replay).
+     * Runs on the main thread like live responses.
+     *
+     * @param endpoint The endpoint the response came from, e.g. "/heartRate".
+     * @param body     The raw response body.
+     */
+    public void applyRecordedResponse(String endpoint, byte[] body) {
+        retryHandler.post(() -> {
+            VibrationCommand command = new VibrationCommand();
+            if (!NodeRedCodec.decodeVibration(body, command)) {
+                Log.w("NetworkController", "⚠️ Unparseable recorded response from " + endpoint);
+                return;
+            }
+            if (command.getPulses() > 0 && bluetoothConnectionManager != null) {
+                String monitoringType = endpoint.endsWith(NodeRedEndpointPool.PATH_SUN) ? "SunAzimuth"
+                        : endpoint.endsWith(NodeRedEndpointPool.PATH_MOON) ? "MoonAzimuth" : "HeartRate";
+                bluetoothConnectionManager.sendVibrationCommand(monitoringType, command.getIntensity(), command.getPulses(),
+                        command.getDuration(), command.getInterval());
+            }
+        });
+    }
 
+    /**
+     * Starts (or stops, with null) capturing raw Node-RED responses.
+     */
+    public void setSessionRecorder(SessionRecorder sessionRecorder) {
+        this.sessionRecorder = sessionRecorder;
+    }
 
     /**
-     * Helper method to retry request after a delay
+     * Selects how the uplink queue sheds load when Node-RED cannot keep up.
      */
-    private void retryRequest(final JsonObjectRequest request) {
-        Log.d("NetworkController", "🔄 Retrying request in 3 seconds...");
-        new Handler().postDelayed(() -> requestQueue.add(request), 3000);
+    public void setUplinkOverflowPolicy(UplinkQueue.OverflowPolicy policy) {
+        uplinkQueue.setPolicy(policy);
     }
 
+    /**
+     * Sets how old (from send time) a Node-RED response may be and still trigger a vibration.
+     */
+    public void setResponseLatencyBudgetMs(long latencyBudgetMs) {
+        responseLatencyBudgetMs = latencyBudgetMs;
+        for (ResponseSequencer sequencer : responseSequencers.values()) {
+            sequencer.setLatencyBudgetMs(latencyBudgetMs);
+        }
+    }
+
+    /**
+     * @param stream "HeartRate", or the location mode ("SunAzimuth", "MoonAzimuth").
+     * @return That stream's counters of applied responses and of responses discarded as stale.
+     */
+    public ResponseSequencer getResponseSequencer(String stream) {
+        return responseSequencers.computeIfAbsent(stream, s -> new ResponseSequencer(responseLatencyBudgetMs));
+    }
+
+    /**
+     * Registers a weighted-fair bulk lane (history export, outbox replay, telemetry...).
+     * Bulk lanes only use capacity not reserved for actuation requests.
+     */
+    @Override
+    public UplinkScheduler.Lane addBulkLane(String name, int weight, int maxInFlight, UplinkQueue queue,
+                                            UplinkScheduler.Dispatcher dispatcher) {
+        return uplinkScheduler.addBulkLane(name, weight, maxInFlight, queue, dispatcher);
+    }
+
+    /**
+     * Queues a payload on a lane returned by {@link #addBulkLane}.
+     */
+    @Override
+    public void submit(UplinkScheduler.Lane lane, String key, Map<String, String> payload) {
+        uplinkScheduler.submit(lane, key, payload);
+    }
+
+    /**
+     * Posts one chunk of a bulk upload (called from a bulk lane's dispatcher, see
+     * {@link BulkUploadScheduler}). Only a 2xx reply counts as acknowledged.
+     */
+    @Override
+    public void postChunk(String path, Map<String, String> headers, byte[] body,
+                          BulkUploadScheduler.OnChunkResult result) {
+        final NodeRedEndpointPool.Endpoint endpoint = endpointPool.select(nowMs());
+        if (endpoint == null) {
+            result.onResult(false);
+            return;
+        }
+        final long sentAtMs = nowMs();
+        BulkChunkRequest request = new BulkChunkRequest(endpoint.url(path), headers, body,
+                status -> {
+                    energy.onNetworkResponse(0, nowMs());
+                    endpoint.onSuccess(path, nowMs() - sentAtMs);
+                    result.onResult(status >= 200 && status < 300);
+                },
+                error -> {
+                    onVolleyFailure(endpoint, path, error, sentAtMs);
+                    result.onResult(false);
+                });
+        // A chunk is far larger than the requests the RTO was learned on; Volley must not retry
+        // on its own either, or a lost reply would post the same range twice in a row
+        request.setRetryPolicy(new DefaultRetryPolicy(BULK_CHUNK_TIMEOUT_MS, 0,
+                DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+        energy.onNetworkRequest(body.length, sentAtMs);
+        getRequestQueue().add(request);
+    }
+
+    /**
+     * @return Per-lane in-flight counts, queue statistics and latency percentiles.
+     */
+    public String getUplinkLaneReport() {
+        return uplinkScheduler.toString();
+    }
+
+    /**
+     * @return Current uplink queue depth, drop count and time-in-queue statistics.
+     */
+    public UplinkQueue.Stats getUplinkStats() {
+        return uplinkQueue.getStats();
+    }
+
+
+    /**
+     * @return Per-server RTT, adaptive timeouts and circuit breaker state.
+     */
+    public String getEndpointReport() {
+        return endpointPool.toString();
+    }
+
+    /**
+     * Moves a failed location fix to another server if one looks healthy (once per server).
+     *
+     * @return true if the fix was resubmitted.
+     */
+    private boolean failOver(UplinkQueue.Entry entry, NodeRedEndpointPool.Endpoint failed) {
+        Map<String, String> payload = entry.getPayload();
+        int attempt = Integer.parseInt(payload.get("Attempt"));
+        if (attempt >= endpointPool.size() || !endpointPool.hasHealthyAlternative(failed)) {
+            return false;
+        }
+        Map<String, String> retry = new HashMap<>(payload);
+        retry.put("Attempt", String.valueOf(attempt + 1));
+        Log.w("NetworkController", "🔀 Failing over from " + failed.getBaseUrl());
+        uplinkScheduler.submit(payload.containsKey("Trajectory") ? trajectoryLane : locationLane, entry.getKey(), retry);
+        return true;
+    }
+
+    /**
+     * Feeds a Volley error into the server's stats: a 4xx means the server is up (it is our
+     * request), anything else counts as a failure; timeouts also back the timeout off.
+     */
+    private static void onVolleyFailure(NodeRedEndpointPool.Endpoint endpoint, String path,
+                                        VolleyError error, long sentAtMs) {
+        EnergyAccountant.get().onNetworkResponse(0, nowMs());
+        int status = error.networkResponse != null ? error.networkResponse.statusCode : 0;
+        if (status >= 400 && status < 500) {
+            endpoint.onClientError(path, nowMs() - sentAtMs);
+        } else {
+            endpoint.onFailure(path, error instanceof TimeoutError);
+        }
+    }
+
+    /**
+     * Downloads the point-of-interest list for the PoiAzimuth mode ({@code id,name,lat,lon}
+     * lines, see {@link PoiIndex}). Guidance itself runs on the device; this is only a sync.
+     *
+     * @param listener Receives the raw list or an error.
+     */
+    public void fetchPointsOfInterest(OnPointsOfInterestReceived listener) {
+        final NodeRedEndpointPool.Endpoint endpoint = endpointPool.select(nowMs());
+        if (endpoint == null) {
+            listener.onError("❌ Node-RED unavailable (all circuits open)");
+            return;
+        }
+        final String path = NodeRedEndpointPool.PATH_POI;
+        final long sentAtMs = nowMs();
+
+        StringRequest request = new StringRequest(Request.Method.GET, endpoint.url(path),
+                response -> {
+                    energy.onNetworkResponse(response.length(), nowMs());
+                    endpoint.onSuccess(path, nowMs() - sentAtMs);
+                    listener.onReceived(response);
+                },
+                error -> {
+                    onVolleyFailure(endpoint, path, error, sentAtMs);
+                    listener.onError("❌ Volley Error: " + error.toString());
+                });
+        // A large list may take longer than the small config response the RTO was learned on
+        request.setRetryPolicy(new DefaultRetryPolicy(endpoint.timeoutMs(path) * 2, 0,
+                DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+        energy.onNetworkRequest(0, sentAtMs);
+        getRequestQueue().add(request);
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000L;
+    }
 
     /**
      * Listener Interface for Monitoring Type
@@ -309,4 +852,12 @@ public class NetworkController {
         void onReceived(String monitoringType);
         void onError(String errorMessage);
     }
+
+    /**
+     * Listener Interface for the point-of-interest sync
+     */
+    public interface OnPointsOfInterestReceived {
+        void onReceived(String pointsCsv);
+        void onError(String errorMessage);
+    }
 }
@@ -1,21 +1,25 @@
 package com.example.smartwatchhapticsystem.controller;
 
-import com.example.smartwatchhapticsystem.model.LocationData;
-import com.google.gson.JsonObject;
-
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
-import retrofit2.http.GET;
 import retrofit2.http.POST;
+import retrofit2.http.Url;
 
+/**
+ * Retrofit API for the Sun/Moon endpoints. Bodies are raw bytes encoded and decoded
+ * by {@link NodeRedCodec}, so no reflective converter is involved. The full URL is passed
+ * per call so {@link NodeRedEndpointPool} can route each request to a different server.
+ */
 public interface NodeRedApiForSunData {
 
 
-    @POST("/sun-data")
-    Call<JsonObject> sendSunLocation(@Body LocationData locationData);
+    @POST
+    Call<ResponseBody> sendSunLocation(@Url String url, @Body RequestBody locationData);
 
-    @POST("/moon-data")
-    Call<JsonObject> sendMoonLocation(@Body LocationData locationData);
+    @POST
+    Call<ResponseBody> sendMoonLocation(@Url String url, @Body RequestBody locationData);
 
 
 }
@@ -0,0 +1,481 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.example.smartwatchhapticsystem.model.LocationData;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * NodeRedCodec: Hand-written JSON codecs for the Node-RED uplink.
+ *
+ * Requests are written straight into a reusable byte buffer (no reflection, no JSONObject),
+ * and only the exact-size copy handed to the HTTP client is allocated. Responses are scanned
+ * once and only the vibration fields (plus the optional "message") are extracted; every
+ * other value is skipped without building a tree.
+ */
+public final class NodeRedCodec {
+
+    private static final byte[] KEY_INTENSITY = ascii("intensity");
+    private static final byte[] KEY_PULSES = ascii("pulses");
+    private static final byte[] KEY_DURATION = ascii("duration");
+    private static final byte[] KEY_INTERVAL = ascii("interval");
+    private static final byte[] KEY_MESSAGE = ascii("message");
+
+    private static final long COORDINATE_SCALE = 10_000_000L; // 7 decimals ≈ 1 cm
+
+    private byte[] buf = new byte[256];
+    private int len;
+    private final byte[] digits = new byte[20];
+
+    // ------------------------------------------------------------------
+    // Encoding
+    // ------------------------------------------------------------------
+
+    /**
+     * Encodes a location uplink with the same field names Retrofit/Gson used before.
+     *
+     * @return The JSON body as UTF-8 bytes.
+     */
+    public synchronized byte[] encodeLocation(LocationData data) {
+        len = 0;
+        put('{');
+        writeKey("lat");
+        writeCoordinate(data.getLat());
+        put(',');
+        writeKey("lon");
+        writeCoordinate(data.getLon());
+        put(',');
+        writeKey("userId");
+        writeString(data.getUserId());
+        put(',');
+        writeKey("smartWatchId");
+        writeString(data.getSmartWatchId());
+        put(',');
+        writeKey("androidId");
+        writeString(data.getAndroidId());
+        put(',');
+        writeKey("seq");
+        writeLong(data.getSeq());
+        put(',');
+        writeKey("sentAt");
+        writeLong(data.getSentAt());
+        if (data.getTrajectory() != null) {
+            // Batched mode: the whole batch ending with this fix, as an encoded polyline (see PolylineEncoder)
+            put(',');
+            writeKey("trajectory");
+            writeString(data.getTrajectory());
+            put(',');
+            writeKey("fixTimes");
+            writeString(data.getFixTimes());
+        }
+        put('}');
+        return Arrays.copyOf(buf, len);
+    }
+
+    /**
+     * Encodes a heart rate uplink as a flat object of string values
+     * (the same shape {@code new JSONObject(map)} produced). A batched uplink's
+     * {@link UplinkQueue#SAMPLES_FIELD} becomes an array:
+     * {@code "Samples":[{"SampleTime":..,"Value":..},...]}.
+     *
+     * @return The JSON body as UTF-8 bytes.
+     */
+    public synchronized byte[] encodeHeartRate(Map<String, String> payload) {
+        len = 0;
+        put('{');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : payload.entrySet()) {
+            if (!first) {
+                put(',');
+            }
+            first = false;
+            writeString(entry.getKey());
+            put(':');
+            if (UplinkQueue.SAMPLES_FIELD.equals(entry.getKey())) {
+                writeSamples(entry.getValue());
+            } else {
+                writeString(entry.getValue());
+            }
+        }
+        put('}');
+        return Arrays.copyOf(buf, len);
+    }
+
+    /**
+     * Writes "t=v;t=v" as an array of {"SampleTime":t,"Value":v}; malformed pairs are skipped.
+     */
+    private void writeSamples(String series) {
+        put('[');
+        boolean first = true;
+        int start = 0;
+        while (start < series.length()) {
+            int end = series.indexOf(';', start);
+            if (end < 0) {
+                end = series.length();
+            }
+            int eq = series.indexOf('=', start);
+            if (eq > start && eq < end - 1) {
+                try {
+                    long time = Long.parseLong(series.substring(start, eq));
+                    long value = Long.parseLong(series.substring(eq + 1, end));
+                    if (!first) {
+                        put(',');
+                    }
+                    first = false;
+                    put('{');
+                    writeKey("SampleTime");
+                    writeLong(time);
+                    put(',');
+                    writeKey("Value");
+                    writeLong(value);
+                    put('}');
+                } catch (NumberFormatException e) {
+                    // Skip the pair
+                }
+            }
+            start = end + 1;
+        }
+        put(']');
+    }
+
+    private void writeKey(String key) {
+        writeString(key);
+        put(':');
+    }
+
+    private void writeString(String s) {
+        if (s == null) {
+            put('n');
+            put('u');
+            put('l');
+            put('l');
+            return;
+        }
+        put('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                put('\\');
+                put(c);
+            } else if (c < 0x20) {
+                put('\\');
+                put('u');
+                put('0');
+                put('0');
+                put(Character.forDigit(c >> 4, 16));
+                put(Character.forDigit(c & 0xF, 16));
+            } else if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | (c >> 6));
+                put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                put(0xF0 | (cp >> 18));
+                put(0x80 | ((cp >> 12) & 0x3F));
+                put(0x80 | ((cp >> 6) & 0x3F));
+                put(0x80 | (cp & 0x3F));
+            } else {
+                put(0xE0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3F));
+                put(0x80 | (c & 0x3F));
+            }
+        }
+        put('"');
+    }
+
+    /**
+     * Writes a coordinate with up to 7 decimals without going through Double.toString().
+     */
+    private void writeCoordinate(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            put('0');
+            return;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        long scaled = Math.round(value * COORDINATE_SCALE);
+        writeLong(scaled / COORDINATE_SCALE);
+        put('.');
+
+        // Fractional part: 7 digits, trailing zeros trimmed (at least one digit kept)
+        long fraction = scaled % COORDINATE_SCALE;
+        int count = 7;
+        while (count > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            count--;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            digits[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        for (int i = 0; i < count; i++) {
+            put(digits[i]);
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            for (byte b : ascii(String.valueOf(value))) {
+                put(b);
+            }
+            return;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (n > 0) {
+            put(digits[--n]);
+        }
+    }
+
+    private void put(int b) {
+        if (len == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        buf[len++] = (byte) b;
+    }
+
+    // ------------------------------------------------------------------
+    // Decoding
+    // ------------------------------------------------------------------
+
+    /**
+     * Extracts intensity, pulses, duration, interval and message from a Node-RED response.
+     * Missing fields are left at 0 / null. Numbers sent as strings (e.g. "3") are accepted.
+     *
+     * @param body The raw response body (UTF-8 JSON object).
+     * @param out  Receives the parsed fields; cleared first.
+     * @return false if the body is not a well-formed JSON object.
+     */
+    public static boolean decodeVibration(byte[] body, VibrationCommand out) {
+        out.clear();
+        if (body == null) {
+            return false;
+        }
+        int n = body.length;
+        int i = skipWhitespace(body, 0);
+        if (i >= n || body[i] != '{') {
+            return false;
+        }
+        i = skipWhitespace(body, i + 1);
+        if (i < n && body[i] == '}') {
+            return true;
+        }
+
+        while (i < n) {
+            // Key
+            if (body[i] != '"') {
+                return false;
+            }
+            int keyStart = i + 1;
+            int keyEnd = endOfString(body, keyStart);
+            if (keyEnd < 0) {
+                return false;
+            }
+            i = skipWhitespace(body, keyEnd + 1);
+            if (i >= n || body[i] != ':') {
+                return false;
+            }
+            i = skipWhitespace(body, i + 1);
+            if (i >= n) {
+                return false;
+            }
+
+            // Value: parse the fields we need, skip everything else
+            if (matches(body, keyStart, keyEnd, KEY_INTENSITY)) {
+                out.setIntensity(parseInt(body, i));
+            } else if (matches(body, keyStart, keyEnd, KEY_PULSES)) {
+                out.setPulses(parseInt(body, i));
+            } else if (matches(body, keyStart, keyEnd, KEY_DURATION)) {
+                out.setDuration(parseInt(body, i));
+            } else if (matches(body, keyStart, keyEnd, KEY_INTERVAL)) {
+                out.setInterval(parseInt(body, i));
+            } else if (matches(body, keyStart, keyEnd, KEY_MESSAGE) && body[i] == '"') {
+                int end = endOfString(body, i + 1);
+                if (end < 0) {
+                    return false;
+                }
+                out.setMessage(unescape(body, i + 1, end));
+            }
+            i = skipValue(body, i);
+            if (i < 0) {
+                return false;
+            }
+
+            i = skipWhitespace(body, i);
+            if (i >= n) {
+                return false;
+            }
+            if (body[i] == '}') {
+                return true;
+            }
+            if (body[i] != ',') {
+                return false;
+            }
+            i = skipWhitespace(body, i + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Parses an integer value (optionally quoted); fractional digits are truncated.
+     */
+    private static int parseInt(byte[] b, int i) {
+        int n = b.length;
+        if (i < n && b[i] == '"') {
+            i++;
+        }
+        boolean negative = false;
+        if (i < n && b[i] == '-') {
+            negative = true;
+            i++;
+        }
+        long value = 0;
+        while (i < n && b[i] >= '0' && b[i] <= '9') {
+            value = value * 10 + (b[i] - '0');
+            if (value > Integer.MAX_VALUE) {
+                return negative ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            }
+            i++;
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * @return Index just past the value starting at {@code i}, or -1 if malformed.
+     */
+    private static int skipValue(byte[] b, int i) {
+        int n = b.length;
+        if (i >= n) {
+            return -1;
+        }
+        byte c = b[i];
+        if (c == '"') {
+            int end = endOfString(b, i + 1);
+            return end < 0 ? -1 : end + 1;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (i < n) {
+                c = b[i];
+                if (c == '"') {
+                    int end = endOfString(b, i + 1);
+                    if (end < 0) {
+                        return -1;
+                    }
+                    i = end + 1;
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            return -1;
+        }
+        // Number, true, false or null
+        while (i < n && b[i] != ',' && b[i] != '}' && b[i] != ']' && !isWhitespace(b[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return Index of the closing quote of a string whose content starts at {@code i}, or -1.
+     */
+    private static int endOfString(byte[] b, int i) {
+        while (i < b.length) {
+            if (b[i] == '\\') {
+                i += 2;
+            } else if (b[i] == '"') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static String unescape(byte[] b, int start, int end) {
+        boolean escaped = false;
+        for (int i = start; i < end; i++) {
+            if (b[i] == '\\') {
+                escaped = true;
+                break;
+            }
+        }
+        if (!escaped) {
+            return new String(b, start, end - start, StandardCharsets.UTF_8);
+        }
+        // Rare path: fall back to a char-level decode
+        String raw = new String(b, start, end - start, StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 >= raw.length()) {
+                sb.append(c);
+                continue;
+            }
+            char e = raw.charAt(++i);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (i + 4 < raw.length()) {
+                        sb.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                    break;
+                default: sb.append(e); break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean matches(byte[] b, int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (b[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(byte[] b, int i) {
+        while (i < b.length && isWhitespace(b[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NodeRedEndpointPool: A set of interchangeable Node-RED servers (e.g. a tunnel URL and a LAN
+ * address) with health tracking and latency-based routing.
+ *
+ * Every request asks {@link #select(long)} for a server: healthy servers are ranked by their
+ * smoothed RTT, servers that just failed come after them, and servers whose circuit breaker is
+ * open are skipped until a probe is allowed. Background health probes (a cheap GET of the
+ * config endpoint) keep RTTs fresh and bring failed servers back without risking user requests.
+ *
+ * Per-server metrics: {@code nodered.<n>.latencyMs}, {@code .errors}, {@code .srttMs}, {@code .breakerState}.
+ */
+public class NodeRedEndpointPool {
+    public static final String PATH_CONFIG = "/get-monitoring-config";
+    public static final String PATH_HEART_RATE = "/heartRate";
+    public static final String PATH_SUN = "/sun-data";
+    public static final String PATH_MOON = "/moon-data";
+    public static final String PATH_POI = "/poi-list";
+    public static final String PATH_BULK_UPLOAD = "/bulk-upload";
+
+    // Timeouts (per server and path) and breaker settings
+    private static final long INITIAL_TIMEOUT_MS = 5000;  // Until the first RTT sample
+    private static final long MIN_TIMEOUT_MS = 500;
+    private static final long MAX_TIMEOUT_MS = 15000;
+    private static final int BREAKER_FAILURES = 5;        // Consecutive failures that open the breaker
+    private static final long BREAKER_COOLDOWN_MS = 5000;
+    private static final long BREAKER_MAX_COOLDOWN_MS = 60000;
+
+    /**
+     * One Node-RED server: breaker, RTT estimates and metrics.
+     */
+    public static class Endpoint {
+        private final int index;
+        private final String baseUrl;
+        private final CircuitBreaker breaker =
+                new CircuitBreaker(BREAKER_FAILURES, BREAKER_COOLDOWN_MS, BREAKER_MAX_COOLDOWN_MS);
+        private final RttEstimator overall = new RttEstimator(INITIAL_TIMEOUT_MS, MIN_TIMEOUT_MS, MAX_TIMEOUT_MS);
+        private final Map<String, RttEstimator> byPath = new ConcurrentHashMap<>();
+        private final MetricsRegistry.Histogram latency;
+        private final MetricsRegistry.Counter errors;
+        private volatile String lastProbeError;  // Why the last health probe failed; null once one succeeds
+
+        Endpoint(int index, String baseUrl) {
+            this.index = index;
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+            String name = "nodered." + index;
+            latency = MetricsRegistry.get().histogram(name + ".latencyMs");
+            errors = MetricsRegistry.get().counter(name + ".errors");
+            MetricsRegistry.get().gauge(name + ".srttMs", () -> Math.round(overall.getSrttMs()));
+            MetricsRegistry.get().gauge(name + ".breakerState", () -> breaker.getState().ordinal());
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public String url(String path) {
+            return baseUrl + path;
+        }
+
+        /**
+         * @return Timeout for a request to the given path (RTO of that path on this server).
+         */
+        public int timeoutMs(String path) {
+            return rtt(path).getRtoMs();
+        }
+
+        public void onSuccess(String path, long rttMs) {
+            latency.record(rttMs);
+            rtt(path).onSample(rttMs);
+            overall.onSample(rttMs);
+            breaker.onSuccess();
+        }
+
+        /**
+         * @param timedOut Whether the request hit its timeout (backs the timeout off).
+         */
+        public void onFailure(String path, boolean timedOut) {
+            errors.inc();
+            if (timedOut) {
+                rtt(path).onTimeout();
+            }
+            breaker.onFailure(nowMs());
+        }
+
+        /**
+         * The server answered, but with a client error: it is up, the request was wrong.
+         */
+        public void onClientError(String path, long rttMs) {
+            errors.inc();
+            onSuccess(path, rttMs);
+        }
+
+        public CircuitBreaker getBreaker() {
+            return breaker;
+        }
+
+        private RttEstimator rtt(String path) {
+            RttEstimator estimator = byPath.get(path);
+            if (estimator == null) {
+                estimator = byPath.computeIfAbsent(path,
+                        p -> new RttEstimator(INITIAL_TIMEOUT_MS, MIN_TIMEOUT_MS, MAX_TIMEOUT_MS));
+            }
+            return estimator;
+        }
+
+        /**
+         * Ranking key: healthy before recently failing, then by smoothed RTT (unknown last).
+         */
+        private double rank() {
+            double srtt = overall.getSrttMs();
+            double latencyRank = srtt < 0 ? INITIAL_TIMEOUT_MS : srtt;
+            return (breaker.getConsecutiveFailures() > 0 ? 1e9 : 0) + latencyRank;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append('#').append(index).append(' ').append(baseUrl)
+                    .append(": ").append(overall).append("; breaker ").append(breaker);
+            String probeError = lastProbeError;
+            if (probeError != null) {
+                sb.append("; last probe failed: ").append(probeError);
+            }
+            for (Map.Entry<String, RttEstimator> e : byPath.entrySet()) {
+                sb.append("\n    ").append(e.getKey()).append(" rto=").append(e.getValue().getRtoMs()).append(" ms");
+            }
+            return sb.toString();
+        }
+    }
+
+    private final List<Endpoint> endpoints;
+    private ScheduledExecutorService healthChecks;
+
+    /**
+     * @param baseUrls Node-RED base URLs, most preferred first (used as tie-breaker before RTTs are known).
+     */
+    public NodeRedEndpointPool(List<String> baseUrls) {
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("at least one Node-RED base URL is required");
+        }
+        List<Endpoint> list = new ArrayList<>();
+        for (int i = 0; i < baseUrls.size(); i++) {
+            list.add(new Endpoint(i, baseUrls.get(i).trim()));
+        }
+        endpoints = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Parses a comma-separated list of base URLs (the format of the nodeRedBaseUrl build property).
+     */
+    public static NodeRedEndpointPool fromList(String commaSeparated) {
+        List<String> urls = new ArrayList<>();
+        for (String url : commaSeparated.split(",")) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return new NodeRedEndpointPool(urls);
+    }
+
+    /**
+     * Picks the server for the next request. A server in half-open state is only returned as
+     * its single probe; servers with an open breaker are skipped.
+     *
+     * @return The server to use, or null if every server is failing fast right now.
+     */
+    public Endpoint select(long nowMs) {
+        List<Endpoint> ranked = new ArrayList<>(endpoints);
+        Collections.sort(ranked, (a, b) -> Double.compare(a.rank(), b.rank()));
+        for (Endpoint endpoint : ranked) {
+            if (endpoint.breaker.allowRequest(nowMs)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Time until some server will accept a request again (0 if one does now).
+     */
+    public long getRetryInMs(long nowMs) {
+        long min = Long.MAX_VALUE;
+        for (Endpoint endpoint : endpoints) {
+            min = Math.min(min, endpoint.breaker.getRetryInMs(nowMs));
+        }
+        return min;
+    }
+
+    /**
+     * @return true if a server other than {@code failed} has no recent failures, so a failed
+     *         request can be moved there right away.
+     */
+    public boolean hasHealthyAlternative(Endpoint failed) {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint != failed && endpoint.breaker.getState() == CircuitBreaker.State.CLOSED
+                    && endpoint.breaker.getConsecutiveFailures() == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    public Endpoint get(int index) {
+        return endpoints.get(index);
+    }
+
+    /**
+     * Starts background probes of every server. Does nothing for a single server, since user
+     * requests already measure it and an extra radio wakeup would buy nothing.
+     */
+    public synchronized void startHealthChecks(long intervalMs) {
+        if (healthChecks != null || endpoints.size() < 2) {
+            return;
+        }
+        healthChecks = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "nodered-health"));
+        healthChecks.scheduleWithFixedDelay(this::probeAll, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopHealthChecks() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+            healthChecks = null;
+        }
+    }
+
+    /**
+     * Probes every server once (GET of the config endpoint). Servers with an open breaker are
+     * only probed once their cool-down has passed, as their half-open probe. Failures are kept
+     * on the endpoint (see its toString) rather than logged: a down server would otherwise log
+     * once per interval.
+     */
+    void probeAll() {
+        EnergyAccountant.get().onWakeup(EnergyAccountant.Subsystem.NETWORK, nowMs());
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.breaker.allowRequest(nowMs())) {
+                continue;
+            }
+            long start = nowMs();
+            EnergyAccountant.get().onNetworkRequest(0, start);
+            try {
+                int status = probe(endpoint.url(PATH_CONFIG), endpoint.timeoutMs(PATH_CONFIG));
+                EnergyAccountant.get().onNetworkResponse(0, nowMs());
+                if (status >= 500) {
+                    endpoint.lastProbeError = "HTTP " + status;
+                    endpoint.onFailure(PATH_CONFIG, false);
+                } else {
+                    endpoint.lastProbeError = null;
+                    endpoint.onSuccess(PATH_CONFIG, nowMs() - start);
+                }
+            } catch (SocketTimeoutException e) {
+                EnergyAccountant.get().onNetworkResponse(0, nowMs());
+                endpoint.lastProbeError = "timeout";
+                endpoint.onFailure(PATH_CONFIG, true);
+            } catch (IOException e) {
+                EnergyAccountant.get().onNetworkResponse(0, nowMs());
+                endpoint.lastProbeError = e.toString();
+                endpoint.onFailure(PATH_CONFIG, false);
+            }
+        }
+    }
+
+    private static int probe(String url, int timeoutMs) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(timeoutMs);
+            connection.setReadTimeout(timeoutMs);
+            connection.setUseCaches(false);
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                byte[] buffer = new byte[256];
+                while (body.read(buffer) > 0) {
+                    // Drain so the connection can be reused
+                }
+                body.close();
+            }
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Endpoint endpoint : endpoints) {
+            sb.append(endpoint).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static long nowMs() {
+        return System.nanoTime() / 1_000_000L;
+    }
+}
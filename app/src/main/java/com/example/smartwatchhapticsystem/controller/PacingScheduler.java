@@ -0,0 +1,235 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PacingScheduler: Rhythmic haptic pulses that guide the user toward a target heart rate or
+ * breathing rate ("Pacing" mode).
+ *
+ * Timing: beats are planned on the phone's monotonic clock and sent up to
+ * {@link #LOOKAHEAD_MS} ahead with an absolute start time, which the watch converts through
+ * the synced clock and plays from its own timer. Link and scheduling jitter therefore only
+ * have to stay inside the lead time; they no longer move the pulse. Until the clocks are
+ * synced the scheduler falls back to sending each beat when it is due (play on receipt).
+ *
+ * Tempo: starts at the user's current rate and moves toward the target by at most
+ * {@link #RAMP_PER_MIN} per minute. For heart rate pacing it also stays within
+ * {@link #MAX_LEAD} of the live heart rate, so it leads the user instead of running away.
+ * Beat times accumulate in double precision, so there is no rounding drift.
+ *
+ * If the planner itself falls behind (a delayed timer, the CPU asleep) the beats it missed
+ * are not sent in a burst with start times already past: they are counted as late and the
+ * grid restarts from now.
+ *
+ * Accuracy report: send lead ({@code pacing.leadMs}), beats sent or skipped too late to be
+ * scheduled, beats sent unsynced, the clock sync uncertainty, and, if the watch echoes
+ * "Played:<planned>,<actual>", the measured play error ({@code pacing.errorMs}).
+ */
+public class PacingScheduler {
+    private static final String TAG = "PacingScheduler";
+
+    public static final long LOOKAHEAD_MS = 1500;      // How far ahead beats are sent
+    private static final long TOP_UP_MS = 250;         // Planner wake-up period while synced
+    private static final long MIN_LEAD_MS = 100;       // Less lead than this may arrive after its start time
+    private static final double RAMP_PER_MIN = 3.0;    // Tempo change per minute of pacing
+    private static final double MAX_LEAD = 6.0;        // Max distance from the live heart rate (bpm)
+    private static final long HR_STALE_MS = 10000;
+    private static final int HEART_PULSE_MS = 80;
+    private static final int BREATH_PULSE_MAX_MS = 2000;
+    private static final int INTENSITY = 3;
+
+    public enum Target {
+        HEART_RATE,   // Beats per minute; follows live heart rate
+        BREATHING     // Breaths per minute; one long pulse per inhale
+    }
+
+    /**
+     * Delivers one beat to the watch.
+     */
+    public interface BeatSender {
+        boolean isClockSynced();
+
+        /** @return Half the best ping round trip: how far the synced clock can be off. */
+        long getClockUncertaintyMs();
+
+        /** @return false if the beat could not be queued. */
+        boolean sendBeat(int intensity, int duration, long playAtPhoneMs);
+    }
+
+    private final BeatSender sender;
+    private final MetricsRegistry.Histogram leadMs = MetricsRegistry.get().histogram("pacing.leadMs");
+    private final MetricsRegistry.Histogram errorMs = MetricsRegistry.get().histogram("pacing.errorMs");
+
+    private Target target = Target.HEART_RATE;
+    private double targetRate;
+    private double rate;
+    private double nextBeatMs;
+    private boolean running = false;
+    private int lastHeartRate = -1;
+    private long lastHeartRateAtMs;
+    private long planned, sent, late, unsynced, failed;
+    private ScheduledExecutorService timer;
+
+    public PacingScheduler(BeatSender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Starts pacing on a background timer.
+     *
+     * @param startRate Current rate of the user (tempo starts here), or the target if unknown.
+     */
+    public synchronized void start(Target target, double targetRate, double startRate) {
+        stop();
+        begin(target, targetRate, startRate, ClockSync.nowMs());
+        timer = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "pacing"));
+        timer.schedule(this::runTick, 0, TimeUnit.MILLISECONDS);
+        Log.d(TAG, "🫀 Pacing " + target + " from " + startRate + " toward " + targetRate + "/min");
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+            Log.d(TAG, "⏱️ Pacing report: " + getReport());
+        }
+    }
+
+    private void runTick() {
+        EnergyAccountant.get().onWakeup(EnergyAccountant.Subsystem.BLUETOOTH, ClockSync.nowMs());
+        long delayMs = tick(ClockSync.nowMs());
+        synchronized (this) {
+            if (timer != null && !timer.isShutdown()) {
+                timer.schedule(this::runTick, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    synchronized void begin(Target target, double targetRate, double startRate, long nowMs) {
+        this.target = target;
+        this.targetRate = targetRate;
+        this.rate = startRate > 0 ? startRate : targetRate;
+        this.nextBeatMs = nowMs + MIN_LEAD_MS;
+        this.running = true;
+    }
+
+    /**
+     * Live heart rate from the watch (drives the tempo limit in heart rate mode).
+     */
+    public synchronized void onHeartRate(int bpm, long nowMs) {
+        lastHeartRate = bpm;
+        lastHeartRateAtMs = nowMs;
+    }
+
+    /**
+     * The watch's report of a played beat, both times on the watch clock.
+     */
+    public void onPlayed(long plannedWatchMs, long actualWatchMs) {
+        errorMs.record(Math.abs(actualWatchMs - plannedWatchMs));
+    }
+
+    /**
+     * Plans and sends every beat that is due within the send window.
+     *
+     * @return Milliseconds until the planner should run again.
+     */
+    synchronized long tick(long nowMs) {
+        if (!running) {
+            return TOP_UP_MS;
+        }
+        boolean synced = sender.isClockSynced();
+        if (synced) {
+            if (nextBeatMs < nowMs) {
+                skipMissedBeats(nowMs, nowMs + MIN_LEAD_MS);
+            }
+            // Step 1: Keep the watch's schedule filled LOOKAHEAD_MS ahead
+            while (nextBeatMs <= nowMs + LOOKAHEAD_MS) {
+                sendNextBeat(nowMs, true);
+            }
+            return TOP_UP_MS;
+        }
+        // Step 2: No common clock: send each beat when it is due, and wake exactly for the next one
+        if (nextBeatMs < nowMs - MIN_LEAD_MS) {
+            skipMissedBeats(nowMs, nowMs); // Later than wake-up jitter: play once now, not the backlog
+        }
+        while (nextBeatMs <= nowMs) {
+            sendNextBeat(nowMs, false);
+        }
+        return Math.max(1, (long) Math.ceil(nextBeatMs - nowMs));
+    }
+
+    private void sendNextBeat(long nowMs, boolean synced) {
+        long playAt = Math.round(nextBeatMs);
+        long lead = playAt - nowMs;
+        planned++;
+        if (!synced) {
+            unsynced++;
+        } else if (lead < MIN_LEAD_MS) {
+            late++;
+        }
+        leadMs.record(Math.max(0, lead));
+
+        double periodMs = 60000.0 / rate;
+        int duration = target == Target.HEART_RATE ? HEART_PULSE_MS
+                : (int) Math.min(BREATH_PULSE_MAX_MS, periodMs * 0.4); // Pulse spans the inhale
+        if (sender.sendBeat(INTENSITY, duration, playAt)) {
+            sent++;
+        } else {
+            failed++;
+        }
+
+        nextBeatMs += periodMs;
+        rate = nextRate(periodMs, nowMs);
+    }
+
+    /**
+     * Drops every beat whose start time has already passed and restarts the grid at
+     * {@code resumeAtMs}. The tempo still ramps as if the skipped beats had played.
+     */
+    private void skipMissedBeats(long nowMs, double resumeAtMs) {
+        while (nextBeatMs < nowMs) {
+            double periodMs = 60000.0 / rate;
+            planned++;
+            late++;
+            nextBeatMs += periodMs;
+            rate = nextRate(periodMs, nowMs);
+        }
+        nextBeatMs = resumeAtMs;
+    }
+
+    /**
+     * Moves the tempo one beat toward its goal, limited by the ramp rate.
+     */
+    private double nextRate(double periodMs, long nowMs) {
+        double goal = targetRate;
+        if (target == Target.HEART_RATE && lastHeartRate > 0 && nowMs - lastHeartRateAtMs <= HR_STALE_MS) {
+            goal = Math.max(lastHeartRate - MAX_LEAD, Math.min(lastHeartRate + MAX_LEAD, goal));
+        }
+        double maxStep = RAMP_PER_MIN * periodMs / 60000.0;
+        return rate + Math.max(-maxStep, Math.min(maxStep, goal - rate));
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return A one-line timing accuracy summary.
+     */
+    public synchronized String getReport() {
+        return String.format(Locale.US, "rate=%.1f/min target=%.1f, beats planned=%d sent=%d failed=%d late=%d unsynced=%d, " +
+                        "sync ±%d ms, lead %s, watch error %s",
+                rate, targetRate, planned, sent, failed, late, unsynced,
+                sender.getClockUncertaintyMs(), leadMs, errorMs);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import android.location.Location;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+/**
+ * PipelineReplaySink: Routes replayed session events into the real controllers.
+ *
+ * SPP bytes are piped into BluetoothConnectionManager's reader (as if they came from the
+ * socket), location fixes are delivered through LocationController's active listener, and
+ * recorded Node-RED responses are applied by NetworkController in place of live replies.
+ */
+public class PipelineReplaySink implements SessionReplayer.Sink, AutoCloseable {
+    private static final String TAG = "PipelineReplaySink";
+
+    private final LocationController locationController;
+    private final NetworkController networkController;
+    private final PipedOutputStream sppPipe;
+
+    /**
+     * @param bluetoothManager   Receives the SPP byte stream.
+     * @param listener           Listener for parsed watch data (usually the service's).
+     * @param locationController Receives location fixes (may be null if the mode has none).
+     * @param networkController  Applies recorded responses.
+     */
+    public PipelineReplaySink(BluetoothConnectionManager bluetoothManager,
+                              BluetoothConnectionManager.OnHeartRateReceived listener,
+                              LocationController locationController,
+                              NetworkController networkController) throws IOException {
+        this.locationController = locationController;
+        this.networkController = networkController;
+
+        PipedInputStream sppInput = new PipedInputStream(16 * 1024);
+        sppPipe = new PipedOutputStream(sppInput);
+        bluetoothManager.startReplay(sppInput, listener);
+    }
+
+    @Override
+    public void onSppBytes(byte[] data) {
+        try {
+            sppPipe.write(data);
+            sppPipe.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "❌ SPP replay pipe closed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onLocation(double latitude, double longitude, float accuracy) {
+        if (locationController == null) {
+            return;
+        }
+        Location location = new Location("replay");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setAccuracy(accuracy);
+        location.setTime(System.currentTimeMillis());
+        locationController.deliverLocation(location);
+    }
+
+    @Override
+    public void onResponse(String endpoint, byte[] body) {
+        networkController.applyRecordedResponse(endpoint, body);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sppPipe.close(); // Ends the replay reader with EOF
+    }
+}
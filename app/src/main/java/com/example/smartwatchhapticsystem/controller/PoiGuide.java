@@ -0,0 +1,88 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.example.smartwatchhapticsystem.model.PointOfInterest;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * PoiGuide: Local haptic guidance toward a point of interest ("PoiAzimuth" mode).
+ *
+ * Unlike the sun and moon modes there is no server round trip: each location fix is resolved
+ * against the on-device {@link PoiIndex} (the selected target, or the nearest one) and turned
+ * into the same vibration fields Node-RED returns for the other modes:
+ * - pulses: compass sector of the bearing, 1 = north, 2 = north-east, ... 8 = north-west
+ * - intensity: stronger when closer (5 within 50 m ... 1 beyond 5 km)
+ */
+public class PoiGuide {
+
+    private static final int PULSE_DURATION_MS = 200;
+    private static final int PULSE_INTERVAL_MS = 300;
+    private static final double[] INTENSITY_STEPS_M = {50, 200, 1000, 5000}; // Upper bounds for intensity 5..2
+
+    private volatile PoiIndex index = PoiIndex.empty();
+    private volatile String targetId;
+
+    /**
+     * Replaces the target set (e.g. after a Node-RED sync); queries in flight finish on the old one.
+     *
+     * @return Number of points loaded.
+     */
+    public int load(Reader reader) throws IOException {
+        PoiIndex loaded = new PoiIndex(PoiIndex.parse(reader));
+        index = loaded;
+        return loaded.size();
+    }
+
+    /**
+     * @param id Target to guide to, or null to always guide to the nearest point.
+     */
+    public void setTarget(String id) {
+        this.targetId = id;
+    }
+
+    /**
+     * @return The point guided to from this position, or null if none is loaded.
+     */
+    public PointOfInterest resolveTarget(double lat, double lon) {
+        PoiIndex current = index;
+        String id = targetId;
+        PointOfInterest selected = id != null ? current.findById(id) : null;
+        return selected != null ? selected : current.nearest(lat, lon);
+    }
+
+    /**
+     * Computes the vibration pattern for one location fix.
+     *
+     * @param out Filled with the pattern (pulses = 0 when there is no target).
+     * @return The target guided to, or null.
+     */
+    public PointOfInterest guide(double lat, double lon, VibrationCommand out) {
+        out.clear();
+        PointOfInterest target = resolveTarget(lat, lon);
+        if (target == null) {
+            return null;
+        }
+        double bearing = PoiIndex.bearingDegrees(lat, lon, target);
+        double distance = PoiIndex.distanceMeters(lat, lon, target);
+
+        out.setPulses(1 + (int) Math.round(bearing / 45.0) % 8);
+        int intensity = 1;
+        for (int i = 0; i < INTENSITY_STEPS_M.length; i++) {
+            if (distance < INTENSITY_STEPS_M[i]) {
+                intensity = 5 - i;
+                break;
+            }
+        }
+        out.setIntensity(intensity);
+        out.setDuration(PULSE_DURATION_MS);
+        out.setInterval(PULSE_INTERVAL_MS);
+        out.setMessage(target.getName() + " " + Math.round(distance) + " m at " + Math.round(bearing) + "°");
+        return target;
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.example.smartwatchhapticsystem.model.PointOfInterest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PoiIndex: Immutable spatial index over points of interest for on-device nearest-target queries.
+ *
+ * Points are stored as unit vectors on the sphere and organised as a balanced k-d tree over
+ * (x, y, z), laid out implicitly in arrays (the median of each range is its node). Working in
+ * 3D avoids the dateline and pole special cases of a lat/lon grid, and chord distance orders
+ * points exactly like great-circle distance. A query touches O(log n) nodes and allocates
+ * nothing, so thousands of points cost microseconds per location fix.
+ *
+ * File format (local file or Node-RED sync), one point per line, '#' starts a comment:
+ * {@code id,name,lat,lon}
+ */
+public class PoiIndex {
+
+    public static final double EARTH_RADIUS_M = 6371008.8;
+
+    private final PointOfInterest[] points;  // In tree order
+    private final double[] xyz;              // 3 coordinates per point, same order
+    private final byte[] splitAxis;          // Axis each node splits on
+    private final Map<String, PointOfInterest> byId = new HashMap<>();
+
+    // Query scratch state (queries are synchronized, so one set is enough)
+    private double qx, qy, qz;
+    private int bestIndex;
+    private double bestDistSq;
+
+    public PoiIndex(List<PointOfInterest> pointsOfInterest) {
+        int n = pointsOfInterest.size();
+        points = new PointOfInterest[n];
+        xyz = new double[3 * n];
+        splitAxis = new byte[n];
+
+        double[] source = new double[3 * n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            PointOfInterest poi = pointsOfInterest.get(i);
+            toUnitVector(poi.getLat(), poi.getLon(), source, 3 * i);
+            order[i] = i;
+            byId.put(poi.getId(), poi);
+        }
+        build(order, 0, n, source);
+        for (int i = 0; i < n; i++) {
+            int src = order[i];
+            points[i] = pointsOfInterest.get(src);
+            System.arraycopy(source, 3 * src, xyz, 3 * i, 3);
+        }
+    }
+
+    /**
+     * Sorts each range on its widest axis and recurses on both halves around the median.
+     */
+    private void build(Integer[] order, int lo, int hi, double[] source) {
+        if (hi - lo <= 0) {
+            return;
+        }
+        int axis = widestAxis(order, lo, hi, source);
+        Arrays.sort(order, lo, hi, (a, b) -> Double.compare(source[3 * a + axis], source[3 * b + axis]));
+        int mid = (lo + hi) >>> 1;
+        splitAxis[mid] = (byte) axis;
+        build(order, lo, mid, source);
+        build(order, mid + 1, hi, source);
+    }
+
+    private static int widestAxis(Integer[] order, int lo, int hi, double[] source) {
+        int best = 0;
+        double bestSpread = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (int i = lo; i < hi; i++) {
+                double v = source[3 * order[i] + axis];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            if (max - min > bestSpread) {
+                bestSpread = max - min;
+                best = axis;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The point nearest to the given position, or null if the index is empty.
+     */
+    public synchronized PointOfInterest nearest(double lat, double lon) {
+        if (points.length == 0) {
+            return null;
+        }
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        double cosLat = Math.cos(latRad);
+        qx = cosLat * Math.cos(lonRad);
+        qy = cosLat * Math.sin(lonRad);
+        qz = Math.sin(latRad);
+        bestIndex = -1;
+        bestDistSq = Double.MAX_VALUE;
+        search(0, points.length);
+        return points[bestIndex];
+    }
+
+    private void search(int lo, int hi) {
+        if (hi - lo <= 0) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int base = 3 * mid;
+        double dx = xyz[base] - qx;
+        double dy = xyz[base + 1] - qy;
+        double dz = xyz[base + 2] - qz;
+        double distSq = dx * dx + dy * dy + dz * dz;
+        if (distSq < bestDistSq) {
+            bestDistSq = distSq;
+            bestIndex = mid;
+        }
+
+        int axis = splitAxis[mid];
+        double q = axis == 0 ? qx : axis == 1 ? qy : qz;
+        double diff = q - xyz[base + axis];
+        // Near side first; the far side only if the splitting plane is closer than the best so far
+        if (diff < 0) {
+            search(lo, mid);
+            if (diff * diff < bestDistSq) {
+                search(mid + 1, hi);
+            }
+        } else {
+            search(mid + 1, hi);
+            if (diff * diff < bestDistSq) {
+                search(lo, mid);
+            }
+        }
+    }
+
+    public PointOfInterest findById(String id) {
+        return byId.get(id);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * @return Initial great-circle bearing from the position to the point, degrees clockwise from north [0, 360).
+     */
+    public static double bearingDegrees(double lat, double lon, PointOfInterest poi) {
+        double phi1 = Math.toRadians(lat);
+        double phi2 = Math.toRadians(poi.getLat());
+        double dLambda = Math.toRadians(poi.getLon() - lon);
+        double y = Math.sin(dLambda) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLambda);
+        double bearing = Math.toDegrees(Math.atan2(y, x));
+        return bearing < 0 ? bearing + 360 : bearing;
+    }
+
+    /**
+     * @return Great-circle distance in meters (haversine).
+     */
+    public static double distanceMeters(double lat, double lon, PointOfInterest poi) {
+        double dPhi = Math.toRadians(poi.getLat() - lat);
+        double dLambda = Math.toRadians(poi.getLon() - lon);
+        double a = Math.sin(dPhi / 2) * Math.sin(dPhi / 2)
+                + Math.cos(Math.toRadians(lat)) * Math.cos(Math.toRadians(poi.getLat()))
+                * Math.sin(dLambda / 2) * Math.sin(dLambda / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static void toUnitVector(double lat, double lon, double[] out, int offset) {
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        out[offset] = Math.cos(latRad) * Math.cos(lonRad);
+        out[offset + 1] = Math.cos(latRad) * Math.sin(lonRad);
+        out[offset + 2] = Math.sin(latRad);
+    }
+
+    /**
+     * Parses {@code id,name,lat,lon} lines. Comments, blank lines, a header line and lines with
+     * bad coordinates are skipped. Names may contain commas (the last two fields are the coordinates).
+     */
+    public static List<PointOfInterest> parse(Reader reader) throws IOException {
+        List<PointOfInterest> result = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length < 4) {
+                continue;
+            }
+            try {
+                double lat = Double.parseDouble(fields[fields.length - 2].trim());
+                double lon = Double.parseDouble(fields[fields.length - 1].trim());
+                if (Math.abs(lat) > 90 || Math.abs(lon) > 180) {
+                    continue;
+                }
+                String name = String.join(",", Arrays.copyOfRange(fields, 1, fields.length - 2)).trim();
+                result.add(new PointOfInterest(fields[0].trim(), name, lat, lon));
+            } catch (NumberFormatException e) {
+                // Header or malformed line
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return An empty index (no targets loaded yet).
+     */
+    public static PoiIndex empty() {
+        return new PoiIndex(Collections.<PointOfInterest>emptyList());
+    }
+}
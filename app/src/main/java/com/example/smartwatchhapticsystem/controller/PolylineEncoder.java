@@ -0,0 +1,100 @@
+package com.example.smartwatchhapticsystem.controller;
+
+/**
+ * PolylineEncoder: Compact text encoding of a trajectory (the "encoded polyline" format).
+ *
+ * Coordinates are rounded to 1e-5 degrees (about 1 m), and each point is stored as the
+ * difference to the previous one, zig-zag encoded into 5-bit groups written as printable ASCII
+ * (63..126). A walking trajectory costs 4 to 6 characters per point instead of about 40 in the
+ * plain JSON body. {@link #encodeValues} applies the same scheme to any integer series, e.g.
+ * fix times in seconds.
+ */
+public final class PolylineEncoder {
+    private static final double SCALE = 1e5;
+
+    private PolylineEncoder() {
+    }
+
+    /**
+     * @param count Number of points to encode from the start of the arrays.
+     */
+    public static String encode(double[] latitudes, double[] longitudes, int count) {
+        StringBuilder sb = new StringBuilder(count * 6);
+        long lastLat = 0;
+        long lastLon = 0;
+        for (int i = 0; i < count; i++) {
+            long lat = Math.round(latitudes[i] * SCALE);
+            long lon = Math.round(longitudes[i] * SCALE);
+            writeSigned(sb, lat - lastLat);
+            writeSigned(sb, lon - lastLon);
+            lastLat = lat;
+            lastLon = lon;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Delta-encodes an integer series in the same alphabet.
+     */
+    public static String encodeValues(long[] values, int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        long last = 0;
+        for (int i = 0; i < count; i++) {
+            writeSigned(sb, values[i] - last);
+            last = values[i];
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return Points as {lat0, lon0, lat1, lon1, ...}.
+     */
+    public static double[] decode(String encoded) {
+        long[] values = decodeDeltas(encoded);
+        double[] points = new double[values.length];
+        long lat = 0;
+        long lon = 0;
+        for (int i = 0; i + 1 < values.length; i += 2) {
+            lat += values[i];
+            lon += values[i + 1];
+            points[i] = lat / SCALE;
+            points[i + 1] = lon / SCALE;
+        }
+        return points;
+    }
+
+    public static long[] decodeValues(String encoded) {
+        long[] values = decodeDeltas(encoded);
+        for (int i = 1; i < values.length; i++) {
+            values[i] += values[i - 1];
+        }
+        return values;
+    }
+
+    private static void writeSigned(StringBuilder sb, long value) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    private static long[] decodeDeltas(String encoded) {
+        long[] values = new long[encoded.length()];
+        int count = 0;
+        int i = 0;
+        while (i < encoded.length()) {
+            long result = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = encoded.charAt(i++) - 63;
+                result |= (long) (b & 0x1f) << shift;
+                shift += 5;
+            } while (b >= 0x20 && i < encoded.length());
+            values[count++] = (result & 1) != 0 ? ~(result >>> 1) : result >>> 1;
+        }
+        return java.util.Arrays.copyOf(values, count);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.smartwatchhapticsystem.controller;
+
+/**
+ * ResponseSequencer: Correlates Node-RED responses with the uplinks that caused them.
+ *
+ * Every uplink gets a monotonic sequence number and a send timestamp. When the response
+ * comes back, it is only allowed to drive a vibration if it is newer than the last one
+ * applied and arrived within the latency budget. Anything else is stale and discarded.
+ */
+public class ResponseSequencer {
+
+    /**
+     * Sequence number and send time of a single uplink.
+     */
+    public static class Ticket {
+        public final long seq;
+        public final long sentAtMs;      // Monotonic clock, used for the latency budget
+        public final long sentAtWallMs;  // Wall clock, sent to Node-RED for correlation
+
+        Ticket(long seq, long sentAtMs, long sentAtWallMs) {
+            this.seq = seq;
+            this.sentAtMs = sentAtMs;
+            this.sentAtWallMs = sentAtWallMs;
+        }
+    }
+
+    private long nextSeq = 1;
+    private long lastAppliedSeq = 0;
+    private long latencyBudgetMs;
+
+    // Statistics
+    private long applied = 0;
+    private long discardedOutOfOrder = 0;
+    private long discardedLate = 0;
+
+    /**
+     * @param latencyBudgetMs Responses older than this (measured from send time) are discarded.
+     */
+    public ResponseSequencer(long latencyBudgetMs) {
+        this.latencyBudgetMs = latencyBudgetMs;
+    }
+
+    /**
+     * Issues the next sequence number for an outgoing uplink.
+     */
+    public synchronized Ticket issue() {
+        return new Ticket(nextSeq++, nowMs(), System.currentTimeMillis());
+    }
+
+    /**
+     * Decides whether the response to the given uplink may still be acted on.
+     * On success the ticket becomes the latest applied one.
+     *
+     * @return true if the response is fresh and should drive actuation.
+     */
+    public synchronized boolean accept(Ticket ticket) {
+        if (ticket.seq <= lastAppliedSeq) {
+            discardedOutOfOrder++;
+            return false;
+        }
+        if (nowMs() - ticket.sentAtMs > latencyBudgetMs) {
+            discardedLate++;
+            return false;
+        }
+        lastAppliedSeq = ticket.seq;
+        applied++;
+        return true;
+    }
+
+    public synchronized void setLatencyBudgetMs(long latencyBudgetMs) {
+        this.latencyBudgetMs = latencyBudgetMs;
+    }
+
+    public synchronized long getLatencyBudgetMs() {
+        return latencyBudgetMs;
+    }
+
+    public synchronized long getAppliedCount() {
+        return applied;
+    }
+
+    public synchronized long getDiscardedOutOfOrderCount() {
+        return discardedOutOfOrder;
+    }
+
+    public synchronized long getDiscardedLateCount() {
+        return discardedLate;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "applied=" + applied +
+                ", staleOutOfOrder=" + discardedOutOfOrder +
+                ", staleLate=" + discardedLate +
+                ", budgetMs=" + latencyBudgetMs;
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000L;
+    }
+}
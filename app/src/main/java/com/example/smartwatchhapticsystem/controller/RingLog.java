@@ -0,0 +1,159 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import android.util.Log;
+
+import com.example.smartwatchhapticsystem.BuildConfig;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RingLog: Low-overhead binary logger for hot paths (per-sample, per-request).
+ *
+ * A log call stores a timestamp, a level, an event id and two numeric arguments in
+ * preallocated arrays; nothing is formatted or allocated. Records are only turned into
+ * text when the ring is dumped. Debug calls are guarded by {@link #DEBUG_ENABLED}. AGP
+ * generates {@code BuildConfig.DEBUG} as {@code Boolean.parseBoolean(...)}, which is not a
+ * compile-time constant, and release builds are not minified, so the guard stays in release
+ * code: a disabled debug call costs a static call and one field test, nothing more.
+ *
+ * Writers never block: concurrent writers claim slots with a single atomic increment.
+ * A record being overwritten while it is dumped may appear torn, which is acceptable
+ * for a diagnostic trace.
+ */
+public final class RingLog {
+    private static final String TAG = "RingLog";
+
+    // Levels (same values as android.util.Log)
+    public static final int DEBUG = Log.DEBUG;
+    public static final int INFO = Log.INFO;
+    public static final int WARN = Log.WARN;
+    public static final int ERROR = Log.ERROR;
+
+    /** False in release builds, where {@link #d} returns after this check (it is not compiled out). */
+    public static final boolean DEBUG_ENABLED = BuildConfig.DEBUG;
+
+    // Events: the id indexes FORMATS, arguments are substituted only at dump time
+    public static final int EV_SPP_LINE = 0;
+    public static final int EV_HR_SAMPLE = 1;
+    public static final int EV_UPLINK_SENT = 2;
+    public static final int EV_UPLINK_RESPONSE = 3;
+    public static final int EV_VIBRATION_SENT = 4;
+    public static final int EV_STALE_RESPONSE = 5;
+    public static final int EV_LOCATION_FIX = 6;
+
+    private static final String[] FORMATS = {
+            "📥 SPP line received: %d chars",
+            "❤️ Heart rate sample: value=%d",
+            "📤 Uplink sent: seq=%d, queueDepth=%d",
+            "✅ Uplink response: seq=%d, rttMs=%d",
+            "📳 Vibration sent: intensity=%d, pulses=%d",
+            "⏱️ Stale response discarded: seq=%d, ageMs=%d",
+            "📍 Location fix: accuracyM=%d, count=%d",
+    };
+
+    private static final int CAPACITY = 1024; // Must be a power of two
+    private static final int MASK = CAPACITY - 1;
+
+    private static final long[] times = new long[CAPACITY];
+    private static final int[] meta = new int[CAPACITY];   // level << 16 | event
+    private static final long[] args0 = new long[CAPACITY];
+    private static final long[] args1 = new long[CAPACITY];
+    private static final AtomicLong cursor = new AtomicLong();
+
+    private static volatile int minLevel = DEBUG_ENABLED ? DEBUG : INFO;
+
+    private RingLog() {
+    }
+
+    /**
+     * Records a debug event. A no-op in release builds.
+     */
+    public static void d(int event, long arg0, long arg1) {
+        if (DEBUG_ENABLED && minLevel <= DEBUG) {
+            write(DEBUG, event, arg0, arg1);
+        }
+    }
+
+    /**
+     * Records an info event.
+     */
+    public static void i(int event, long arg0, long arg1) {
+        if (minLevel <= INFO) {
+            write(INFO, event, arg0, arg1);
+        }
+    }
+
+    /**
+     * Records a warning event.
+     */
+    public static void w(int event, long arg0, long arg1) {
+        if (minLevel <= WARN) {
+            write(WARN, event, arg0, arg1);
+        }
+    }
+
+    /**
+     * Sets the lowest level that is recorded.
+     */
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    private static void write(int level, int event, long arg0, long arg1) {
+        int slot = (int) (cursor.getAndIncrement() & MASK);
+        times[slot] = System.nanoTime();
+        meta[slot] = (level << 16) | event;
+        args0[slot] = arg0;
+        args1[slot] = arg1;
+    }
+
+    /**
+     * @return Total number of records written since start (including overwritten ones).
+     */
+    public static long getWrittenCount() {
+        return cursor.get();
+    }
+
+    /**
+     * Decodes the ring, oldest record first, into human-readable text.
+     */
+    public static String dump() {
+        long end = cursor.get();
+        long start = Math.max(0, end - CAPACITY);
+        StringBuilder sb = new StringBuilder();
+        long firstTime = times[(int) (start & MASK)];
+
+        for (long i = start; i < end; i++) {
+            int slot = (int) (i & MASK);
+            int event = meta[slot] & 0xFFFF;
+            int level = meta[slot] >>> 16;
+            String format = event < FORMATS.length ? FORMATS[event] : "event %d/%d";
+
+            sb.append(String.format(Locale.US, "+%8.3f ms ", (times[slot] - firstTime) / 1e6))
+                    .append(levelChar(level)).append(' ')
+                    .append(String.format(Locale.US, format, args0[slot], args1[slot]))
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the decoded ring to logcat.
+     */
+    public static void dumpToLogcat() {
+        for (String line : dump().split("\n")) {
+            Log.d(TAG, line);
+        }
+    }
+
+    private static char levelChar(int level) {
+        switch (level) {
+            case DEBUG: return 'D';
+            case INFO: return 'I';
+            case WARN: return 'W';
+            case ERROR: return 'E';
+            default: return '?';
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.Locale;
+
+/**
+ * RttEstimator: Per-endpoint round-trip estimator that derives request timeouts, in the
+ * style of TCP's retransmission timer (Jacobson/Karels, RFC 6298):
+ * <pre>
+ *   first sample:  SRTT = R, RTTVAR = R / 2
+ *   later samples: RTTVAR = 3/4 RTTVAR + 1/4 |SRTT - R|
+ *                  SRTT   = 7/8 SRTT   + 1/8 R
+ *   RTO = SRTT + max(G, 4 * RTTVAR), clamped to [min, max]
+ * </pre>
+ * A timeout doubles the RTO (exponential backoff) until the next valid sample.
+ */
+public class RttEstimator {
+    private static final double ALPHA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+    private static final long GRANULARITY_MS = 50; // Scheduling noise on the phone side
+
+    private final long initialRtoMs;
+    private final long minRtoMs;
+    private final long maxRtoMs;
+
+    private double srttMs = -1;
+    private double rttvarMs = 0;
+    private long rtoMs;
+    private long samples = 0;
+    private long timeouts = 0;
+
+    /**
+     * @param initialRtoMs Timeout used until the first sample arrives.
+     * @param minRtoMs     Lower bound, so a run of fast replies cannot make timeouts brittle.
+     * @param maxRtoMs     Upper bound for backoff.
+     */
+    public RttEstimator(long initialRtoMs, long minRtoMs, long maxRtoMs) {
+        this.initialRtoMs = initialRtoMs;
+        this.minRtoMs = minRtoMs;
+        this.maxRtoMs = maxRtoMs;
+        this.rtoMs = initialRtoMs;
+    }
+
+    /**
+     * Feeds a measured round trip of a request that was sent once (never of a retried one).
+     */
+    public synchronized void onSample(long rttMs) {
+        if (rttMs < 0) {
+            return;
+        }
+        if (srttMs < 0) {
+            srttMs = rttMs;
+            rttvarMs = rttMs / 2.0;
+        } else {
+            rttvarMs = (1 - BETA) * rttvarMs + BETA * Math.abs(srttMs - rttMs);
+            srttMs = (1 - ALPHA) * srttMs + ALPHA * rttMs;
+        }
+        samples++;
+        rtoMs = clamp(Math.round(srttMs + Math.max(GRANULARITY_MS, 4 * rttvarMs)));
+    }
+
+    /**
+     * A request timed out: back off until a fresh sample says otherwise.
+     */
+    public synchronized void onTimeout() {
+        timeouts++;
+        rtoMs = clamp(rtoMs * 2);
+    }
+
+    /**
+     * @return Current timeout to use for the next request.
+     */
+    public synchronized int getRtoMs() {
+        return (int) rtoMs;
+    }
+
+    /**
+     * @return Smoothed RTT, or -1 before the first sample.
+     */
+    public synchronized double getSrttMs() {
+        return srttMs;
+    }
+
+    public synchronized double getRttVarMs() {
+        return rttvarMs;
+    }
+
+    public synchronized void reset() {
+        srttMs = -1;
+        rttvarMs = 0;
+        rtoMs = initialRtoMs;
+    }
+
+    private long clamp(long value) {
+        return Math.max(minRtoMs, Math.min(maxRtoMs, value));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "srtt=%.0f ms, rttvar=%.0f ms, rto=%d ms, samples=%d, timeouts=%d",
+                srttMs, rttvarMs, rtoMs, samples, timeouts);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.smartwatchhapticsystem.controller;
+
+/**
+ * SampleBatchDecoder: Unpacks batched heart-rate frames sent by the watch.
+ *
+ * Batching is requested in the handshake right after {@code Monitoring:HeartRate} with
+ * <pre>
+ *   Batch:&lt;flushMs&gt;,&lt;low&gt;,&lt;high&gt;,&lt;maxSamples&gt;
+ * </pre>
+ * The watch then buffers samples and flushes every {@code flushMs}, when {@code maxSamples}
+ * are buffered, or immediately when a value leaves the [low, high] band. A frame is one line:
+ * <pre>
+ *   HRBatch:&lt;UserID&gt;,&lt;SmartWatchID&gt;,&lt;AndroidID&gt;,&lt;baseTs&gt;;&lt;dt&gt;=&lt;value&gt;;&lt;dt&gt;=&lt;value&gt;...
+ * </pre>
+ * where {@code baseTs} is the watch clock (ms) and each {@code dt} is the sample's offset from it.
+ * Watches that do not understand {@code Batch:} simply keep sending one line per sample.
+ */
+public final class SampleBatchDecoder {
+    public static final String PREFIX = "HRBatch:";
+
+    /**
+     * Receives each decoded sample.
+     */
+    public interface SampleSink {
+        void onSample(String userId, String smartWatchId, String androidId, long watchTimeMs, int value);
+    }
+
+    private SampleBatchDecoder() {
+    }
+
+    /**
+     * Builds the handshake line that asks the watch for batched frames.
+     */
+    public static String handshake(long flushMs, int low, int high, int maxSamples) {
+        return "Batch:" + flushMs + "," + low + "," + high + "," + maxSamples;
+    }
+
+    /**
+     * Decodes one frame. Samples are delivered in order; nothing is delivered for a malformed header.
+     *
+     * @return Number of samples delivered, or -1 if the frame is malformed. A frame whose
+     *         header is fine but which has a bad sample delivers the good ones and returns -1.
+     */
+    public static int decode(String line, SampleSink sink) {
+        if (!line.startsWith(PREFIX)) {
+            return -1;
+        }
+        int headerEnd = line.indexOf(';');
+        if (headerEnd < 0) {
+            headerEnd = line.length(); // Empty batch (header only)
+        }
+
+        // Step 1: Header: three IDs and the base timestamp
+        int p = PREFIX.length();
+        int c1 = line.indexOf(',', p);
+        int c2 = c1 < 0 ? -1 : line.indexOf(',', c1 + 1);
+        int c3 = c2 < 0 ? -1 : line.indexOf(',', c2 + 1);
+        if (c3 < 0 || c3 > headerEnd) {
+            return -1;
+        }
+        String userId = line.substring(p, c1).trim();
+        String smartWatchId = line.substring(c1 + 1, c2).trim();
+        String androidId = line.substring(c2 + 1, c3).trim();
+        long baseTs = parseLong(line, c3 + 1, headerEnd);
+        if (baseTs == Long.MIN_VALUE) {
+            return -1;
+        }
+
+        // Step 2: Samples, parsed in place without splitting the line
+        int delivered = 0;
+        int start = headerEnd + 1;
+        while (start < line.length()) {
+            int end = line.indexOf(';', start);
+            if (end < 0) {
+                end = line.length();
+            }
+            if (end > start) {
+                int eq = line.indexOf('=', start);
+                if (eq < 0 || eq > end) {
+                    return -1;
+                }
+                long dt = parseLong(line, start, eq);
+                long value = parseLong(line, eq + 1, end);
+                if (dt == Long.MIN_VALUE || value == Long.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    return -1;
+                }
+                sink.onSample(userId, smartWatchId, androidId, baseTs + dt, (int) value);
+                delivered++;
+            }
+            start = end + 1;
+        }
+        return delivered;
+    }
+
+    /**
+     * Parses a signed decimal in [from, to), ignoring surrounding spaces.
+     *
+     * @return The value, or Long.MIN_VALUE if it is not a number.
+     */
+    private static long parseLong(String s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) == ' ') {
+            to--;
+        }
+        if (from >= to || to - from > 18) {
+            return Long.MIN_VALUE;
+        }
+        boolean negative = s.charAt(from) == '-';
+        if (negative && ++from == to) {
+            return Long.MIN_VALUE;
+        }
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return Long.MIN_VALUE;
+            }
+            v = v * 10 + (ch - '0');
+        }
+        return negative ? -v : v;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.Locale;
+
+/**
+ * SamplingRateController: Closed-loop choice of the watch's heart rate sampling interval.
+ *
+ * Every received sample updates a smoothed value, its volatility (mean absolute deviation)
+ * and its trend (bpm/s). From those the controller picks an interval between its limits:
+ * - Urgent (near a haptic threshold, volatile, or trending across a threshold within the
+ *   next intervals): jump straight to the fastest rate, so no crossing is sampled late.
+ * - Calm (far from both thresholds and stable) for a hold period: double the interval, one
+ *   step per hold period, up to the slowest rate.
+ * - In between: keep the current rate. The gap between the "near" and "far" margins (and
+ *   between the volatile and stable levels) is the hysteresis that stops flapping.
+ * The interval is also capped so that, at the fastest plausible heart rate change, the value
+ * cannot travel from its current margin to a threshold between two samples.
+ *
+ * Times are milliseconds on any clock that is consistent across samples.
+ */
+public class SamplingRateController {
+
+    private static final double GAIN = 0.25;                 // EWMA gain for mean, volatility and trend
+    private static final int NEAR_BPM = 5;                   // Margin that counts as "at the threshold"
+    private static final int FAR_BPM = 12;                   // Margin needed before slowing down
+    private static final double VOLATILE_BPM = 4.0;
+    private static final double STABLE_BPM = 1.5;
+    private static final double MAX_SLEW_BPM_PER_S = 3.0;    // Fastest change we must not sample past
+    private static final long CALM_HOLD_MS = 20000;          // Calm time before each slow-down step
+    private static final int LOOKAHEAD_INTERVALS = 2;        // Trend projection horizon
+
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final int lowThreshold;
+    private final int highThreshold;
+
+    private long intervalMs;
+    private boolean primed = false;
+    private int lastValue;
+    private long lastTimeMs;
+    private double mean;
+    private double volatility;
+    private double trendBpmPerS;
+    private long calmSinceMs = -1;
+
+    /**
+     * @param minIntervalMs Fastest sampling interval (used while urgent and at start).
+     * @param maxIntervalMs Slowest sampling interval.
+     * @param lowThreshold  Haptic threshold below which feedback starts (bpm).
+     * @param highThreshold Haptic threshold above which feedback starts (bpm).
+     */
+    public SamplingRateController(long minIntervalMs, long maxIntervalMs, int lowThreshold, int highThreshold) {
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.lowThreshold = lowThreshold;
+        this.highThreshold = highThreshold;
+        this.intervalMs = minIntervalMs;
+    }
+
+    /**
+     * Feeds one sample.
+     *
+     * @return The new interval to request from the watch, or -1 if it is unchanged.
+     */
+    public synchronized long onSample(int bpm, long timeMs) {
+        // Step 1: Update mean, volatility and trend
+        if (!primed) {
+            primed = true;
+            mean = bpm;
+            lastValue = bpm;
+            lastTimeMs = timeMs;
+            return -1;
+        }
+        long dtMs = timeMs - lastTimeMs;
+        if (dtMs > 0) {
+            double slope = (bpm - lastValue) * 1000.0 / dtMs;
+            trendBpmPerS += GAIN * (slope - trendBpmPerS);
+            lastTimeMs = timeMs;
+        }
+        lastValue = bpm;
+        volatility += GAIN * (Math.abs(bpm - mean) - volatility);
+        mean += GAIN * (bpm - mean);
+
+        // Step 2: Classify the signal
+        int margin = Math.min(Math.abs(bpm - lowThreshold), Math.abs(bpm - highThreshold));
+        double projected = bpm + trendBpmPerS * (LOOKAHEAD_INTERVALS * intervalMs / 1000.0);
+        boolean crossingAhead = crosses(bpm, projected, lowThreshold) || crosses(bpm, projected, highThreshold);
+        boolean urgent = margin <= NEAR_BPM || volatility >= VOLATILE_BPM || crossingAhead;
+        boolean calm = margin >= FAR_BPM && volatility <= STABLE_BPM;
+
+        // Step 3: Pick the interval (fast attack, slow stepwise release)
+        long target = intervalMs;
+        if (urgent) {
+            calmSinceMs = -1;
+            target = minIntervalMs;
+        } else if (calm) {
+            if (calmSinceMs < 0) {
+                calmSinceMs = timeMs;
+            } else if (timeMs - calmSinceMs >= CALM_HOLD_MS) {
+                target = Math.min(maxIntervalMs, intervalMs * 2);
+                calmSinceMs = timeMs; // Each further step needs another calm hold
+            }
+        } else {
+            calmSinceMs = -1;
+        }
+
+        // Step 4: Never sample so slowly that the fastest plausible change could skip past a threshold
+        long safeMs = (long) (margin * 1000 / MAX_SLEW_BPM_PER_S);
+        target = Math.max(minIntervalMs, Math.min(target, safeMs));
+
+        if (target == intervalMs) {
+            return -1;
+        }
+        intervalMs = target;
+        return target;
+    }
+
+    private static boolean crosses(int from, double to, int threshold) {
+        return (from - threshold) * (to - threshold) < 0;
+    }
+
+    public synchronized long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public synchronized double getVolatility() {
+        return volatility;
+    }
+
+    public synchronized double getTrendBpmPerS() {
+        return trendBpmPerS;
+    }
+
+    /**
+     * Starts over at the fastest rate (new connection).
+     */
+    public synchronized void reset() {
+        intervalMs = minIntervalMs;
+        primed = false;
+        volatility = 0;
+        trendBpmPerS = 0;
+        calmSinceMs = -1;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "interval=" + intervalMs + " ms, mean=" + Math.round(mean) + " bpm, volatility=" +
+                String.format(Locale.US, "%.1f", volatility) + " bpm, trend=" + String.format(Locale.US, "%.2f", trendBpmPerS) + " bpm/s";
+    }
+}
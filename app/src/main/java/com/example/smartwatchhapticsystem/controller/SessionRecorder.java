@@ -0,0 +1,158 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SessionRecorder: Captures a monitoring session into a compact binary file so it can be
+ * replayed later with {@link SessionReplayer}.
+ *
+ * File layout: the magic "SWHS", a version byte, then one record per event:
+ * {@code [type:1][deltaMicros:varint][payload]}. The delta is the time since the previous
+ * record, so a typical record header is 2-4 bytes.
+ *
+ * Payloads:
+ *   SPP bytes  → [length:varint][raw bytes]
+ *   Location   → [lat:double][lon:double][accuracy:float]
+ *   Response   → [endpointLength:varint][endpoint UTF-8][bodyLength:varint][body]
+ */
+public class SessionRecorder implements AutoCloseable {
+    static final byte[] MAGIC = {'S', 'W', 'H', 'S'};
+    static final int VERSION = 1;
+
+    static final int TYPE_SPP_BYTES = 1;
+    static final int TYPE_LOCATION = 2;
+    static final int TYPE_RESPONSE = 3;
+
+    private final DataOutputStream out;
+    private long lastNanos = System.nanoTime();
+    private boolean closed = false;
+
+    public SessionRecorder(File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    public SessionRecorder(OutputStream stream) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(stream, 8192));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    /**
+     * Records raw bytes received from the watch over SPP.
+     */
+    public synchronized void recordSppBytes(byte[] data, int offset, int length) {
+        if (closed || length <= 0) {
+            return;
+        }
+        try {
+            writeHeader(TYPE_SPP_BYTES);
+            writeVarint(length);
+            out.write(data, offset, length);
+        } catch (IOException e) {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Records a location fix delivered to the pipeline.
+     */
+    public synchronized void recordLocation(double latitude, double longitude, float accuracy) {
+        if (closed) {
+            return;
+        }
+        try {
+            writeHeader(TYPE_LOCATION);
+            out.writeDouble(latitude);
+            out.writeDouble(longitude);
+            out.writeFloat(accuracy);
+        } catch (IOException e) {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Records a raw Node-RED response body.
+     *
+     * @param endpoint The endpoint path, e.g. "/heartRate" or "/sun-data".
+     */
+    public synchronized void recordResponse(String endpoint, byte[] body) {
+        if (closed || body == null) {
+            return;
+        }
+        try {
+            writeHeader(TYPE_RESPONSE);
+            byte[] name = endpoint.getBytes(StandardCharsets.UTF_8);
+            writeVarint(name.length);
+            out.write(name);
+            writeVarint(body.length);
+            out.write(body);
+        } catch (IOException e) {
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Wraps a stream so that everything read from it is also recorded as SPP bytes.
+     */
+    public InputStream tee(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    recordSppBytes(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    recordSppBytes(buffer, offset, n);
+                }
+                return n;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // Recording is best effort; the session itself must not fail
+        }
+    }
+
+    private void writeHeader(int type) throws IOException {
+        long now = System.nanoTime();
+        long deltaMicros = Math.max(0, (now - lastNanos) / 1000);
+        lastNanos = now;
+        out.writeByte(type);
+        writeVarint(deltaMicros);
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
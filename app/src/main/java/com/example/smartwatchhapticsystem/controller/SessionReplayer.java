@@ -0,0 +1,203 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * SessionReplayer: Feeds a session captured by {@link SessionRecorder} back through the
+ * pipeline, preserving the recorded timing (at 1x or an accelerated speed).
+ *
+ * Each event is handed to a {@link Sink}; the replayer measures how long the sink takes
+ * to process each event and how far behind schedule dispatch falls, so a captured
+ * production session becomes a repeatable latency/throughput benchmark.
+ */
+public class SessionReplayer {
+
+    /**
+     * Receives replayed events. See {@link PipelineReplaySink} for the adapter that
+     * routes them into BluetoothConnectionManager, LocationController and NetworkController.
+     */
+    public interface Sink {
+        void onSppBytes(byte[] data);
+
+        void onLocation(double latitude, double longitude, float accuracy);
+
+        void onResponse(String endpoint, byte[] body);
+    }
+
+    private final File file;
+
+    public SessionReplayer(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the session on the calling thread.
+     *
+     * @param sink  Receives the events.
+     * @param speed Time scale: 1.0 = real time, 10.0 = ten times faster, 0 = as fast as possible.
+     * @return Latency and throughput figures for the run.
+     */
+    public Report replay(Sink sink, double speed) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return replay(in, sink, speed);
+        }
+    }
+
+    /**
+     * Replays a session from an arbitrary stream (e.g. an asset or an in-memory capture).
+     */
+    public static Report replay(InputStream stream, Sink sink, double speed) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 8192));
+        readHeader(in);
+
+        Report report = new Report();
+        long startNanos = System.nanoTime();
+        long scheduledMicros = 0;
+
+        while (true) {
+            int type = in.read();
+            if (type < 0) {
+                break;
+            }
+            scheduledMicros += readVarint(in);
+
+            // Step 1: Read the payload before waiting so decoding does not count as lag
+            byte[] data = null;
+            String endpoint = null;
+            double lat = 0;
+            double lon = 0;
+            float accuracy = 0;
+            switch (type) {
+                case SessionRecorder.TYPE_SPP_BYTES:
+                    data = readBytes(in);
+                    break;
+                case SessionRecorder.TYPE_LOCATION:
+                    lat = in.readDouble();
+                    lon = in.readDouble();
+                    accuracy = in.readFloat();
+                    break;
+                case SessionRecorder.TYPE_RESPONSE:
+                    endpoint = new String(readBytes(in), StandardCharsets.UTF_8);
+                    data = readBytes(in);
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type);
+            }
+
+            // Step 2: Wait until the event is due at the requested speed
+            long dueNanos = startNanos + (speed > 0 ? (long) (scheduledMicros * 1000 / speed) : 0);
+            long waitNanos = dueNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                sleepNanos(waitNanos);
+            }
+            long dispatchNanos = System.nanoTime();
+            report.lagMicros.record(Math.max(0, (dispatchNanos - dueNanos) / 1000));
+
+            // Step 3: Dispatch and measure processing latency
+            switch (type) {
+                case SessionRecorder.TYPE_SPP_BYTES:
+                    sink.onSppBytes(data);
+                    report.sppBytes += data.length;
+                    break;
+                case SessionRecorder.TYPE_LOCATION:
+                    sink.onLocation(lat, lon, accuracy);
+                    report.locations++;
+                    break;
+                default:
+                    sink.onResponse(endpoint, data);
+                    report.responses++;
+                    break;
+            }
+            report.processingMicros.record((System.nanoTime() - dispatchNanos) / 1000);
+            report.events++;
+        }
+
+        report.recordedDurationMs = scheduledMicros / 1000;
+        report.wallDurationMs = (System.nanoTime() - startNanos) / 1_000_000L;
+        return report;
+    }
+
+    private static void readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[SessionRecorder.MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < magic.length; i++) {
+            if (magic[i] != SessionRecorder.MAGIC[i]) {
+                throw new IOException("Not a session recording");
+            }
+        }
+        int version = in.readUnsignedByte();
+        if (version != SessionRecorder.VERSION) {
+            throw new IOException("Unsupported recording version " + version);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        long length = readVarint(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt record length " + length);
+        }
+        byte[] data = new byte[(int) length];
+        in.readFully(data);
+        return data;
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Latency and throughput of a replay run.
+     */
+    public static class Report {
+        public long events;
+        public long sppBytes;
+        public long locations;
+        public long responses;
+        public long recordedDurationMs;
+        public long wallDurationMs;
+        /** Time the sink took to process each event. */
+        public final MetricsRegistry.Histogram processingMicros = new MetricsRegistry.Histogram();
+        /** How late each event was dispatched relative to its (scaled) recorded time. */
+        public final MetricsRegistry.Histogram lagMicros = new MetricsRegistry.Histogram();
+
+        public double getEventsPerSecond() {
+            return events * 1000.0 / Math.max(1, wallDurationMs);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "events=%d (spp=%d B, locations=%d, responses=%d), recorded=%d ms, wall=%d ms, " +
+                            "throughput=%.1f events/s, processingUs[%s], lagUs[%s]",
+                    events, sppBytes, locations, responses, recordedDurationMs, wallDurationMs,
+                    getEventsPerSecond(), processingMicros, lagMicros);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SppFrameReader: Newline-framed reader for the watch link with bounded memory.
+ *
+ * Replaces {@code BufferedReader.readLine()}, whose line buffer grows without limit when the
+ * watch (or a noisy link) never sends a newline. Bytes are read through one fixed buffer into
+ * one fixed frame buffer; nothing grows with the input.
+ *
+ * A frame is dropped, and the reader resynchronises at the next '\n', when it:
+ * - exceeds the maximum frame size,
+ * - contains control bytes (line noise, NULs from a half-reset UART), or
+ * - ends in an NMEA-style checksum {@code *HH} (XOR of all bytes before '*') that does not match.
+ * Frames without a checksum are accepted, so firmware that does not send one keeps working.
+ *
+ * Not thread-safe: one reader thread owns it.
+ */
+public class SppFrameReader {
+
+    private final InputStream in;
+    private final byte[] readBuffer;
+    private final byte[] frame;
+    private int readPos = 0;
+    private int readLimit = 0;
+    private int frameLength = 0;
+    private boolean discarding = false;   // Skipping the rest of a bad frame
+
+    private final MetricsRegistry.Counter oversize = MetricsRegistry.get().counter("spp.framesDropped.oversize");
+    private final MetricsRegistry.Counter garbage = MetricsRegistry.get().counter("spp.framesDropped.garbage");
+    private final MetricsRegistry.Counter badChecksum = MetricsRegistry.get().counter("spp.framesDropped.checksum");
+
+    /**
+     * @param bufferSize    Bytes requested from the stream per read.
+     * @param maxFrameBytes Longest accepted frame, excluding the line terminator.
+     */
+    public SppFrameReader(InputStream in, int bufferSize, int maxFrameBytes) {
+        this.in = in;
+        this.readBuffer = new byte[bufferSize];
+        this.frame = new byte[maxFrameBytes];
+    }
+
+    /**
+     * Blocks until the next valid frame arrives.
+     *
+     * @return The frame without terminator or checksum, or null at end of stream.
+     */
+    public String readFrame() throws IOException {
+        while (true) {
+            if (readPos == readLimit) {
+                readLimit = in.read(readBuffer, 0, readBuffer.length);
+                readPos = 0;
+                if (readLimit <= 0) {
+                    readLimit = 0;
+                    return null; // An unterminated tail at EOF is not a frame
+                }
+            }
+
+            byte b = readBuffer[readPos++];
+            if (b == '\n') {
+                boolean wasDiscarding = discarding;
+                discarding = false;
+                int length = frameLength;
+                frameLength = 0;
+                if (wasDiscarding || length == 0) {
+                    continue;
+                }
+                String result = complete(length);
+                if (result != null) {
+                    return result;
+                }
+            } else if (discarding || b == '\r') {
+                // Skip; '\r' from CRLF terminators is simply ignored
+            } else if ((b >= 0 && b < 0x20 && b != '\t') || b == 0x7F) {
+                garbage.inc();
+                discard();
+            } else if (frameLength == frame.length) {
+                oversize.inc();
+                discard();
+            } else {
+                frame[frameLength++] = b;
+            }
+        }
+    }
+
+    private void discard() {
+        discarding = true;
+        frameLength = 0;
+    }
+
+    /**
+     * Verifies and strips an optional checksum; returns null if the frame must be dropped.
+     */
+    private String complete(int length) {
+        if (length >= 3 && frame[length - 3] == '*') {
+            int hi = hex(frame[length - 2]);
+            int lo = hex(frame[length - 1]);
+            if (hi >= 0 && lo >= 0) {
+                length -= 3;
+                if (xor(frame, length) != ((hi << 4) | lo)) {
+                    badChecksum.inc();
+                    return null;
+                }
+            }
+        }
+        String text = new String(frame, 0, length, StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Appends the checksum trailer the reader verifies, e.g. for test streams or outbound frames.
+     */
+    public static String withChecksum(String frame) {
+        byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+        int sum = xor(bytes, bytes.length);
+        return frame + '*' + Character.toUpperCase(Character.forDigit(sum >> 4, 16))
+                + Character.toUpperCase(Character.forDigit(sum & 0xF, 16));
+    }
+
+    private static int xor(byte[] bytes, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum ^= bytes[i] & 0xFF;
+        }
+        return sum;
+    }
+
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        return -1;
+    }
+}
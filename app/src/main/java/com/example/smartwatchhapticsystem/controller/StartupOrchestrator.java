@@ -0,0 +1,90 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * StartupOrchestrator: Runs service start-up phases concurrently and records a timeline.
+ *
+ * Heavy initialisation (Volley queue + disk cache, Retrofit, location client) is moved off
+ * the main thread or deferred until the monitoring type actually needs it. Every phase and
+ * milestone (service created → config received → watch connected → first watch byte) is
+ * recorded relative to service creation so the start-up path can be measured and reduced.
+ */
+public class StartupOrchestrator {
+
+    private final long originNanos = System.nanoTime();
+    private final List<String> timeline = new ArrayList<>();
+    private final List<String> reachedMilestones = new ArrayList<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "startup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Runs a start-up phase on the background start-up thread and records its duration.
+     *
+     * @param phase Name shown in the timeline (e.g. "volley").
+     * @param task  The initialisation work.
+     * @return A future that completes when the phase has finished.
+     */
+    public Future<?> runAsync(String phase, Runnable task) {
+        return executor.submit(() -> runPhase(phase, task));
+    }
+
+    /**
+     * Runs a start-up phase on the calling thread and records its duration.
+     */
+    public void runPhase(String phase, Runnable task) {
+        long start = elapsedMs();
+        try {
+            task.run();
+        } finally {
+            record(phase + " [" + Thread.currentThread().getName() + "] " + start + "→" + elapsedMs() + " ms");
+        }
+    }
+
+    /**
+     * Records a milestone once; later calls with the same name are ignored.
+     *
+     * @return true if this was the first time the milestone was reached.
+     */
+    public synchronized boolean mark(String milestone) {
+        if (reachedMilestones.contains(milestone)) {
+            return false;
+        }
+        reachedMilestones.add(milestone);
+        record(milestone + " @ " + elapsedMs() + " ms");
+        return true;
+    }
+
+    /**
+     * @return Milliseconds since the orchestrator (i.e. the service) was created.
+     */
+    public long elapsedMs() {
+        return (System.nanoTime() - originNanos) / 1_000_000L;
+    }
+
+    /**
+     * @return The recorded phases and milestones, one per line, in completion order.
+     */
+    public synchronized String getTimeline() {
+        StringBuilder sb = new StringBuilder();
+        for (String entry : timeline) {
+            sb.append(entry).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized void record(String entry) {
+        timeline.add(entry);
+    }
+}
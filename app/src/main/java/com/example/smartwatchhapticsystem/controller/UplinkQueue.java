@@ -0,0 +1,346 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * UplinkQueue: Bounded buffer between the watch reader and NetworkController.
+ *
+ * When Node-RED is slow the queue never grows past its capacity. What happens to the
+ * overflow is decided by the selected {@link OverflowPolicy}, so the haptic path keeps
+ * working on fresh samples instead of an ever-growing backlog.
+ *
+ * An entry may carry a whole series in {@link #SAMPLES_FIELD} (a batched frame from the watch).
+ * When such an entry is superseded by a newer one for the same key, or a failed one meets a
+ * newer one on requeue, the older series is merged into the newer entry instead of dropped,
+ * up to {@link #MAX_MERGED_SAMPLES}.
+ */
+public class UplinkQueue {
+
+    /** Sample series of a batched entry: "&lt;sampleTime&gt;=&lt;value&gt;;..." oldest first. */
+    public static final String SAMPLES_FIELD = "Samples";
+    private static final int MAX_MERGED_SAMPLES = 120;  // Two minutes at 1 Hz; older samples are dropped
+
+    /**
+     * What to do when a new sample arrives and the queue is full.
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST,          // Evict the oldest queued sample
+        KEEP_LATEST_PER_KEY,  // A newer sample replaces any queued sample with the same key
+        DOWNSAMPLE,           // Thin the backlog by dropping every other queued sample
+        AGGREGATE             // Collapse queued samples per key into one summary sample
+    }
+
+    /**
+     * A queued uplink payload together with its routing key and enqueue time.
+     */
+    public static class Entry {
+        private final String key;
+        private final Map<String, String> payload;
+        private final long enqueuedAtMs;
+
+        Entry(String key, Map<String, String> payload, long enqueuedAtMs) {
+            this.key = key;
+            this.payload = payload;
+            this.enqueuedAtMs = enqueuedAtMs;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Map<String, String> getPayload() {
+            return payload;
+        }
+
+        public long getEnqueuedAtMs() {
+            return enqueuedAtMs;
+        }
+    }
+
+    private final int capacity;
+    private final String valueField;
+    private final ArrayDeque<Entry> entries;
+    private OverflowPolicy policy;
+
+    // Statistics
+    private long offered = 0;
+    private long dropped = 0;
+    private long dequeued = 0;
+    private long totalTimeInQueueMs = 0;
+    private long maxTimeInQueueMs = 0;
+
+    /**
+     * @param capacity   Maximum number of queued samples.
+     * @param policy     Overflow policy applied when the queue is full.
+     * @param valueField Numeric payload field used by {@link OverflowPolicy#AGGREGATE} (e.g. "Value").
+     */
+    public UplinkQueue(int capacity, OverflowPolicy policy, String valueField) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.valueField = valueField;
+        this.entries = new ArrayDeque<>(capacity);
+    }
+
+    public synchronized void setPolicy(OverflowPolicy policy) {
+        this.policy = policy;
+    }
+
+    public synchronized OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Adds a sample to the queue, applying the overflow policy if needed.
+     *
+     * @param key     Routing key (e.g. user + watch) used for coalescing and aggregation.
+     * @param payload The sample to send upstream.
+     */
+    public synchronized void offer(String key, Map<String, String> payload) {
+        offered++;
+        long now = nowMs();
+
+        // Step 1: Keep-latest replaces a queued sample with the same key (a batch takes its samples along)
+        if (policy == OverflowPolicy.KEEP_LATEST_PER_KEY) {
+            Entry older = removeByKey(key);
+            if (older != null && !mergeSamples(older.payload, payload)) {
+                dropped++;
+            }
+        }
+
+        // Step 2: Make room if the queue is full
+        if (entries.size() >= capacity) {
+            makeRoom();
+        }
+
+        entries.addLast(new Entry(key, payload, now));
+    }
+
+    /**
+     * Puts back a sample whose upload failed, unless a newer sample for the same key
+     * is already waiting (in which case the failed one is stale and dropped).
+     *
+     * @return true if the entry was requeued.
+     */
+    public synchronized boolean requeue(Entry entry) {
+        for (Entry queued : entries) {
+            if (queued.key.equals(entry.key)) {
+                if (!mergeSamples(entry.payload, queued.payload)) {
+                    dropped++;
+                }
+                return false;
+            }
+        }
+        if (entries.size() >= capacity) {
+            dropped++;
+            return false;
+        }
+        // Keep the original enqueue time so time-in-queue includes the failed attempt
+        entries.addFirst(entry);
+        return true;
+    }
+
+    /**
+     * Removes and returns the oldest queued sample, or null if the queue is empty.
+     */
+    public synchronized Entry poll() {
+        Entry entry = entries.pollFirst();
+        if (entry != null) {
+            long waited = nowMs() - entry.enqueuedAtMs;
+            dequeued++;
+            totalTimeInQueueMs += waited;
+            maxTimeInQueueMs = Math.max(maxTimeInQueueMs, waited);
+        }
+        return entry;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), capacity, offered, dropped, dequeued,
+                dequeued == 0 ? 0 : totalTimeInQueueMs / dequeued, maxTimeInQueueMs, policy);
+    }
+
+    /**
+     * Frees at least one slot according to the active policy.
+     */
+    private void makeRoom() {
+        switch (policy) {
+            case DOWNSAMPLE:
+                // Drop every other sample, keeping the newest one of each pair
+                Iterator<Entry> it = entries.iterator();
+                boolean drop = true;
+                while (it.hasNext()) {
+                    it.next();
+                    if (drop) {
+                        it.remove();
+                        dropped++;
+                    }
+                    drop = !drop;
+                }
+                break;
+
+            case AGGREGATE:
+                aggregateByKey();
+                if (entries.size() >= capacity) {
+                    // Every key is distinct, nothing to merge
+                    entries.pollFirst();
+                    dropped++;
+                }
+                break;
+
+            case DROP_OLDEST:
+            case KEEP_LATEST_PER_KEY:
+            default:
+                entries.pollFirst();
+                dropped++;
+                break;
+        }
+    }
+
+    /**
+     * Replaces all queued samples of each key with a single summary sample carrying
+     * the mean value plus Min, Max and SampleCount fields.
+     */
+    private void aggregateByKey() {
+        Map<String, Entry> firstByKey = new LinkedHashMap<>();
+        Map<String, long[]> acc = new HashMap<>(); // sum, count, min, max
+
+        for (Entry e : entries) {
+            if (!firstByKey.containsKey(e.key)) {
+                firstByKey.put(e.key, e);
+            }
+            long[] a = acc.get(e.key);
+            if (a == null) {
+                a = new long[]{0, 0, Long.MAX_VALUE, Long.MIN_VALUE};
+                acc.put(e.key, a);
+            }
+            int weight = parseInt(e.payload.get("SampleCount"), 1);
+            int value = parseInt(e.payload.get(valueField), Integer.MIN_VALUE);
+            if (value == Integer.MIN_VALUE) {
+                continue;
+            }
+            a[0] += (long) value * weight;
+            a[1] += weight;
+            a[2] = Math.min(a[2], parseInt(e.payload.get("Min"), value));
+            a[3] = Math.max(a[3], parseInt(e.payload.get("Max"), value));
+        }
+
+        int before = entries.size();
+        entries.clear();
+        for (Map.Entry<String, Entry> first : firstByKey.entrySet()) {
+            long[] a = acc.get(first.getKey());
+            Map<String, String> summary = new HashMap<>(first.getValue().payload);
+            if (a[1] > 0) {
+                summary.put(valueField, String.valueOf(Math.round((double) a[0] / a[1])));
+                summary.put("Min", String.valueOf(a[2]));
+                summary.put("Max", String.valueOf(a[3]));
+                summary.put("SampleCount", String.valueOf(a[1]));
+            }
+            entries.addLast(new Entry(first.getKey(), summary, first.getValue().enqueuedAtMs));
+        }
+        dropped += before - entries.size();
+    }
+
+    private Entry removeByKey(String key) {
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.key.equals(key)) {
+                it.remove();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Prepends the older entry's sample series to the newer one's, keeping the newest
+     * {@link #MAX_MERGED_SAMPLES}.
+     *
+     * @return true if both were series (nothing lost unless over the cap), false if the older
+     *         entry was a single sample and is simply superseded.
+     */
+    static boolean mergeSamples(Map<String, String> older, Map<String, String> newer) {
+        String olderSamples = older.get(SAMPLES_FIELD);
+        String newerSamples = newer.get(SAMPLES_FIELD);
+        if (olderSamples == null || newerSamples == null) {
+            return false;
+        }
+        String merged = olderSamples.isEmpty() ? newerSamples : olderSamples + ";" + newerSamples;
+        int count = 1;
+        for (int i = merged.indexOf(';'); i >= 0; i = merged.indexOf(';', i + 1)) {
+            count++;
+        }
+        int start = 0;
+        for (; count > MAX_MERGED_SAMPLES; count--) {
+            start = merged.indexOf(';', start) + 1;
+        }
+        newer.put(SAMPLES_FIELD, merged.substring(start));
+        return true;
+    }
+
+    private static int parseInt(String s, int fallback) {
+        if (s == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    /**
+     * Immutable snapshot of the queue counters.
+     */
+    public static class Stats {
+        public final int depth;
+        public final int capacity;
+        public final long offered;
+        public final long dropped;
+        public final long dequeued;
+        public final long avgTimeInQueueMs;
+        public final long maxTimeInQueueMs;
+        public final OverflowPolicy policy;
+
+        Stats(int depth, int capacity, long offered, long dropped, long dequeued,
+              long avgTimeInQueueMs, long maxTimeInQueueMs, OverflowPolicy policy) {
+            this.depth = depth;
+            this.capacity = capacity;
+            this.offered = offered;
+            this.dropped = dropped;
+            this.dequeued = dequeued;
+            this.avgTimeInQueueMs = avgTimeInQueueMs;
+            this.maxTimeInQueueMs = maxTimeInQueueMs;
+            this.policy = policy;
+        }
+
+        @Override
+        public String toString() {
+            return "depth=" + depth + "/" + capacity +
+                    ", offered=" + offered +
+                    ", dropped=" + dropped +
+                    ", sent=" + dequeued +
+                    ", avgWaitMs=" + avgTimeInQueueMs +
+                    ", maxWaitMs=" + maxTimeInQueueMs +
+                    ", policy=" + policy;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UplinkScheduler: Multi-lane scheduler in front of the HTTP client.
+ *
+ * Each lane owns a bounded {@link UplinkQueue} (with its own overflow policy), a concurrency
+ * limit and latency metrics. Lanes come in two classes:
+ * <ul>
+ *   <li>Strict lanes (actuation-bearing requests, e.g. heart rate and sun/moon data) are always
+ *       served first, in registration order.</li>
+ *   <li>Bulk lanes (history export, outbox replay, telemetry) share what is left using deficit
+ *       round-robin, so each gets throughput proportional to its weight.</li>
+ * </ul>
+ * Bulk lanes together never use more than {@code totalInFlight - reservedForStrict} slots, so an
+ * actuation request never waits behind a full pipe of bulk uploads.
+ *
+ * All methods are thread-safe; {@link Dispatcher#dispatch} is called without reentrancy.
+ */
+public class UplinkScheduler {
+
+    /**
+     * Starts the actual request for an entry. Must eventually call {@link Completion#done()}
+     * (success or failure) so the lane's slot is released.
+     */
+    public interface Dispatcher {
+        void dispatch(UplinkQueue.Entry entry, Completion completion);
+    }
+
+    /**
+     * Releases an in-flight slot and records the lane's service time. Idempotent.
+     */
+    public final class Completion {
+        private final Lane lane;
+        private final long dispatchedAtMs;
+        private boolean done = false;
+
+        Completion(Lane lane, long dispatchedAtMs) {
+            this.lane = lane;
+            this.dispatchedAtMs = dispatchedAtMs;
+        }
+
+        public void done() {
+            synchronized (UplinkScheduler.this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                lane.inFlight--;
+                lane.serviceMs.record(nowMs() - dispatchedAtMs);
+            }
+            drain();
+        }
+
+        /**
+         * @return The lane this request was dispatched from.
+         */
+        public String getLane() {
+            return lane.name;
+        }
+    }
+
+    /**
+     * One traffic class: queue, limits and metrics.
+     */
+    public static class Lane {
+        private final String name;
+        private final boolean strict;
+        private final int weight;
+        private final int maxInFlight;
+        private final UplinkQueue queue;
+        private final Dispatcher dispatcher;
+        private final MetricsRegistry.Histogram waitMs;
+        private final MetricsRegistry.Histogram serviceMs;
+        private int inFlight = 0;
+        private int deficit = 0;
+        private long dispatched = 0;
+
+        Lane(String name, boolean strict, int weight, int maxInFlight, UplinkQueue queue, Dispatcher dispatcher) {
+            this.name = name;
+            this.strict = strict;
+            this.weight = weight;
+            this.maxInFlight = maxInFlight;
+            this.queue = queue;
+            this.dispatcher = dispatcher;
+            this.waitMs = MetricsRegistry.get().histogram("uplink." + name + ".waitMs");
+            this.serviceMs = MetricsRegistry.get().histogram("uplink." + name + ".serviceMs");
+            MetricsRegistry.get().gauge("uplink." + name + ".depth", () -> queue.getStats().depth);
+            MetricsRegistry.get().gauge("uplink." + name + ".dropped", () -> queue.getStats().dropped);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public UplinkQueue getQueue() {
+            return queue;
+        }
+
+        boolean canSend() {
+            return inFlight < maxInFlight && !queue.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return name + (strict ? "[strict]" : "[w=" + weight + "]") +
+                    " inFlight=" + inFlight + "/" + maxInFlight +
+                    ", sent=" + dispatched +
+                    ", waitP99=" + waitMs.getPercentile(99) + "ms" +
+                    ", serviceP99=" + serviceMs.getPercentile(99) + "ms" +
+                    ", " + queue.getStats();
+        }
+    }
+
+    private final int totalInFlight;
+    private final int reservedForStrict;
+    private final List<Lane> strictLanes = new ArrayList<>();
+    private final List<Lane> bulkLanes = new ArrayList<>();
+    private int bulkCursor = 0;     // DRR position in bulkLanes
+    private boolean draining = false;
+    private boolean drainAgain = false;
+    private boolean shutDown = false;
+
+    /**
+     * @param totalInFlight     Requests allowed in flight across all lanes (e.g. Volley's thread count).
+     * @param reservedForStrict Slots bulk lanes may never occupy.
+     */
+    public UplinkScheduler(int totalInFlight, int reservedForStrict) {
+        if (reservedForStrict < 0 || reservedForStrict >= totalInFlight) {
+            throw new IllegalArgumentException("reservedForStrict must be in [0, totalInFlight)");
+        }
+        this.totalInFlight = totalInFlight;
+        this.reservedForStrict = reservedForStrict;
+    }
+
+    /**
+     * Registers a strict-priority lane. Lanes registered first are served first.
+     */
+    public synchronized Lane addStrictLane(String name, int maxInFlight, UplinkQueue queue, Dispatcher dispatcher) {
+        Lane lane = new Lane(name, true, 0, maxInFlight, queue, dispatcher);
+        strictLanes.add(lane);
+        return lane;
+    }
+
+    /**
+     * Registers a weighted-fair bulk lane.
+     *
+     * @param weight Relative share of the bulk capacity (requests per round).
+     */
+    public synchronized Lane addBulkLane(String name, int weight, int maxInFlight, UplinkQueue queue, Dispatcher dispatcher) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be >= 1");
+        }
+        Lane lane = new Lane(name, false, weight, maxInFlight, queue, dispatcher);
+        bulkLanes.add(lane);
+        return lane;
+    }
+
+    /**
+     * Queues a payload on a lane and dispatches whatever the limits allow.
+     */
+    public void submit(Lane lane, String key, Map<String, String> payload) {
+        if (isShutDown()) {
+            return;
+        }
+        lane.queue.offer(key, payload);
+        drain();
+    }
+
+    /**
+     * Puts back a failed entry (see {@link UplinkQueue#requeue}) and dispatches.
+     *
+     * @return true if the entry was requeued.
+     */
+    public boolean requeue(Lane lane, UplinkQueue.Entry entry) {
+        if (isShutDown()) {
+            return false;
+        }
+        boolean requeued = lane.queue.requeue(entry);
+        drain();
+        return requeued;
+    }
+
+    /**
+     * Dispatches queued entries until limits are reached or every lane is empty.
+     */
+    public void drain() {
+        synchronized (this) {
+            if (shutDown) {
+                return;
+            }
+            if (draining) {
+                drainAgain = true; // A completion arrived from inside dispatch(); loop once more
+                return;
+            }
+            draining = true;
+        }
+        try {
+            do {
+                synchronized (this) {
+                    drainAgain = false;
+                }
+                dispatchStrict();
+                dispatchBulk();
+            } while (isDrainAgain());
+        } finally {
+            synchronized (this) {
+                draining = false;
+            }
+        }
+    }
+
+    /**
+     * Stops dispatching for good and empties every lane. Later submits and requeues are
+     * ignored; requests already in flight still complete.
+     */
+    public void shutdown() {
+        List<Lane> lanes = new ArrayList<>();
+        synchronized (this) {
+            shutDown = true;
+            lanes.addAll(strictLanes);
+            lanes.addAll(bulkLanes);
+        }
+        for (Lane lane : lanes) {
+            while (lane.queue.poll() != null) {
+                // Discard
+            }
+        }
+    }
+
+    public synchronized boolean isShutDown() {
+        return shutDown;
+    }
+
+    private synchronized boolean isDrainAgain() {
+        return drainAgain;
+    }
+
+    /**
+     * Step 1: Strict lanes first, in order, up to the total limit.
+     */
+    private void dispatchStrict() {
+        while (true) {
+            Lane lane;
+            UplinkQueue.Entry entry;
+            synchronized (this) {
+                lane = null;
+                if (inFlightTotal() < totalInFlight) {
+                    for (Lane l : strictLanes) {
+                        if (l.canSend()) {
+                            lane = l;
+                            break;
+                        }
+                    }
+                }
+                if (lane == null) {
+                    return;
+                }
+                entry = take(lane);
+            }
+            start(lane, entry);
+        }
+    }
+
+    /**
+     * Step 2: Deficit round-robin over bulk lanes within the non-reserved slots.
+     * Each visit tops a lane's deficit up by its weight; each request costs one unit.
+     */
+    private void dispatchBulk() {
+        while (true) {
+            Lane lane = null;
+            UplinkQueue.Entry entry = null;
+            synchronized (this) {
+                if (bulkLanes.isEmpty() || inFlightTotal() >= totalInFlight - reservedForStrict) {
+                    return;
+                }
+                // At most two passes: one may only top up deficits
+                for (int visited = 0; visited < bulkLanes.size() * 2 && lane == null; visited++) {
+                    Lane candidate = bulkLanes.get(bulkCursor);
+                    if (!candidate.canSend()) {
+                        if (candidate.queue.isEmpty()) {
+                            candidate.deficit = 0; // Idle lanes do not bank credit
+                        }
+                        advance();
+                        continue;
+                    }
+                    if (candidate.deficit <= 0) {
+                        candidate.deficit += candidate.weight;
+                    }
+                    candidate.deficit--;
+                    lane = candidate;
+                    if (candidate.deficit <= 0) {
+                        advance();
+                    }
+                }
+                if (lane == null) {
+                    return;
+                }
+                entry = take(lane);
+            }
+            start(lane, entry);
+        }
+    }
+
+    private void advance() {
+        bulkCursor = (bulkCursor + 1) % bulkLanes.size();
+    }
+
+    private UplinkQueue.Entry take(Lane lane) {
+        UplinkQueue.Entry entry = lane.queue.poll();
+        lane.inFlight++;
+        lane.dispatched++;
+        lane.waitMs.record(nowMs() - entry.getEnqueuedAtMs());
+        return entry;
+    }
+
+    private void start(Lane lane, UplinkQueue.Entry entry) {
+        lane.dispatcher.dispatch(entry, new Completion(lane, nowMs()));
+    }
+
+    private int inFlightTotal() {
+        int total = 0;
+        for (Lane l : strictLanes) {
+            total += l.inFlight;
+        }
+        for (Lane l : bulkLanes) {
+            total += l.inFlight;
+        }
+        return total;
+    }
+
+    /**
+     * @return One line per lane with limits, counters and latency percentiles.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Lane l : strictLanes) {
+            sb.append(l).append('\n');
+        }
+        for (Lane l : bulkLanes) {
+            sb.append(l).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1_000_000L;
+    }
+}
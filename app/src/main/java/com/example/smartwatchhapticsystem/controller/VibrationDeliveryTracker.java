@@ -0,0 +1,370 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * VibrationDeliveryTracker: Acknowledged vibration commands with credit-based flow control.
+ *
+ * Protocol (negotiated: the phone offers "Acks:1", a watch that supports it answers
+ * "AckWindow:&lt;credits&gt;"; older watches keep getting plain fire-and-forget "Vibrate:"):
+ * <pre>
+ *   phone → watch   VibrateA:&lt;id&gt;,&lt;intensity&gt;,&lt;pulses&gt;,&lt;duration&gt;,&lt;interval&gt;[,&lt;playAt&gt;]
+ *   watch → phone   Ack:&lt;id&gt;,&lt;status&gt;,&lt;playStartWatchMs&gt;,&lt;credits&gt;[,&lt;highestId&gt;]
+ * </pre>
+ * Status is P (played, with its start time), S (skipped: superseded by a newer command on
+ * the watch) or F (receive buffer full, not stored). Credits are the free slots in the watch's
+ * command buffer when it sent the ack, and highestId the newest command id it had received by
+ * then (the acked id if omitted). Commands with a larger id were still in transit and will
+ * use some of those slots, so they stay counted against the credits; an ack whose highestId
+ * is older than one already processed carries stale credits and only reports its command.
+ * The phone therefore never has more commands in flight than the watch has room for, and the
+ * watch buffer cannot overflow. Commands that find no credit wait in a small phone-side queue.
+ *
+ * Every command has a deadline (its scheduled start plus a small tolerance, or a maximum age
+ * when it plays on receipt). A command without an ack is resent after a timeout derived from
+ * the link RTT, only while the resend can still arrive before the deadline; the watch
+ * de-duplicates by id. Past its deadline a command is dropped, queued or not: a late haptic cue
+ * is worse than none.
+ *
+ * Visible as metrics: {@code vib.delivered}, {@code vib.retransmits}, {@code vib.expired},
+ * {@code vib.skipped}, {@code vib.ackRttMs}, {@code vib.playLatencyMs} (submit to the watch's
+ * actual play start, on the phone clock) and {@code vib.outstanding}.
+ */
+public class VibrationDeliveryTracker {
+
+    public static final long DEFAULT_MAX_AGE_MS = 1000;   // Deadline for play-on-receipt commands
+    public static final long LATE_TOLERANCE_MS = 100;     // A scheduled cue may start this late
+    private static final long MIN_RTO_MS = 80;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_WAITING = 16;
+    private static final String OUTSTANDING_GAUGE = "vib.outstanding";
+
+    /**
+     * Writes one command frame to the link.
+     */
+    public interface Transport {
+        /** @return false if the frame could not be queued (link down). */
+        boolean send(String mode, String frame);
+    }
+
+    /** What {@link #submit} did with a command. */
+    public enum Result {
+        SENT,       // On the link, awaiting its ack
+        QUEUED,     // Waiting for credit
+        REJECTED    // Phone-side queue full, deadline already passed, or link down
+    }
+
+    private static final class Command {
+        final int id;
+        final String mode;
+        final String frame;
+        final long submittedAtMs;
+        final long deadlineMs;
+        long sentAtMs;
+        long retransmitAtMs;
+        int attempts;
+        boolean notStored;   // Watch answered F: a resend needs a free slot again
+        boolean retaken;     // Resent after F: in transit again although its id is not new
+
+        Command(int id, String mode, String frame, long submittedAtMs, long deadlineMs) {
+            this.id = id;
+            this.mode = mode;
+            this.frame = frame;
+            this.submittedAtMs = submittedAtMs;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    private final Transport transport;
+    private final LongSupplier linkRttMs;
+    private final ClockSync clockSync;
+    private final Map<Integer, Command> outstanding = new LinkedHashMap<>();
+    private final ArrayDeque<Command> waiting = new ArrayDeque<>();
+    private final LongSupplier outstandingGauge = this::getOutstanding;
+    private boolean enabled = false;
+    private int nextId = 1;
+    private int credits;              // Free watch slots at the last ack
+    private int sentSinceCredits;     // Commands on the link the watch had not received at that ack
+    private int creditsAsOfId;        // Newest command id the watch had received at that ack
+    private long deliveredCount, skippedCount, expiredCount, retransmitCount;
+
+    private final MetricsRegistry.Counter delivered = MetricsRegistry.get().counter("vib.delivered");
+    private final MetricsRegistry.Counter retransmits = MetricsRegistry.get().counter("vib.retransmits");
+    private final MetricsRegistry.Counter expired = MetricsRegistry.get().counter("vib.expired");
+    private final MetricsRegistry.Counter skipped = MetricsRegistry.get().counter("vib.skipped");
+    private final MetricsRegistry.Histogram ackRttMs = MetricsRegistry.get().histogram("vib.ackRttMs");
+    private final MetricsRegistry.Histogram playLatencyMs = MetricsRegistry.get().histogram("vib.playLatencyMs");
+
+    /**
+     * @param linkRttMs Smoothed SPP round trip (from the ping/pong heartbeat).
+     * @param clockSync Converts the watch's play start time to the phone clock.
+     */
+    public VibrationDeliveryTracker(Transport transport, LongSupplier linkRttMs, ClockSync clockSync) {
+        this.transport = transport;
+        this.linkRttMs = linkRttMs;
+        this.clockSync = clockSync;
+        MetricsRegistry.get().gauge(OUTSTANDING_GAUGE, outstandingGauge);
+    }
+
+    /**
+     * Unregisters the outstanding-commands gauge; call when the owning connection manager is
+     * closed for good.
+     */
+    public void close() {
+        MetricsRegistry.get().removeGauge(OUTSTANDING_GAUGE, outstandingGauge);
+    }
+
+    /**
+     * The watch accepted the protocol ("AckWindow:&lt;credits&gt;").
+     */
+    public synchronized void enable(int initialCredits) {
+        reset();
+        enabled = true;
+        credits = Math.max(1, initialCredits);
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Link closed: forget every command (the watch forgets them too) and fall back to plain commands.
+     */
+    public synchronized void reset() {
+        enabled = false;
+        outstanding.clear();
+        waiting.clear();
+        sentSinceCredits = 0;
+        creditsAsOfId = 0;
+    }
+
+    /**
+     * Sends a command now if credit allows, otherwise queues it until its deadline.
+     *
+     * @param body       Command fields after the id: "intensity,pulses,duration,interval[,playAt]".
+     * @param deadlineMs Latest useful arrival on the {@link ClockSync#nowMs()} clock.
+     */
+    public Result submit(String mode, String body, long deadlineMs, long nowMs) {
+        Command command;
+        synchronized (this) {
+            if (nowMs >= deadlineMs) {
+                onExpired();
+                return Result.REJECTED;
+            }
+            int id = nextId++;
+            command = new Command(id, mode, "VibrateA:" + id + "," + body, nowMs, deadlineMs);
+            if (!hasCredit()) {
+                if (waiting.size() >= MAX_WAITING) {
+                    onExpired();
+                    return Result.REJECTED;
+                }
+                waiting.addLast(command);
+                return Result.QUEUED;
+            }
+            take(command, nowMs);
+        }
+        if (!transport.send(command.mode, command.frame)) {
+            synchronized (this) {
+                outstanding.remove(command.id);
+                sentSinceCredits = Math.max(0, sentSinceCredits - 1);
+            }
+            return Result.REJECTED;
+        }
+        return Result.SENT;
+    }
+
+    /**
+     * Handles "Ack:&lt;id&gt;,&lt;status&gt;,&lt;playStartWatchMs&gt;,&lt;credits&gt;[,&lt;highestId&gt;]".
+     *
+     * @return false if the frame is malformed.
+     */
+    public boolean onAck(String payload, long nowMs) {
+        String[] fields = payload.substring(payload.indexOf(':') + 1).split(",");
+        if (fields.length < 4) {
+            return false;
+        }
+        int id;
+        char status;
+        long playStartWatchMs;
+        int newCredits;
+        int highestId;
+        try {
+            id = Integer.parseInt(fields[0].trim());
+            status = fields[1].trim().isEmpty() ? '?' : fields[1].trim().charAt(0);
+            playStartWatchMs = Long.parseLong(fields[2].trim());
+            newCredits = Integer.parseInt(fields[3].trim());
+            highestId = fields.length > 4 ? Integer.parseInt(fields[4].trim()) : id;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        synchronized (this) {
+            Command command = outstanding.get(id);
+            // An ack for a resent or expired command carries no result, but its credits still count
+            switch (command == null ? '-' : status) {
+                case '-':
+                    break;
+                case 'P':
+                    ackRttMs.record(nowMs - command.sentAtMs);
+                    outstanding.remove(id);
+                    deliveredCount++;
+                    delivered.inc();
+                    long playStartMs = clockSync.isSynced() ? clockSync.toPhoneTime(playStartWatchMs) : nowMs;
+                    playLatencyMs.record(Math.max(0, playStartMs - command.submittedAtMs));
+                    break;
+                case 'S':
+                    ackRttMs.record(nowMs - command.sentAtMs);
+                    outstanding.remove(id);
+                    skippedCount++;
+                    skipped.inc();
+                    break;
+                default:
+                    // 'F' (buffer full) or unknown: not stored; resend once credit returns, if still in time
+                    ackRttMs.record(nowMs - command.sentAtMs);
+                    command.notStored = true;
+                    command.retransmitAtMs = nowMs;
+                    break;
+            }
+            if (command != null) {
+                command.retaken = false;
+            }
+            // Credits from an older view of the watch buffer (or for an id never sent) are ignored
+            if (highestId >= creditsAsOfId && highestId < nextId) {
+                credits = Math.max(0, newCredits);
+                creditsAsOfId = highestId;
+                sentSinceCredits = inTransit(highestId);
+            }
+        }
+        tick(nowMs);
+        return true;
+    }
+
+    /**
+     * Resends, expires and releases queued commands.
+     *
+     * @return Milliseconds until the next retransmission or deadline, or -1 if nothing is pending.
+     */
+    public long tick(long nowMs) {
+        ArrayDeque<Command> toSend = new ArrayDeque<>();
+        long nextMs;
+        synchronized (this) {
+            long rtt = Math.max(0, linkRttMs.getAsLong());
+            // Step 1: Resend what was not acknowledged, while it can still arrive in time
+            Iterator<Command> it = outstanding.values().iterator();
+            while (it.hasNext()) {
+                Command command = it.next();
+                if (nowMs < command.retransmitAtMs && !(command.notStored && hasCredit())) {
+                    continue; // A refused command goes out as soon as credit returns
+                }
+                if (command.attempts >= MAX_ATTEMPTS || nowMs + rtt / 2 >= command.deadlineMs) {
+                    it.remove();
+                    onExpired();
+                } else if (!command.notStored || hasCredit()) {
+                    // A resend of a possibly stored command reuses its slot (same id); only a
+                    // command the watch refused takes new credit
+                    if (command.notStored) {
+                        command.notStored = false;
+                        command.retaken = true;
+                        sentSinceCredits++;
+                    }
+                    retransmitCount++;
+                    retransmits.inc();
+                    send(command, nowMs, rtt);
+                    toSend.add(command);
+                } else {
+                    command.retransmitAtMs = nowMs + Math.max(MIN_RTO_MS, 2 * rtt); // The next ack brings credit
+                }
+            }
+            // Step 2: Drop queued commands that can no longer make it, then send what credit allows
+            Iterator<Command> queued = waiting.iterator();
+            while (queued.hasNext()) {
+                Command command = queued.next();
+                if (nowMs + rtt / 2 >= command.deadlineMs) {
+                    queued.remove();
+                    onExpired();
+                }
+            }
+            while (!waiting.isEmpty() && hasCredit()) {
+                Command command = waiting.pollFirst();
+                take(command, nowMs);
+                toSend.add(command);
+            }
+            nextMs = nextEventMs(nowMs);
+        }
+        for (Command command : toSend) {
+            transport.send(command.mode, command.frame);
+        }
+        return nextMs;
+    }
+
+    /**
+     * Credit check. With nothing unacknowledged one command may always go out, so a lost ack
+     * cannot stall the link.
+     */
+    private boolean hasCredit() {
+        return outstanding.isEmpty() || sentSinceCredits < credits;
+    }
+
+    /**
+     * @return Commands on the link that the watch had not received when it had seen
+     *         {@code highestId}: newer ids, and refused commands sent again.
+     */
+    private int inTransit(int highestId) {
+        int count = 0;
+        for (Command command : outstanding.values()) {
+            if (!command.notStored && (command.id > highestId || command.retaken)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void take(Command command, long nowMs) {
+        outstanding.put(command.id, command);
+        sentSinceCredits++;
+        send(command, nowMs, Math.max(0, linkRttMs.getAsLong()));
+    }
+
+    private void send(Command command, long nowMs, long rtt) {
+        command.attempts++;
+        command.sentAtMs = nowMs;
+        command.retransmitAtMs = nowMs + Math.max(MIN_RTO_MS, 2 * rtt);
+    }
+
+    private void onExpired() {
+        expiredCount++;
+        expired.inc();
+    }
+
+    private long nextEventMs(long nowMs) {
+        long next = Long.MAX_VALUE;
+        for (Command command : outstanding.values()) {
+            next = Math.min(next, Math.min(command.retransmitAtMs, command.deadlineMs));
+        }
+        for (Command command : waiting) {
+            next = Math.min(next, command.deadlineMs);
+        }
+        return next == Long.MAX_VALUE ? -1 : Math.max(1, next - nowMs);
+    }
+
+    public synchronized long getOutstanding() {
+        return outstanding.size() + waiting.size();
+    }
+
+    /**
+     * @return Delivery rate, losses and latencies in one line.
+     */
+    public synchronized String getReport() {
+        long ok = deliveredCount;
+        long lost = expiredCount;
+        return String.format(Locale.US, "acks=%s, delivered=%d skipped=%d expired=%d retransmits=%d (%.1f%% delivered), " +
+                        "credits=%d outstanding=%d waiting=%d, ackRtt %s, submit→play %s",
+                enabled ? "on" : "off", ok, skippedCount, lost, retransmitCount,
+                ok + lost > 0 ? 100.0 * ok / (ok + lost) : 100.0,
+                credits, outstanding.size(), waiting.size(), ackRttMs, playLatencyMs);
+    }
+}
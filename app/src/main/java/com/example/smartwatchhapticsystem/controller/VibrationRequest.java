@@ -0,0 +1,77 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
+
+import java.net.URI;
+
+/**
+ * VibrationRequest: Volley request that posts a pre-encoded JSON body and parses
+ * the vibration fields of the reply with {@link NodeRedCodec}, without JSONObject.
+ */
+public class VibrationRequest extends Request<VibrationCommand> {
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final byte[] body;
+    private final Response.Listener<VibrationCommand> listener;
+    private final SessionRecorder recorder;
+    private Priority priority = Priority.NORMAL;
+
+    /**
+     * @param recorder Optional; receives the raw response body when a session is being recorded.
+     */
+    public VibrationRequest(int method, String url, byte[] body, SessionRecorder recorder,
+                            Response.Listener<VibrationCommand> listener,
+                            Response.ErrorListener errorListener) {
+        super(method, url, errorListener);
+        this.body = body;
+        this.recorder = recorder;
+        this.listener = listener;
+        setShouldCache(false);
+    }
+
+    /**
+     * Volley serves higher priorities first among requests waiting for a network thread.
+     */
+    public VibrationRequest setPriority(Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String getBodyContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    protected Response<VibrationCommand> parseNetworkResponse(NetworkResponse response) {
+        // Runs on a Volley network thread, so the main thread only receives the parsed fields
+        if (recorder != null) {
+            recorder.recordResponse(URI.create(getUrl()).getPath(), response.data);
+        }
+        VibrationCommand command = new VibrationCommand();
+        if (!NodeRedCodec.decodeVibration(response.data, command)) {
+            return Response.error(new ParseError());
+        }
+        return Response.success(command, HttpHeaderParser.parseCacheHeaders(response));
+    }
+
+    @Override
+    protected void deliverResponse(VibrationCommand response) {
+        listener.onResponse(response);
+    }
+}
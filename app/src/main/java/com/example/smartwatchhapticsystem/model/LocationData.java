@@ -6,6 +6,10 @@ public class LocationData {
     private String userId;
     private String smartWatchId;
     private String androidId;
+    private long seq;     // Uplink sequence number, echoed for response correlation
+    private long sentAt;  // Send timestamp (epoch ms)
+    private String trajectory;  // Optional: encoded polyline of the batch this fix ends
+    private String fixTimes;    // Optional: encoded fix times (epoch seconds) of the trajectory
     public LocationData(double latitude, double longitude, String userId, String smartWatchId, String androidId) {
         this.lat = latitude;
         this.lon = longitude;
@@ -40,4 +44,33 @@ public class LocationData {
     public String getAndroidId() {
         return androidId;
     }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public long getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(long sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public String getTrajectory() {
+        return trajectory;
+    }
+
+    public String getFixTimes() {
+        return fixTimes;
+    }
+
+    public void setTrajectory(String trajectory, String fixTimes) {
+        this.trajectory = trajectory;
+        this.fixTimes = fixTimes;
+    }
 }
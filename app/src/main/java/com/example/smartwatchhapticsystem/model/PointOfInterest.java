@@ -0,0 +1,39 @@
+package com.example.smartwatchhapticsystem.model;
+
+/**
+ * A haptic guidance target: a named place the user can be steered toward.
+ */
+public class PointOfInterest {
+    private final String id;
+    private final String name;
+    private final double lat;
+    private final double lon;
+
+    public PointOfInterest(String id, String name, double lat, double lon) {
+        this.id = id;
+        this.name = name;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    @Override
+    public String toString() {
+        return id + " (" + name + ") " + lat + "," + lon;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.smartwatchhapticsystem.model;
+
+/**
+ * Vibration feedback parameters returned by Node-RED for a heart rate or location uplink.
+ */
+public class VibrationCommand {
+    private int intensity;
+    private int pulses;
+    private int duration;
+    private int interval;
+    private String message;
+
+    public int getIntensity() {
+        return intensity;
+    }
+
+    public void setIntensity(int intensity) {
+        this.intensity = intensity;
+    }
+
+    public int getPulses() {
+        return pulses;
+    }
+
+    public void setPulses(int pulses) {
+        this.pulses = pulses;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public void setInterval(int interval) {
+        this.interval = interval;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Resets all fields so the instance can be reused for the next response.
+     */
+    public void clear() {
+        intensity = 0;
+        pulses = 0;
+        duration = 0;
+        interval = 0;
+        message = null;
+    }
+
+    @Override
+    public String toString() {
+        return "Pulses=" + pulses + ", Intensity=" + intensity +
+                ", Duration=" + duration + ", Interval=" + interval;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.smartwatchhapticsystem.view;
 import android.Manifest;
 import android.annotation.SuppressLint;
+import android.app.AlarmManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
@@ -8,8 +9,10 @@ import android.app.Service;
 import android.bluetooth.BluetoothDevice;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.hardware.SensorManager;
 import android.location.Location;
 import android.os.Build;
+import android.os.Binder;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
@@ -21,14 +24,57 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import com.example.smartwatchhapticsystem.R;
 import com.example.smartwatchhapticsystem.controller.BluetoothConnectionManager;
+import com.example.smartwatchhapticsystem.controller.ChannelMux;
+import com.example.smartwatchhapticsystem.controller.AndroidConstraintSource;
+import com.example.smartwatchhapticsystem.controller.BulkUploadScheduler;
+import com.example.smartwatchhapticsystem.controller.CelestialDutyCycler;
+import com.example.smartwatchhapticsystem.controller.ClockSync;
+import com.example.smartwatchhapticsystem.controller.HeadingGuidanceLoop;
 import com.example.smartwatchhapticsystem.controller.LocationController;
+import com.example.smartwatchhapticsystem.controller.EnergyAccountant;
+import com.example.smartwatchhapticsystem.controller.MetricsRegistry;
+import com.example.smartwatchhapticsystem.controller.NodeRedEndpointPool;
 import com.example.smartwatchhapticsystem.controller.NetworkController;
+import com.example.smartwatchhapticsystem.controller.PacingScheduler;
+import com.example.smartwatchhapticsystem.controller.PipelineReplaySink;
+import com.example.smartwatchhapticsystem.controller.PoiGuide;
+import com.example.smartwatchhapticsystem.controller.PoiIndex;
+import com.example.smartwatchhapticsystem.controller.RingLog;
+import com.example.smartwatchhapticsystem.controller.SessionRecorder;
+import com.example.smartwatchhapticsystem.controller.SessionReplayer;
+import com.example.smartwatchhapticsystem.controller.StartupOrchestrator;
 import com.example.smartwatchhapticsystem.model.LocationData;
+import com.example.smartwatchhapticsystem.model.PointOfInterest;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
 import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.Priority;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 
 public class MonitoringService extends Service {
+    /** Boolean extra: capture SPP bytes, location fixes and Node-RED responses to a session file. */
+    public static final String EXTRA_RECORD_SESSION = "com.example.smartwatchhapticsystem.RECORD_SESSION";
+    /** Boolean extra: let the GNSS chip batch Sun/Moon fixes and upload each batch as one trajectory. */
+    public static final String EXTRA_BATCH_LOCATION = "com.example.smartwatchhapticsystem.BATCH_LOCATION";
+    private static final long LOCATION_INTERVAL_MS = 30000;
+    private static final long LOCATION_BATCH_DELAY_MS = 4 * 60 * 1000;  // Up to 8 fixes per wakeup
+    private boolean batchLocation = false;
+    // Sun/Moon modes: GPS and uploads only while the target is above the horizon
+    private static final long CELESTIAL_WAKEUP_WINDOW_MS = 2 * 60 * 1000;
+    private CelestialDutyCycler celestialCycler;
+    private final AlarmManager.OnAlarmListener celestialAlarm = () -> {
+        if (celestialCycler != null) {
+            celestialCycler.onWakeup(System.currentTimeMillis());
+        }
+    };
     private static final String CHANNEL_ID = "monitoring_service_channel";
     private final Handler retryHandler = new Handler(Looper.getMainLooper());
     private final int RETRY_INTERVAL_MS = 3000; // 3 seconds
@@ -39,20 +85,55 @@ public class MonitoringService extends Service {
     private LocationController locationController;
     private NetworkController networkController;
     private BluetoothConnectionManager bluetoothManager;
+    private StartupOrchestrator startupOrchestrator;
+    private final IBinder binder = new LocalBinder();
+    private SessionRecorder sessionRecorder;
+    private File sessionFile;
+    private volatile BulkUploadScheduler bulkUploads;  // Recordings wait here for Wi-Fi + charger
+    private volatile String lastReplayReport = "";
     private static final String TAG = "MainActivity";
     private String monitoringType = "";
     private String identifier = "Android-50"; // Example : Android-42
+    // PoiAzimuth mode: targets cached in this file, refreshed from Node-RED at start
+    private static final String POI_FILE = "poi.csv";
+    private final PoiGuide poiGuide = new PoiGuide();
+    private final VibrationCommand poiCommand = new VibrationCommand();
+    private HeadingGuidanceLoop headingLoop;  // Continuous PoiAzimuth feedback between fixes
+    // Pacing mode: rhythmic beats toward a target rate, planned ahead on the synced watch clock
+    private PacingScheduler pacingScheduler;
+    private PacingScheduler.Target pacingTarget = PacingScheduler.Target.HEART_RATE;
+    private double pacingTargetRate = 60;
+    // Energy report: own handler, so cancelling retries does not stop it
+    private static final long ENERGY_REPORT_INTERVAL_MS = 15 * 60 * 1000;
+    private final Handler energyReportHandler = new Handler(Looper.getMainLooper());
+    private final Runnable energyReport = new Runnable() {
+        @Override
+        public void run() {
+            Log.d("MonitoringService", getEnergyReport());
+            energyReportHandler.postDelayed(this, ENERGY_REPORT_INTERVAL_MS);
+        }
+    };
 
     @Override
     public void onCreate() {
         super.onCreate();
         Log.d("MonitoringService", "🚀 Service created");
+        startupOrchestrator = new StartupOrchestrator();
+        EnergyAccountant.get().installLooperLogging(Looper.getMainLooper());
+        energyReportHandler.postDelayed(energyReport, ENERGY_REPORT_INTERVAL_MS);
 
+        // Step 1: Cheap constructors only; heavy clients are built lazily or in the background
         bluetoothManager = new BluetoothConnectionManager(this, identifier);
+        bluetoothManager.setStartupOrchestrator(startupOrchestrator);
         networkController = new NetworkController(this, bluetoothManager);
-        locationController = new LocationController(this);
+        // locationController is created on demand, only location-based modes use it
+
+        // Step 2: Build the Volley queue + disk cache off the main thread while the notification is posted
+        startupOrchestrator.runAsync("volley", networkController::warmUp);
+        startupOrchestrator.runAsync("bulkUploads", this::startBulkUploads);
+        networkController.startHealthChecks();
+        startupOrchestrator.runPhase("foregroundNotification", this::startForegroundWithNotification);
 
-        startForegroundWithNotification();
         getMonitoringTypeFromNodeRED();  // Starts the core monitoring logic
 
     }
@@ -102,25 +183,35 @@ public class MonitoringService extends Service {
                 public void onReceived(String type) {
                     monitoringType = type;
                     currentRetries = 0;  // Reset retry counter on success
+                    startupOrchestrator.mark("configReceived");
 
                     try {
                         Log.d(TAG, "📡 Received monitoringType: " + monitoringType);
 
-                        // Step 3: Handle SunAzimuth monitoring
-                        if ("SunAzimuth".equals(monitoringType) || "MoonAzimuth".equals(monitoringType)) {
+                        // Step 3: Handle SunAzimuth/MoonAzimuth monitoring (alone or combined, e.g. "HeartRate+SunAzimuth")
+                        if (isMonitoring("SunAzimuth") || isMonitoring("MoonAzimuth") || isMonitoring("PoiAzimuth")) {
+                            if (isMonitoring("PoiAzimuth")) {
+                                loadPointsOfInterest();
+                                startHeadingGuidance();
+                            }
                             if (checkLocationPermissions()) {
-                                Log.d(TAG, "🔁 Permissions granted. Connecting for SunAzimuth or MoonAzimuth...");
+                                Log.d(TAG, "🔁 Permissions granted. Connecting for " + monitoringType + "...");
                                 connectToSmartwatchForMonitoring(monitoringType);
+                                startCelestialDutyCycling();
                                 startLocationUpdates();  // Start location tracking for sun position or moon position
                             } else {
                                 Log.w(TAG, "⚠️ Permissions not granted...");
                                 // Optional: You could request location permissions here if needed
                                 // requestLocationPermissions();
+                                if (isMonitoring("HeartRate")) {
+                                    monitoringType = "HeartRate"; // Still run the part that needs no location
+                                    connectToSmartwatchForMonitoring(monitoringType);
+                                }
                             }
 
                             // Step 4: Handle HeartRate monitoring
-                        } else if ("HeartRate".equals(monitoringType)) {
-                            Log.d(TAG, "🔁 Connecting for HeartRate...");
+                        } else if (isMonitoring("HeartRate") || isMonitoring("Pacing")) {
+                            Log.d(TAG, "🔁 Connecting for " + monitoringType + "...");
                             connectToSmartwatchForMonitoring(monitoringType);
 
                             // Step 5: Handle unknown types
@@ -159,6 +250,154 @@ public class MonitoringService extends Service {
     }
 
 
+    /**
+     * Loads the cached point-of-interest list, then refreshes it from Node-RED. Either source
+     * alone is enough to guide; the cache keeps the mode working offline.
+     */
+    private void loadPointsOfInterest() {
+        File cache = new File(getFilesDir(), POI_FILE);
+        new Thread(() -> {
+            if (cache.exists()) {
+                try (Reader reader = new FileReader(cache)) {
+                    Log.d(TAG, "📍 Loaded " + poiGuide.load(reader) + " points of interest from cache");
+                } catch (IOException e) {
+                    Log.e(TAG, "❌ Failed to read " + cache, e);
+                }
+            }
+            // Sync only after the cache is in, so a stale cache can never replace fresh data
+            syncPointsOfInterest(cache);
+        }, "poi-load").start();
+    }
+
+    private void syncPointsOfInterest(File cache) {
+        networkController.fetchPointsOfInterest(new NetworkController.OnPointsOfInterestReceived() {
+            @Override
+            public void onReceived(String pointsCsv) {
+                new Thread(() -> {
+                    try {
+                        int count = poiGuide.load(new StringReader(pointsCsv));
+                        try (OutputStream out = new FileOutputStream(cache)) {
+                            out.write(pointsCsv.getBytes(StandardCharsets.UTF_8));
+                        }
+                        Log.d(TAG, "📍 Synced " + count + " points of interest from Node-RED");
+                    } catch (IOException e) {
+                        Log.e(TAG, "❌ Failed to store points of interest", e);
+                    }
+                }, "poi-sync").start();
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                Log.w(TAG, "⚠️ Point-of-interest sync failed, using cache: " + errorMessage);
+            }
+        });
+    }
+
+    /**
+     * Vibrates toward the selected (or nearest) point of interest for one location fix. With
+     * the heading loop running, the fix only updates the loop's target azimuth and the loop
+     * drives the watch; otherwise a compass-sector pattern is sent once per fix.
+     */
+    private void guideToPointOfInterest(Location location) {
+        double lat = location.getLatitude();
+        double lon = location.getLongitude();
+        PointOfInterest target = poiGuide.guide(lat, lon, poiCommand);
+        if (target == null) {
+            Log.w(TAG, "⚠️ No points of interest loaded yet");
+            return;
+        }
+        Log.d(TAG, "🧭 " + poiCommand.getMessage());
+        if (headingLoop != null && headingLoop.isRunning()) {
+            headingLoop.setLocation(lat, lon, location.getAltitude(), location.getTime());
+            headingLoop.setTargetAzimuth(PoiIndex.bearingDegrees(lat, lon, target));
+            return;
+        }
+        bluetoothManager.sendVibrationCommand("PoiAzimuth", poiCommand.getIntensity(), poiCommand.getPulses(),
+                poiCommand.getDuration(), poiCommand.getInterval());
+    }
+
+    /**
+     * Starts the sensor-driven heading loop (tens of Hz) that tells the user which way to turn.
+     */
+    private void startHeadingGuidance() {
+        if (headingLoop == null) {
+            headingLoop = new HeadingGuidanceLoop(
+                    (intensity, pulses, duration, interval) ->
+                            bluetoothManager.sendVibrationCommand("PoiAzimuth", intensity, pulses, duration, interval),
+                    () -> Math.max(0, Math.round(bluetoothManager.getHeartbeat().getSmoothedRttMs())));
+        }
+        SensorManager sensorManager = getSystemService(SensorManager.class);
+        if (sensorManager == null || !headingLoop.start(sensorManager)) {
+            Log.w(TAG, "⚠️ Heading guidance unavailable, falling back to one pattern per location fix");
+        }
+    }
+
+    /**
+     * Selects the PoiAzimuth target by id, or null to follow the nearest point.
+     */
+    public void setPoiTarget(String id) {
+        poiGuide.setTarget(id);
+    }
+
+    /**
+     * Feeds a live heart rate sample to the pacer, starting it at the user's current rate.
+     */
+    private void paceHeartRate(Map<String, String> data) {
+        int bpm;
+        try {
+            bpm = Integer.parseInt(data.get("Value"));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (pacingScheduler == null) {
+            pacingScheduler = new PacingScheduler(new PacingScheduler.BeatSender() {
+                @Override
+                public boolean isClockSynced() {
+                    return bluetoothManager.getClockSync().isSynced();
+                }
+
+                @Override
+                public long getClockUncertaintyMs() {
+                    return Math.round(bluetoothManager.getClockSync().getBestDelayMs() / 2);
+                }
+
+                @Override
+                public boolean sendBeat(int intensity, int duration, long playAtPhoneMs) {
+                    return bluetoothManager.sendVibrationCommand("Pacing", intensity, 1, duration, 0, playAtPhoneMs);
+                }
+            });
+            bluetoothManager.setOnBeatPlayed(pacingScheduler::onPlayed);
+        }
+        pacingScheduler.onHeartRate(bpm, ClockSync.nowMs());
+        if (!pacingScheduler.isRunning()) {
+            pacingScheduler.start(pacingTarget, pacingTargetRate,
+                    pacingTarget == PacingScheduler.Target.HEART_RATE ? bpm : pacingTargetRate);
+        }
+    }
+
+    /**
+     * Sets what Pacing mode guides toward (e.g. HEART_RATE 60, or BREATHING 6 per minute).
+     * Takes effect the next time pacing starts.
+     */
+    public void setPacingTarget(PacingScheduler.Target target, double ratePerMinute) {
+        pacingTarget = target;
+        pacingTargetRate = ratePerMinute;
+    }
+
+    /**
+     * @return The pacing timing accuracy summary, or an empty string if pacing never ran.
+     */
+    public String getPacingReport() {
+        return pacingScheduler != null ? pacingScheduler.getReport() : "";
+    }
+
+    /**
+     * @return true if the current (possibly combined) monitoring type includes the given mode.
+     */
+    private boolean isMonitoring(String mode) {
+        return ChannelMux.parseModes(monitoringType).contains(mode);
+    }
+
     private boolean checkLocationPermissions() {
         return ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
     }
@@ -169,27 +408,48 @@ public class MonitoringService extends Service {
      * Sends location data (lat/lon + IDs) to Node-RED on each update.
      */
     private void startLocationUpdates() {
+        // PoiAzimuth steers from every fix, so it always needs them live
+        if (batchLocation && !isMonitoring("PoiAzimuth")) {
+            startBatchedLocationUpdates();
+            return;
+        }
 
         // Step 1: Build a high-accuracy location request
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 30000) // 3s update interval
+        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, LOCATION_INTERVAL_MS) // 30s update interval
                 .setMinUpdateIntervalMillis(5000) // Minimum interval: 5s (if another location is available sooner)
                 .build();
 
         // Step 2: Start receiving location updates with a custom listener
-        locationController.startLocationUpdates(locationRequest, new LocationController.OnLocationReceived() {
+        getLocationController().startLocationUpdates(locationRequest, new LocationController.OnLocationReceived() {
 
             // Callback for when a new location is received
             @Override
             public void onLocationReceived(Location location) {
+                MetricsRegistry.get().counter(MetricsRegistry.LOCATION_FIXES).inc();
+                if (sessionRecorder != null) {
+                    sessionRecorder.recordLocation(location.getLatitude(), location.getLongitude(), location.getAccuracy());
+                }
                 double lat = location.getLatitude();
                 double lon = location.getLongitude();
                 System.out.println("Updated Location: Lat=" + lat + ", Lon=" + lon);
 
                 // Step 3: Build a data object that includes lat/lon and device/user IDs
                 LocationData locationData = buildLocationDataWithIDs(lat, lon);
+                if (celestialCycler != null) {
+                    celestialCycler.onLocation(lat, lon, System.currentTimeMillis());
+                }
 
-                // Step 4: Send the location data to Node-RED backend
-                networkController.sendLocation(locationData, getApplicationContext(),monitoringType);
+                // Step 4: Send the location data to Node-RED backend, once per location-based mode
+                for (String mode : ChannelMux.parseModes(monitoringType)) {
+                    if (celestialCycler != null && !celestialCycler.isAbove(mode)) {
+                        continue; // Below the horizon: no feedback possible, skip the request
+                    }
+                    if ("SunAzimuth".equals(mode) || "MoonAzimuth".equals(mode)) {
+                        networkController.sendLocation(locationData, getApplicationContext(), mode);
+                    } else if ("PoiAzimuth".equals(mode)) {
+                        guideToPointOfInterest(location); // Resolved on the device, no round trip
+                    }
+                }
             }
 
             // Callback for handling errors in location updates
@@ -201,6 +461,116 @@ public class MonitoringService extends Service {
     }
 
 
+    /**
+     * Batched variant of {@link #startLocationUpdates()}: fixes are buffered by the location
+     * hardware and delivered every {@link #LOCATION_BATCH_DELAY_MS}, so the CPU and the radio
+     * wake once per batch instead of once per fix. Each batch is one request per mode: the
+     * newest fix drives the feedback, and the whole trajectory goes with it as a polyline.
+     */
+    private void startBatchedLocationUpdates() {
+        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, LOCATION_INTERVAL_MS)
+                .setMinUpdateIntervalMillis(5000)
+                .setMaxUpdateDelayMillis(LOCATION_BATCH_DELAY_MS)
+                .build();
+
+        getLocationController().startBatchedLocationUpdates(locationRequest, new LocationController.OnTrajectoryReceived() {
+            @Override
+            public void onTrajectoryReceived(List<Location> fixes) {
+                MetricsRegistry.get().counter(MetricsRegistry.LOCATION_FIXES).add(fixes.size());
+                if (sessionRecorder != null) {
+                    for (Location fix : fixes) {
+                        sessionRecorder.recordLocation(fix.getLatitude(), fix.getLongitude(), fix.getAccuracy());
+                    }
+                }
+                Location last = fixes.get(fixes.size() - 1);
+                if (celestialCycler != null) {
+                    celestialCycler.onLocation(last.getLatitude(), last.getLongitude(), System.currentTimeMillis());
+                }
+                for (String mode : ChannelMux.parseModes(monitoringType)) {
+                    if (celestialCycler != null && !celestialCycler.isAbove(mode)) {
+                        continue;
+                    }
+                    if ("SunAzimuth".equals(mode) || "MoonAzimuth".equals(mode)) {
+                        LocationData identity = buildLocationDataWithIDs(last.getLatitude(), last.getLongitude());
+                        networkController.sendTrajectory(fixes, identity, getApplicationContext(), mode);
+                    }
+                }
+            }
+
+            @Override
+            public void onError(String errorMessage) {
+                Log.w(TAG, "⚠️ Location Error: " + errorMessage);
+            }
+        });
+    }
+
+    /**
+     * Suspends location updates (and with them the /sun-data and /moon-data requests) while
+     * every Sun/Moon target is below the horizon, and arms one alarm to resume shortly before
+     * the next rise. PoiAzimuth needs fixes regardless, so with it only the uploads are gated.
+     */
+    private void startCelestialDutyCycling() {
+        if (celestialCycler != null) {
+            celestialCycler.stop();
+        }
+        CelestialDutyCycler cycler = new CelestialDutyCycler(new CelestialDutyCycler.Wakeup() {
+            @Override
+            public void arm(long utcMs) {
+                AlarmManager alarms = getSystemService(AlarmManager.class);
+                if (alarms != null) {
+                    alarms.setWindow(AlarmManager.RTC_WAKEUP, utcMs, CELESTIAL_WAKEUP_WINDOW_MS,
+                            "celestial", celestialAlarm, null);
+                }
+            }
+
+            @Override
+            public void cancel() {
+                AlarmManager alarms = getSystemService(AlarmManager.class);
+                if (alarms != null) {
+                    alarms.cancel(celestialAlarm);
+                }
+            }
+        }, new CelestialDutyCycler.Listener() {
+            @Override
+            public void onSuspend(long wakeAtUtcMs) {
+                Log.d(TAG, "🌙 Targets below the horizon, suspending location updates for "
+                        + (wakeAtUtcMs - System.currentTimeMillis()) / 60000 + " min");
+                if (!isMonitoring("PoiAzimuth") && locationController != null) {
+                    locationController.stopLocationUpdates();
+                }
+            }
+
+            @Override
+            public void onResume() {
+                Log.d(TAG, "🌅 Target above the horizon, resuming location updates");
+                if (!isMonitoring("PoiAzimuth")) {
+                    startLocationUpdates();
+                }
+            }
+        });
+        cycler.setMonitoringType(monitoringType);
+        celestialCycler = cycler.hasTargets() ? cycler : null;
+    }
+
+    /**
+     * @return Celestial duty cycling state, or an empty string without Sun/Moon modes.
+     */
+    public String getCelestialReport() {
+        CelestialDutyCycler cycler = celestialCycler;
+        return cycler == null ? "" : cycler.getReport(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the LocationController, creating the FusedLocationProviderClient on first use.
+     */
+    private LocationController getLocationController() {
+        if (locationController == null) {
+            startupOrchestrator.runPhase("locationClient", () -> locationController = new LocationController(this));
+        }
+        return locationController;
+    }
+
+
     /**
      * Builds a LocationData object that includes latitude, longitude, user ID, smartwatch ID, and Android device ID.
      * Attempts to recover any unknown values using system or Bluetooth information.
@@ -253,7 +623,7 @@ public class MonitoringService extends Service {
      * If a watch is found, it establishes a connection and listens for heart rate data.
      * If no watch is found, or an error occurs, it retries after a delay.
      *
-     * @param monitoringType The type of monitoring to activate (e.g., "HeartRate").
+     * @param monitoringType The type of monitoring to activate (e.g., "HeartRate" or "HeartRate+SunAzimuth").
      */
     private void connectToSmartwatchForMonitoring(String monitoringType) {
         // Step 1: Attempt to get a connected smartwatch device
@@ -272,12 +642,13 @@ public class MonitoringService extends Service {
             // Callback triggered when valid heart rate data is received
             @Override
             public void onReceived(Map<String, String> data) {
-                Log.d(TAG, "✅ Full data received: " + data.toString());
-
                 // Step 3: Forward heart rate data to Node-RED (if monitoring type matches)
-                if ("HeartRate".equalsIgnoreCase(monitoringType)) {
+                if (isMonitoring("HeartRate")) {
                     sendHeartRateToNodeRed(data);
                 }
+                if (isMonitoring("Pacing")) {
+                    paceHeartRate(data);
+                }
                 // Optional: You could handle other monitoring types here
                 // e.g., else if ("Temperature".equalsIgnoreCase(monitoringType)) { ... }
 
@@ -289,6 +660,7 @@ public class MonitoringService extends Service {
             @Override
             public void onError(String errorMessage) {
                 Log.e(TAG, errorMessage + " Retrying in 3 seconds...");
+                MetricsRegistry.get().counter(MetricsRegistry.BT_RECONNECTS).inc();
                 // Retry connection after a delay
                 retryHandler.postDelayed(() -> connectToSmartwatchForMonitoring(monitoringType), RETRY_INTERVAL_MS);
             }
@@ -320,6 +692,14 @@ public class MonitoringService extends Service {
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d("MonitoringService", "🟢 Service started");
 
+        // Optional: capture this session for later replay
+        if (intent != null && intent.getBooleanExtra(EXTRA_RECORD_SESSION, false) && sessionRecorder == null) {
+            startSessionRecording();
+        }
+        if (intent != null) {
+            batchLocation = intent.getBooleanExtra(EXTRA_BATCH_LOCATION, batchLocation);
+        }
+
         // Future: Retrieve extra data from intent if needed, e.g.:
         // String userId = intent.getStringExtra("UserID");
 
@@ -337,19 +717,43 @@ public class MonitoringService extends Service {
     public void onDestroy() {
         super.onDestroy();
         Log.d("MonitoringService", "🔴 Service stopped");
+        Log.d("MonitoringService", "⏱️ Startup timeline:\n" + startupOrchestrator.getTimeline());
+        RingLog.dumpToLogcat();
+        energyReportHandler.removeCallbacks(energyReport);
+        stopSessionRecording();
+        if (bulkUploads != null) {
+            bulkUploads.stop();
+        }
+        startupOrchestrator.shutdown();
 
         // Step 1: Stop any pending retries for reconnecting or polling
         retryHandler.removeCallbacksAndMessages(null);
 
         // Step 2: Disconnect from the smartwatch if connected
         if (bluetoothManager != null) {
-            bluetoothManager.disconnect();
+            bluetoothManager.close();
+        }
+        if (networkController != null) {
+            networkController.stop();
         }
 
-        // Step 3: Stop location updates to save battery and resources
+        // Step 3: Stop location updates and sensors to save battery and resources
         if (locationController != null) {
             locationController.stopLocationUpdates();
         }
+        if (celestialCycler != null) {
+            celestialCycler.stop();
+        }
+        if (headingLoop != null) {
+            headingLoop.stop();
+        }
+        if (pacingScheduler != null) {
+            pacingScheduler.stop();
+        }
+
+        // Step 4: Last energy report, after GPS and the link have stopped
+        Log.d("MonitoringService", getEnergyReport());
+        EnergyAccountant.get().uninstallLooperLogging();
 
         // Any additional cleanup (e.g., closing database, stopping sensors) can go here
     }
@@ -379,6 +783,9 @@ public class MonitoringService extends Service {
         if (locationController != null) {
             locationController.stopLocationUpdates();
         }
+        if (celestialCycler != null) {
+            celestialCycler.stop();
+        }
 
         // Step 4: Stop the service completely (releases system resources and shuts it down)
         stopSelf();
@@ -388,9 +795,161 @@ public class MonitoringService extends Service {
     }
 
 
+    /**
+     * Binds a local client (e.g. a diagnostics screen) to the running service
+     * so it can query metrics from a live device.
+     */
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
+    }
+
+    /**
+     * Binder returned to local clients; gives direct access to the service's query API.
+     */
+    public class LocalBinder extends Binder {
+        public MonitoringService getService() {
+            return MonitoringService.this;
+        }
+    }
+
+    /**
+     * Starts capturing raw SPP bytes, location fixes and Node-RED responses into a file
+     * in the app's private storage.
+     *
+     * @return The session file, or null if it could not be created.
+     */
+    public File startSessionRecording() {
+        File file = new File(getFilesDir(), "session-" + System.currentTimeMillis() + ".swrec");
+        try {
+            sessionRecorder = new SessionRecorder(file);
+            sessionFile = file;
+            bluetoothManager.setSessionRecorder(sessionRecorder);
+            networkController.setSessionRecorder(sessionRecorder);
+            Log.d(TAG, "⏺️ Recording session to " + file.getAbsolutePath());
+            return file;
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Could not start session recording", e);
+            return null;
+        }
+    }
+
+    /**
+     * Stops the active session recording, if any, and flushes the file.
+     */
+    public void stopSessionRecording() {
+        if (sessionRecorder == null) {
+            return;
+        }
+        bluetoothManager.setSessionRecorder(null);
+        networkController.setSessionRecorder(null);
+        try {
+            sessionRecorder.close();
+            uploadWhenConvenient(sessionFile);
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Failed to close session recording", e);
+        }
+        sessionRecorder = null;
+    }
+
+    /**
+     * Restores unfinished bulk uploads and starts checking their conditions (background thread).
+     */
+    private void startBulkUploads() {
+        File stateDir = new File(getFilesDir(), "bulk-uploads");
+        if (!stateDir.isDirectory() && !stateDir.mkdirs()) {
+            Log.e(TAG, "❌ Cannot create " + stateDir);
+            return;
+        }
+        BulkUploadScheduler scheduler = new BulkUploadScheduler(new AndroidConstraintSource(this), networkController, stateDir);
+        scheduler.setOnJobFinished((jobId, file) ->
+                Log.d(TAG, "✅ Bulk upload " + jobId + " complete (" + file.length() + " bytes)"));
+        if (scheduler.getJobCount() > 0) {
+            Log.d(TAG, "📦 Resuming " + scheduler.getJobCount() + " bulk upload(s)");
+        }
+        if (scheduler.getLastError() != null) {
+            Log.w(TAG, "⚠️ Bulk uploads: " + scheduler.getLastError());
+        }
+        scheduler.start();
+        bulkUploads = scheduler;
+    }
+
+    /**
+     * Queues a file for upload on an unmetered network while charging; it never competes with
+     * live haptic traffic or drains the battery on the go.
+     */
+    public void uploadWhenConvenient(File file) {
+        BulkUploadScheduler scheduler = bulkUploads;
+        if (scheduler == null || file == null) {
+            return;
+        }
+        scheduler.enqueue(file.getName(), file, NodeRedEndpointPool.PATH_BULK_UPLOAD,
+                new BulkUploadScheduler.Constraints().requireUnmetered().requireCharging());
+        Log.d(TAG, "📦 Queued bulk upload " + file.getName() + " (" + file.length() + " bytes)");
+    }
+
+    /**
+     * @return Pending bulk uploads with their progress and what each is waiting for.
+     */
+    public String getBulkUploadReport() {
+        BulkUploadScheduler scheduler = bulkUploads;
+        return scheduler != null ? scheduler.toString() : "";
+    }
+
+    /**
+     * Replays a recorded session through the pipeline on a background thread.
+     * SPP bytes go through the normal reader, location fixes through the active location
+     * listener, and recorded responses replace live Node-RED replies.
+     * The latency/throughput report is logged and available from {@link #getLastReplayReport()}.
+     *
+     * @param file  A file produced by {@link #startSessionRecording()}.
+     * @param speed 1.0 for real time, higher to accelerate, 0 for as fast as possible.
+     */
+    public void replaySession(File file, double speed) {
+        new Thread(() -> {
+            try (PipelineReplaySink sink = new PipelineReplaySink(bluetoothManager,
+                    new BluetoothConnectionManager.OnHeartRateReceived() {
+                        @Override
+                        public void onReceived(Map<String, String> data) {
+                            if (isMonitoring("HeartRate")) {
+                                sendHeartRateToNodeRed(data);
+                            }
+                        }
+
+                        @Override
+                        public void onError(String errorMessage) {
+                            Log.w(TAG, "⚠️ Replay: " + errorMessage);
+                        }
+                    }, locationController, networkController)) {
+
+                SessionReplayer.Report report = new SessionReplayer(file).replay(sink, speed);
+                lastReplayReport = report.toString();
+                Log.d(TAG, "⏯️ Replay finished: " + lastReplayReport);
+            } catch (IOException e) {
+                Log.e(TAG, "❌ Replay failed", e);
+                lastReplayReport = "failed: " + e.getMessage();
+            }
+        }, "session-replay").start();
+    }
+
+    public String getLastReplayReport() {
+        return lastReplayReport;
+    }
+
+    /**
+     * @return A text snapshot of all counters, gauges and histograms
+     *         (SPP msgs/s, parse errors, reconnects, HTTP RTT, queue depth, vibrations, location fixes).
+     */
+    public String getMetricsSnapshot() {
+        return MetricsRegistry.get().snapshot();
+    }
+
+    /**
+     * @return Estimated charge per subsystem over the last hour (GPS, network radio, Bluetooth,
+     *         main-looper work), with the counts it is based on.
+     */
+    public String getEnergyReport() {
+        return EnergyAccountant.get().getReport(ClockSync.nowMs());
     }
 }
@@ -0,0 +1,225 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class BulkUploadSchedulerTest {
+
+    /** Device conditions set by the test. */
+    private static class FakeConditions implements BulkUploadScheduler.ConstraintSource {
+        boolean connected = true, unmetered = true, charging = true, idle = true;
+        int battery = 80;
+        int minute = 12 * 60;
+
+        @Override public boolean isConnected() { return connected; }
+        @Override public boolean isUnmetered() { return unmetered; }
+        @Override public boolean isCharging() { return charging; }
+        @Override public boolean isIdle() { return idle; }
+        @Override public int getBatteryPercent() { return battery; }
+        @Override public int getMinuteOfDay() { return minute; }
+    }
+
+    /** Real lane scheduler; posted chunks wait until the test answers them. */
+    private static class FakeUplink implements BulkUploadScheduler.Uplink {
+        final UplinkScheduler scheduler = new UplinkScheduler(4, 2);
+        final List<Map<String, String>> headers = new ArrayList<>();
+        final List<byte[]> bodies = new ArrayList<>();
+        final List<BulkUploadScheduler.OnChunkResult> pending = new ArrayList<>();
+
+        @Override
+        public UplinkScheduler.Lane addBulkLane(String name, int weight, int maxInFlight, UplinkQueue queue,
+                                                UplinkScheduler.Dispatcher dispatcher) {
+            return scheduler.addBulkLane(name, weight, maxInFlight, queue, dispatcher);
+        }
+
+        @Override
+        public void submit(UplinkScheduler.Lane lane, String key, Map<String, String> payload) {
+            scheduler.submit(lane, key, payload);
+        }
+
+        @Override
+        public void postChunk(String path, Map<String, String> headers, byte[] body,
+                              BulkUploadScheduler.OnChunkResult result) {
+            this.headers.add(headers);
+            bodies.add(body);
+            pending.add(result);
+        }
+
+        void answer(boolean acknowledged) {
+            pending.remove(0).onResult(acknowledged);
+        }
+    }
+
+    private File dir;
+    private File data;
+    private byte[] content;
+    private final FakeConditions conditions = new FakeConditions();
+    private final FakeUplink uplink = new FakeUplink();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("bulk", "");
+        dir.delete();
+        dir.mkdirs();
+        // Compressible, like a session recording: 2.5 chunks of repetitive text with some noise
+        content = new byte[BulkUploadScheduler.CHUNK_BYTES * 5 / 2];
+        Random random = new Random(1);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 64 == 63 ? '\n' : 'a' + random.nextInt(4));
+        }
+        data = new File(dir, "session-1.swrec");
+        try (FileOutputStream out = new FileOutputStream(data)) {
+            out.write(content);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void waitsForConstraintsThenUploadsCompressedChunks() throws IOException {
+        conditions.unmetered = false;
+        BulkUploadScheduler bulk = new BulkUploadScheduler(conditions, uplink, dir, Runnable::run);
+        bulk.enqueue("s1", data, "/bulk-upload", new BulkUploadScheduler.Constraints().requireUnmetered());
+        assertTrue(uplink.bodies.isEmpty());
+        assertTrue(bulk.toString().contains("waiting: metered"));
+
+        conditions.unmetered = true;
+        bulk.evaluate(0);
+        List<String> finished = new ArrayList<>();
+        bulk.setOnJobFinished((id, file) -> finished.add(id));
+        while (!uplink.pending.isEmpty()) {
+            uplink.answer(true);
+        }
+
+        assertEquals(3, uplink.bodies.size());
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        int compressed = 0;
+        for (byte[] body : uplink.bodies) {
+            joined.write(gunzip(body));
+            compressed += body.length;
+        }
+        assertArrayEquals(content, joined.toByteArray());
+        assertTrue("ratio " + compressed + "/" + content.length, compressed < content.length / 2);
+        assertEquals("bytes 262144-524287/655360", uplink.headers.get(1).get("Content-Range"));
+        assertEquals("gzip", uplink.headers.get(0).get("Content-Encoding"));
+        assertEquals(1, finished.size());
+        assertEquals(0, bulk.getJobCount());
+        assertEquals(0, dir.listFiles((d, name) -> name.endsWith(".job")).length);
+    }
+
+    @Test
+    public void losingAConstraintPausesAfterTheCurrentChunk() {
+        BulkUploadScheduler bulk = new BulkUploadScheduler(conditions, uplink, dir, Runnable::run);
+        bulk.enqueue("s1", data, "/bulk-upload", new BulkUploadScheduler.Constraints().requireCharging());
+        assertEquals(1, uplink.pending.size());
+
+        conditions.charging = false;
+        uplink.answer(true);
+        assertTrue(uplink.pending.isEmpty());
+        assertEquals(BulkUploadScheduler.CHUNK_BYTES, bulk.getProgress("s1"));
+        assertTrue(bulk.toString().contains("waiting: not charging"));
+
+        conditions.charging = true;
+        bulk.evaluate(0);
+        assertEquals("bytes 262144-524287/655360", uplink.headers.get(1).get("Content-Range"));
+    }
+
+    @Test
+    public void progressSurvivesARestart() {
+        BulkUploadScheduler first = new BulkUploadScheduler(conditions, uplink, dir, Runnable::run);
+        first.enqueue("s1", data, "/bulk-upload", new BulkUploadScheduler.Constraints().requireIdle());
+        uplink.answer(true);            // Chunk 1 acknowledged
+        uplink.pending.clear();         // Process dies while chunk 2 is in flight
+
+        FakeUplink afterRestart = new FakeUplink();
+        conditions.idle = false;
+        BulkUploadScheduler second = new BulkUploadScheduler(conditions, afterRestart, dir, Runnable::run);
+        assertEquals(1, second.getJobCount());
+        assertEquals(BulkUploadScheduler.CHUNK_BYTES, second.getProgress("s1"));
+        second.evaluate(0);
+        assertTrue(afterRestart.bodies.isEmpty());   // Restored constraints still apply
+
+        conditions.idle = true;
+        second.evaluate(0);
+        assertEquals("bytes 262144-524287/655360", afterRestart.headers.get(0).get("Content-Range"));
+    }
+
+    @Test
+    public void failedChunkBacksOffAndResendsTheSameRange() {
+        BulkUploadScheduler bulk = new BulkUploadScheduler(conditions, uplink, dir, Runnable::run);
+        bulk.enqueue("s1", data, "/bulk-upload", new BulkUploadScheduler.Constraints());
+        uplink.answer(false);
+        assertEquals(0, bulk.getProgress("s1"));
+
+        bulk.evaluate(ClockSync.nowMs());                // Still backing off
+        assertEquals(1, uplink.bodies.size());
+        bulk.evaluate(ClockSync.nowMs() + 31000);
+        assertEquals(2, uplink.bodies.size());
+        assertEquals(uplink.headers.get(0).get("Content-Range"), uplink.headers.get(1).get("Content-Range"));
+    }
+
+    @Test
+    public void chunkIsReadAndCompressedOffTheDispatchingThread() {
+        List<Runnable> background = new ArrayList<>();
+        BulkUploadScheduler bulk = new BulkUploadScheduler(conditions, uplink, dir, background::add);
+        bulk.enqueue("s1", data, "/bulk-upload", new BulkUploadScheduler.Constraints());
+        assertTrue(uplink.bodies.isEmpty());            // Nothing read on the caller's thread
+        assertEquals(1, background.size());
+
+        background.remove(0).run();                     // Read, gzip and post
+        assertEquals(1, uplink.bodies.size());
+        uplink.answer(true);
+        assertEquals(0, bulk.getProgress("s1"));        // Progress is saved in the background too
+        background.remove(0).run();
+        assertEquals(BulkUploadScheduler.CHUNK_BYTES, bulk.getProgress("s1"));
+    }
+
+    @Test
+    public void lowBatteryAndTimeWindowHoldUploads() {
+        BulkUploadScheduler.Constraints night = new BulkUploadScheduler.Constraints().requireWindow(22 * 60, 6 * 60);
+        conditions.charging = false;
+        conditions.battery = 10;
+        conditions.minute = 23 * 60;
+        assertEquals("battery low", night.unmetReason(conditions));
+        conditions.battery = 50;
+        assertNull(night.unmetReason(conditions));
+        conditions.minute = 3 * 60;
+        assertNull(night.unmetReason(conditions));      // Window spans midnight
+        conditions.minute = 12 * 60;
+        assertEquals("outside window", night.unmetReason(conditions));
+        conditions.connected = false;
+        assertEquals("offline", new BulkUploadScheduler.Constraints().unmetReason(conditions));
+    }
+}
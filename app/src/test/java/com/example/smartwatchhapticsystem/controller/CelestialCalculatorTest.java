@@ -0,0 +1,53 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class CelestialCalculatorTest {
+
+    private static final double LONDON_LAT = 51.5074, LONDON_LON = -0.1278;
+    private static final long MINUTE = 60 * 1000;
+
+    private static long utc(String iso) {
+        return Instant.parse(iso).toEpochMilli();
+    }
+
+    @Test
+    public void sunriseAndSunsetMatchPublishedTimes() {
+        // London, summer solstice 2024: sunrise 03:43, sunset 20:21 UTC
+        long midnight = utc("2024-06-21T00:00:00Z");
+        long rise = CelestialCalculator.nextRiseMs(CelestialCalculator.Body.SUN, LONDON_LAT, LONDON_LON, midnight);
+        long set = CelestialCalculator.nextSetMs(CelestialCalculator.Body.SUN, LONDON_LAT, LONDON_LON, midnight);
+        assertEquals(utc("2024-06-21T03:43:00Z"), rise, 2 * MINUTE);
+        assertEquals(utc("2024-06-21T20:21:00Z"), set, 2 * MINUTE);
+    }
+
+    @Test
+    public void sunAltitudeAtEquinoxNoon() {
+        // At the March equinox the noon Sun stands at 90° minus the latitude
+        double altitude = CelestialCalculator.altitudeDeg(CelestialCalculator.Body.SUN, 45, 0,
+                utc("2024-03-20T12:07:00Z"));
+        assertEquals(45, altitude, 0.5);
+    }
+
+    @Test
+    public void fullMoonIsUpAtMidnight() {
+        long fullMoon = utc("2024-06-22T01:08:00Z");
+        assertTrue(CelestialCalculator.isAboveHorizon(CelestialCalculator.Body.MOON, LONDON_LAT, LONDON_LON, fullMoon));
+        assertFalse(CelestialCalculator.isAboveHorizon(CelestialCalculator.Body.SUN, LONDON_LAT, LONDON_LON, fullMoon));
+        // Rises and sets about once a day, about 50 minutes later each day
+        long rise1 = CelestialCalculator.nextRiseMs(CelestialCalculator.Body.MOON, LONDON_LAT, LONDON_LON, fullMoon);
+        long rise2 = CelestialCalculator.nextRiseMs(CelestialCalculator.Body.MOON, LONDON_LAT, LONDON_LON, rise1 + MINUTE);
+        assertTrue(rise1 > fullMoon);
+        assertEquals(24 * 60 + 50, (rise2 - rise1) / MINUTE, 45);
+    }
+
+    @Test
+    public void polarNightHasNoSunrise() {
+        assertEquals(-1, CelestialCalculator.nextRiseMs(CelestialCalculator.Body.SUN, 78.2, 15.6,
+                utc("2024-12-21T00:00:00Z")));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CelestialDutyCyclerTest {
+
+    private static final double LAT = 51.5074, LON = -0.1278;
+    private static final long MINUTE = 60 * 1000;
+
+    private final List<Long> armed = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+    private int cancels;
+
+    private CelestialDutyCycler cycler(String monitoringType) {
+        CelestialDutyCycler cycler = new CelestialDutyCycler(new CelestialDutyCycler.Wakeup() {
+            @Override
+            public void arm(long utcMs) {
+                armed.add(utcMs);
+            }
+
+            @Override
+            public void cancel() {
+                cancels++;
+            }
+        }, new CelestialDutyCycler.Listener() {
+            @Override
+            public void onSuspend(long wakeAtUtcMs) {
+                events.add("suspend");
+            }
+
+            @Override
+            public void onResume() {
+                events.add("resume");
+            }
+        });
+        cycler.setMonitoringType(monitoringType);
+        return cycler;
+    }
+
+    private static long utc(String iso) {
+        return Instant.parse(iso).toEpochMilli();
+    }
+
+    @Test
+    public void sunsetSuspendsUntilJustBeforeSunrise() {
+        CelestialDutyCycler cycler = cycler("SunAzimuth");
+        cycler.onLocation(LAT, LON, utc("2024-06-21T20:00:00Z"));
+        assertFalse(cycler.isSuspended());
+        assertTrue(cycler.isAbove("SunAzimuth"));
+
+        cycler.onLocation(LAT, LON, utc("2024-06-21T20:40:00Z"));   // After sunset
+        assertTrue(cycler.isSuspended());
+        assertFalse(cycler.isAbove("SunAzimuth"));
+        assertEquals(List.of("suspend"), events);
+        assertEquals(1, armed.size());
+        // Next sunrise about 03:43, armed the lead before it
+        assertEquals(utc("2024-06-22T03:43:00Z") - CelestialDutyCycler.LEAD_MS, armed.get(0), 3 * MINUTE);
+
+        cycler.onWakeup(armed.get(0));
+        assertFalse(cycler.isSuspended());
+        assertTrue(cycler.isAbove("SunAzimuth"));                   // Inside the lead: ready before it rises
+        assertEquals(List.of("suspend", "resume"), events);
+        assertTrue(cycler.getReport(armed.get(0)).contains("1 suspensions"));
+    }
+
+    @Test
+    public void combinedModesStayActiveWhileEitherBodyIsUp() {
+        CelestialDutyCycler cycler = cycler("SunAzimuth+MoonAzimuth+HeartRate");
+        cycler.onLocation(LAT, LON, utc("2024-06-22T01:08:00Z"));   // Full moon, Sun down
+        assertFalse(cycler.isSuspended());
+        assertTrue(cycler.isAbove("MoonAzimuth"));
+        assertFalse(cycler.isAbove("SunAzimuth"));
+        assertTrue(cycler.isAbove("HeartRate"));                    // Not gated
+        assertTrue(armed.isEmpty());
+    }
+
+    @Test
+    public void unknownPositionAndPolarNight() {
+        CelestialDutyCycler cycler = cycler("SunAzimuth");
+        assertTrue(cycler.isAbove("SunAzimuth"));                   // No fix yet: assume up
+
+        long now = utc("2024-12-21T12:00:00Z");
+        cycler.onLocation(78.2, 15.6, now);
+        assertTrue(cycler.isSuspended());
+        assertEquals(now + 12 * 60 * MINUTE, (long) armed.get(0));  // No sunrise: re-check later
+        cycler.onWakeup(armed.get(0));
+        assertEquals(2, armed.size());                               // Still dark, re-armed
+        assertEquals(List.of("suspend"), events);
+
+        cycler.stop();
+        assertEquals(1, cancels);
+        assertFalse(cycler("HeartRate").hasTargets());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChannelMuxTest {
+
+    @Test
+    public void framedAndLegacyLinesReachTheirChannel() {
+        ChannelMux mux = new ChannelMux();
+        List<String> control = new ArrayList<>();
+        List<String> heartRate = new ArrayList<>();
+        mux.register(ChannelMux.CH_CONTROL, "control", 0, 4, 0, control::add);
+        mux.register(ChannelMux.CH_HEART_RATE, "heartRate", 1, 4, 0, heartRate::add);
+
+        assertTrue(mux.dispatch("@1|MonitoringType:HeartRate,Value:80"));
+        assertTrue(mux.dispatch("Pong:1,10,20,21"));
+        assertTrue(mux.dispatch("HRBatch:u,w,a,1000;0=80"));
+        assertFalse(mux.dispatch("@7|whatever"));
+        assertFalse(mux.dispatch("@x|broken"));
+        assertFalse(mux.dispatch("Hello"));
+
+        assertEquals(Arrays.asList("Pong:1,10,20,21"), control);
+        assertEquals(Arrays.asList("MonitoringType:HeartRate,Value:80", "HRBatch:u,w,a,1000;0=80"), heartRate);
+    }
+
+    @Test
+    public void inboundRateLimitIsPerChannel() {
+        ChannelMux mux = new ChannelMux();
+        List<String> control = new ArrayList<>();
+        List<String> heartRate = new ArrayList<>();
+        mux.register(ChannelMux.CH_CONTROL, "control", 0, 4, 0, control::add);
+        mux.register(ChannelMux.CH_HEART_RATE, "heartRate", 1, 4, 3, heartRate::add);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(mux.dispatch("@1|MonitoringType:HeartRate,Value:" + i));
+            assertTrue(mux.dispatch("@0|Pong:" + i));
+        }
+        assertEquals(3, heartRate.size());
+        assertEquals(10, control.size()); // A flooding channel does not starve the others
+    }
+
+    @Test
+    public void framingOnlyInMultiplexedMode() {
+        ChannelMux mux = new ChannelMux();
+        assertEquals("Vibrate:1,2,3,4", mux.frame(ChannelMux.CH_SUN, "Vibrate:1,2,3,4"));
+        mux.setMultiplexed(true);
+        assertEquals("@2|Vibrate:1,2,3,4", mux.frame(ChannelMux.CH_SUN, "Vibrate:1,2,3,4"));
+    }
+
+    @Test
+    public void writerSendsUrgentChannelFirstAndDropsOldestOnOverflow() throws Exception {
+        ChannelMux mux = new ChannelMux();
+        mux.setMultiplexed(true);
+        mux.register(ChannelMux.CH_HEART_RATE, "heartRate", 1, 4, 0, null);
+        mux.register(ChannelMux.CH_SUN, "sun", 2, 2, 0, null);
+
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch allWritten = new CountDownLatch(5);
+        List<String> written = new ArrayList<>();
+        mux.start(line -> {
+            firstWriteStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (written) {
+                written.add(line);
+            }
+            allWritten.countDown();
+        });
+
+        assertTrue(mux.send(ChannelMux.CH_SUN, "s0"));
+        assertTrue(firstWriteStarted.await(2, TimeUnit.SECONDS)); // Writer is now busy with s0
+        mux.send(ChannelMux.CH_SUN, "s1");
+        mux.send(ChannelMux.CH_SUN, "s2");
+        mux.send(ChannelMux.CH_SUN, "s3"); // Queue of 2: s1 is dropped
+        mux.send(ChannelMux.CH_HEART_RATE, "h1");
+        mux.send(ChannelMux.CH_HEART_RATE, "h2");
+        release.countDown();
+
+        assertTrue(allWritten.await(2, TimeUnit.SECONDS));
+        mux.stop();
+        synchronized (written) {
+            assertEquals(Arrays.asList("@2|s0", "@1|h1", "@1|h2", "@2|s2", "@2|s3"), written);
+        }
+        assertFalse(mux.send(ChannelMux.CH_SUN, "late")); // Not running any more
+    }
+
+    @Test
+    public void parsesCombinedModes() {
+        assertEquals(Arrays.asList("HeartRate", "SunAzimuth"), ChannelMux.parseModes("HeartRate+SunAzimuth"));
+        assertEquals(Arrays.asList("MoonAzimuth"), ChannelMux.parseModes("MoonAzimuth"));
+        assertEquals(ChannelMux.CH_MOON, ChannelMux.channelForMode("MoonAzimuth"));
+        assertEquals(-1, ChannelMux.channelForMode("Temperature"));
+    }
+}
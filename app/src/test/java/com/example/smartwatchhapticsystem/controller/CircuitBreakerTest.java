@@ -0,0 +1,100 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CircuitBreaker} and the {@link RttEstimator} timeouts it is paired with.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndFailsFast() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 5000, 60000);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.allowRequest(i));
+            breaker.onFailure(i);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(1000));
+        assertEquals(4002, breaker.getRetryInMs(1000)); // Opened at t=2 with a 5 s cool-down
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 5000, 60000);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        breaker.onSuccess();
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenAllowsSingleProbe() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 5000, 60000);
+        breaker.onFailure(0);
+        assertFalse(breaker.allowRequest(4999));
+        assertTrue(breaker.allowRequest(5000));   // The probe
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest(5001));  // Everyone else waits for its outcome
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest(5002));
+    }
+
+    @Test
+    public void failedProbeDoublesCooldownUpToCap() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 5000, 12000);
+        breaker.onFailure(0);
+        long now = 5000;
+        long[] expected = {10000, 12000, 12000};
+        for (long cooldown : expected) {
+            assertTrue(breaker.allowRequest(now));
+            breaker.onFailure(now);
+            assertEquals(cooldown, breaker.getRetryInMs(now));
+            now += cooldown;
+        }
+    }
+
+    @Test
+    public void rtoFollowsRttAndVariance() {
+        RttEstimator rtt = new RttEstimator(5000, 200, 15000);
+        assertEquals(5000, rtt.getRtoMs());
+        rtt.onSample(100);
+        // SRTT = 100, RTTVAR = 50 → RTO = 100 + 4 * 50 = 300
+        assertEquals(300, rtt.getRtoMs());
+        for (int i = 0; i < 50; i++) {
+            rtt.onSample(100);
+        }
+        // Variance decays, floor of 200 applies
+        assertEquals(200, rtt.getRtoMs());
+        assertEquals(100, rtt.getSrttMs(), 0.5);
+    }
+
+    @Test
+    public void jitteryLinkGetsLongerTimeout() {
+        RttEstimator steady = new RttEstimator(5000, 100, 15000);
+        RttEstimator jittery = new RttEstimator(5000, 100, 15000);
+        for (int i = 0; i < 100; i++) {
+            steady.onSample(300);
+            jittery.onSample(i % 2 == 0 ? 100 : 500);
+        }
+        assertTrue(jittery.getRtoMs() > steady.getRtoMs() + 500);
+    }
+
+    @Test
+    public void timeoutBacksOffUntilNextSample() {
+        RttEstimator rtt = new RttEstimator(1000, 200, 5000);
+        rtt.onTimeout();
+        assertEquals(2000, rtt.getRtoMs());
+        rtt.onTimeout();
+        rtt.onTimeout();
+        assertEquals(5000, rtt.getRtoMs());
+        rtt.onSample(100);
+        assertEquals(300, rtt.getRtoMs());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulated ping/pong exchanges with a known watch offset, drift and asymmetric link delay.
+ */
+public class ClockSyncTest {
+
+    private static final long OFFSET_MS = 123_456;
+
+    /** Watch clock for a given phone time. */
+    private static long watchTime(double phoneMs, double driftPpm) {
+        return Math.round(phoneMs + OFFSET_MS + phoneMs * driftPpm * 1e-6);
+    }
+
+    @Test
+    public void unsyncedUntilFirstExchange() {
+        ClockSync sync = new ClockSync();
+        assertFalse(sync.isSynced());
+        sync.onExchange(0, OFFSET_MS + 5, OFFSET_MS + 6, 11);
+        assertTrue(sync.isSynced());
+        assertEquals(OFFSET_MS, sync.offsetAt(5), 1.0);
+    }
+
+    @Test
+    public void minDelayFilterRejectsCongestedSamples() {
+        ClockSync sync = new ClockSync();
+        Random random = new Random(7);
+        long t = 1_000;
+        for (int i = 0; i < 8; i++) {
+            // Uplink heavily delayed on most pings (queued behind data), downlink fast
+            long up = i == 3 ? 4 : 4 + random.nextInt(200);
+            long down = 4;
+            long t0 = t;
+            long t1 = watchTime(t0 + up, 0);
+            long t2 = t1 + 1;
+            long t3 = t0 + up + 1 + down;
+            sync.onExchange(t0, t1, t2, t3);
+            t += 500;
+        }
+        // The symmetric sample bounds the error; congested ones would be off by up to 100 ms
+        assertEquals(OFFSET_MS, sync.offsetAt(t), 2.0);
+        assertEquals(8.0, sync.getBestDelayMs(), 0.5);
+    }
+
+    @Test
+    public void tracksDriftBetweenPings() {
+        ClockSync sync = new ClockSync();
+        double driftPpm = 80;
+        for (int i = 0; i < 16; i++) {
+            long t0 = i * 15_000L;
+            long t1 = watchTime(t0 + 5, driftPpm);
+            long t2 = t1;
+            long t3 = t0 + 10;
+            sync.onExchange(t0, t1, t2, t3);
+        }
+        assertEquals(driftPpm, sync.getDriftPpm(), 10);
+
+        // A minute after the last ping the prediction still holds to within a couple of ms
+        long later = 16 * 15_000L + 60_000;
+        long expectedWatch = watchTime(later, driftPpm);
+        assertEquals(expectedWatch, sync.toWatchTime(later), 2);
+        assertEquals(later, sync.toPhoneTime(expectedWatch), 2);
+    }
+
+    @Test
+    public void discardsImpossibleSamples() {
+        ClockSync sync = new ClockSync();
+        sync.onExchange(100, OFFSET_MS, OFFSET_MS + 50, 110); // Watch held it longer than the round trip
+        assertFalse(sync.isSynced());
+    }
+
+    @Test
+    public void resetForgetsPreviousWatch() {
+        ClockSync sync = new ClockSync();
+        sync.onExchange(0, OFFSET_MS + 5, OFFSET_MS + 6, 11);
+        sync.reset();
+        assertFalse(sync.isSynced());
+        sync.onExchange(0, 5, 6, 11);
+        assertEquals(0, sync.offsetAt(5), 1.0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EnergyAccountantTest {
+
+    private static final long HOUR = 3600000;
+
+    private static long field(EnergyAccountant energy, EnergyAccountant.Subsystem subsystem, int index, long nowMs) {
+        return energy.totals(subsystem, nowMs)[index];
+    }
+
+    @Test
+    public void closeRequestsShareOneRadioWindow() {
+        EnergyAccountant batched = new EnergyAccountant();
+        for (int i = 0; i < 10; i++) {
+            batched.onNetworkRequest(100, HOUR + i * 500L);    // A burst: one tail
+            batched.onNetworkResponse(50, HOUR + i * 500L + 200);
+        }
+        EnergyAccountant spread = new EnergyAccountant();
+        for (int i = 0; i < 10; i++) {
+            spread.onNetworkRequest(100, HOUR + i * 30000L);   // Every 30 s: ten tails
+            spread.onNetworkResponse(50, HOUR + i * 30000L + 200);
+        }
+        long now = HOUR + 400000;
+        long batchedActive = field(batched, EnergyAccountant.Subsystem.NETWORK, 2, now);
+        long spreadActive = field(spread, EnergyAccountant.Subsystem.NETWORK, 2, now);
+        assertEquals(4700 + EnergyAccountant.RADIO_TAIL_MS, batchedActive);
+        assertEquals(10 * (200 + EnergyAccountant.RADIO_TAIL_MS), spreadActive);
+        assertEquals(10, field(batched, EnergyAccountant.Subsystem.NETWORK, 0, now));
+        assertEquals(1000, field(batched, EnergyAccountant.Subsystem.NETWORK, 4, now));
+        assertTrue(spread.estimateMah(EnergyAccountant.Subsystem.NETWORK, now)
+                > 5 * batched.estimateMah(EnergyAccountant.Subsystem.NETWORK, now));
+    }
+
+    @Test
+    public void gpsOnTimeAndRequestedFixes() {
+        EnergyAccountant energy = new EnergyAccountant();
+        energy.onGpsStart(1000, HOUR);
+        for (int i = 1; i <= 60; i++) {
+            if (i % 2 == 0) {
+                energy.onGpsFix(HOUR + i * 1000L);             // Only half the requested fixes arrive
+            }
+        }
+        energy.onGpsStop(HOUR + 60000);
+        long now = HOUR + 120000;
+        assertEquals(60000, field(energy, EnergyAccountant.Subsystem.LOCATION, 2, now));
+        assertEquals(60, field(energy, EnergyAccountant.Subsystem.LOCATION, 0, now));
+        assertEquals(30, field(energy, EnergyAccountant.Subsystem.LOCATION, 1, now));
+        // 30 mA for one minute = 0.5 mAh
+        assertEquals(0.5, energy.estimateMah(EnergyAccountant.Subsystem.LOCATION, now), 1e-9);
+    }
+
+    @Test
+    public void countsExpireAfterAnHour() {
+        EnergyAccountant energy = new EnergyAccountant();
+        energy.onSppOut(100, HOUR);
+        energy.onSppIn(40, HOUR + 30 * 60000);
+        long now = HOUR + 61 * 60000;
+        assertEquals(0, field(energy, EnergyAccountant.Subsystem.BLUETOOTH, 4, now));   // Old minute dropped
+        assertEquals(40, field(energy, EnergyAccountant.Subsystem.BLUETOOTH, 3, now));
+        energy.onSppIn(10, now);                                                         // Reuses a stale slot
+        assertEquals(50, field(energy, EnergyAccountant.Subsystem.BLUETOOTH, 3, now));
+    }
+
+    @Test
+    public void looperMessagesAreAttributedByCallbackClass() {
+        EnergyAccountant energy = new EnergyAccountant();
+        energy.onLooperLog(">>>>> Dispatching to Handler (android.os.Handler) {1} "
+                + "com.example.smartwatchhapticsystem.controller.NetworkController$$Lambda$3@5: 0", HOUR);
+        energy.onLooperLog("<<<<< Finished to Handler (android.os.Handler) {1} "
+                + "com.example.smartwatchhapticsystem.controller.NetworkController$$Lambda$3@5", HOUR + 12);
+        energy.onLooperLog(">>>>> Dispatching to Handler (android.view.Choreographer$FrameHandler) {2} null: 0", HOUR + 20);
+        energy.onLooperLog("<<<<< Finished to Handler (android.view.Choreographer$FrameHandler) {2} null", HOUR + 23);
+
+        assertEquals(1, field(energy, EnergyAccountant.Subsystem.NETWORK, 6, HOUR + 30));
+        assertEquals(12, field(energy, EnergyAccountant.Subsystem.NETWORK, 7, HOUR + 30));
+        assertEquals(1, field(energy, EnergyAccountant.Subsystem.MAIN_LOOPER, 6, HOUR + 30));
+        assertEquals(3, field(energy, EnergyAccountant.Subsystem.MAIN_LOOPER, 7, HOUR + 30));
+    }
+
+    @Test
+    public void reportListsEverySubsystem() {
+        EnergyAccountant energy = new EnergyAccountant();
+        energy.onBluetoothConnected(HOUR);
+        energy.onWakeup(EnergyAccountant.Subsystem.BLUETOOTH, HOUR + 1000);
+        String report = energy.getReport(HOUR + 60000);
+        for (EnergyAccountant.Subsystem subsystem : EnergyAccountant.Subsystem.values()) {
+            assertTrue(report.contains(subsystem.name()));
+        }
+        assertTrue(report.contains("active=60s"));
+        assertTrue(report.contains("wakeups=1"));
+    }
+}
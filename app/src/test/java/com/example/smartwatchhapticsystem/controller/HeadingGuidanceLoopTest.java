@@ -0,0 +1,115 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HeadingGuidanceLoopTest {
+
+    /** Patterns sent to the watch, as {intensity, pulses, duration, interval}. */
+    private final List<int[]> sent = new ArrayList<>();
+
+    private HeadingGuidanceLoop loop(long linkRttMs) {
+        return new HeadingGuidanceLoop((i, p, d, iv) -> sent.add(new int[]{i, p, d, iv}), () -> linkRttMs);
+    }
+
+    private int[] last() {
+        return sent.get(sent.size() - 1);
+    }
+
+    @Test
+    public void facingTheTargetAcrossNorthIsOnTarget() {
+        HeadingGuidanceLoop loop = loop(0);
+        loop.setTargetAzimuth(5);
+        loop.onHeading(355, 0);
+        assertEquals(1, sent.size());
+        assertEquals(5, last()[0]);
+        assertEquals(HeadingGuidanceLoop.PULSES_ON_TARGET, last()[1]);
+        assertEquals(150, last()[3]);
+    }
+
+    @Test
+    public void sideAndStrengthFollowTheError() {
+        HeadingGuidanceLoop loop = loop(0);
+        loop.setTargetAzimuth(90);
+        loop.onHeading(30, 0);                       // Target 60° to the right
+        assertEquals(HeadingGuidanceLoop.PULSES_RIGHT, last()[1]);
+        assertEquals(3, last()[0]);
+
+        HeadingGuidanceLoop other = loop(0);
+        other.setTargetAzimuth(90);
+        other.onHeading(250, 0);                     // Target 160° to the left: behind
+        assertEquals(HeadingGuidanceLoop.PULSES_LEFT, last()[1]);
+        assertEquals(1, last()[0]);
+        assertEquals(1200, last()[3]);
+    }
+
+    @Test
+    public void jitterAroundAZoneBoundaryDoesNotFlap() {
+        HeadingGuidanceLoop loop = loop(0);
+        loop.setTargetAzimuth(0);
+        long t = 0;
+        for (int i = 0; i < 50; i++, t += 20) {
+            loop.onHeading(340, t);                  // Settle in zone 1 (target 20° to the right)
+        }
+        int settled = sent.size();
+        for (int i = 0; i < 50; i++, t += 20) {
+            loop.onHeading(i % 2 == 0 ? 347 : 343, t); // Noise across the 15° boundary
+        }
+        // Nothing but the periodic refresh of the same pattern
+        assertTrue(sent.size() - settled <= 1);
+        assertEquals(HeadingGuidanceLoop.PULSES_RIGHT, last()[1]);
+        assertEquals(4, last()[0]);
+    }
+
+    @Test
+    public void sendsAreRateLimitedByLinkRtt() {
+        HeadingGuidanceLoop fast = loop(0);
+        fast.setTargetAzimuth(0);
+        for (int i = 0; i < 500; i++) {
+            fast.onHeading((i * 37) % 360, i * 20L); // Spinning: every event changes the zone
+        }
+        int atMinGap = sent.size();
+        assertTrue(atMinGap <= 10000 / 250 + 1);
+
+        sent.clear();
+        HeadingGuidanceLoop slow = loop(400);        // Congested link: 800 ms between sends
+        slow.setTargetAzimuth(0);
+        for (int i = 0; i < 500; i++) {
+            slow.onHeading((i * 37) % 360, i * 20L);
+        }
+        assertTrue(sent.size() <= 10000 / 800 + 1);
+        assertTrue(sent.size() < atMinGap);
+    }
+
+    @Test
+    public void noTargetNoFeedback() {
+        HeadingGuidanceLoop loop = loop(0);
+        loop.onHeading(10, 0);
+        loop.setTargetAzimuth(Double.NaN);
+        loop.onHeading(10, 1000);
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void loopIterationDoesNotAllocate() {
+        HeadingGuidanceLoop loop = new HeadingGuidanceLoop((i, p, d, iv) -> { }, () -> 30);
+        loop.setTargetAzimuth(120);
+        for (int i = 0; i < 20000; i++) {
+            loop.onHeading((i * 7) % 360, i * 20L); // Warm up
+        }
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int iterations = 100000;
+        long before = mx.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            loop.onHeading((i * 7) % 360, 400000 + i * 20L);
+        }
+        long bytes = mx.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("allocated " + bytes + " bytes over " + iterations + " iterations", bytes < 1024);
+    }
+}
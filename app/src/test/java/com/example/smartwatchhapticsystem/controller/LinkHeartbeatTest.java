@@ -0,0 +1,101 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LinkHeartbeatTest {
+
+    @Test
+    public void answeredPingsKeepLinkAliveAndRecordRtt() {
+        LinkHeartbeat hb = new LinkHeartbeat(2000, 2, 12000);
+        hb.start(0);
+        for (int seq = 1; seq <= 5; seq++) {
+            long t = seq * 5000L;
+            hb.onPingSent(seq, t);
+            assertEquals(40, hb.onPong(seq, t + 40));
+            assertNull(hb.check(t + 1000));
+        }
+        assertArrayEquals(new long[]{40, 40, 40, 40, 40}, hb.getRttHistory());
+        assertEquals(40.0, hb.getSmoothedRttMs(), 1e-9);
+        assertFalse(hb.isDegraded());
+    }
+
+    @Test
+    public void missedPongsTearDownEvenWhileSamplesArrive() {
+        LinkHeartbeat hb = new LinkHeartbeat(2000, 2, 12000);
+        hb.start(0);
+        hb.onPingSent(1, 0);
+        hb.onPong(1, 40);           // Peer speaks the protocol
+        hb.onPingSent(2, 500);
+        hb.onReceive(1500);
+        assertNull(hb.check(2600)); // One miss is tolerated
+        hb.onPingSent(3, 5000);
+        hb.onReceive(6000);
+        String reason = hb.check(7001);
+        assertNotNull(reason);
+        assertTrue(reason.contains("2 pongs"));
+        assertEquals(2, hb.getTotalMissed());
+    }
+
+    @Test
+    public void silenceTripsIdleDeadline() {
+        LinkHeartbeat hb = new LinkHeartbeat(2000, 3, 12000);
+        hb.start(0);
+        hb.onPingSent(1, 0);
+        hb.onPong(1, 1000);
+        assertNull(hb.check(13000));
+        assertNotNull(hb.check(13001));
+    }
+
+    @Test
+    public void peerThatNeverPongsIsNotTornDown() {
+        // Legacy firmware ignores "Ping:"; a Sun/Moon-only session may send nothing upstream
+        LinkHeartbeat hb = new LinkHeartbeat(2000, 2, 12000);
+        hb.start(0);
+        for (int seq = 1; seq <= 10; seq++) {
+            hb.onPingSent(seq, seq * 5000L);
+            assertNull(hb.check(seq * 5000L + 4000));
+        }
+        assertNull(hb.check(120000));               // Long silence as well
+        assertFalse(hb.isPeerPonging());
+        assertEquals(0, hb.getTotalMissed());
+
+        // Once it does answer, the deadlines apply
+        hb.onPingSent(11, 121000);
+        hb.onPong(11, 121050);
+        assertTrue(hb.isPeerPonging());
+        assertNotNull(hb.check(133051));
+
+        hb.start(140000);                            // New link: could be another watch
+        assertNull(hb.check(200000));
+    }
+
+    @Test
+    public void latePongForExpiredPingIsIgnored() {
+        LinkHeartbeat hb = new LinkHeartbeat(2000, 2, 12000);
+        hb.start(0);
+        hb.onPingSent(1, 0);
+        assertNull(hb.check(2100));
+        assertEquals(-1, hb.onPong(1, 2200));
+        assertEquals(0, hb.getRttHistory().length);
+    }
+
+    @Test
+    public void growingRttIsFlaggedAsDegraded() {
+        LinkHeartbeat hb = new LinkHeartbeat(5000, 2, 60000);
+        hb.start(0);
+        int seq = 0;
+        long t = 0;
+        for (int i = 0; i < 5; i++, t += 1000) {
+            hb.onPingSent(++seq, t);
+            hb.onPong(seq, t + 20);
+        }
+        assertFalse(hb.isDegraded());
+        for (int i = 0; i < 30; i++, t += 1000) {
+            hb.onPingSent(++seq, t);
+            hb.onPong(seq, t + 300);
+        }
+        assertTrue(hb.isDegraded());
+    }
+}
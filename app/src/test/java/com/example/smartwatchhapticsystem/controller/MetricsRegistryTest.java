@@ -0,0 +1,58 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MetricsRegistry}.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void histogram_percentilesWithinBucketError() {
+        MetricsRegistry.Histogram histogram = new MetricsRegistry.Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500, histogram.getPercentile(50), 500 * 0.07);
+        assertEquals(990, histogram.getPercentile(99), 990 * 0.07);
+    }
+
+    @Test
+    public void histogram_bucketsCoverValueRange() {
+        for (long v : new long[]{0, 31, 32, 33, 1000, 123_456_789L}) {
+            int index = MetricsRegistry.Histogram.indexOf(v);
+            assertTrue(MetricsRegistry.Histogram.upperBoundOf(index) >= v);
+            assertTrue(index == 0 || MetricsRegistry.Histogram.upperBoundOf(index - 1) < v);
+        }
+    }
+
+    @Test
+    public void snapshot_listsCountersAndGauges() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("spp.msgs").add(3);
+        registry.gauge("uplink.queueDepth", () -> 7);
+        String snapshot = registry.snapshot();
+        assertTrue(snapshot.contains("spp.msgs 3"));
+        assertTrue(snapshot.contains("uplink.queueDepth 7"));
+    }
+
+    @Test
+    public void removeGauge_keepsReplacementSupplier() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LongSupplier old = () -> 1;
+        registry.gauge("uplink.queueDepth", old);
+        registry.gauge("uplink.queueDepth", () -> 2);
+        registry.removeGauge("uplink.queueDepth", old);
+        assertTrue(registry.snapshot().contains("uplink.queueDepth 2"));
+
+        registry.gauge("vib.outstanding", old);
+        registry.removeGauge("vib.outstanding", old);
+        assertFalse(registry.snapshot().contains("vib.outstanding"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.example.smartwatchhapticsystem.model.LocationData;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests and allocation benchmark for {@link NodeRedCodec}.
+ */
+public class NodeRedCodecTest {
+
+    private static final byte[] RESPONSE = ("{\"message\":\"Sun is west\",\"azimuth\":{\"deg\":[1,2]}," +
+            "\"intensity\":3, \"pulses\":\"5\",\"duration\":250,\"interval\":500.0,\"extra\":null}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void encodeLocation_matchesGsonFieldNames() {
+        LocationData data = new LocationData(52.5200066, -13.4049, "12", "34", "50");
+        data.setSeq(7);
+        data.setSentAt(1700000000000L);
+        String json = new String(new NodeRedCodec().encodeLocation(data), StandardCharsets.UTF_8);
+        assertEquals("{\"lat\":52.5200066,\"lon\":-13.4049,\"userId\":\"12\",\"smartWatchId\":\"34\"," +
+                "\"androidId\":\"50\",\"seq\":7,\"sentAt\":1700000000000}", json);
+    }
+
+    @Test
+    public void encodeLocation_appendsTrajectoryWhenBatched() {
+        LocationData data = new LocationData(43.252, -126.453, "12", "34", "50");
+        data.setTrajectory("_p~iF~ps|U_ulLnnqC_mqNvxq`@", "_sxkpC??");
+        String json = new String(new NodeRedCodec().encodeLocation(data), StandardCharsets.UTF_8);
+        assertTrue(json.endsWith(",\"trajectory\":\"_p~iF~ps|U_ulLnnqC_mqNvxq`@\",\"fixTimes\":\"_sxkpC??\"}"));
+    }
+
+    @Test
+    public void encodeHeartRate_escapesStrings() {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("Value", "72");
+        payload.put("Note", "a\"b\\c\né");
+        String json = new String(new NodeRedCodec().encodeHeartRate(payload), StandardCharsets.UTF_8);
+        assertEquals("{\"Value\":\"72\",\"Note\":\"a\\\"b\\\\c\\u000aé\"}", json);
+    }
+
+    @Test
+    public void encodeHeartRate_writesBatchSamplesAsArray() {
+        Map<String, String> payload = new LinkedHashMap<>();
+        payload.put("Value", "74");
+        payload.put(UplinkQueue.SAMPLES_FIELD, "1700000000000=72;1700000001000=74;bad");
+        String json = new String(new NodeRedCodec().encodeHeartRate(payload), StandardCharsets.UTF_8);
+        assertEquals("{\"Value\":\"74\",\"Samples\":[{\"SampleTime\":1700000000000,\"Value\":72}," +
+                "{\"SampleTime\":1700000001000,\"Value\":74}]}", json);
+    }
+
+    @Test
+    public void decodeVibration_readsOnlyVibrationFields() {
+        VibrationCommand command = new VibrationCommand();
+        assertTrue(NodeRedCodec.decodeVibration(RESPONSE, command));
+        assertEquals(3, command.getIntensity());
+        assertEquals(5, command.getPulses());
+        assertEquals(250, command.getDuration());
+        assertEquals(500, command.getInterval());
+        assertEquals("Sun is west", command.getMessage());
+    }
+
+    @Test
+    public void decodeVibration_rejectsMalformedBody() {
+        VibrationCommand command = new VibrationCommand();
+        assertFalse(NodeRedCodec.decodeVibration("[1,2]".getBytes(StandardCharsets.UTF_8), command));
+        assertFalse(NodeRedCodec.decodeVibration("{\"pulses\":3".getBytes(StandardCharsets.UTF_8), command));
+        assertFalse(NodeRedCodec.decodeVibration(null, command));
+    }
+
+    @Test
+    public void benchmark_allocationPerRequest() {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        NodeRedCodec codec = new NodeRedCodec();
+        LocationData data = new LocationData(52.5200066, 13.4049, "12", "34", "50");
+        byte[] response = "{\"intensity\":3,\"pulses\":5,\"duration\":250,\"interval\":500}".getBytes(StandardCharsets.UTF_8);
+        VibrationCommand command = new VibrationCommand();
+        int iterations = 50_000;
+        long sink = 0;
+
+        for (int i = 0; i < iterations; i++) { // Warm-up
+            sink += codec.encodeLocation(data).length;
+            NodeRedCodec.decodeVibration(response, command);
+        }
+
+        long before = mx.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            sink += codec.encodeLocation(data).length;
+            NodeRedCodec.decodeVibration(response, command);
+            sink += command.getPulses();
+        }
+        long perRequest = (mx.getThreadAllocatedBytes(threadId) - before) / iterations;
+
+        assertTrue(sink > 0); // Keeps the loop from being optimized away
+        // Only the exact-size body copy handed to the HTTP client should be allocated
+        assertTrue("allocated " + perRequest + " bytes/request", perRequest < 256);
+    }
+}
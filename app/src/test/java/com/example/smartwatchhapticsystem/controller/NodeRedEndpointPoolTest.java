@@ -0,0 +1,86 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Routing and health probing of {@link NodeRedEndpointPool} against two stand-in servers.
+ */
+public class NodeRedEndpointPoolTest {
+
+    private NodeRedStandInServer primary;
+    private NodeRedStandInServer secondary;
+
+    @Before
+    public void setUp() throws IOException {
+        primary = new NodeRedStandInServer(1);
+        secondary = new NodeRedStandInServer(2);
+    }
+
+    @After
+    public void tearDown() {
+        primary.close();
+        secondary.close();
+    }
+
+    @Test
+    public void prefersFirstServerUntilLatencyIsKnown() {
+        NodeRedEndpointPool pool = NodeRedEndpointPool.fromList(primary.getBaseUrl() + ", " + secondary.getBaseUrl());
+        assertEquals(2, pool.size());
+        assertSame(pool.get(0), pool.select(0));
+    }
+
+    @Test
+    public void probesRouteToLowerLatencyServer() {
+        primary.setLatency(NodeRedStandInServer.LatencyDistribution.FIXED, 150, 0);
+        NodeRedEndpointPool pool = new NodeRedEndpointPool(Arrays.asList(primary.getBaseUrl(), secondary.getBaseUrl()));
+
+        for (int i = 0; i < 3; i++) {
+            pool.probeAll();
+        }
+
+        assertSame(pool.get(1), pool.select(NodeRedEndpointPool.nowMs()));
+        assertTrue(primary.getRequestCount() >= 3);
+    }
+
+    @Test
+    public void failingServerIsAvoidedAndBreakerOpens() {
+        secondary.close(); // Connection refused from now on
+        NodeRedEndpointPool pool = new NodeRedEndpointPool(Arrays.asList(secondary.getBaseUrl(), primary.getBaseUrl()));
+        NodeRedEndpointPool.Endpoint down = pool.get(0);
+
+        long now = NodeRedEndpointPool.nowMs();
+        assertSame(down, pool.select(now));
+        down.onFailure(NodeRedEndpointPool.PATH_HEART_RATE, false);
+
+        // One failure already moves traffic to the healthy server
+        assertTrue(pool.hasHealthyAlternative(down));
+        assertSame(pool.get(1), pool.select(now));
+
+        for (int i = 0; i < 5; i++) {
+            pool.probeAll();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, down.getBreaker().getState());
+        assertTrue(down.toString(), down.toString().contains("last probe failed"));
+        assertSame(pool.get(1), pool.select(NodeRedEndpointPool.nowMs()));
+    }
+
+    @Test
+    public void allServersDownFailsFast() {
+        NodeRedEndpointPool pool = new NodeRedEndpointPool(Arrays.asList(primary.getBaseUrl()));
+        NodeRedEndpointPool.Endpoint only = pool.get(0);
+        for (int i = 0; i < 5; i++) {
+            only.onFailure(NodeRedEndpointPool.PATH_CONFIG, true);
+        }
+        long now = NodeRedEndpointPool.nowMs();
+        assertNull(pool.select(now));
+        assertTrue(pool.getRetryInMs(now) > 0);
+        assertTrue(only.timeoutMs(NodeRedEndpointPool.PATH_CONFIG) > 5000); // Backed off by the timeouts
+    }
+}
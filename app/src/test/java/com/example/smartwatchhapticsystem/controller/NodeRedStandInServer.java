@@ -0,0 +1,265 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * NodeRedStandInServer: JVM-side stand-in for the Node-RED flows, for offline load tests.
+ *
+ * Implements /get-monitoring-config, /heartRate, /sun-data and /moon-data with response
+ * bodies shaped like the real flows, and can inject latency (fixed, uniform or log-normal),
+ * HTTP errors, timeouts (request held open, never answered in time) and slow-drip bodies.
+ * Point NetworkController at {@link #getBaseUrl()} to exercise the uplink path on a Linux box.
+ */
+public class NodeRedStandInServer implements AutoCloseable {
+
+    /**
+     * How response latency is drawn.
+     */
+    public enum LatencyDistribution {
+        FIXED,      // Always the median
+        UNIFORM,    // Uniform in [0, 2 * median]
+        LOG_NORMAL  // Median with a heavy right tail controlled by sigma
+    }
+
+    private static final Pattern VALUE = Pattern.compile("\"Value\"\\s*:\\s*\"?(\\d+)");
+    private static final Pattern SEQ = Pattern.compile("\"(?:Seq|seq)\"\\s*:\\s*\"?(\\d+)");
+    private static final Pattern LAT = Pattern.compile("\"lat\"\\s*:\\s*(-?[\\d.]+)");
+    private static final Pattern LON = Pattern.compile("\"lon\"\\s*:\\s*(-?[\\d.]+)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Random random;
+
+    private volatile String monitoringType = "HeartRate";
+    private volatile LatencyDistribution distribution = LatencyDistribution.FIXED;
+    private volatile long medianLatencyMs = 0;
+    private volatile double sigma = 0.5;
+    private volatile double errorRate = 0;
+    private volatile double timeoutRate = 0;
+    private volatile long timeoutHoldMs = 30_000;
+    private volatile double slowDripRate = 0;
+    private volatile long slowDripByteDelayMs = 50;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong injectedTimeouts = new AtomicLong();
+
+    /**
+     * Starts the server on an ephemeral loopback port.
+     *
+     * @param seed Seed for latency and fault injection, so runs are reproducible.
+     */
+    public NodeRedStandInServer(long seed) throws IOException {
+        random = new Random(seed);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/get-monitoring-config", this::handleConfig);
+        server.createContext("/heartRate", this::handleHeartRate);
+        server.createContext("/sun-data", exchange -> handleAzimuth(exchange, "Sun"));
+        server.createContext("/moon-data", exchange -> handleAzimuth(exchange, "Moon"));
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setMonitoringType(String monitoringType) {
+        this.monitoringType = monitoringType;
+    }
+
+    /**
+     * @param distribution Shape of the latency distribution.
+     * @param medianMs     Median latency.
+     * @param sigma        Log-normal shape parameter (ignored for other shapes).
+     */
+    public void setLatency(LatencyDistribution distribution, long medianMs, double sigma) {
+        this.distribution = distribution;
+        this.medianLatencyMs = medianMs;
+        this.sigma = sigma;
+    }
+
+    /** Fraction of requests answered with HTTP 500. */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /** Fraction of requests held open for {@code holdMs} before answering. */
+    public void setTimeoutRate(double timeoutRate, long holdMs) {
+        this.timeoutRate = timeoutRate;
+        this.timeoutHoldMs = holdMs;
+    }
+
+    /** Fraction of responses written one byte at a time with the given delay. */
+    public void setSlowDripRate(double slowDripRate, long byteDelayMs) {
+        this.slowDripRate = slowDripRate;
+        this.slowDripByteDelayMs = byteDelayMs;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    public long getInjectedTimeoutCount() {
+        return injectedTimeouts.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ------------------------------------------------------------------
+    // Handlers
+    // ------------------------------------------------------------------
+
+    private void handleConfig(HttpExchange exchange) throws IOException {
+        respond(exchange, "{\"monitoringType\":\"" + monitoringType + "\"}");
+    }
+
+    private void handleHeartRate(HttpExchange exchange) throws IOException {
+        String body = readBody(exchange);
+        int value = extractInt(VALUE, body, 70);
+
+        // Same idea as the real flow: stronger feedback the further the value is from the resting band
+        int intensity = value > 120 ? 5 : value > 100 ? 3 : value < 50 ? 2 : 0;
+        int pulses = intensity == 0 ? 0 : intensity / 2 + 1;
+        respond(exchange, String.format(Locale.US,
+                "{\"seq\":%d,\"intensity\":%d,\"pulses\":%d,\"duration\":%d,\"interval\":%d}",
+                extractInt(SEQ, body, 0), intensity, pulses, 250, 500));
+    }
+
+    private void handleAzimuth(HttpExchange exchange, String body) throws IOException {
+        String request = readBody(exchange);
+        double lat = extractDouble(LAT, request);
+        double lon = extractDouble(LON, request);
+
+        // A plausible azimuth that moves with position; the exact value does not matter for load tests
+        double azimuth = ((lon + 180) * 7 + (lat + 90) * 3) % 360;
+        int pulses = 1 + (int) (azimuth / 90);
+        respond(exchange, String.format(Locale.US,
+                "{\"message\":\"%s azimuth %.1f\",\"azimuth\":%.1f,\"seq\":%d," +
+                        "\"intensity\":%d,\"pulses\":%d,\"duration\":%d,\"interval\":%d}",
+                body, azimuth, azimuth, extractInt(SEQ, request, 0), 3, pulses, 200, 400));
+    }
+
+    private void respond(HttpExchange exchange, String json) throws IOException {
+        requests.incrementAndGet();
+        try {
+            // Step 1: Faults decided up front so each request gets at most one
+            double roll;
+            synchronized (random) {
+                roll = random.nextDouble();
+            }
+            if (roll < timeoutRate) {
+                injectedTimeouts.incrementAndGet();
+                sleep(timeoutHoldMs);
+            } else if (roll < timeoutRate + errorRate) {
+                injectedErrors.incrementAndGet();
+                sleep(nextLatencyMs());
+                send(exchange, 500, "{\"error\":\"injected\"}".getBytes(StandardCharsets.UTF_8), false);
+                return;
+            } else {
+                sleep(nextLatencyMs());
+            }
+
+            // Step 2: Normal (or slow-drip) response
+            boolean drip;
+            synchronized (random) {
+                drip = random.nextDouble() < slowDripRate;
+            }
+            send(exchange, 200, json.getBytes(StandardCharsets.UTF_8), drip);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body, boolean drip) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (!drip) {
+                out.write(body);
+                return;
+            }
+            for (byte b : body) {
+                out.write(b);
+                out.flush();
+                sleep(slowDripByteDelayMs);
+            }
+        }
+    }
+
+    private long nextLatencyMs() {
+        long median = medianLatencyMs;
+        if (median <= 0) {
+            return 0;
+        }
+        synchronized (random) {
+            switch (distribution) {
+                case UNIFORM:
+                    return (long) (random.nextDouble() * 2 * median);
+                case LOG_NORMAL:
+                    return (long) (median * Math.exp(sigma * random.nextGaussian()));
+                case FIXED:
+                default:
+                    return median;
+            }
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int extractInt(Pattern pattern, String body, int fallback) {
+        Matcher m = pattern.matcher(body);
+        return m.find() ? Integer.parseInt(m.group(1)) : fallback;
+    }
+
+    private static double extractDouble(Pattern pattern, String body) {
+        Matcher m = pattern.matcher(body);
+        return m.find() ? Double.parseDouble(m.group(1)) : 0;
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PacingSchedulerTest {
+
+    /** Fake watch link: records start times and send times of every beat. */
+    private static class FakeSender implements PacingScheduler.BeatSender {
+        boolean synced = true;
+        long now;
+        final List<long[]> beats = new ArrayList<>(); // {playAt, sentAt, duration}
+
+        @Override
+        public boolean isClockSynced() {
+            return synced;
+        }
+
+        @Override
+        public long getClockUncertaintyMs() {
+            return 3;
+        }
+
+        @Override
+        public boolean sendBeat(int intensity, int duration, long playAtPhoneMs) {
+            beats.add(new long[]{playAtPhoneMs, now, duration});
+            return true;
+        }
+    }
+
+    /** Runs the planner the way its timer would, with a few ms of wake-up jitter. */
+    private static void run(PacingScheduler pacer, FakeSender sender, long fromMs, long untilMs) {
+        long t = fromMs;
+        int i = 0;
+        while (t < untilMs) {
+            sender.now = t;
+            long delay = pacer.tick(t);
+            t += delay + (i++ % 3) * 4; // 0, 4 or 8 ms late
+        }
+    }
+
+    @Test
+    public void syncedBeatsAreSentAheadWithExactSpacing() {
+        FakeSender sender = new FakeSender();
+        PacingScheduler pacer = new PacingScheduler(sender);
+        pacer.begin(PacingScheduler.Target.HEART_RATE, 60, 60, 0);
+        run(pacer, sender, 0, 60000);
+
+        assertTrue(sender.beats.size() >= 60);
+        for (int i = 0; i < sender.beats.size(); i++) {
+            long[] beat = sender.beats.get(i);
+            assertEquals(100 + 1000L * i, beat[0]);            // No drift, no jitter in the plan
+            assertTrue("lead " + (beat[0] - beat[1]), beat[0] - beat[1] >= 100);
+            assertTrue(beat[0] - beat[1] <= PacingScheduler.LOOKAHEAD_MS);
+        }
+        assertTrue(pacer.getReport().contains("late=0"));
+    }
+
+    @Test
+    public void tempoRampsGraduallyTowardTarget() {
+        FakeSender sender = new FakeSender();
+        PacingScheduler pacer = new PacingScheduler(sender);
+        pacer.begin(PacingScheduler.Target.HEART_RATE, 60, 75, 0);
+        run(pacer, sender, 0, 60000);
+
+        // 3 per minute: about 72 after one minute, never a jump
+        assertEquals(72, pacer.getRate(), 0.5);
+        for (int i = 2; i < sender.beats.size(); i++) {
+            long previous = sender.beats.get(i - 1)[0] - sender.beats.get(i - 2)[0];
+            long current = sender.beats.get(i)[0] - sender.beats.get(i - 1)[0];
+            assertTrue(Math.abs(current - previous) <= 2);
+        }
+        run(pacer, sender, 60000, 6 * 60000);
+        assertEquals(60, pacer.getRate(), 1e-9);
+    }
+
+    @Test
+    public void heartRateTempoStaysNearLiveHeartRate() {
+        FakeSender sender = new FakeSender();
+        PacingScheduler pacer = new PacingScheduler(sender);
+        pacer.begin(PacingScheduler.Target.HEART_RATE, 50, 80, 0);
+        for (long t = 0; t < 10 * 60000; t += 1000) {
+            pacer.onHeartRate(80, t); // User does not follow
+            sender.now = t;
+            pacer.tick(t);
+        }
+        assertEquals(74, pacer.getRate(), 1e-9); // Leads by at most 6 bpm
+    }
+
+    @Test
+    public void stalledPlannerSkipsMissedBeatsInsteadOfBursting() {
+        FakeSender sender = new FakeSender();
+        PacingScheduler pacer = new PacingScheduler(sender);
+        pacer.begin(PacingScheduler.Target.HEART_RATE, 60, 60, 0);
+        run(pacer, sender, 0, 3000);
+        int before = sender.beats.size();
+
+        // The timer does not run for ten beats
+        long resumedAt = 3000 + 10 * 1000;
+        sender.now = resumedAt;
+        pacer.tick(resumedAt);
+
+        List<long[]> after = sender.beats.subList(before, sender.beats.size());
+        assertTrue(after.size() <= 2);                       // Only the look-ahead window, no backlog
+        for (long[] beat : after) {
+            assertTrue("lead " + (beat[0] - resumedAt), beat[0] - resumedAt >= 100);
+        }
+        assertTrue(pacer.getReport(), pacer.getReport().contains("late=8")); // 5100 to 12100 were never sent
+    }
+
+    @Test
+    public void unsyncedBeatsAreSentWhenDue() {
+        FakeSender sender = new FakeSender();
+        sender.synced = false;
+        PacingScheduler pacer = new PacingScheduler(sender);
+        pacer.begin(PacingScheduler.Target.BREATHING, 6, 6, 0);
+
+        long t = 0;
+        for (int i = 0; i < 6; i++) {
+            sender.now = t;
+            t += pacer.tick(t); // The planner asks to wake exactly at the next beat
+        }
+        assertEquals(5, sender.beats.size());
+        for (long[] beat : sender.beats) {
+            assertEquals(beat[0], beat[1]);   // Sent at its start time, not ahead
+            assertEquals(2000, beat[2]);      // Breathing: one long pulse per inhale
+        }
+        assertTrue(pacer.getReport().contains("unsynced=5"));
+    }
+}
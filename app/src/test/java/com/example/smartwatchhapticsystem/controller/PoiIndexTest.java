@@ -0,0 +1,115 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.example.smartwatchhapticsystem.model.PointOfInterest;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PoiIndexTest {
+
+    private static List<PointOfInterest> randomPoints(Random random, int n) {
+        List<PointOfInterest> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            // Uniform on the sphere, so poles and the dateline are covered
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lon = 360 * random.nextDouble() - 180;
+            points.add(new PointOfInterest("p" + i, "Point " + i, lat, lon));
+        }
+        return points;
+    }
+
+    private static PointOfInterest bruteForceNearest(List<PointOfInterest> points, double lat, double lon) {
+        PointOfInterest best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (PointOfInterest poi : points) {
+            double d = PoiIndex.distanceMeters(lat, lon, poi);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = poi;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random random = new Random(43);
+        List<PointOfInterest> points = randomPoints(random, 5000);
+        PoiIndex index = new PoiIndex(points);
+
+        for (int i = 0; i < 2000; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            double lon = 360 * random.nextDouble() - 180;
+            assertSame(bruteForceNearest(points, lat, lon), index.nearest(lat, lon));
+        }
+    }
+
+    @Test
+    public void nearestAcrossTheDateline() {
+        PoiIndex index = new PoiIndex(Arrays.asList(
+                new PointOfInterest("east", "East", 0, 179.9),
+                new PointOfInterest("far", "Far", 0, -170)));
+        assertEquals("east", index.nearest(0, -179.95).getId());
+    }
+
+    @Test
+    public void queriesTakeMicroseconds() {
+        Random random = new Random(7);
+        PoiIndex index = new PoiIndex(randomPoints(random, 10000));
+        int queries = 200000;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            sink += index.nearest(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180).getId().length();
+        }
+        long nsPerQuery = (System.nanoTime() - start) / queries;
+        assertTrue(sink > 0); // Keeps the loop from being optimized away
+        assertTrue(nsPerQuery + " ns/query over 10000 points", nsPerQuery < 50_000);
+    }
+
+    @Test
+    public void bearingAndDistance() {
+        PointOfInterest north = new PointOfInterest("n", "North", 1, 0);
+        PointOfInterest east = new PointOfInterest("e", "East", 0, 1);
+        assertEquals(0.0, PoiIndex.bearingDegrees(0, 0, north), 1e-9);
+        assertEquals(90.0, PoiIndex.bearingDegrees(0, 0, east), 1e-9);
+        assertEquals(270.0, PoiIndex.bearingDegrees(0, 2, east), 1e-9);
+        assertEquals(111195, PoiIndex.distanceMeters(0, 0, north), 1);
+    }
+
+    @Test
+    public void parseSkipsCommentsHeaderAndBadLines() throws IOException {
+        List<PointOfInterest> points = PoiIndex.parse(new StringReader(
+                "# exported\nid,name,lat,lon\nb1,Bench, by the lake,35.1,33.3\nbad,Nowhere,95,0\nshort,1\n"));
+        assertEquals(1, points.size());
+        assertEquals("Bench, by the lake", points.get(0).getName());
+        assertEquals(33.3, points.get(0).getLon(), 1e-12);
+    }
+
+    @Test
+    public void guideEncodesSectorAndDistance() throws IOException {
+        PoiGuide guide = new PoiGuide();
+        VibrationCommand command = new VibrationCommand();
+        assertNull(guide.guide(0, 0, command));
+        assertEquals(0, command.getPulses());
+
+        guide.load(new StringReader("ne,NE,0.001,0.001\nw,West,0,-1\n"));
+        assertEquals("ne", guide.guide(0, 0, command).getId()); // Nearest, ~157 m north-east
+        assertEquals(2, command.getPulses());
+        assertEquals(4, command.getIntensity());
+
+        guide.setTarget("w");
+        assertEquals("w", guide.guide(0, 0, command).getId());
+        assertEquals(7, command.getPulses()); // West
+        assertEquals(1, command.getIntensity()); // ~111 km away
+    }
+}
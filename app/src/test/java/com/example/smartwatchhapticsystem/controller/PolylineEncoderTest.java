@@ -0,0 +1,53 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PolylineEncoderTest {
+
+    @Test
+    public void matchesTheReferenceEncoding() {
+        double[] lat = {38.5, 40.7, 43.252};
+        double[] lon = {-120.2, -120.95, -126.453};
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", PolylineEncoder.encode(lat, lon, 3));
+    }
+
+    @Test
+    public void walkRoundTripsToAMetreInAFewBytesPerFix() {
+        Random random = new Random(3);
+        int n = 240;                                   // Two hours of fixes every 30 s
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        long[] times = new long[n];
+        lat[0] = 48.1372;
+        lon[0] = 11.5756;
+        times[0] = 1700000000L;
+        for (int i = 1; i < n; i++) {
+            lat[i] = lat[i - 1] + (random.nextDouble() - 0.3) * 0.0004;   // ~40 m steps
+            lon[i] = lon[i - 1] + (random.nextDouble() - 0.3) * 0.0006;
+            times[i] = times[i - 1] + 30 + random.nextInt(3);
+        }
+        String path = PolylineEncoder.encode(lat, lon, n);
+        String fixTimes = PolylineEncoder.encodeValues(times, n);
+
+        double[] decoded = PolylineEncoder.decode(path);
+        assertEquals(2 * n, decoded.length);
+        for (int i = 0; i < n; i++) {
+            assertEquals(lat[i], decoded[2 * i], 0.6e-5);
+            assertEquals(lon[i], decoded[2 * i + 1], 0.6e-5);
+        }
+        assertArrayEquals(times, PolylineEncoder.decodeValues(fixTimes));
+        // Plain JSON spends ~40 bytes per fix on coordinates alone
+        assertTrue("bytes/fix " + (path.length() + fixTimes.length()) / (double) n,
+                path.length() + fixTimes.length() < 10 * n);
+    }
+
+    @Test
+    public void emptyTrajectory() {
+        assertEquals("", PolylineEncoder.encode(new double[0], new double[0], 0));
+        assertEquals(0, PolylineEncoder.decode("").length);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResponseSequencerTest {
+
+    @Test
+    public void olderResponseAfterANewerOneIsDiscarded() {
+        ResponseSequencer sequencer = new ResponseSequencer(60000);
+        ResponseSequencer.Ticket first = sequencer.issue();
+        ResponseSequencer.Ticket second = sequencer.issue();
+        assertEquals(first.seq + 1, second.seq);
+
+        assertTrue(sequencer.accept(second));
+        assertFalse(sequencer.accept(first));       // Overtaken on the network
+        assertFalse(sequencer.accept(second));      // Duplicate
+        assertEquals(1, sequencer.getAppliedCount());
+        assertEquals(2, sequencer.getDiscardedOutOfOrderCount());
+    }
+
+    @Test
+    public void responseOverTheLatencyBudgetIsDiscarded() {
+        ResponseSequencer sequencer = new ResponseSequencer(60000);
+        ResponseSequencer.Ticket ticket = sequencer.issue();
+        sequencer.setLatencyBudgetMs(-1);           // Anything is too late now
+        assertFalse(sequencer.accept(ticket));
+        assertEquals(1, sequencer.getDiscardedLateCount());
+
+        sequencer.setLatencyBudgetMs(60000);
+        assertTrue(sequencer.accept(ticket));       // Late ones do not advance the applied seq
+    }
+
+    @Test
+    public void separateStreamsDoNotOrderEachOther() {
+        // Combined modes: interleaved heart-rate and sun requests each keep their own order
+        ResponseSequencer heartRate = new ResponseSequencer(60000);
+        ResponseSequencer sun = new ResponseSequencer(60000);
+        ResponseSequencer.Ticket sunTicket = sun.issue();
+        ResponseSequencer.Ticket hr1 = heartRate.issue();
+        ResponseSequencer.Ticket hr2 = heartRate.issue();
+
+        assertTrue(heartRate.accept(hr2));
+        assertTrue(sun.accept(sunTicket));          // Issued first, still fresh within its stream
+        assertFalse(heartRate.accept(hr1));
+    }
+}
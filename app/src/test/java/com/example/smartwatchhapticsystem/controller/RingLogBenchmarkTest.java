@@ -0,0 +1,44 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local checks for {@link RingLog}: per-sample logging must not allocate. (Timing is not
+ * asserted: wall-clock comparisons are unreliable on a loaded build machine.)
+ */
+public class RingLogBenchmarkTest {
+
+    private static final int ITERATIONS = 200_000;
+
+    @Test
+    public void hotPathLogging_doesNotAllocate() {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up so JIT compilation does not count as allocation
+        for (int i = 0; i < ITERATIONS; i++) {
+            RingLog.d(RingLog.EV_HR_SAMPLE, i, 0);
+        }
+
+        long before = mx.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            RingLog.d(RingLog.EV_HR_SAMPLE, i, 0);
+        }
+        long allocated = mx.getThreadAllocatedBytes(threadId) - before;
+
+        // Allow for a little noise from the MXBean call itself
+        assertTrue("RingLog allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void dump_decodesRecordsInOrder() {
+        RingLog.w(RingLog.EV_STALE_RESPONSE, 41, 3500);
+        RingLog.w(RingLog.EV_STALE_RESPONSE, 42, 3600);
+        String dump = RingLog.dump();
+        assertTrue(dump.indexOf("seq=41, ageMs=3500") < dump.indexOf("seq=42, ageMs=3600"));
+    }
+}
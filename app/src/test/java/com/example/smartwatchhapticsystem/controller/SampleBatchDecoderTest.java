@@ -0,0 +1,54 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SampleBatchDecoderTest {
+
+    private final List<String> samples = new ArrayList<>();
+    private final SampleBatchDecoder.SampleSink sink =
+            (user, watch, android, ts, value) -> samples.add(user + "/" + watch + "/" + android + "@" + ts + "=" + value);
+
+    @Test
+    public void decodesAllSamplesWithAbsoluteTimestamps() {
+        int n = SampleBatchDecoder.decode("HRBatch:12,3,50,1000000;0=72;1000=74;2000=121", sink);
+        assertEquals(3, n);
+        assertEquals(List.of("12/3/50@1000000=72", "12/3/50@1001000=74", "12/3/50@1002000=121"), samples);
+    }
+
+    @Test
+    public void headerOnlyFrameIsEmptyNotMalformed() {
+        assertEquals(0, SampleBatchDecoder.decode("HRBatch:12,3,50,1000000", sink));
+        assertEquals(0, SampleBatchDecoder.decode("HRBatch:12,3,50,1000000;", sink));
+        assertTrue(samples.isEmpty());
+    }
+
+    @Test
+    public void toleratesSpacesAndTrailingSeparator() {
+        assertEquals(2, SampleBatchDecoder.decode("HRBatch: 12, 3, 50, 500; 0 = 60 ;250=61;", sink));
+        assertEquals(List.of("12/3/50@500=60", "12/3/50@750=61"), samples);
+    }
+
+    @Test
+    public void malformedFramesAreRejected() {
+        assertEquals(-1, SampleBatchDecoder.decode("HRBatch:12,3;0=60", sink));       // Missing IDs
+        assertEquals(-1, SampleBatchDecoder.decode("HRBatch:12,3,50,abc;0=60", sink)); // Bad base
+        assertEquals(-1, SampleBatchDecoder.decode("Value:60", sink));
+        assertTrue(samples.isEmpty());
+    }
+
+    @Test
+    public void badSampleStopsDecodingButKeepsEarlierOnes() {
+        assertEquals(-1, SampleBatchDecoder.decode("HRBatch:1,2,3,0;0=60;10=x;20=62", sink));
+        assertEquals(List.of("1/2/3@0=60"), samples);
+    }
+
+    @Test
+    public void handshakeLineFormat() {
+        assertEquals("Batch:1000,50,100,16", SampleBatchDecoder.handshake(1000, 50, 100, 16));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SamplingRateControllerTest {
+
+    private static SamplingRateController controller() {
+        return new SamplingRateController(1000, 10000, 50, 100);
+    }
+
+    /**
+     * Feeds a constant value at the current interval for the given time.
+     */
+    private static long feedSteady(SamplingRateController c, int bpm, long fromMs, long forMs) {
+        long t = fromMs;
+        while (t < fromMs + forMs) {
+            c.onSample(bpm, t);
+            t += c.getIntervalMs();
+        }
+        return t;
+    }
+
+    @Test
+    public void stableSignalFarFromThresholdsSlowsDownStepwiseToMax() {
+        SamplingRateController c = controller();
+        feedSteady(c, 75, 0, 25000);
+        assertEquals(2000, c.getIntervalMs()); // One step after the first calm hold
+
+        feedSteady(c, 75, 25000, 200000);
+        assertEquals(8333, c.getIntervalMs()); // 25 bpm margin at 3 bpm/s caps the interval
+    }
+
+    @Test
+    public void approachingThresholdJumpsBackToFastestRate() {
+        SamplingRateController c = controller();
+        long t = feedSteady(c, 75, 0, 200000);
+        assertTrue(c.getIntervalMs() > 4000);
+
+        assertEquals(1000, c.onSample(96, t)); // Within 5 bpm of the high threshold
+        assertEquals(1000, c.getIntervalMs());
+    }
+
+    @Test
+    public void volatileSignalKeepsFastRate() {
+        SamplingRateController c = controller();
+        long t = 0;
+        for (int i = 0; i < 100; i++) {
+            c.onSample(i % 2 == 0 ? 68 : 80, t);
+            t += c.getIntervalMs();
+        }
+        assertEquals(1000, c.getIntervalMs());
+        assertTrue(c.getVolatility() >= 4.0);
+    }
+
+    @Test
+    public void trendTowardThresholdIsCaughtBeforeTheCrossing() {
+        SamplingRateController c = controller();
+        long t = feedSteady(c, 75, 0, 200000);
+        long slow = c.getIntervalMs();
+        assertTrue(slow > 4000);
+
+        // Rising 1 bpm/s: must be sampling fast before the value reaches 100
+        int bpm = 75;
+        while (bpm < 100) {
+            c.onSample(bpm, t);
+            long next = c.getIntervalMs();
+            t += next;
+            bpm = 75 + (int) ((t - 200000) / 1000);
+            if (c.getIntervalMs() == 1000) {
+                break;
+            }
+        }
+        assertEquals(1000, c.getIntervalMs());
+        assertTrue("reached fast rate at " + bpm + " bpm", bpm < 96);
+    }
+
+    @Test
+    public void hysteresisBandHoldsCurrentRate() {
+        SamplingRateController c = controller();
+        long t = feedSteady(c, 75, 0, 200000);
+
+        // Drift slowly down to 61 bpm: 11 bpm from the low threshold, neither near nor far
+        for (int bpm = 74; bpm >= 61; bpm--) {
+            c.onSample(bpm, t);
+            t += c.getIntervalMs();
+        }
+        long held = c.getIntervalMs();
+        assertTrue(held > 1000 && held <= 11 * 1000 / 3);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(-1, c.onSample(61, t)); // Neither sped up nor slowed down
+            t += c.getIntervalMs();
+        }
+        assertEquals(held, c.getIntervalMs());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SessionRecorder} / {@link SessionReplayer} round trips.
+ */
+public class SessionReplayerTest {
+
+    @Test
+    public void replay_reproducesRecordedEventsInOrder() throws Exception {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        try (SessionRecorder recorder = new SessionRecorder(file)) {
+            InputStream watch = recorder.tee(new ByteArrayInputStream(
+                    "MonitoringType:HeartRate,Value:72\n".getBytes(StandardCharsets.UTF_8)));
+            byte[] buffer = new byte[64];
+            while (watch.read(buffer, 0, buffer.length) > 0) {
+                // Drain the stream so the tee records it
+            }
+            recorder.recordLocation(52.52, 13.40, 4.5f);
+            recorder.recordResponse("/heartRate", "{\"pulses\":2}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<String> events = new ArrayList<>();
+        SessionReplayer.Report report = SessionReplayer.replay(new ByteArrayInputStream(file.toByteArray()),
+                new SessionReplayer.Sink() {
+                    @Override
+                    public void onSppBytes(byte[] data) {
+                        events.add("spp:" + new String(data, StandardCharsets.UTF_8).trim());
+                    }
+
+                    @Override
+                    public void onLocation(double latitude, double longitude, float accuracy) {
+                        events.add("loc:" + latitude + "," + longitude + "," + accuracy);
+                    }
+
+                    @Override
+                    public void onResponse(String endpoint, byte[] body) {
+                        events.add("resp:" + endpoint + ":" + new String(body, StandardCharsets.UTF_8));
+                    }
+                }, 0);
+
+        assertEquals(3, report.events);
+        assertEquals("spp:MonitoringType:HeartRate,Value:72", events.get(0));
+        assertEquals("loc:52.52,13.4,4.5", events.get(1));
+        assertEquals("resp:/heartRate:{\"pulses\":2}", events.get(2));
+        assertEquals(3, report.processingMicros.getCount());
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void replay_rejectsForeignFiles() throws Exception {
+        SessionReplayer.replay(new ByteArrayInputStream("not a session".getBytes(StandardCharsets.UTF_8)),
+                null, 0);
+    }
+}
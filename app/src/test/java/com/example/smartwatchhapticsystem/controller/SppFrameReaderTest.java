@@ -0,0 +1,133 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SppFrameReaderTest {
+
+    private static List<String> readAll(InputStream in, int maxFrameBytes) throws IOException {
+        SppFrameReader reader = new SppFrameReader(in, 64, maxFrameBytes);
+        List<String> frames = new ArrayList<>();
+        String frame;
+        while ((frame = reader.readFrame()) != null) {
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void splitsLinesAndIgnoresCrAndBlankLines() throws IOException {
+        List<String> frames = readAll(stream("Pong:1,2,3,4\r\n\n  \nMonitoringType:HeartRate,Value:80\nunterminated"), 256);
+        assertEquals(Arrays.asList("Pong:1,2,3,4", "MonitoringType:HeartRate,Value:80"), frames);
+    }
+
+    @Test
+    public void oversizedFrameIsDroppedAndReaderResyncs() throws IOException {
+        StringBuilder huge = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            huge.append('x');
+        }
+        List<String> frames = readAll(stream("a\n" + huge + "\nb\n"), 128);
+        assertEquals(Arrays.asList("a", "b"), frames);
+    }
+
+    @Test
+    public void controlBytesDropTheFrame() throws IOException {
+        List<String> frames = readAll(stream("Value:8\u00000\nPong:1\u0007\nok\n"), 128);
+        assertEquals(Arrays.asList("ok"), frames);
+    }
+
+    @Test
+    public void checksumIsVerifiedAndStrippedWhenPresent() throws IOException {
+        String good = SppFrameReader.withChecksum("MonitoringType:HeartRate,Value:80");
+        String bad = SppFrameReader.withChecksum("MonitoringType:HeartRate,Value:81").replace("Value:81", "Value:91");
+        List<String> frames = readAll(stream(good + "\n" + bad + "\nPlain:1\n"), 256);
+        assertEquals(Arrays.asList("MonitoringType:HeartRate,Value:80", "Plain:1"), frames);
+    }
+
+    /**
+     * Valid checksummed frames interleaved with random noise bursts, delivered in random-sized
+     * reads: every valid frame must come out intact and in order, and nothing returned may be
+     * longer than the limit or contain control bytes.
+     */
+    @Test
+    public void fuzzedStreamRecoversEveryValidFrame() throws IOException {
+        Random random = new Random(41);
+        int maxFrame = 200;
+        for (int round = 0; round < 50; round++) {
+            ByteArrayOutputStream wire = new ByteArrayOutputStream();
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                if (random.nextInt(3) == 0) {
+                    byte[] noise = new byte[random.nextInt(3 * maxFrame)];
+                    random.nextBytes(noise);
+                    wire.write(noise, 0, noise.length);
+                    wire.write('\n'); // The watch ends every frame, so noise is followed by a boundary
+                }
+                String frame = "@1|MonitoringType:HeartRate,Value:" + random.nextInt(200) + ",Seq:" + i;
+                expected.add(frame);
+                byte[] bytes = (SppFrameReader.withChecksum(frame) + "\n").getBytes(StandardCharsets.UTF_8);
+                wire.write(bytes, 0, bytes.length);
+            }
+
+            List<String> frames = readAll(new ChoppyInputStream(wire.toByteArray(), random), maxFrame);
+
+            int next = 0;
+            for (String frame : frames) {
+                assertTrue(frame.getBytes(StandardCharsets.UTF_8).length <= maxFrame);
+                for (char c : frame.toCharArray()) {
+                    assertTrue("control char in " + frame, c >= 0x20 || c == '\t');
+                }
+                if (next < expected.size() && frame.equals(expected.get(next))) {
+                    next++;
+                }
+            }
+            assertEquals("round " + round, expected.size(), next);
+        }
+    }
+
+    /**
+     * Returns at most a random handful of bytes per read, like a Bluetooth socket does.
+     */
+    private static class ChoppyInputStream extends InputStream {
+        private final byte[] data;
+        private final Random random;
+        private int pos = 0;
+
+        ChoppyInputStream(byte[] data, Random random) {
+            this.data = data;
+            this.random = random;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, 1 + random.nextInt(40)), data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
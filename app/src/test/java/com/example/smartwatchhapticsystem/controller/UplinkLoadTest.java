@@ -0,0 +1,141 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import com.example.smartwatchhapticsystem.model.LocationData;
+import com.example.smartwatchhapticsystem.model.VibrationCommand;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Throughput and tail-latency tests of the uplink wire path (NodeRedCodec + HTTP) against
+ * {@link NodeRedStandInServer}, runnable on any JVM without a device or network.
+ */
+public class UplinkLoadTest {
+
+    private static final int CLIENT_TIMEOUT_MS = 500;
+
+    private NodeRedStandInServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new NodeRedStandInServer(42);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void heartRate_responsesDecodeToVibrationCommands() throws IOException {
+        Map<String, String> sample = new HashMap<>();
+        sample.put("Value", "130");
+        sample.put("Seq", "9");
+        VibrationCommand command = new VibrationCommand();
+
+        int status = post("/heartRate", new NodeRedCodec().encodeHeartRate(sample), command);
+
+        assertEquals(200, status);
+        assertEquals(5, command.getIntensity());
+        assertEquals(3, command.getPulses());
+    }
+
+    @Test
+    public void sunData_underLatencyAndFaults_reportsThroughputAndTail() throws Exception {
+        server.setLatency(NodeRedStandInServer.LatencyDistribution.LOG_NORMAL, 10, 0.8);
+        server.setErrorRate(0.05);
+        server.setTimeoutRate(0.02, CLIENT_TIMEOUT_MS * 3);
+
+        int requests = 200;
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        MetricsRegistry.Histogram rtt = new MetricsRegistry.Histogram();
+        AtomicLong ok = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong timeouts = new AtomicLong();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            final int n = i;
+            clients.execute(() -> {
+                NodeRedCodec codec = new NodeRedCodec();
+                LocationData data = new LocationData(52.5 + n * 1e-4, 13.4, "1", "2", "50");
+                data.setSeq(n);
+                VibrationCommand command = new VibrationCommand();
+                long t0 = System.nanoTime();
+                try {
+                    int status = post("/sun-data", codec.encodeLocation(data), command);
+                    rtt.record((System.nanoTime() - t0) / 1_000_000L);
+                    if (status == 200 && command.getPulses() > 0) {
+                        ok.incrementAndGet();
+                    } else {
+                        errors.incrementAndGet();
+                    }
+                } catch (SocketTimeoutException e) {
+                    timeouts.incrementAndGet();
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                }
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(60, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String summary = String.format(Locale.US, "%d ok, %d errors, %d timeouts, %.1f req/s, rttMs[%s]",
+                ok.get(), errors.get(), timeouts.get(), requests / seconds, rtt);
+
+        assertEquals(summary, requests, ok.get() + errors.get() + timeouts.get());
+        assertEquals(summary, server.getInjectedTimeoutCount(), timeouts.get());
+        assertTrue(summary, ok.get() > requests * 0.8);
+    }
+
+    /**
+     * POSTs a body the way the app does and decodes the vibration fields of the reply.
+     *
+     * @return HTTP status code.
+     */
+    private int post(String path, byte[] body, VibrationCommand out) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getBaseUrl() + path).openConnection();
+        connection.setConnectTimeout(CLIENT_TIMEOUT_MS);
+        connection.setReadTimeout(CLIENT_TIMEOUT_MS);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(body);
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[512];
+                int n;
+                while ((n = stream.read(buffer)) > 0) {
+                    response.write(buffer, 0, n);
+                }
+            }
+        }
+        NodeRedCodec.decodeVibration(response.toByteArray(), out);
+        connection.disconnect();
+        return status;
+    }
+}
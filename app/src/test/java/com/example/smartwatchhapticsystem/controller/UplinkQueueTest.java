@@ -0,0 +1,118 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the overflow policies of {@link UplinkQueue}.
+ */
+public class UplinkQueueTest {
+
+    private static Map<String, String> sample(int value) {
+        Map<String, String> data = new HashMap<>();
+        data.put("Value", String.valueOf(value));
+        return data;
+    }
+
+    @Test
+    public void dropOldest_keepsNewestSamples() {
+        UplinkQueue queue = new UplinkQueue(3, UplinkQueue.OverflowPolicy.DROP_OLDEST, "Value");
+        for (int i = 1; i <= 5; i++) {
+            queue.offer("a", sample(i));
+        }
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.getStats().dropped);
+        assertEquals("3", queue.poll().getPayload().get("Value"));
+    }
+
+    @Test
+    public void keepLatestPerKey_replacesQueuedSample() {
+        UplinkQueue queue = new UplinkQueue(4, UplinkQueue.OverflowPolicy.KEEP_LATEST_PER_KEY, "Value");
+        queue.offer("a", sample(60));
+        queue.offer("b", sample(70));
+        queue.offer("a", sample(61));
+        assertEquals(2, queue.size());
+        assertEquals("b", queue.poll().getKey());
+        assertEquals("61", queue.poll().getPayload().get("Value"));
+    }
+
+    @Test
+    public void downsample_halvesBacklog() {
+        UplinkQueue queue = new UplinkQueue(4, UplinkQueue.OverflowPolicy.DOWNSAMPLE, "Value");
+        for (int i = 1; i <= 5; i++) {
+            queue.offer("a", sample(i));
+        }
+        assertEquals(3, queue.size());
+        assertEquals("2", queue.poll().getPayload().get("Value"));
+        assertEquals("4", queue.poll().getPayload().get("Value"));
+        assertEquals("5", queue.poll().getPayload().get("Value"));
+    }
+
+    @Test
+    public void aggregate_collapsesIntoSummary() {
+        UplinkQueue queue = new UplinkQueue(3, UplinkQueue.OverflowPolicy.AGGREGATE, "Value");
+        queue.offer("a", sample(60));
+        queue.offer("a", sample(70));
+        queue.offer("a", sample(80));
+        queue.offer("a", sample(90));
+        assertEquals(2, queue.size());
+        Map<String, String> summary = queue.poll().getPayload();
+        assertEquals("70", summary.get("Value"));
+        assertEquals("60", summary.get("Min"));
+        assertEquals("80", summary.get("Max"));
+        assertEquals("3", summary.get("SampleCount"));
+    }
+
+    @Test
+    public void requeue_dropsRetryWhenNewerSampleWaiting() {
+        UplinkQueue queue = new UplinkQueue(4, UplinkQueue.OverflowPolicy.KEEP_LATEST_PER_KEY, "Value");
+        queue.offer("a", sample(60));
+        UplinkQueue.Entry failed = queue.poll();
+        queue.offer("a", sample(65));
+        assertFalse(queue.requeue(failed));
+        assertEquals(1, queue.size());
+        assertEquals("65", queue.poll().getPayload().get("Value"));
+    }
+
+    private static Map<String, String> batch(int value, String samples) {
+        Map<String, String> data = sample(value);
+        data.put(UplinkQueue.SAMPLES_FIELD, samples);
+        return data;
+    }
+
+    @Test
+    public void keepLatestPerKey_carriesSupersededBatchSamplesAlong() {
+        UplinkQueue queue = new UplinkQueue(4, UplinkQueue.OverflowPolicy.KEEP_LATEST_PER_KEY, "Value");
+        queue.offer("a", batch(72, "1000=70;2000=72"));
+        queue.offer("a", batch(75, "3000=74;4000=75"));
+        assertEquals(1, queue.size());
+        assertEquals(0, queue.getStats().dropped);
+        UplinkQueue.Entry entry = queue.poll();
+        assertEquals("75", entry.getPayload().get("Value"));
+        assertEquals("1000=70;2000=72;3000=74;4000=75", entry.getPayload().get(UplinkQueue.SAMPLES_FIELD));
+
+        // A failed batch meeting a newer one on requeue is merged into it, oldest first
+        queue.offer("a", batch(76, "5000=76"));
+        assertFalse(queue.requeue(entry));
+        assertEquals("1000=70;2000=72;3000=74;4000=75;5000=76",
+                queue.poll().getPayload().get(UplinkQueue.SAMPLES_FIELD));
+    }
+
+    @Test
+    public void mergedSeriesIsCapped() {
+        StringBuilder older = new StringBuilder();
+        for (int t = 0; t < 200; t++) {
+            older.append(t == 0 ? "" : ";").append(t).append("=60");
+        }
+        Map<String, String> newer = batch(61, "200=61");
+        assertTrue(UplinkQueue.mergeSamples(batch(60, older.toString()), newer));
+        String merged = newer.get(UplinkQueue.SAMPLES_FIELD);
+        assertEquals(120, merged.split(";").length);
+        assertTrue(merged.startsWith("81=60;"));
+        assertTrue(merged.endsWith(";200=61"));
+    }
+}
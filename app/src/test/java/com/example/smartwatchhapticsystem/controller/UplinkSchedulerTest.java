@@ -0,0 +1,153 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UplinkSchedulerTest {
+
+    /** Records dispatches and holds completions so the test decides when requests finish. */
+    private static class FakeServer implements UplinkScheduler.Dispatcher {
+        final List<String> log;
+        final ArrayDeque<UplinkScheduler.Completion> pending = new ArrayDeque<>();
+        final String name;
+
+        FakeServer(String name, List<String> log) {
+            this.name = name;
+            this.log = log;
+        }
+
+        @Override
+        public void dispatch(UplinkQueue.Entry entry, UplinkScheduler.Completion completion) {
+            log.add(name);
+            pending.add(completion);
+        }
+
+        int inFlight() {
+            return pending.size();
+        }
+
+        void completeOne() {
+            pending.poll().done();
+        }
+    }
+
+    private static UplinkQueue queue(int capacity) {
+        return new UplinkQueue(capacity, UplinkQueue.OverflowPolicy.DROP_OLDEST, null);
+    }
+
+    @Test
+    public void strictLaneIsDispatchedBeforeQueuedBulk() {
+        List<String> log = new ArrayList<>();
+        UplinkScheduler scheduler = new UplinkScheduler(1, 0);
+        FakeServer actuation = new FakeServer("act", log);
+        FakeServer bulk = new FakeServer("bulk", log);
+        UplinkScheduler.Lane actLane = scheduler.addStrictLane("t-act", 1, queue(4), actuation);
+        UplinkScheduler.Lane bulkLane = scheduler.addBulkLane("t-bulk", 1, 1, queue(16), bulk);
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit(bulkLane, "b" + i, Collections.emptyMap());
+        }
+        scheduler.submit(actLane, "hr", Collections.emptyMap());
+
+        // The single slot went to bulk first; the actuation request is next, ahead of 4 queued bulk
+        assertEquals(List.of("bulk"), log);
+        bulk.completeOne();
+        assertEquals(List.of("bulk", "act"), log);
+    }
+
+    @Test
+    public void reservedSlotIsNeverTakenByBulk() {
+        List<String> log = new ArrayList<>();
+        UplinkScheduler scheduler = new UplinkScheduler(4, 1);
+        FakeServer actuation = new FakeServer("act", log);
+        FakeServer bulk = new FakeServer("bulk", log);
+        UplinkScheduler.Lane actLane = scheduler.addStrictLane("r-act", 1, queue(4), actuation);
+        UplinkScheduler.Lane bulkLane = scheduler.addBulkLane("r-bulk", 1, 10, queue(16), bulk);
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit(bulkLane, "b" + i, Collections.emptyMap());
+        }
+        assertEquals(3, bulk.inFlight());
+
+        scheduler.submit(actLane, "hr", Collections.emptyMap());
+        assertEquals(1, actuation.inFlight()); // Dispatched immediately despite the bulk backlog
+    }
+
+    @Test
+    public void bulkLanesShareByWeight() {
+        List<String> log = new ArrayList<>();
+        UplinkScheduler scheduler = new UplinkScheduler(1, 0);
+        FakeServer heavy = new FakeServer("heavy", log);
+        FakeServer light = new FakeServer("light", log);
+        UplinkScheduler.Lane heavyLane = scheduler.addBulkLane("w-heavy", 3, 1, queue(64), heavy);
+        UplinkScheduler.Lane lightLane = scheduler.addBulkLane("w-light", 1, 1, queue(64), light);
+
+        for (int i = 0; i < 40; i++) {
+            scheduler.submit(heavyLane, "h" + i, Collections.emptyMap());
+            scheduler.submit(lightLane, "l" + i, Collections.emptyMap());
+        }
+        while (log.size() < 40) {
+            (heavy.inFlight() > 0 ? heavy : light).completeOne();
+        }
+
+        long heavyCount = log.subList(0, 40).stream().filter("heavy"::equals).count();
+        assertEquals(30, heavyCount);
+    }
+
+    @Test
+    public void completionIsIdempotentAndRespectsLaneLimit() {
+        List<String> log = new ArrayList<>();
+        UplinkScheduler scheduler = new UplinkScheduler(4, 0);
+        FakeServer server = new FakeServer("act", log);
+        UplinkScheduler.Lane lane = scheduler.addStrictLane("i-act", 1, queue(8), server);
+
+        scheduler.submit(lane, "a", Collections.emptyMap());
+        scheduler.submit(lane, "b", Collections.emptyMap());
+        scheduler.submit(lane, "c", Collections.emptyMap());
+        assertEquals(1, server.inFlight());
+
+        UplinkScheduler.Completion first = server.pending.poll();
+        first.done();
+        first.done(); // Second call must not free another slot
+        assertEquals(1, server.inFlight());
+        assertEquals(2, log.size());
+    }
+
+    @Test
+    public void synchronousCompletionInsideDispatchKeepsDraining() {
+        UplinkScheduler scheduler = new UplinkScheduler(1, 0);
+        List<String> sent = new ArrayList<>();
+        UplinkScheduler.Lane lane = scheduler.addStrictLane("s-act", 1, queue(8),
+                (entry, completion) -> {
+                    sent.add(entry.getKey());
+                    completion.done(); // e.g. encoding failed before anything was sent
+                });
+
+        scheduler.submit(lane, "a", Collections.emptyMap());
+        scheduler.submit(lane, "b", Collections.emptyMap());
+        assertEquals(List.of("a", "b"), sent);
+    }
+
+    @Test
+    public void shutdownDropsQueuedAndIgnoresLaterWork() {
+        List<String> log = new ArrayList<>();
+        UplinkScheduler scheduler = new UplinkScheduler(1, 0);
+        FakeServer server = new FakeServer("traj", log);
+        UplinkScheduler.Lane lane = scheduler.addStrictLane("x-traj", 1, queue(8), server);
+        scheduler.submit(lane, "a", Collections.emptyMap());
+        scheduler.submit(lane, "b", Collections.emptyMap());
+
+        scheduler.shutdown();
+        assertTrue(lane.getQueue().isEmpty());
+        scheduler.submit(lane, "c", Collections.emptyMap());
+        server.completeOne(); // The request in flight still completes, nothing follows it
+        assertEquals(1, log.size());
+        assertTrue(lane.getQueue().isEmpty());
+    }
+}
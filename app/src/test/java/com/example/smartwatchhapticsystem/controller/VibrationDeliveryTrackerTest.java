@@ -0,0 +1,152 @@
+package com.example.smartwatchhapticsystem.controller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VibrationDeliveryTrackerTest {
+
+    private static final long OFFSET_MS = 50000;  // Watch clock ahead of the phone
+
+    private final List<String> frames = new ArrayList<>();
+    private long rttMs = 40;
+
+    private VibrationDeliveryTracker tracker(ClockSync clockSync, int credits) {
+        VibrationDeliveryTracker tracker = new VibrationDeliveryTracker((mode, frame) -> frames.add(frame),
+                () -> rttMs, clockSync);
+        tracker.enable(credits);
+        return tracker;
+    }
+
+    private static int idOf(String frame) {
+        return Integer.parseInt(frame.substring("VibrateA:".length(), frame.indexOf(',')));
+    }
+
+    @Test
+    public void ackedCommandMeasuresSubmitToPlayLatency() {
+        ClockSync sync = new ClockSync();
+        sync.onExchange(0, OFFSET_MS + 5, OFFSET_MS + 6, 11);
+        VibrationDeliveryTracker tracker = tracker(sync, 4);
+
+        MetricsRegistry.Histogram latency = MetricsRegistry.get().histogram("vib.playLatencyMs");
+        double sumBefore = latency.getMean() * latency.getCount();
+        assertEquals(VibrationDeliveryTracker.Result.SENT, tracker.submit("HeartRate", "3,2,200,300", 1000, 100));
+        assertEquals("VibrateA:1,3,2,200,300", frames.get(0));
+        // Watch started playing 150 ms after submission (its clock), ack arrives at 300
+        assertTrue(tracker.onAck("Ack:1,P," + (OFFSET_MS + 250) + ",4", 300));
+        assertEquals(0, tracker.getOutstanding());
+        assertEquals(-1, tracker.tick(300));
+        String report = tracker.getReport();
+        assertTrue(report, report.contains("delivered=1 "));
+        assertEquals(150, latency.getMean() * latency.getCount() - sumBefore, 1e-6);
+    }
+
+    @Test
+    public void creditWindowLimitsCommandsOnTheLink() {
+        VibrationDeliveryTracker tracker = tracker(new ClockSync(), 2);
+        for (int i = 0; i < 5; i++) {
+            tracker.submit("SunAzimuth", "1,1,100,100", 5000, 0);
+        }
+        assertEquals(2, frames.size());                 // Only what the watch has room for
+        assertEquals(5, tracker.getOutstanding());
+
+        tracker.onAck("Ack:1,P,0,1,2", 50);             // One played, 2 received too, one slot free
+        assertEquals(3, frames.size());
+        tracker.onAck("Ack:2,S,0,2,3", 60);             // Superseded on the watch, two slots free
+        assertEquals(5, frames.size());
+        tracker.onAck("Ack:3,P,0,0,5", 70);             // Watch buffer full: nothing more
+        assertEquals(5, frames.size());
+        assertTrue(tracker.getReport().contains("skipped=1"));
+    }
+
+    @Test
+    public void unackedCommandIsResentUntilItsDeadline() {
+        VibrationDeliveryTracker tracker = tracker(new ClockSync(), 4);
+        tracker.submit("HeartRate", "3,1,100,100", 300, 0);
+        long wait = tracker.tick(0);
+        assertEquals(80, wait);                         // RTO = max(80, 2 * RTT)
+
+        tracker.tick(80);                               // Lost: resend the same id
+        assertEquals(2, frames.size());
+        assertEquals(frames.get(0), frames.get(1));
+        tracker.tick(160);
+        assertEquals(3, frames.size());
+        tracker.tick(240);                              // Third attempt used up: dropped
+        assertEquals(3, frames.size());
+        assertEquals(0, tracker.getOutstanding());
+        assertTrue(tracker.getReport().contains("expired=1 retransmits=2"));
+    }
+
+    @Test
+    public void noResendThatWouldArriveLate() {
+        rttMs = 100;
+        VibrationDeliveryTracker tracker = tracker(new ClockSync(), 4);
+        tracker.submit("Pacing", "3,1,80,0", 230, 0);
+        tracker.tick(200);                              // Resend would land at 250, after 230
+        assertEquals(1, frames.size());
+        assertEquals(0, tracker.getOutstanding());
+    }
+
+    @Test
+    public void queuedCommandsExpireAndLostAcksDoNotStall() {
+        VibrationDeliveryTracker tracker = tracker(new ClockSync(), 1);
+        tracker.submit("HeartRate", "1,1,100,100", 2000, 0);
+        assertEquals(VibrationDeliveryTracker.Result.QUEUED, tracker.submit("HeartRate", "2,1,100,100", 500, 0));
+        tracker.tick(480);                              // Cannot reach the watch before 500 any more
+        assertEquals(1, tracker.getOutstanding());
+
+        // Every ack of the first command lost: after its attempts, the link is free again
+        tracker.tick(600);
+        tracker.tick(700);
+        tracker.tick(800);
+        assertEquals(0, tracker.getOutstanding());
+        assertEquals(VibrationDeliveryTracker.Result.SENT, tracker.submit("HeartRate", "3,1,100,100", 2000, 900));
+        assertEquals(3, idOf(frames.get(frames.size() - 1)));
+    }
+
+    @Test
+    public void bufferFullIsRetriedAndStaleAcksAreHarmless() {
+        VibrationDeliveryTracker tracker = tracker(new ClockSync(), 4);
+        tracker.submit("HeartRate", "1,1,100,100", 1000, 0);
+        tracker.onAck("Ack:1,F,0,1", 30);               // Not stored: resent at once
+        assertEquals(2, frames.size());
+        assertTrue(tracker.onAck("Ack:1,P,0,4", 60));
+        assertTrue(tracker.onAck("Ack:1,P,0,4", 61));   // Duplicate of the resend
+        assertTrue(tracker.onAck("Ack:99,P,0,4", 62));
+        assertFalse(tracker.onAck("Ack:x", 63));
+        assertTrue(tracker.getReport().contains("delivered=1 "));
+    }
+
+    @Test
+    public void refusedCommandWaitsForCredit() {
+        VibrationDeliveryTracker tracker = tracker(new ClockSync(), 4);
+        tracker.submit("HeartRate", "1,1,100,100", 1000, 0);
+        tracker.onAck("Ack:1,F,0,0", 30);               // Refused and no room
+        assertEquals(1, frames.size());
+        assertEquals(80, tracker.tick(30));             // Polls at the RTO, not in a tight loop
+        tracker.onAck("Ack:0,P,0,1,1", 50);             // A slot frees up
+        assertEquals(2, frames.size());
+    }
+
+    @Test
+    public void commandsInTransitKeepTheirCreditAndStaleAcksAreIgnored() {
+        VibrationDeliveryTracker tracker = tracker(new ClockSync(), 2);
+        for (int i = 0; i < 3; i++) {
+            tracker.submit("HeartRate", "1,1,100,100", 5000, 0);
+        }
+        assertEquals(2, frames.size());
+
+        tracker.onAck("Ack:1,P,0,1", 50);               // Sent before 2 arrived: 2 takes that slot
+        assertEquals(2, frames.size());
+        tracker.onAck("Ack:2,P,0,2", 60);               // Both received and played
+        assertEquals(3, frames.size());
+        tracker.onAck("Ack:1,P,0,4", 70);               // Late duplicate with stale credits: ignored
+        tracker.submit("HeartRate", "1,1,100,100", 5000, 80);
+        assertEquals(4, frames.size());                 // One slot left besides 3
+        tracker.submit("HeartRate", "1,1,100,100", 5000, 90);
+        assertEquals(4, frames.size());
+    }
+}